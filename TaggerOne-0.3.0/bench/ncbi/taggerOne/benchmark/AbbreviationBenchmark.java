@@ -0,0 +1,93 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ncbi.taggerOne.util.AbbreviationResolver;
+
+/*
+ * Measures AbbreviationResolver.expandAbbreviations() on mentions that contain a short form and on mentions that do not. Times are per mention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AbbreviationBenchmark {
+
+	private static final int DOCUMENTS = 100;
+	private static final int MENTIONS = 100;
+
+	@Param({ "5", "20" })
+	public int abbreviationsPerDocument;
+
+	private AbbreviationResolver resolver;
+	private List<String> documentIds;
+	private List<String> abbreviatedMentions;
+	private List<String> plainMentions;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		resolver = new AbbreviationResolver();
+		documentIds = new ArrayList<String>();
+		List<List<String>> shortForms = new ArrayList<List<String>>();
+		for (int documentIndex = 0; documentIndex < DOCUMENTS; documentIndex++) {
+			String documentId = Integer.toString(10000000 + documentIndex);
+			Map<String, String> abbreviations = new HashMap<String, String>();
+			List<String> documentShortForms = new ArrayList<String>();
+			for (int abbreviationIndex = 0; abbreviationIndex < abbreviationsPerDocument; abbreviationIndex++) {
+				String shortForm = "AB" + abbreviationIndex;
+				abbreviations.put(shortForm, "long form " + abbreviationIndex + " of abbreviation");
+				documentShortForms.add(shortForm);
+			}
+			resolver.addAbbreviations(documentId, abbreviations);
+			documentIds.add(documentId);
+			shortForms.add(documentShortForms);
+		}
+		abbreviatedMentions = new ArrayList<String>();
+		plainMentions = new ArrayList<String>();
+		for (int mentionIndex = 0; mentionIndex < MENTIONS; mentionIndex++) {
+			List<String> documentShortForms = shortForms.get(mentionIndex % DOCUMENTS);
+			abbreviatedMentions.add("familial " + documentShortForms.get(random.nextInt(documentShortForms.size())) + " type " + mentionIndex);
+			plainMentions.add("familial disease type " + mentionIndex);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MENTIONS)
+	public void expandAbbreviated(Blackhole blackhole) {
+		expand(abbreviatedMentions, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MENTIONS)
+	public void expandPlain(Blackhole blackhole) {
+		expand(plainMentions, blackhole);
+	}
+
+	private void expand(List<String> mentions, Blackhole blackhole) {
+		for (int mentionIndex = 0; mentionIndex < mentions.size(); mentionIndex++) {
+			blackhole.consume(resolver.expandAbbreviations(documentIds.get(mentionIndex % DOCUMENTS), mentions.get(mentionIndex)));
+		}
+	}
+}
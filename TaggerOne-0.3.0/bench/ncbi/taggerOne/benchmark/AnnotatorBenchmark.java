@@ -0,0 +1,89 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
+import ncbi.taggerOne.processing.textInstance.Annotator;
+import ncbi.taggerOne.types.Segment;
+import ncbi.taggerOne.types.TextInstance;
+
+/*
+ * Measures decoding with Annotator.getPredictedStateSequences() and scoring segments with RecognitionModel.predict() on synthetic sentences. Decoding times are per sentence and prediction times per segment, scored as both an entity and a nonentity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnnotatorBenchmark {
+
+	private static final int SENTENCES = 20;
+	private static final int SEGMENTS = 100;
+
+	@Param({ "10000" })
+	public int lexiconSize;
+
+	@Param({ "25" })
+	public int sentenceLength;
+
+	@Param({ "6" })
+	public int maxSegmentLength;
+
+	@Param({ "100000" })
+	public int featureSetSize;
+
+	private Annotator annotator;
+	private RecognitionModelPredictor recognitionModel;
+	private List<TextInstance> sentences;
+	private List<Segment> segments;
+
+	@Setup
+	public void setup() {
+		SyntheticData data = new SyntheticData(20000, lexiconSize, featureSetSize, 1);
+		annotator = data.getAnnotator();
+		recognitionModel = data.getRecognitionModel();
+		sentences = new ArrayList<TextInstance>();
+		segments = new ArrayList<Segment>();
+		for (int sentenceIndex = 0; sentenceIndex < SENTENCES; sentenceIndex++) {
+			TextInstance sentence = data.getSentence("S" + sentenceIndex, sentenceLength, maxSegmentLength);
+			sentences.add(sentence);
+			segments.addAll(sentence.getSegments());
+		}
+		segments = segments.subList(0, SEGMENTS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SENTENCES)
+	public void getPredictedStateSequences(Blackhole blackhole) {
+		for (TextInstance sentence : sentences) {
+			blackhole.consume(annotator.getPredictedStateSequences(sentence));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SEGMENTS)
+	public void predict(Blackhole blackhole) {
+		for (Segment segment : segments) {
+			blackhole.consume(recognitionModel.predict(SyntheticData.ENTITY_TYPE, segment));
+			blackhole.consume(recognitionModel.predict(T1Constants.NONENTITY_STATE, segment));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ncbi.taggerOne.util.vector.DenseKernels;
+
+/*
+ * Measures the DenseKernels loops against the simple loops they replaced, for dense dot products, axpy and the dot product of a dense vector with sorted sparse indices. Compare runs on hosts with different SIMD
+ * widths (e.g. AVX2 and AVX-512) to see how much of the difference the JIT's vectorization accounts for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DenseKernelsBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int dimensions;
+
+	@Param({ "100" })
+	public int cardinality;
+
+	private double[] x;
+	private double[] y;
+	private int[] indices;
+	private double[] values;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		x = new double[dimensions];
+		y = new double[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			x[i] = random.nextGaussian();
+			y[i] = random.nextGaussian();
+		}
+		indices = new int[cardinality];
+		values = new double[cardinality];
+		for (int i = 0; i < cardinality; i++) {
+			indices[i] = random.nextInt(dimensions);
+			values[i] = random.nextGaussian();
+		}
+		Arrays.sort(indices);
+	}
+
+	@Benchmark
+	public double dot() {
+		return DenseKernels.dot(x, y, dimensions);
+	}
+
+	@Benchmark
+	public double dotSimple() {
+		double sum = 0.0;
+		for (int i = 0; i < dimensions; i++) {
+			sum += x[i] * y[i];
+		}
+		return sum;
+	}
+
+	/*
+	 * Alternates the sign of the factor so the values stay bounded over the run
+	 */
+	@Benchmark
+	public double[] axpy() {
+		DenseKernels.axpy(0.5, x, y, dimensions);
+		DenseKernels.axpy(-0.5, x, y, dimensions);
+		return y;
+	}
+
+	@Benchmark
+	public double gatherDot() {
+		return DenseKernels.gatherDot(x, indices, values, cardinality);
+	}
+
+	@Benchmark
+	public double gatherDotSimple() {
+		double sum = 0.0;
+		for (int i = 0; i < cardinality; i++) {
+			sum += values[i] * x[indices[i]];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,89 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.Vector;
+
+/*
+ * Measures CompiledNormalizationModel.findBest() over a synthetic lexicon, for multi-word mentions and for single-word mentions, which take the fast path. Times are per mention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NormalizationBenchmark {
+
+	private static final int MENTIONS = 100;
+
+	@Param({ "1000", "10000", "100000" })
+	public int lexiconSize;
+
+	@Param({ "20000" })
+	public int vocabularySize;
+
+	private NormalizationModelPredictor predictor;
+	private List<Vector<String>> mentionVectors;
+	private List<Vector<String>> singleWordMentionVectors;
+
+	@Setup
+	public void setup() {
+		SyntheticData data = new SyntheticData(vocabularySize, lexiconSize, 1, 1);
+		predictor = data.getNormalizationModel().compile();
+		mentionVectors = new ArrayList<Vector<String>>();
+		singleWordMentionVectors = new ArrayList<Vector<String>>();
+		for (int i = 0; i < MENTIONS; i++) {
+			mentionVectors.add(data.getVector(data.randomWords(2, 4)));
+			singleWordMentionVectors.add(data.getVector(Collections.singletonList(SyntheticData.getWord(i))));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MENTIONS)
+	public void findBest(Blackhole blackhole) {
+		findBest(mentionVectors, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MENTIONS)
+	public void findBestSingleWord(Blackhole blackhole) {
+		findBest(singleWordMentionVectors, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MENTIONS)
+	public void getScoreBound(Blackhole blackhole) {
+		for (Vector<String> mentionVector : mentionVectors) {
+			blackhole.consume(predictor.getScoreBound(mentionVector));
+		}
+	}
+
+	private void findBest(List<Vector<String>> vectors, Blackhole blackhole) {
+		for (Vector<String> mentionVector : vectors) {
+			RankedList<Entity> bestEntities = new RankedList<Entity>(1);
+			predictor.findBest(mentionVector, bestEntities);
+			blackhole.consume(bestEntities);
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package ncbi.taggerOne.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ncbi.taggerOne.T1Constants;
+
+/*
+ * Generates a lexicon and corpus of abstracts for the throughput benchmark, so the command line tools can be measured without the NCBI data. Entity names are made of invented words and a head noun such as "syndrome".
+ * Entities are chosen with a Zipfian distribution, as a few concepts account for most mentions in real abstracts, and each chosen entity is mentioned up to three times per document. Entities with multi-word names may be
+ * introduced as "long form (SF)" and then referred to by the short form. The same sizes and seed always give the same data.
+ */
+public class SyntheticCorpus {
+
+	public static final String ENTITY_TYPE = "Disease";
+	public static final String NAMESPACE = "MESH";
+
+	private static final String[] SYLLABLES = { "ka", "ro", "mi", "ne", "su", "la", "to", "vi", "de", "pa", "gen", "tor", "phy", "lo", "ce", "ra", "bu", "xo", "zen", "qui", "fa", "mor", "dy", "tri" };
+	private static final String[] HEAD_NOUNS = { "syndrome", "disease", "deficiency", "disorder", "carcinoma", "dystrophy", "anemia", "neuropathy" };
+	private static final String[] FILLER_WORDS = { "the", "of", "patients", "with", "in", "and", "was", "were", "study", "observed", "associated", "risk", "cases", "treatment", "clinical", "results", "analysis",
+			"we", "found", "increased", "levels", "group", "compared", "significant", "cohort", "expression", "gene", "mutation", "children", "adults", "response", "therapy", "controls", "evidence", "reduced" };
+
+	private Random random;
+	private List<String> identifiers;
+	private List<String> names;
+	private List<List<String>> synonyms;
+	private List<String> shortForms;
+	private double[] cumulativeProbabilities;
+
+	public SyntheticCorpus(int lexiconSize, double zipfExponent, long seed) {
+		random = new Random(seed);
+		identifiers = new ArrayList<String>(lexiconSize);
+		names = new ArrayList<String>(lexiconSize);
+		synonyms = new ArrayList<List<String>>(lexiconSize);
+		shortForms = new ArrayList<String>(lexiconSize);
+		Set<String> usedNames = new HashSet<String>(Arrays.asList(FILLER_WORDS));
+		Set<String> usedShortForms = new HashSet<String>();
+		for (int entityIndex = 0; entityIndex < lexiconSize; entityIndex++) {
+			identifiers.add(NAMESPACE + ":" + String.format("D%06d", entityIndex));
+			String name = getUniqueName(usedNames);
+			names.add(name);
+			List<String> entitySynonyms = new ArrayList<String>();
+			int synonymCount = random.nextInt(3);
+			for (int synonymIndex = 0; synonymIndex < synonymCount; synonymIndex++) {
+				entitySynonyms.add(getUniqueName(usedNames));
+			}
+			synonyms.add(entitySynonyms);
+			shortForms.add(getShortForm(name, usedShortForms));
+		}
+
+		// Entity i is chosen with probability proportional to 1 / (i + 1)^zipfExponent
+		cumulativeProbabilities = new double[lexiconSize];
+		double total = 0.0;
+		for (int entityIndex = 0; entityIndex < lexiconSize; entityIndex++) {
+			total += 1.0 / Math.pow(entityIndex + 1, zipfExponent);
+			cumulativeProbabilities[entityIndex] = total;
+		}
+		for (int entityIndex = 0; entityIndex < lexiconSize; entityIndex++) {
+			cumulativeProbabilities[entityIndex] /= total;
+		}
+	}
+
+	private String getUniqueName(Set<String> usedNames) {
+		String name = null;
+		while (name == null || usedNames.contains(name)) {
+			StringBuilder nameBuilder = new StringBuilder();
+			int wordCount = 1 + random.nextInt(2);
+			for (int wordIndex = 0; wordIndex < wordCount; wordIndex++) {
+				nameBuilder.append(getWord()).append(" ");
+			}
+			nameBuilder.append(HEAD_NOUNS[random.nextInt(HEAD_NOUNS.length)]);
+			name = nameBuilder.toString();
+		}
+		usedNames.add(name);
+		return name;
+	}
+
+	private String getWord() {
+		StringBuilder word = new StringBuilder();
+		int syllableCount = 2 + random.nextInt(3);
+		for (int syllableIndex = 0; syllableIndex < syllableCount; syllableIndex++) {
+			word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		return word.toString();
+	}
+
+	/*
+	 * Returns the upper case initials of the name, with a number appended if needed to make it unique
+	 */
+	private static String getShortForm(String name, Set<String> usedShortForms) {
+		StringBuilder initials = new StringBuilder();
+		for (String word : name.split(" ")) {
+			initials.append(Character.toUpperCase(word.charAt(0)));
+		}
+		String shortForm = initials.toString();
+		int suffix = 2;
+		while (usedShortForms.contains(shortForm)) {
+			shortForm = initials.toString() + suffix;
+			suffix++;
+		}
+		usedShortForms.add(shortForm);
+		return shortForm;
+	}
+
+	private int nextEntity() {
+		int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return Math.min(index, cumulativeProbabilities.length - 1);
+	}
+
+	/*
+	 * Writes the lexicon in the format read by TabDelimitedLoader: type, identifier and names separated by |
+	 */
+	public void writeLexicon(File file) throws IOException {
+		BufferedWriter writer = getWriter(file);
+		for (int entityIndex = 0; entityIndex < names.size(); entityIndex++) {
+			writer.write(ENTITY_TYPE + "\t" + identifiers.get(entityIndex) + "\t" + names.get(entityIndex));
+			for (String synonym : synonyms.get(entityIndex)) {
+				writer.write("|" + synonym);
+			}
+			writer.write("\n");
+		}
+		writer.close();
+	}
+
+	/*
+	 * Returns the given number of documents, with IDs starting from firstId
+	 */
+	public List<Document> getDocuments(int count, int firstId) {
+		List<Document> documents = new ArrayList<Document>(count);
+		for (int documentIndex = 0; documentIndex < count; documentIndex++) {
+			documents.add(getDocument(Integer.toString(firstId + documentIndex)));
+		}
+		return documents;
+	}
+
+	private Document getDocument(String id) {
+		Document document = new Document(id);
+		// Choose the entities and how often each is mentioned
+		int entityCount = Math.min(1 + random.nextInt(4), names.size());
+		List<Integer> chosenEntities = new ArrayList<Integer>();
+		while (chosenEntities.size() < entityCount) {
+			int entityIndex = nextEntity();
+			if (!chosenEntities.contains(entityIndex)) {
+				chosenEntities.add(entityIndex);
+			}
+		}
+		List<Integer> mentionedEntities = new ArrayList<Integer>();
+		for (Integer entityIndex : chosenEntities) {
+			int repetitions = 1 + random.nextInt(3);
+			for (int i = 0; i < repetitions; i++) {
+				mentionedEntities.add(entityIndex);
+			}
+		}
+		Collections.shuffle(mentionedEntities, random);
+		Set<Integer> abbreviated = new HashSet<Integer>();
+		Set<Integer> introduced = new HashSet<Integer>();
+
+		// The title mentions the first entity
+		int titleEntity = mentionedEntities.get(0);
+		StringBuilder title = new StringBuilder("Analysis of ");
+		document.addMention(title.length(), names.get(titleEntity), identifiers.get(titleEntity));
+		title.append(names.get(titleEntity)).append(" in ").append(FILLER_WORDS[random.nextInt(FILLER_WORDS.length)]);
+		document.title = title.toString();
+
+		// Each sentence of the abstract holds at most one mention
+		StringBuilder text = new StringBuilder();
+		int offset = document.title.length() + 1;
+		int mentionIndex = 1;
+		while (mentionIndex < mentionedEntities.size() || text.length() == 0) {
+			if (text.length() > 0) {
+				text.append(" ");
+			}
+			int length = 6 + random.nextInt(10);
+			int mentionPosition = mentionIndex < mentionedEntities.size() && random.nextBoolean() ? random.nextInt(length) : -1;
+			for (int wordIndex = 0; wordIndex < length; wordIndex++) {
+				if (wordIndex > 0) {
+					text.append(" ");
+				}
+				if (wordIndex == mentionPosition) {
+					int entityIndex = mentionedEntities.get(mentionIndex++);
+					String name = names.get(entityIndex);
+					String shortForm = shortForms.get(entityIndex);
+					String identifier = identifiers.get(entityIndex);
+					if (abbreviated.contains(entityIndex)) {
+						document.addMention(offset + text.length(), shortForm, identifier);
+						text.append(shortForm);
+					} else if (!introduced.contains(entityIndex) && name.indexOf(' ') > 0 && random.nextBoolean()) {
+						document.addMention(offset + text.length(), name, identifier);
+						text.append(name).append(" (");
+						document.addMention(offset + text.length(), shortForm, identifier);
+						text.append(shortForm).append(")");
+						document.abbreviations.put(shortForm, name);
+						abbreviated.add(entityIndex);
+					} else {
+						document.addMention(offset + text.length(), name, identifier);
+						text.append(name);
+					}
+					introduced.add(entityIndex);
+				} else {
+					text.append(FILLER_WORDS[random.nextInt(FILLER_WORDS.length)]);
+				}
+			}
+			text.append(".");
+		}
+		document.text = text.toString();
+		return document;
+	}
+
+	/*
+	 * Writes the documents in PubTator format, with the mentions if requested
+	 */
+	public static void writePubtator(List<Document> documents, File file, boolean writeMentions) throws IOException {
+		BufferedWriter writer = getWriter(file);
+		for (Document document : documents) {
+			writer.write(document.id + "|t|" + document.title + "\n");
+			writer.write(document.id + "|a|" + document.text + "\n");
+			if (writeMentions) {
+				for (Mention mention : document.mentions) {
+					writer.write(document.id + "\t" + mention.start + "\t" + (mention.start + mention.text.length()) + "\t" + mention.text + "\t" + ENTITY_TYPE + "\t" + mention.identifier + "\n");
+				}
+			}
+			writer.write("\n");
+		}
+		writer.close();
+	}
+
+	/*
+	 * Writes the documents as a BioC collection, with the title and abstract as passages; the generated text needs no escaping
+	 */
+	public static void writeBioC(List<Document> documents, File file) throws IOException {
+		BufferedWriter writer = getWriter(file);
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<!DOCTYPE collection SYSTEM \"BioC.dtd\">\n");
+		writer.write("<collection><source>synthetic</source><date></date><key></key>\n");
+		for (Document document : documents) {
+			writer.write("<document><id>" + document.id + "</id>\n");
+			writer.write("<passage><infon key=\"type\">title</infon><offset>0</offset><text>" + document.title + "</text></passage>\n");
+			writer.write("<passage><infon key=\"type\">abstract</infon><offset>" + (document.title.length() + 1) + "</offset><text>" + document.text + "</text></passage>\n");
+			writer.write("</document>\n");
+		}
+		writer.write("</collection>\n");
+		writer.close();
+	}
+
+	/*
+	 * Writes the mentions in the format read by NormalizeMentions: document ID, mention text and type
+	 */
+	public static void writeMentions(List<Document> documents, File file) throws IOException {
+		BufferedWriter writer = getWriter(file);
+		for (Document document : documents) {
+			for (Mention mention : document.mentions) {
+				writer.write(document.id + "\t" + mention.text + "\t" + ENTITY_TYPE + "\n");
+			}
+		}
+		writer.close();
+	}
+
+	/*
+	 * Writes the abbreviations in the format read by FileAbbreviationSource: document ID, short form and long form
+	 */
+	public static void writeAbbreviations(List<Document> documents, File file) throws IOException {
+		BufferedWriter writer = getWriter(file);
+		for (Document document : documents) {
+			for (Map.Entry<String, String> abbreviation : document.abbreviations.entrySet()) {
+				writer.write(document.id + "\t" + abbreviation.getKey() + "\t" + abbreviation.getValue() + "\n");
+			}
+		}
+		writer.close();
+	}
+
+	private static BufferedWriter getWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), T1Constants.UTF8_FORMAT));
+	}
+
+	public static class Document {
+
+		private String id;
+		private String title;
+		private String text;
+		private List<Mention> mentions;
+		private Map<String, String> abbreviations;
+
+		public Document(String id) {
+			this.id = id;
+			mentions = new ArrayList<Mention>();
+			abbreviations = new LinkedHashMap<String, String>();
+		}
+
+		private void addMention(int start, String text, String identifier) {
+			mentions.add(new Mention(start, text, identifier));
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public int getMentionCount() {
+			return mentions.size();
+		}
+	}
+
+	private static class Mention {
+
+		private int start;
+		private String text;
+		private String identifier;
+
+		public Mention(int start, String text, String identifier) {
+			this.start = start;
+			this.text = text;
+			this.identifier = identifier;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.lexicon.Lexicon;
+import ncbi.taggerOne.model.normalization.NormalizationModel;
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.model.recognition.RecognitionModel;
+import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.textInstance.Annotator;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.types.Segment;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.taggerOne.types.Token;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.matrix.Matrix;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+
+/*
+ * Builds a lexicon, models and sentences from random words, so the benchmarks run without a trained model or corpus. The same sizes and seed always give the same data. Words are named w0, w1, ... and sentences are
+ * segmented and featurized directly rather than through the pipeline, so only the code being measured runs.
+ */
+public class SyntheticData {
+
+	public static final String ENTITY_TYPE = "Disease";
+
+	private static final int FEATURES_PER_TOKEN = 4;
+
+	private Random random;
+	private int vocabularySize;
+	private Dictionary<String> vectorSpace;
+	private Dictionary<String> featureSet;
+	private Lexicon lexicon;
+	private NormalizationModel normalizationModel;
+	private RecognitionModel recognitionModel;
+
+	public SyntheticData(int vocabularySize, int lexiconSize, int featureSetSize, long seed) {
+		random = new Random(seed);
+		this.vocabularySize = vocabularySize;
+
+		vectorSpace = new Dictionary<String>();
+		vectorSpace.addElement(T1Constants.UNKNOWN_NAME_TOKEN);
+		for (int wordIndex = 0; wordIndex < vocabularySize; wordIndex++) {
+			vectorSpace.addElement(getWord(wordIndex));
+		}
+		vectorSpace.freeze();
+
+		Dictionary<String> entityTypes = new Dictionary<String>();
+		entityTypes.addElement(ENTITY_TYPE);
+		entityTypes.freeze();
+		lexicon = new Lexicon(entityTypes);
+		MentionName unknownName = lexicon.getUnknownEntity(ENTITY_TYPE).getPrimaryName();
+		unknownName.setVector(getVector(Collections.singletonList(T1Constants.UNKNOWN_NAME_TOKEN)));
+		for (int entityIndex = 0; entityIndex < lexiconSize; entityIndex++) {
+			Entity entity = new Entity(ENTITY_TYPE, "D" + entityIndex, getName(randomWords(2, 4)));
+			Set<MentionName> synonyms = new HashSet<MentionName>();
+			int synonymCount = random.nextInt(3);
+			for (int synonymIndex = 0; synonymIndex < synonymCount; synonymIndex++) {
+				synonyms.add(getName(randomWords(2, 4)));
+			}
+			entity.addNames(synonyms);
+			lexicon.addEntity(entity);
+		}
+		lexicon.createIndexes(vectorSpace, Collections.singletonMap(ENTITY_TYPE, vectorSpace), false);
+		normalizationModel = new NormalizationModel(lexicon.getIndex(ENTITY_TYPE), vectorSpace, vectorSpace, new TrainingProgressTracker());
+
+		featureSet = new Dictionary<String>();
+		for (int featureIndex = 0; featureIndex < featureSetSize; featureIndex++) {
+			featureSet.addElement("F" + featureIndex);
+		}
+		featureSet.freeze();
+		Dictionary<String> entityClassStates = new Dictionary<String>();
+		entityClassStates.addElement(T1Constants.NONENTITY_STATE);
+		entityClassStates.addElement(ENTITY_TYPE);
+		entityClassStates.freeze();
+		recognitionModel = new RecognitionModel(featureSet, entityClassStates, new TrainingProgressTracker());
+		Matrix<String, String> weights = recognitionModel.getWeights();
+		for (int stateIndex = 0; stateIndex < entityClassStates.size(); stateIndex++) {
+			for (int featureIndex = 0; featureIndex < featureSetSize; featureIndex++) {
+				weights.set(stateIndex, featureIndex, 0.1 * random.nextGaussian());
+			}
+		}
+	}
+
+	public static String getWord(int wordIndex) {
+		return "w" + wordIndex;
+	}
+
+	public Dictionary<String> getVectorSpace() {
+		return vectorSpace;
+	}
+
+	public Dictionary<String> getFeatureSet() {
+		return featureSet;
+	}
+
+	public Lexicon getLexicon() {
+		return lexicon;
+	}
+
+	public NormalizationModel getNormalizationModel() {
+		return normalizationModel;
+	}
+
+	public RecognitionModel getRecognitionModel() {
+		return recognitionModel;
+	}
+
+	public Annotator getAnnotator() {
+		Map<String, NormalizationModelPredictor> normalizationModels = Collections.singletonMap(ENTITY_TYPE, normalizationModel.compile());
+		return new Annotator(lexicon, recognitionModel, normalizationModels);
+	}
+
+	/*
+	 * Returns between min and max words, inclusive, chosen uniformly from the vocabulary
+	 */
+	public List<String> randomWords(int min, int max) {
+		int count = min + random.nextInt(max - min + 1);
+		List<String> words = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			words.add(getWord(random.nextInt(vocabularySize)));
+		}
+		return words;
+	}
+
+	/*
+	 * Returns the normalized vector of counts of the words
+	 */
+	public Vector<String> getVector(List<String> words) {
+		Vector<String> vector = new SparseVector<String>(vectorSpace);
+		for (String word : words) {
+			vector.increment(vectorSpace.getIndex(word), 1.0);
+		}
+		vector.normalize();
+		return vector;
+	}
+
+	private MentionName getName(List<String> words) {
+		MentionName name = new MentionName(join(words));
+		name.setVector(getVector(words));
+		return name;
+	}
+
+	/*
+	 * Returns a tokenized sentence of random words with every segment up to maxSegmentLength tokens long, each with features and a mention vector
+	 */
+	public TextInstance getSentence(String id, int length, int maxSegmentLength) {
+		List<String> words = randomWords(length, length);
+		TextInstance instance = new TextInstance(null, id, id, join(words), 0);
+		List<Token> tokens = new ArrayList<Token>(length);
+		int start = 0;
+		for (int tokenIndex = 0; tokenIndex < length; tokenIndex++) {
+			int end = start + words.get(tokenIndex).length();
+			Token token = new Token(instance, start, end, tokenIndex);
+			Vector<String> features = new SparseVector<String>(featureSet);
+			for (int i = 0; i < FEATURES_PER_TOKEN; i++) {
+				features.increment(random.nextInt(featureSet.size()), 1.0);
+			}
+			token.setFeatures(features);
+			tokens.add(token);
+			start = end + 1;
+		}
+		instance.setTokens(tokens);
+		List<Segment> segments = new ArrayList<Segment>();
+		for (int startIndex = 0; startIndex < length; startIndex++) {
+			for (int endIndex = startIndex; endIndex < Math.min(length, startIndex + maxSegmentLength); endIndex++) {
+				List<Token> segmentTokens = tokens.subList(startIndex, endIndex + 1);
+				Segment segment = new Segment(instance, segmentTokens.get(0).getStartChar(), segmentTokens.get(segmentTokens.size() - 1).getEndChar(), segmentTokens);
+				Vector<String> features = new SparseVector<String>(featureSet);
+				features.increment(random.nextInt(featureSet.size()), 1.0);
+				segment.setFeatures(features);
+				segment.getMentionName().setVector(getVector(words.subList(startIndex, endIndex + 1)));
+				segments.add(segment);
+			}
+		}
+		instance.setSegments(segments);
+		return instance;
+	}
+
+	private static String join(List<String> words) {
+		StringBuilder text = new StringBuilder();
+		for (String word : words) {
+			if (text.length() > 0) {
+				text.append(" ");
+			}
+			text.append(word);
+		}
+		return text.toString();
+	}
+}
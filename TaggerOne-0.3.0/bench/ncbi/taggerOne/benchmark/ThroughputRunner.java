@@ -0,0 +1,353 @@
+package ncbi.taggerOne.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.abbreviation.FileAbbreviationSource;
+
+/*
+ * Measures the command line tools end to end on a synthetic corpus. A lexicon and corpus are generated with SyntheticCorpus, a small model is trained with TrainModel, then NormalizeMentions, ProcessText (PubTator and
+ * BioC) and ProcessText_NormOnly are each run in a separate JVM with --metricsFile. Throughput and latency are taken from the final metrics written by each tool, so model loading is excluded; rates are per second of
+ * processing on one thread. The results can be saved as a baseline and compared against one, in which case the exit status is 1 if any result is worse than the baseline by more than the tolerance. Must be run from
+ * the TaggerOne folder, as TrainModel reads nlpdata from there.
+ */
+public class ThroughputRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThroughputRunner.class);
+
+	private static final String NORMALIZE_MENTIONS = "NormalizeMentions";
+	private static final String PROCESS_TEXT = "ProcessText";
+	private static final String PROCESS_TEXT_BIOC = "ProcessText_BioC";
+	private static final String PROCESS_TEXT_NORM_ONLY = "ProcessText_NormOnly";
+	private static final List<String> RUNS = Arrays.asList(NORMALIZE_MENTIONS, PROCESS_TEXT, PROCESS_TEXT_BIOC, PROCESS_TEXT_NORM_ONLY);
+
+	// Results where a larger value is better; all others are better when smaller
+	private static final String RATE_SUFFIX = "_per_second";
+	private static final String WORKLOAD_PREFIX = "workload.";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> workDir = parser.accepts("workDir").withRequiredArg().ofType(String.class).defaultsTo("throughput");
+		OptionSpec<Integer> lexiconSize = parser.accepts("lexiconSize").withRequiredArg().ofType(Integer.class).defaultsTo(2000);
+		OptionSpec<Double> zipfExponent = parser.accepts("zipfExponent").withRequiredArg().ofType(Double.class).defaultsTo(1.0);
+		OptionSpec<Integer> trainingDocuments = parser.accepts("trainingDocuments").withRequiredArg().ofType(Integer.class).defaultsTo(300);
+		OptionSpec<Integer> documents = parser.accepts("documents").withRequiredArg().ofType(Integer.class).defaultsTo(1000);
+		OptionSpec<Integer> maxTrainingIterations = parser.accepts("maxTrainingIterations").withRequiredArg().ofType(Integer.class).defaultsTo(2);
+		OptionSpec<Long> seed = parser.accepts("seed").withRequiredArg().ofType(Long.class).defaultsTo(1L);
+		OptionSpec<String> modelInputFilename = parser.accepts("modelInputFilename").withRequiredArg().ofType(String.class);
+		OptionSpec<String> runs = parser.accepts("runs").withRequiredArg().ofType(String.class).defaultsTo(join(RUNS, ","));
+		OptionSpec<String> javaOptions = parser.accepts("javaOptions").withRequiredArg().ofType(String.class).defaultsTo("-Xmx4g");
+		OptionSpec<String> baseline = parser.accepts("baseline").withRequiredArg().ofType(String.class);
+		OptionSpec<Double> tolerance = parser.accepts("tolerance").withRequiredArg().ofType(Double.class).defaultsTo(0.25);
+		OptionSpec<String> writeBaseline = parser.accepts("writeBaseline").withRequiredArg().ofType(String.class);
+		OptionSet options = parser.parse(args);
+
+		File dir = new File(options.valueOf(workDir));
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create work directory: " + dir);
+		}
+		List<String> selectedRuns = Arrays.asList(options.valueOf(runs).split(","));
+		for (String run : selectedRuns) {
+			if (!RUNS.contains(run)) {
+				throw new IllegalArgumentException("Unknown run " + run + "; must be one of " + RUNS);
+			}
+		}
+		List<String> jvmOptions = new ArrayList<String>(Arrays.asList(options.valueOf(javaOptions).trim().split("\\s+")));
+
+		// Results are only comparable for the same workload, so it is stored with the baseline
+		Map<String, Double> workload = new LinkedHashMap<String, Double>();
+		workload.put(WORKLOAD_PREFIX + "lexiconSize", (double) options.valueOf(lexiconSize));
+		workload.put(WORKLOAD_PREFIX + "zipfExponent", options.valueOf(zipfExponent));
+		workload.put(WORKLOAD_PREFIX + "trainingDocuments", (double) options.valueOf(trainingDocuments));
+		workload.put(WORKLOAD_PREFIX + "documents", (double) options.valueOf(documents));
+		workload.put(WORKLOAD_PREFIX + "seed", (double) options.valueOf(seed));
+		Map<String, Double> baselineResults = null;
+		if (options.has(baseline)) {
+			baselineResults = readResults(new File(options.valueOf(baseline)));
+			for (String name : workload.keySet()) {
+				Double baselineValue = baselineResults.get(name);
+				if (baselineValue != null && !baselineValue.equals(workload.get(name))) {
+					throw new IllegalArgumentException("Baseline " + options.valueOf(baseline) + " was recorded with " + name.substring(WORKLOAD_PREFIX.length()) + " = " + baselineValue + ", not " + workload.get(name));
+				}
+			}
+		}
+
+		// Generate the lexicon and corpus
+		logger.info("Generating synthetic corpus in " + dir);
+		SyntheticCorpus corpus = new SyntheticCorpus(options.valueOf(lexiconSize), options.valueOf(zipfExponent), options.valueOf(seed));
+		File lexiconFile = new File(dir, "lexicon.tsv");
+		corpus.writeLexicon(lexiconFile);
+		File trainingFile = new File(dir, "train.txt");
+		SyntheticCorpus.writePubtator(corpus.getDocuments(options.valueOf(trainingDocuments), 1000000), trainingFile, true);
+		List<SyntheticCorpus.Document> testDocuments = corpus.getDocuments(options.valueOf(documents), 2000000);
+		File pubtatorFile = new File(dir, "test.txt");
+		SyntheticCorpus.writePubtator(testDocuments, pubtatorFile, false);
+		File bioCFile = new File(dir, "test.xml");
+		SyntheticCorpus.writeBioC(testDocuments, bioCFile);
+		File mentionFile = new File(dir, "mentions.tsv");
+		SyntheticCorpus.writeMentions(testDocuments, mentionFile);
+		File abbreviationFile = new File(dir, "abbreviations.tsv");
+		SyntheticCorpus.writeAbbreviations(testDocuments, abbreviationFile);
+		int mentionCount = 0;
+		for (SyntheticCorpus.Document document : testDocuments) {
+			mentionCount += document.getMentionCount();
+		}
+		logger.info("Test corpus has " + testDocuments.size() + " documents and " + mentionCount + " mentions");
+
+		// Train the model, unless one is given
+		String modelFilename = options.valueOf(modelInputFilename);
+		if (modelFilename == null) {
+			File modelPrefix = new File(dir, "model.bin");
+			String trainingConfig = "ncbi.taggerOne.dataset.PubtatorDataset|" + trainingFile.getPath() + "| |" + SyntheticCorpus.ENTITY_TYPE + "->" + SyntheticCorpus.ENTITY_TYPE + "|" + SyntheticCorpus.ENTITY_TYPE
+					+ "->Identify|" + SyntheticCorpus.NAMESPACE;
+			runJava(jvmOptions, "ncbi.taggerOne.TrainModel", new File(dir, "train.log"), "--entityTypes", SyntheticCorpus.ENTITY_TYPE, "--lexiconNamespaces", SyntheticCorpus.NAMESPACE, "--trainingDatasetConfig",
+					trainingConfig, "--lexiconConfig", "ncbi.taggerOne.lexicon.loader.TabDelimitedLoader|" + lexiconFile.getPath(), "--entityTokenizerClass", "ncbi.taggerOne.util.tokenization.SimpleTokenizer",
+					"--textInstanceTokenizerClass", "ncbi.taggerOne.util.tokenization.SimpleTokenizer", "--stemmerClass", "ncbi.taggerOne.processing.string.PorterStemmer", "--regularization", "10.0", "--maxStepSize", "1.0",
+					"--maxTrainingIterations", Integer.toString(options.valueOf(maxTrainingIterations)), "--iterationsPastLastImprovement", "1", "--modelOutputFilename", modelPrefix.getPath());
+			modelFilename = findLatestModel(dir, modelPrefix.getName());
+		}
+		logger.info("Using model " + modelFilename);
+
+		// Run each tool and collect the results
+		String abbreviationSource = FileAbbreviationSource.class.getName() + "|" + abbreviationFile.getPath();
+		Map<String, Double> results = new LinkedHashMap<String, Double>();
+		for (String run : selectedRuns) {
+			File metricsFile = new File(dir, run + ".prom");
+			File outputFile = new File(dir, run + ".out");
+			File logFile = new File(dir, run + ".log");
+			long start = System.nanoTime();
+			if (run.equals(NORMALIZE_MENTIONS)) {
+				runJava(jvmOptions, "ncbi.taggerOne.NormalizeMentions", logFile, "--input", mentionFile.getPath(), "--output", outputFile.getPath(), "--modelInputFilename", modelFilename, "--abbreviationDir",
+						abbreviationFile.getPath(), "--metricsFile", metricsFile.getPath());
+			} else if (run.equals(PROCESS_TEXT)) {
+				runJava(jvmOptions, "ncbi.taggerOne.ProcessText", logFile, "--fileFormat", "pubtator", "--input", pubtatorFile.getPath(), "--output", outputFile.getPath(), "--modelInputFilename", modelFilename,
+						"--abbreviationSource", abbreviationSource, "--metricsFile", metricsFile.getPath());
+			} else if (run.equals(PROCESS_TEXT_BIOC)) {
+				runJava(jvmOptions, "ncbi.taggerOne.ProcessText", logFile, "--fileFormat", "bioc", "--input", bioCFile.getPath(), "--output", outputFile.getPath(), "--modelInputFilename", modelFilename,
+						"--abbreviationSource", abbreviationSource, "--metricsFile", metricsFile.getPath());
+			} else {
+				runJava(jvmOptions, "ncbi.taggerOne.ProcessText_NormOnly", logFile, "--fileFormat", "tsv", "--input", mentionFile.getPath(), "--output", outputFile.getPath(), "--modelInputFilename", modelFilename,
+						"--abbreviationSource", abbreviationSource, "--metricsFile", metricsFile.getPath());
+			}
+			double wallSeconds = (System.nanoTime() - start) / 1.0e9;
+			Map<String, Double> metrics = readMetrics(metricsFile);
+			boolean mentionLevel = run.equals(NORMALIZE_MENTIONS) || run.equals(PROCESS_TEXT_NORM_ONLY);
+			String latencyMetric = mentionLevel ? "taggerone_mention_seconds" : "taggerone_document_seconds";
+			double processingSeconds = getMetric(metrics, latencyMetric + "_sum", metricsFile);
+			int outputMentions = countOutputMentions(run, outputFile);
+			results.put(run + ".documents" + RATE_SUFFIX, testDocuments.size() / processingSeconds);
+			results.put(run + ".mentions" + RATE_SUFFIX, outputMentions / processingSeconds);
+			results.put(run + ".p50_seconds", getMetric(metrics, latencyMetric + "{quantile=\"0.5\"}", metricsFile));
+			results.put(run + ".p99_seconds", getMetric(metrics, latencyMetric + "{quantile=\"0.99\"}", metricsFile));
+			results.put(run + ".gc_seconds", getMetric(metrics, "jvm_gc_collection_seconds_total", metricsFile));
+			if (metrics.containsKey("process_resident_memory_peak_bytes")) {
+				results.put(run + ".peak_rss_bytes", metrics.get("process_resident_memory_peak_bytes"));
+			}
+			results.put(run + ".wall_seconds", wallSeconds);
+		}
+
+		// Report and compare
+		List<String> regressions = new ArrayList<String>();
+		String report = getReport(results, baselineResults, options.valueOf(tolerance), regressions);
+		System.out.print(report);
+		writeFile(new File(dir, "report.txt"), report);
+		if (options.has(writeBaseline)) {
+			writeResults(new File(options.valueOf(writeBaseline)), workload, results);
+			logger.info("Wrote baseline to " + options.valueOf(writeBaseline));
+		}
+		if (!regressions.isEmpty()) {
+			logger.error("Results worse than baseline by more than " + Math.round(100.0 * options.valueOf(tolerance)) + "%: " + regressions);
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Runs the class in a new JVM with the current classpath, writing its output to the log file, and fails if it does not exit normally
+	 */
+	private static void runJava(List<String> jvmOptions, String className, File logFile, String... args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(className);
+		command.addAll(Arrays.asList(args));
+		logger.info("Running " + className + ", output in " + logFile);
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(logFile);
+		int exitValue = builder.start().waitFor();
+		if (exitValue != 0) {
+			throw new IllegalStateException(className + " exited with status " + exitValue + "; see " + logFile);
+		}
+	}
+
+	/*
+	 * Returns the model written last by TrainModel, which adds the iteration number to the name
+	 */
+	private static String findLatestModel(File dir, String prefix) {
+		String latest = null;
+		String[] filenames = dir.list();
+		for (String filename : filenames) {
+			if (filename.startsWith(prefix + "_") && (latest == null || filename.compareTo(latest) > 0)) {
+				latest = filename;
+			}
+		}
+		if (latest == null) {
+			throw new IllegalStateException("TrainModel did not write a model to " + dir);
+		}
+		return new File(dir, latest).getPath();
+	}
+
+	/*
+	 * Reads the samples in a Prometheus text file, keyed by name and labels
+	 */
+	static Map<String, Double> readMetrics(File file) throws IOException {
+		Map<String, Double> metrics = new HashMap<String, Double>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), T1Constants.UTF8_FORMAT));
+		String line = reader.readLine();
+		while (line != null) {
+			line = line.trim();
+			if (line.length() > 0 && !line.startsWith("#")) {
+				int split = line.lastIndexOf(' ');
+				metrics.put(line.substring(0, split), Double.parseDouble(line.substring(split + 1)));
+			}
+			line = reader.readLine();
+		}
+		reader.close();
+		return metrics;
+	}
+
+	private static double getMetric(Map<String, Double> metrics, String name, File file) {
+		Double value = metrics.get(name);
+		if (value == null) {
+			throw new IllegalStateException("Metric " + name + " not found in " + file);
+		}
+		return value;
+	}
+
+	/*
+	 * Returns the number of mentions found or normalized, from the tool output
+	 */
+	private static int countOutputMentions(String run, File outputFile) throws IOException {
+		int count = 0;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(outputFile), T1Constants.UTF8_FORMAT));
+		String line = reader.readLine();
+		while (line != null) {
+			if (run.equals(PROCESS_TEXT_BIOC)) {
+				int index = line.indexOf("<annotation");
+				while (index >= 0) {
+					count++;
+					index = line.indexOf("<annotation", index + 1);
+				}
+			} else if (run.equals(PROCESS_TEXT)) {
+				if (line.indexOf('\t') >= 0) {
+					count++;
+				}
+			} else if (line.length() > 0) {
+				count++;
+			}
+			line = reader.readLine();
+		}
+		reader.close();
+		return count;
+	}
+
+	/*
+	 * Returns a table of the results and, if given, the baseline and relative change; names of results worse than the baseline by more than the tolerance are added to regressions
+	 */
+	static String getReport(Map<String, Double> results, Map<String, Double> baselineResults, double tolerance, List<String> regressions) {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.US, "%-45s %15s", "Result", "Value"));
+		if (baselineResults != null) {
+			report.append(String.format(Locale.US, " %15s %9s", "Baseline", "Change"));
+		}
+		report.append("\n");
+		for (String name : results.keySet()) {
+			double value = results.get(name);
+			report.append(String.format(Locale.US, "%-45s %15.6g", name, value));
+			Double baselineValue = baselineResults == null ? null : baselineResults.get(name);
+			if (baselineValue != null && baselineValue > 0.0) {
+				double change = value / baselineValue - 1.0;
+				report.append(String.format(Locale.US, " %15.6g %+8.1f%%", baselineValue, 100.0 * change));
+				boolean worse = name.endsWith(RATE_SUFFIX) ? change < -tolerance : change > tolerance;
+				if (worse) {
+					report.append(" REGRESSION");
+					regressions.add(name);
+				}
+			}
+			report.append("\n");
+		}
+		return report.toString();
+	}
+
+	static Map<String, Double> readResults(File file) throws IOException {
+		Map<String, Double> results = new HashMap<String, Double>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), T1Constants.UTF8_FORMAT));
+		String line = reader.readLine();
+		while (line != null) {
+			line = line.trim();
+			if (line.length() > 0 && !line.startsWith("#")) {
+				String[] fields = line.split("=");
+				if (fields.length != 2) {
+					throw new IllegalArgumentException("Baseline lines must be name=value: " + line);
+				}
+				results.put(fields[0].trim(), Double.parseDouble(fields[1].trim()));
+			}
+			line = reader.readLine();
+		}
+		reader.close();
+		return results;
+	}
+
+	private static void writeResults(File file, Map<String, Double> workload, Map<String, Double> results) throws IOException {
+		StringBuilder text = new StringBuilder();
+		text.append("# ThroughputRunner baseline; regenerate with --writeBaseline on the machine used for comparison\n");
+		for (String name : workload.keySet()) {
+			text.append(name).append("=").append(workload.get(name)).append("\n");
+		}
+		Map<String, Double> sorted = new TreeMap<String, Double>(results);
+		for (String name : sorted.keySet()) {
+			text.append(name).append("=").append(sorted.get(name)).append("\n");
+		}
+		writeFile(file, text.toString());
+	}
+
+	private static void writeFile(File file, String text) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), T1Constants.UTF8_FORMAT));
+		writer.write(text);
+		writer.close();
+	}
+
+	private static String join(List<String> values, String separator) {
+		StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			if (joined.length() > 0) {
+				joined.append(separator);
+			}
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ncbi.taggerOne.util.tokenization.Tokenizer;
+
+/*
+ * Measures each tokenizer on a typical abstract. Times are per abstract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TokenizerBenchmark {
+
+	private static final String TEXT = "Germline mutations in the BRCA1 and BRCA2 genes confer a high risk of breast and ovarian cancer. "
+			+ "We screened 1,245 women with early-onset breast cancer (diagnosed at age <40 years) for mutations using denaturing high-performance liquid chromatography (DHPLC). "
+			+ "Pathogenic variants were identified in 6.2% of cases; the c.5266dupC (5382insC) founder mutation accounted for 41% of BRCA1-positive families. "
+			+ "Carriers of BRCA2 mutations had a higher incidence of male breast cancer, prostate cancer and pancreatic cancer than non-carriers (P=0.003). "
+			+ "These results support testing of women with triple-negative tumours, irrespective of family history, and suggest that TP53/PTEN testing is rarely informative.";
+
+	@Param({ "SimpleTokenizer", "FineTokenizer", "FinerTokenizer" })
+	public String tokenizerName;
+
+	private Tokenizer tokenizer;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		tokenizer = (Tokenizer) Class.forName("ncbi.taggerOne.util.tokenization." + tokenizerName).newInstance();
+	}
+
+	@Benchmark
+	public int tokenize() {
+		int tokens = 0;
+		tokenizer.reset(TEXT);
+		while (tokenizer.nextToken()) {
+			tokens += tokenizer.endChar() - tokenizer.startChar();
+		}
+		return tokens;
+	}
+}
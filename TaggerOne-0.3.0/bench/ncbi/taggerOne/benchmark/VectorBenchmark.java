@@ -0,0 +1,86 @@
+package ncbi.taggerOne.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.vector.DenseVector;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+
+/*
+ * Measures SparseVector.increment() and dotProduct() against sparse and dense vectors. The increment benchmark builds a new vector from two others, as the normalization and recognition updates do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorBenchmark {
+
+	@Param({ "100000" })
+	public int dimensions;
+
+	@Param({ "10", "100", "1000" })
+	public int cardinality;
+
+	private Dictionary<String> dictionary;
+	private Vector<String> sparse1;
+	private Vector<String> sparse2;
+	private Vector<String> dense;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		dictionary = new Dictionary<String>();
+		for (int i = 0; i < dimensions; i++) {
+			dictionary.addElement("F" + i);
+		}
+		dictionary.freeze();
+		sparse1 = getSparseVector(random);
+		sparse2 = getSparseVector(random);
+		dense = new DenseVector<String>(dictionary);
+		for (int i = 0; i < dimensions; i++) {
+			dense.set(i, random.nextGaussian());
+		}
+	}
+
+	private Vector<String> getSparseVector(Random random) {
+		Vector<String> vector = new SparseVector<String>(dictionary);
+		while (vector.cardinality() < cardinality) {
+			vector.increment(random.nextInt(dimensions), random.nextGaussian());
+		}
+		return vector;
+	}
+
+	@Benchmark
+	public Vector<String> increment() {
+		Vector<String> sum = new SparseVector<String>(dictionary);
+		sum.increment(sparse1);
+		sum.increment(0.5, sparse2);
+		return sum;
+	}
+
+	@Benchmark
+	public double dotProductSparse() {
+		return sparse1.dotProduct(sparse2);
+	}
+
+	@Benchmark
+	public double dotProductDense() {
+		return sparse1.dotProduct(dense);
+	}
+}
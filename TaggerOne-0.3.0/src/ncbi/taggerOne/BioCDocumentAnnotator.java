@@ -0,0 +1,157 @@
+package ncbi.taggerOne;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bioc.BioCAnnotation;
+import bioc.BioCDocument;
+import bioc.BioCPassage;
+import ncbi.taggerOne.processing.DocumentTrace;
+import ncbi.taggerOne.processing.SentenceBreaker;
+import ncbi.taggerOne.processing.postProcessing.AbbreviationPostProcessing;
+import ncbi.taggerOne.processing.postProcessing.AbsoluteConsistencyPostProcessing;
+import ncbi.taggerOne.processing.postProcessing.CoordinationPostProcessor;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.types.AnnotatedSegment;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.util.Profiler;
+
+/*
+ * Replaces the annotations of a BioC document with those predicted by the annotation pipeline. Sentence breaking and building the annotations may run concurrently, but the pipeline and post-processing are not thread-safe and
+ * run while holding a lock. The text instances are released once the annotations are built, so only the BioC document is kept until it is written.
+ */
+public class BioCDocumentAnnotator implements PipelinedBioCProcessor.DocumentProcessor {
+
+	private static final Logger logger = LoggerFactory.getLogger(BioCDocumentAnnotator.class);
+	private static final Profiler.Probe pipelineProbe = Profiler.probe("BioCDocumentAnnotator.process()@PIPELINE");
+
+	public enum ScoreMode {
+		NONE, WITH_IDENTIFIER, ALWAYS
+	}
+
+	private boolean useSentenceBreaker;
+	private ScoreMode scoreMode;
+	private TextInstanceProcessor processingPipeline;
+	private CoordinationPostProcessor coordinationPostProcessor;
+	private AbbreviationPostProcessing abbreviationPostProcessing;
+	private AbsoluteConsistencyPostProcessing consistencyPostProcessing;
+	private Object pipelineLock;
+
+	public BioCDocumentAnnotator(boolean useSentenceBreaker, ScoreMode scoreMode, TextInstanceProcessor processingPipeline, CoordinationPostProcessor coordinationPostProcessor,
+			AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing) {
+		this.useSentenceBreaker = useSentenceBreaker;
+		this.scoreMode = scoreMode;
+		this.processingPipeline = processingPipeline;
+		this.coordinationPostProcessor = coordinationPostProcessor;
+		this.abbreviationPostProcessing = abbreviationPostProcessing;
+		this.consistencyPostProcessing = consistencyPostProcessing;
+		pipelineLock = new Object();
+	}
+
+	@Override
+	public void process(BioCDocument document) {
+		long documentStart = System.nanoTime();
+		String documentId = document.getID();
+		logger.info("ID=" + documentId);
+		DocumentTrace trace = DocumentTrace.start(documentId);
+
+		List<List<TextInstance>> passageInstances = new ArrayList<List<TextInstance>>();
+		List<TextInstance> instances = new ArrayList<TextInstance>();
+
+		// Load passages & break into sentences
+		for (BioCPassage passage : document.getPassages()) {
+			List<TextInstance> instancesForPassage = new ArrayList<TextInstance>();
+			TextInstance instance = new TextInstance(null, documentId, documentId, passage.getText(), passage.getOffset());
+			instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
+			instancesForPassage.add(instance);
+			if (useSentenceBreaker) {
+				SentenceBreaker sentenceBreaker = new SentenceBreaker();
+				instancesForPassage = sentenceBreaker.breakSentences(instancesForPassage);
+			}
+			passageInstances.add(instancesForPassage);
+			instances.addAll(instancesForPassage);
+		}
+
+		// Process document
+		synchronized (pipelineLock) {
+			pipelineProbe.start();
+			processingPipeline.processAll(instances);
+			long postProcessingStart = System.nanoTime();
+			if (coordinationPostProcessor != null) {
+				coordinationPostProcessor.processAll(instances);
+			}
+			if (abbreviationPostProcessing != null) {
+				abbreviationPostProcessing.processAll(instances);
+			}
+			if (consistencyPostProcessing != null) {
+				consistencyPostProcessing.processAll(instances);
+			}
+			TextInstanceProcessingPipeline.POST_PROCESSING_LATENCY.recordSince(postProcessingStart);
+			if (trace != null) {
+				trace.recordDocumentStage("postprocess", System.nanoTime() - postProcessingStart);
+			}
+			pipelineProbe.stop();
+		}
+
+		// Write annotations to passages
+		int annotationIdCounter = 0;
+		for (int passageIndex = 0; passageIndex < passageInstances.size(); passageIndex++) {
+			BioCPassage passage = document.getPassages().get(passageIndex);
+			passage.getAnnotations().clear();
+			for (TextInstance instance : passageInstances.get(passageIndex)) {
+				List<AnnotatedSegment> predictedAnnotation = instance.getPredictedAnnotations().getObject(0);
+				for (AnnotatedSegment segment : predictedAnnotation) {
+					BioCAnnotation annotation = new BioCAnnotation();
+					annotation.setID(Integer.toString(annotationIdCounter));
+					annotation.putInfon("type", segment.getEntityClass());
+					String identifiers = visualizeIdentifiers(segment.getEntities());
+					if (identifiers != null) {
+						annotation.putInfon("identifier", identifiers);
+					}
+					if (scoreMode == ScoreMode.ALWAYS || (scoreMode == ScoreMode.WITH_IDENTIFIER && identifiers != null)) {
+						annotation.putInfon("score", Double.toString(segment.getEntityScore()));
+					}
+					annotation.setLocation(instance.getOffset() + segment.getStartChar(), segment.getEndChar() - segment.getStartChar());
+					annotation.setText(segment.getText());
+					annotationIdCounter++;
+					passage.addAnnotation(annotation);
+				}
+			}
+		}
+		TextInstanceProcessingPipeline.DOCUMENTS.increment();
+		TextInstanceProcessingPipeline.DOCUMENT_LATENCY.recordSince(documentStart);
+		if (trace != null) {
+			trace.finish();
+		}
+	}
+
+	private static String visualizeIdentifiers(Set<Entity> entities) {
+		List<String> entityIDs = new ArrayList<String>();
+		for (Entity entity : entities) {
+			if (entity != null) {
+				String primaryIdentifier = entity.getPrimaryIdentifier();
+				if (!primaryIdentifier.startsWith(T1Constants.UNKNOWN_ENTITY_ID_PREFIX) && !primaryIdentifier.equals(T1Constants.NONENTITY_STATE)) {
+					entityIDs.add(primaryIdentifier);
+				}
+			}
+		}
+		if (entityIDs.size() == 0) {
+			return null;
+		}
+		Collections.sort(entityIDs);
+		StringBuilder identifiers = new StringBuilder();
+		identifiers.append(entityIDs.get(0));
+		for (int i = 1; i < entityIDs.size(); i++) {
+			identifiers.append("|");
+			identifiers.append(entityIDs.get(i));
+		}
+		return identifiers.toString();
+	}
+}
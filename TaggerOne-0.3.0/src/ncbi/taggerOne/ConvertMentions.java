@@ -0,0 +1,72 @@
+package ncbi.taggerOne;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+/*
+ * Converts mention files between TSV and the binary mention container, such as extracted mentions to binary for NormalizeMentions, or normalized mentions back to TSV.
+ */
+public class ConvertMentions {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConvertMentions.class);
+
+	public static void main(String[] args) throws IOException {
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> input = parser.accepts("input").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> inputFormat = parser.accepts("inputFormat").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> output = parser.accepts("output").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> outputFormat = parser.accepts("outputFormat").withRequiredArg().ofType(String.class).required();
+		OptionSpec<Integer> blockSize = parser.accepts("blockSize").withRequiredArg().ofType(Integer.class).defaultsTo(10000);
+		OptionSet options = parser.parse(args);
+
+		boolean binaryInput = NormalizeMentions.isBinaryFormat(options.valueOf(inputFormat));
+		boolean binaryOutput = NormalizeMentions.isBinaryFormat(options.valueOf(outputFormat));
+		if (binaryInput == binaryOutput) {
+			throw new IllegalArgumentException("Input and output formats must differ");
+		}
+		if (options.valueOf(blockSize) < 1) {
+			throw new IllegalArgumentException("blockSize must be at least 1: " + options.valueOf(blockSize));
+		}
+		File inputFile = new File(options.valueOf(input));
+		File outputFile = new File(options.valueOf(output));
+		int mentions = 0;
+		if (binaryInput) {
+			MentionContainer.Reader reader = new MentionContainer.Reader(inputFile);
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), T1Constants.UTF8_FORMAT));
+			MentionBlock block = reader.readBlock();
+			while (block != null) {
+				block.writeTSV(writer);
+				mentions += block.size();
+				block = reader.readBlock();
+			}
+			reader.close();
+			writer.close();
+		} else {
+			// Only mentions to normalize are read from TSV
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), T1Constants.UTF8_FORMAT));
+			MentionContainer.Writer writer = new MentionContainer.Writer(outputFile);
+			MentionBlock block = MentionBlock.readTSV(reader, options.valueOf(blockSize));
+			while (block != null) {
+				writer.writeBlock(block);
+				mentions += block.size();
+				block = MentionBlock.readTSV(reader, options.valueOf(blockSize));
+			}
+			reader.close();
+			writer.close();
+		}
+		logger.info("Converted " + mentions + " mentions");
+	}
+}
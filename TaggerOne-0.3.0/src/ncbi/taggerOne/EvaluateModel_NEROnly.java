@@ -243,24 +243,38 @@ public class EvaluateModel_NEROnly {
 
 		private String timerName;
 		private TextInstanceProcessor wrappedProcessor;
+		// Looked up once rather than by name on each call
+		private transient Profiler.Probe processProbe;
+		private transient Profiler.Probe processAllProbe;
 
 		public ProcessingTimer(String timerName, TextInstanceProcessor wrappedProcessor) {
 			this.timerName = timerName;
 			this.wrappedProcessor = wrappedProcessor;
+			createProbes();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			createProbes();
+		}
+
+		private void createProbes() {
+			processProbe = Profiler.probe(timerName + ".process()");
+			processAllProbe = Profiler.probe(timerName + ".processAll()");
 		}
 
 		@Override
 		public void process(TextInstance input) {
-			Profiler.start(timerName + ".process()");
+			processProbe.start();
 			wrappedProcessor.process(input);
-			Profiler.stop(timerName + ".process()");
+			processProbe.stop();
 		}
 
 		@Override
 		public void processAll(List<TextInstance> input) {
-			Profiler.start(timerName + ".processAll()");
+			processAllProbe.start();
 			wrappedProcessor.processAll(input);
-			Profiler.stop(timerName + ".processAll()");
+			processAllProbe.stop();
 		}
 
 	}
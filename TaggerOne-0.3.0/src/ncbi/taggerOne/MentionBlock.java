@@ -0,0 +1,111 @@
+package ncbi.taggerOne;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A block of mentions passed between extraction and normalization, stored as columns. Mentions read for normalization have a document ID, mention text and entity type; normalized mentions also have the identifier and name
+ * of the best entity, which are empty if there is none.
+ */
+public class MentionBlock {
+
+	private List<String> documentIds;
+	private List<String> mentionTexts;
+	private List<String> types;
+	private List<String> identifiers;
+	private List<String> names;
+
+	public MentionBlock(boolean normalized) {
+		documentIds = new ArrayList<String>();
+		mentionTexts = new ArrayList<String>();
+		types = new ArrayList<String>();
+		if (normalized) {
+			identifiers = new ArrayList<String>();
+			names = new ArrayList<String>();
+		}
+	}
+
+	public boolean isNormalized() {
+		return identifiers != null;
+	}
+
+	public int size() {
+		return documentIds.size();
+	}
+
+	public void add(String documentId, String mentionText, String type) {
+		if (isNormalized()) {
+			throw new IllegalStateException("Normalized mentions require an identifier and name");
+		}
+		documentIds.add(documentId);
+		mentionTexts.add(mentionText);
+		types.add(type);
+	}
+
+	public void add(String documentId, String mentionText, String type, String identifier, String name) {
+		if (!isNormalized()) {
+			throw new IllegalStateException("Mentions to normalize cannot have an identifier or name");
+		}
+		documentIds.add(documentId);
+		mentionTexts.add(mentionText);
+		types.add(type);
+		identifiers.add(identifier);
+		names.add(name);
+	}
+
+	public String getDocumentId(int index) {
+		return documentIds.get(index);
+	}
+
+	public String getMentionText(int index) {
+		return mentionTexts.get(index);
+	}
+
+	public String getType(int index) {
+		return types.get(index);
+	}
+
+	public String getIdentifier(int index) {
+		return identifiers.get(index);
+	}
+
+	public String getName(int index) {
+		return names.get(index);
+	}
+
+	/*
+	 * Reads up to maxSize mentions to normalize from TSV lines of document ID, mention text and type. Returns null at the end of the input.
+	 */
+	public static MentionBlock readTSV(BufferedReader reader, int maxSize) throws IOException {
+		MentionBlock block = new MentionBlock(false);
+		String line = null;
+		while (block.size() < maxSize && (line = reader.readLine()) != null) {
+			line = line.trim();
+			String[] fields = line.split("\t");
+			if (fields.length != 3) {
+				throw new RuntimeException("Number of fields must be 3: " + fields.length);
+			}
+			block.add(fields[0], fields[1], fields[2]);
+		}
+		if (block.size() == 0) {
+			return null;
+		}
+		return block;
+	}
+
+	/*
+	 * Writes the mentions as TSV lines of document ID, mention text and type, followed by identifier and name if normalized
+	 */
+	public void writeTSV(Writer writer) throws IOException {
+		for (int i = 0; i < size(); i++) {
+			writer.write(documentIds.get(i) + "\t" + mentionTexts.get(i) + "\t" + types.get(i));
+			if (isNormalized()) {
+				writer.write("\t" + identifiers.get(i) + "\t" + names.get(i));
+			}
+			writer.write("\n");
+		}
+	}
+}
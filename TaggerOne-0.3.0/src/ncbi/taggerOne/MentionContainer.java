@@ -0,0 +1,434 @@
+package ncbi.taggerOne;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.util.Profiler;
+
+/*
+ * A binary file of mention blocks, the compact alternative to TSV between extraction and normalization. Each block is stored by column, with document IDs, types, identifiers and names dictionary-encoded, and is compressed
+ * separately so blocks can be processed independently. An index at the end of the file locates the blocks, so they can be skipped without being decompressed. Each block is checksummed, so the writer for a file that was not
+ * closed can resume after the last complete block.
+ */
+public class MentionContainer {
+
+	private static final int FILE_MAGIC = 0x54314D43;
+	private static final int FOOTER_MAGIC = 0x54314D49;
+	private static final int VERSION = 1;
+	private static final int END_OF_BLOCKS = -1;
+	private static final int HEADER_BYTES = 8;
+	private static final int BLOCK_HEADER_BYTES = 16;
+	private static final int FOOTER_BYTES = 12;
+	private static final Profiler.Probe writeBlockProbe = Profiler.probe("MentionContainer.Writer.writeBlock()");
+	private static final Profiler.Probe readBlockProbe = Profiler.probe("MentionContainer.Reader.readBlock()");
+
+	private MentionContainer() {
+		// Not instantiable
+	}
+
+	public static class Writer implements Closeable {
+
+		private RandomAccessFile file;
+		private TLongArrayList blockOffsets;
+		private TIntArrayList blockSizes;
+		private Deflater deflater;
+
+		public Writer(File outputFile) {
+			this(outputFile, false);
+		}
+
+		/*
+		 * Opens a writer that appends to the complete blocks of the file if resume is true and the file exists, discarding any incomplete block and the index
+		 */
+		public Writer(File outputFile, boolean resume) {
+			blockOffsets = new TLongArrayList();
+			blockSizes = new TIntArrayList();
+			deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				boolean exists = outputFile.exists();
+				file = new RandomAccessFile(outputFile, "rw");
+				if (resume && exists && file.length() >= HEADER_BYTES) {
+					readHeader(file);
+					long end = scanBlocks();
+					file.setLength(end);
+					file.seek(end);
+				} else {
+					file.setLength(0);
+					ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+					header.putInt(FILE_MAGIC);
+					header.putInt(VERSION);
+					file.write(header.array());
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/*
+		 * Returns the number of blocks in the file, including those present when resuming
+		 */
+		public int getBlockCount() {
+			return blockOffsets.size();
+		}
+
+		public void writeBlock(MentionBlock block) {
+			writeBlockProbe.start();
+			try {
+				byte[] uncompressed = encode(block);
+				deflater.reset();
+				deflater.setInput(uncompressed);
+				deflater.finish();
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2 + 64);
+				byte[] buffer = new byte[65536];
+				while (!deflater.finished()) {
+					int length = deflater.deflate(buffer);
+					compressed.write(buffer, 0, length);
+				}
+				byte[] compressedBytes = compressed.toByteArray();
+				CRC32 crc = new CRC32();
+				crc.update(compressedBytes);
+				blockOffsets.add(file.getFilePointer());
+				blockSizes.add(block.size());
+				file.write(blockHeader(block.size(), uncompressed.length, compressedBytes.length, (int) crc.getValue()));
+				file.write(compressedBytes);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			writeBlockProbe.stop();
+		}
+
+		/*
+		 * Writes the block index and closes the file
+		 */
+		@Override
+		public void close() {
+			try {
+				file.write(blockHeader(END_OF_BLOCKS, 0, 0, 0));
+				long indexOffset = file.getFilePointer();
+				ByteBuffer index = ByteBuffer.allocate(4 + 12 * blockOffsets.size() + FOOTER_BYTES);
+				index.putInt(blockOffsets.size());
+				for (int i = 0; i < blockOffsets.size(); i++) {
+					index.putLong(blockOffsets.get(i));
+					index.putInt(blockSizes.get(i));
+				}
+				index.putLong(indexOffset);
+				index.putInt(FOOTER_MAGIC);
+				file.write(index.array());
+				file.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			deflater.end();
+		}
+
+		/*
+		 * Finds the complete blocks of the file, returning the offset after the last one
+		 */
+		private long scanBlocks() throws IOException {
+			long length = file.length();
+			long offset = HEADER_BYTES;
+			byte[] headerBytes = new byte[BLOCK_HEADER_BYTES];
+			while (offset + BLOCK_HEADER_BYTES <= length) {
+				file.seek(offset);
+				file.readFully(headerBytes);
+				ByteBuffer header = ByteBuffer.wrap(headerBytes);
+				int mentions = header.getInt();
+				header.getInt();
+				int compressedLength = header.getInt();
+				int checksum = header.getInt();
+				if (mentions < 0 || compressedLength < 0 || offset + BLOCK_HEADER_BYTES + compressedLength > length) {
+					break;
+				}
+				byte[] compressed = new byte[compressedLength];
+				file.readFully(compressed);
+				CRC32 crc = new CRC32();
+				crc.update(compressed);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				blockOffsets.add(offset);
+				blockSizes.add(mentions);
+				offset += BLOCK_HEADER_BYTES + compressedLength;
+			}
+			return offset;
+		}
+	}
+
+	public static class Reader implements Closeable {
+
+		private RandomAccessFile file;
+		private long[] blockOffsets;
+		private int[] blockSizes;
+		private int nextBlock;
+		private Inflater inflater;
+
+		public Reader(File inputFile) {
+			inflater = new Inflater();
+			try {
+				file = new RandomAccessFile(inputFile, "r");
+				readHeader(file);
+				long length = file.length();
+				if (length < HEADER_BYTES + BLOCK_HEADER_BYTES + 4 + FOOTER_BYTES) {
+					throw new IllegalArgumentException("Mention container was not closed: " + inputFile.getPath());
+				}
+				file.seek(length - FOOTER_BYTES);
+				long indexOffset = file.readLong();
+				if (file.readInt() != FOOTER_MAGIC || indexOffset < HEADER_BYTES || indexOffset > length - FOOTER_BYTES - 4) {
+					throw new IllegalArgumentException("Mention container was not closed: " + inputFile.getPath());
+				}
+				file.seek(indexOffset);
+				byte[] indexBytes = new byte[(int) (length - FOOTER_BYTES - indexOffset)];
+				file.readFully(indexBytes);
+				ByteBuffer index = ByteBuffer.wrap(indexBytes);
+				int blocks = index.getInt();
+				blockOffsets = new long[blocks];
+				blockSizes = new int[blocks];
+				for (int i = 0; i < blocks; i++) {
+					blockOffsets[i] = index.getLong();
+					blockSizes[i] = index.getInt();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			nextBlock = 0;
+		}
+
+		public int getBlockCount() {
+			return blockOffsets.length;
+		}
+
+		/*
+		 * Returns the number of mentions in the block, from the index
+		 */
+		public int getBlockSize(int block) {
+			return blockSizes[block];
+		}
+
+		/*
+		 * Sets the block returned by the next call to readBlock()
+		 */
+		public void seekBlock(int block) {
+			if (block < 0 || block > blockOffsets.length) {
+				throw new IllegalArgumentException("Block must be between 0 and " + blockOffsets.length + ": " + block);
+			}
+			nextBlock = block;
+		}
+
+		/*
+		 * Returns the next block, or null if there are no more blocks
+		 */
+		public MentionBlock readBlock() {
+			if (nextBlock == blockOffsets.length) {
+				return null;
+			}
+			readBlockProbe.start();
+			MentionBlock block = null;
+			try {
+				file.seek(blockOffsets[nextBlock]);
+				byte[] headerBytes = new byte[BLOCK_HEADER_BYTES];
+				file.readFully(headerBytes);
+				ByteBuffer header = ByteBuffer.wrap(headerBytes);
+				header.getInt();
+				int uncompressedLength = header.getInt();
+				int compressedLength = header.getInt();
+				int checksum = header.getInt();
+				byte[] compressed = new byte[compressedLength];
+				file.readFully(compressed);
+				CRC32 crc = new CRC32();
+				crc.update(compressed);
+				if ((int) crc.getValue() != checksum) {
+					throw new IllegalArgumentException("Checksum mismatch in mention container block " + nextBlock);
+				}
+				byte[] uncompressed = new byte[uncompressedLength];
+				inflater.reset();
+				inflater.setInput(compressed);
+				int length = inflater.inflate(uncompressed);
+				if (length != uncompressedLength || !inflater.finished()) {
+					throw new IllegalArgumentException("Invalid length for mention container block " + nextBlock);
+				}
+				block = decode(uncompressed);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			} catch (DataFormatException e) {
+				throw new IllegalArgumentException("Invalid data in mention container block " + nextBlock, e);
+			}
+			nextBlock++;
+			readBlockProbe.stop();
+			return block;
+		}
+
+		@Override
+		public void close() {
+			inflater.end();
+			try {
+				file.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static void readHeader(RandomAccessFile file) throws IOException {
+		file.seek(0);
+		if (file.readInt() != FILE_MAGIC) {
+			throw new IllegalArgumentException("File is not a mention container");
+		}
+		int version = file.readInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported mention container version: " + version);
+		}
+	}
+
+	private static byte[] blockHeader(int mentions, int uncompressedLength, int compressedLength, int checksum) {
+		ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+		header.putInt(mentions);
+		header.putInt(uncompressedLength);
+		header.putInt(compressedLength);
+		header.putInt(checksum);
+		return header.array();
+	}
+
+	private static byte[] encode(MentionBlock block) throws IOException {
+		int size = block.size();
+		Dictionary<String> documentIds = new Dictionary<String>();
+		Dictionary<String> types = new Dictionary<String>();
+		Dictionary<String> identifiers = new Dictionary<String>();
+		Dictionary<String> names = new Dictionary<String>();
+		int[] documentIdIndices = new int[size];
+		int[] typeIndices = new int[size];
+		int[] identifierIndices = new int[size];
+		int[] nameIndices = new int[size];
+		for (int i = 0; i < size; i++) {
+			documentIdIndices[i] = documentIds.addElement(block.getDocumentId(i));
+			typeIndices[i] = types.addElement(block.getType(i));
+			if (block.isNormalized()) {
+				identifierIndices[i] = identifiers.addElement(block.getIdentifier(i));
+				nameIndices[i] = names.addElement(block.getName(i));
+			}
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 * size + 64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeBoolean(block.isNormalized());
+		writeVarInt(out, size);
+		writeDictionary(out, documentIds);
+		writeDictionary(out, types);
+		writeColumn(out, documentIdIndices);
+		writeColumn(out, typeIndices);
+		for (int i = 0; i < size; i++) {
+			writeString(out, block.getMentionText(i));
+		}
+		if (block.isNormalized()) {
+			writeDictionary(out, identifiers);
+			writeDictionary(out, names);
+			writeColumn(out, identifierIndices);
+			writeColumn(out, nameIndices);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static MentionBlock decode(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		boolean normalized = in.readBoolean();
+		int size = readVarInt(in);
+		String[] documentIds = readDictionary(in);
+		String[] types = readDictionary(in);
+		int[] documentIdIndices = readColumn(in, size);
+		int[] typeIndices = readColumn(in, size);
+		String[] mentionTexts = new String[size];
+		for (int i = 0; i < size; i++) {
+			mentionTexts[i] = readString(in);
+		}
+		MentionBlock block = new MentionBlock(normalized);
+		if (normalized) {
+			String[] identifiers = readDictionary(in);
+			String[] names = readDictionary(in);
+			int[] identifierIndices = readColumn(in, size);
+			int[] nameIndices = readColumn(in, size);
+			for (int i = 0; i < size; i++) {
+				block.add(documentIds[documentIdIndices[i]], mentionTexts[i], types[typeIndices[i]], identifiers[identifierIndices[i]], names[nameIndices[i]]);
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				block.add(documentIds[documentIdIndices[i]], mentionTexts[i], types[typeIndices[i]]);
+			}
+		}
+		return block;
+	}
+
+	private static void writeDictionary(DataOutputStream out, Dictionary<String> dictionary) throws IOException {
+		writeVarInt(out, dictionary.size());
+		for (int i = 0; i < dictionary.size(); i++) {
+			writeString(out, dictionary.getElement(i));
+		}
+	}
+
+	private static String[] readDictionary(DataInputStream in) throws IOException {
+		String[] elements = new String[readVarInt(in)];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = readString(in);
+		}
+		return elements;
+	}
+
+	private static void writeColumn(DataOutputStream out, int[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			writeVarInt(out, values[i]);
+		}
+	}
+
+	private static int[] readColumn(DataInputStream in, int size) throws IOException {
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = readVarInt(in);
+		}
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Invalid variable-length integer in mention container");
+	}
+}
@@ -0,0 +1,128 @@
+package ncbi.taggerOne;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.model.normalization.ShardedNormalizationModel;
+import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
+import ncbi.taggerOne.processing.mentionName.ParallelMentionNameProcessor;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.taggerOne.util.LRUCache;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.Vector;
+
+/*
+ * Normalizes mentions with a cache keyed by entity type and abbreviation-expanded text, since the result does not otherwise depend on the document. May be called from multiple threads: the mention name processor is not
+ * thread-safe, so each thread uses its own copy, while the normalization models are shared. Mentions normalized together that miss the cache are predicted together for each entity type, so a sharded model makes one
+ * request to each shard per type. Callers that add abbreviations while normalizing must synchronize with expandAbbreviations().
+ */
+public class MentionNormalizer {
+
+	private Map<String, NormalizationModelPredictor> normalizationModels;
+	private MentionNameProcessor mentionNameProcessor;
+	private AbbreviationResolver abbreviationResolver;
+	private LRUCache<String, String> cache;
+	private AtomicLong mentions;
+	private AtomicLong predictions;
+
+	public MentionNormalizer(Map<String, NormalizationModelPredictor> normalizationModels, MentionNameProcessor mentionNameProcessor, AbbreviationResolver abbreviationResolver, int cacheSize) {
+		this.normalizationModels = normalizationModels;
+		this.mentionNameProcessor = new ParallelMentionNameProcessor(mentionNameProcessor, false);
+		this.abbreviationResolver = abbreviationResolver;
+		cache = new LRUCache<String, String>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, cacheSize);
+		mentions = new AtomicLong();
+		predictions = new AtomicLong();
+	}
+
+	/*
+	 * Returns the identifier for the mention, the empty string if the mention is not normalized to a known entity, or null if the entity type has no normalization model
+	 */
+	public String getIdentifier(String documentId, String mentionText, String type) {
+		return getIdentifiers(Collections.singletonList(documentId), Collections.singletonList(mentionText), Collections.singletonList(type)).get(0);
+	}
+
+	/*
+	 * Returns the identifier for each mention, as getIdentifier() does for one
+	 */
+	public List<String> getIdentifiers(List<String> documentIds, List<String> mentionTexts, List<String> types) {
+		if (documentIds.size() != mentionTexts.size() || documentIds.size() != types.size()) {
+			throw new IllegalArgumentException("Number of document IDs, mention texts and types must be equal");
+		}
+		List<String> identifiers = new ArrayList<String>(documentIds.size());
+		// Cache keys and expanded texts of the mentions not found in the cache, by type
+		Map<String, Map<String, String>> missesByType = new HashMap<String, Map<String, String>>();
+		List<String> keys = new ArrayList<String>(documentIds.size());
+		for (int i = 0; i < documentIds.size(); i++) {
+			String type = types.get(i);
+			String identifier = null;
+			String key = null;
+			if (normalizationModels.get(type) != null) {
+				mentions.incrementAndGet();
+				String expandedText = abbreviationResolver.expandAbbreviations(documentIds.get(i), mentionTexts.get(i));
+				key = type + "\t" + expandedText;
+				identifier = cache.get(key);
+				if (identifier == null) {
+					Map<String, String> misses = missesByType.get(type);
+					if (misses == null) {
+						misses = new HashMap<String, String>();
+						missesByType.put(type, misses);
+					}
+					misses.put(key, expandedText);
+				}
+			}
+			identifiers.add(identifier);
+			keys.add(key);
+		}
+		if (missesByType.isEmpty()) {
+			return identifiers;
+		}
+
+		Map<String, String> predicted = new HashMap<String, String>();
+		for (String type : missesByType.keySet()) {
+			Map<String, String> misses = missesByType.get(type);
+			List<String> missKeys = new ArrayList<String>(misses.keySet());
+			List<Vector<String>> mentionVectors = new ArrayList<Vector<String>>(missKeys.size());
+			List<RankedList<Entity>> bestEntities = new ArrayList<RankedList<Entity>>(missKeys.size());
+			for (String key : missKeys) {
+				MentionName mentionName = new MentionName(misses.get(key));
+				mentionNameProcessor.process(mentionName);
+				mentionVectors.add(mentionName.getVector());
+				bestEntities.add(new RankedList<Entity>(1));
+			}
+			ShardedNormalizationModel.findBestAll(normalizationModels.get(type), mentionVectors, bestEntities);
+			for (int i = 0; i < missKeys.size(); i++) {
+				String identifier = "";
+				if (bestEntities.get(i).size() > 0) {
+					identifier = bestEntities.get(i).getObject(0).getPrimaryIdentifier();
+					if (identifier.startsWith(T1Constants.UNKNOWN_ENTITY_ID_PREFIX)) {
+						identifier = "";
+					}
+				}
+				cache.put(missKeys.get(i), identifier);
+				predicted.put(missKeys.get(i), identifier);
+				predictions.incrementAndGet();
+			}
+		}
+		for (int i = 0; i < identifiers.size(); i++) {
+			if (identifiers.get(i) == null && keys.get(i) != null) {
+				identifiers.set(i, predicted.get(keys.get(i)));
+			}
+		}
+		return identifiers;
+	}
+
+	public long getMentions() {
+		return mentions.get();
+	}
+
+	public long getPredictions() {
+		return predictions.get();
+	}
+}
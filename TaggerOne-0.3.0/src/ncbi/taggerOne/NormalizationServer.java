@@ -0,0 +1,278 @@
+package ncbi.taggerOne;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.Profiler;
+
+/*
+ * Serves mention normalization over a socket so the model is only loaded once. Each request is a batch of UTF-8 lines terminated by an empty line. Lines of the form "documentId\tmentionText\ttype" are normalized; a line of the
+ * form "#abbreviations\tpath" first loads the abbreviations in the file or directory at the path on the server. The response contains "documentId\tmentionText\ttype\tidentifier" for each mention, in request order, followed by an
+ * empty line; the identifier is empty if the mention is not normalized to a known entity or the type has no normalization model. A failed batch is answered with "#error\tmessage" and an empty line, and the connection remains
+ * usable.
+ *
+ * Connections are handled by a fixed number of threads sharing one normalizer. Once all threads are busy and the pending queue is full, the server stops accepting connections, so further clients wait in the socket backlog.
+ */
+public class NormalizationServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(NormalizationServer.class);
+	private static final Profiler.Probe processBatchProbe = Profiler.probe("NormalizationServer.processBatch()");
+
+	public static final String ABBREVIATIONS_COMMAND = "#abbreviations";
+	public static final String ERROR_RESPONSE = "#error";
+
+	private MentionNormalizer normalizer;
+	private AbbreviationResolver abbreviationResolver;
+	private ReadWriteLock abbreviationLock;
+	private int maxBatchSize;
+	private int idleTimeoutMillis;
+	private Semaphore connectionPermits;
+	private ExecutorService executor;
+	private ServerSocket serverSocket;
+
+	/*
+	 * threads is the number of connections handled concurrently, maxPendingConnections the number of accepted connections that may wait for a thread
+	 */
+	public NormalizationServer(MentionNormalizer normalizer, AbbreviationResolver abbreviationResolver, int threads, int maxPendingConnections, int maxBatchSize, int idleTimeoutMillis) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		}
+		if (maxPendingConnections < 0) {
+			throw new IllegalArgumentException("maxPendingConnections cannot be negative: " + maxPendingConnections);
+		}
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+		}
+		this.normalizer = normalizer;
+		this.abbreviationResolver = abbreviationResolver;
+		this.maxBatchSize = maxBatchSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		abbreviationLock = new ReentrantReadWriteLock();
+		connectionPermits = new Semaphore(threads + maxPendingConnections);
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "NormalizationServer-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/*
+	 * Accepts connections on the calling thread until close() is called
+	 */
+	public void serve(ServerSocket serverSocket) {
+		setServerSocket(serverSocket);
+		acceptConnections();
+	}
+
+	/*
+	 * Accepts connections on a background thread until close() is called
+	 */
+	public void start(ServerSocket serverSocket) {
+		setServerSocket(serverSocket);
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		}, "NormalizationServer-accept");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	private synchronized void setServerSocket(ServerSocket serverSocket) {
+		if (this.serverSocket != null) {
+			throw new IllegalStateException("NormalizationServer is already started");
+		}
+		this.serverSocket = serverSocket;
+		logger.info("Serving normalization on " + serverSocket.getLocalSocketAddress());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		executor.shutdown();
+	}
+
+	/*
+	 * Loads the abbreviations in a file or directory, waiting for batches in progress to finish
+	 */
+	public void loadAbbreviations(String path) {
+		abbreviationLock.writeLock().lock();
+		try {
+			NormalizeMentions.loadAbbreviations(path, abbreviationResolver);
+		} finally {
+			abbreviationLock.writeLock().unlock();
+		}
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				// Apply backpressure by not accepting connections that cannot be handled
+				connectionPermits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				final Socket socket = serverSocket.accept();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							handleConnection(socket);
+						} finally {
+							connectionPermits.release();
+						}
+					}
+				});
+			} catch (IOException e) {
+				connectionPermits.release();
+				if (!serverSocket.isClosed()) {
+					logger.error("Error accepting connection", e);
+				}
+			}
+		}
+	}
+
+	private void handleConnection(Socket socket) {
+		try {
+			socket.setSoTimeout(idleTimeoutMillis);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), T1Constants.UTF8_FORMAT));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), T1Constants.UTF8_FORMAT));
+			List<String> batch = new ArrayList<String>();
+			boolean tooLarge = false;
+			String line = reader.readLine();
+			while (line != null) {
+				if (line.length() > 0) {
+					// Keep reading an oversized batch so the connection remains usable
+					if (batch.size() < maxBatchSize) {
+						batch.add(line);
+					} else {
+						tooLarge = true;
+					}
+				} else {
+					if (tooLarge) {
+						writer.write(ERROR_RESPONSE + "\tBatch contains more than " + maxBatchSize + " lines\n");
+					} else {
+						processBatch(batch, writer);
+					}
+					writer.write("\n");
+					writer.flush();
+					batch.clear();
+					tooLarge = false;
+				}
+				line = reader.readLine();
+			}
+		} catch (SocketTimeoutException e) {
+			logger.info("Connection from " + socket.getRemoteSocketAddress() + " closed after being idle");
+		} catch (IOException e) {
+			logger.warn("Connection from " + socket.getRemoteSocketAddress() + " closed: " + e.getMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	private void processBatch(List<String> batch, Writer writer) throws IOException {
+		processBatchProbe.start();
+		StringBuilder response = new StringBuilder();
+		try {
+			// Consecutive mention lines are normalized together; abbreviation commands apply to the mentions after them
+			List<String> mentionLines = new ArrayList<String>();
+			for (String line : batch) {
+				String[] fields = line.split("\t", -1);
+				if (fields[0].equals(ABBREVIATIONS_COMMAND)) {
+					if (fields.length != 2) {
+						throw new IllegalArgumentException("Abbreviations command must have 2 fields: " + line);
+					}
+					normalizeMentions(mentionLines, response);
+					loadAbbreviations(fields[1]);
+				} else {
+					if (fields.length != 3) {
+						throw new IllegalArgumentException("Mention line must have 3 fields: " + line);
+					}
+					mentionLines.add(line);
+				}
+			}
+			normalizeMentions(mentionLines, response);
+		} catch (RuntimeException e) {
+			logger.warn("Error processing batch: " + e.getMessage());
+			response.setLength(0);
+			response.append(ERROR_RESPONSE + "\t" + String.valueOf(e.getMessage()).replaceAll("\\s", " ") + "\n");
+		}
+		writer.write(response.toString());
+		processBatchProbe.stop();
+	}
+
+	/*
+	 * Appends the response lines for the mention lines, then clears them
+	 */
+	private void normalizeMentions(List<String> mentionLines, StringBuilder response) {
+		if (mentionLines.isEmpty()) {
+			return;
+		}
+		List<String> documentIds = new ArrayList<String>(mentionLines.size());
+		List<String> mentionTexts = new ArrayList<String>(mentionLines.size());
+		List<String> types = new ArrayList<String>(mentionLines.size());
+		for (String line : mentionLines) {
+			String[] fields = line.split("\t", -1);
+			documentIds.add(fields[0]);
+			mentionTexts.add(fields[1]);
+			types.add(fields[2]);
+		}
+		List<String> identifiers;
+		abbreviationLock.readLock().lock();
+		try {
+			identifiers = normalizer.getIdentifiers(documentIds, mentionTexts, types);
+		} finally {
+			abbreviationLock.readLock().unlock();
+		}
+		for (int i = 0; i < mentionLines.size(); i++) {
+			String identifier = identifiers.get(i);
+			if (identifier == null) {
+				identifier = "";
+			}
+			response.append(mentionLines.get(i));
+			response.append("\t");
+			response.append(identifier);
+			response.append("\n");
+		}
+		mentionLines.clear();
+	}
+}
@@ -0,0 +1,308 @@
+package ncbi.taggerOne;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bioc.BioCAnnotation;
+import bioc.BioCCollection;
+import bioc.BioCDocument;
+import bioc.BioCPassage;
+import bioc.io.BioCDocumentWriter;
+import bioc.io.BioCFactory;
+import bioc.io.woodstox.ConnectorWoodstox;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
+import ncbi.taggerOne.processing.textInstance.AbbreviationResolverProcessor;
+import ncbi.taggerOne.processing.textInstance.Annotator;
+import ncbi.taggerOne.processing.textInstance.SegmentMentionProcessor;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.Profiler;
+
+/*
+ * Normalizes the annotations in PubTator or BioC XML files in a single pass, replacing extract_mentions.py, NormalizeMentions and insert_normalized.py. The annotations are selected, normalized and written exactly as the scripts
+ * would: annotations of entity types without a normalization model are dropped, and unknown entities receive no identifier. Line splitting and whitespace handling follow the Python scripts rather than Java conventions.
+ */
+public class NormalizeDocuments {
+
+	private static final Logger logger = LoggerFactory.getLogger(NormalizeDocuments.class);
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException, XMLStreamException {
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> input = parser.accepts("input").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> output = parser.accepts("output").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> fileFormat = parser.accepts("fileFormat").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> modelInputFilename = parser.accepts("modelInputFilename").withRequiredArg().ofType(String.class).required();
+		OptionSpec<Boolean> compileModel = parser.accepts("compileModel").withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+		OptionSpec<String> abbreviationDir = parser.accepts("abbreviationDir").withRequiredArg().ofType(String.class).required();
+		OptionSpec<String> normalizationShards = parser.accepts("normalizationShards").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> cacheSize = parser.accepts("cacheSize").withRequiredArg().ofType(Integer.class).defaultsTo(100000);
+		OptionSpec<Integer> abbreviationCacheSize = parser.accepts("abbreviationCacheSize").withRequiredArg().ofType(Integer.class).defaultsTo(10000);
+		OptionSet options = parser.parse(args);
+
+		// Load the annotation pipeline
+		logger.info("Loading model");
+		long start = System.currentTimeMillis();
+		ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new FileInputStream(options.valueOf(modelInputFilename))));
+		TextInstanceProcessingPipeline annotationPipeline = (TextInstanceProcessingPipeline) ois.readObject();
+		ois.close();
+		List<TextInstanceProcessor> processors = annotationPipeline.getProcessors();
+		AbbreviationResolver abbreviationResolver = ((AbbreviationResolverProcessor) processors.get(3)).getAbbreviationResolver();
+		MentionNameProcessor mentionNameProcessor = ((SegmentMentionProcessor) processors.get(4)).getProcessor();
+		Annotator annotator = (Annotator) processors.get(5);
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		logger.info("Indexing abbreviations");
+		start = System.currentTimeMillis();
+		NormalizeMentions.indexAbbreviations(options.valueOf(abbreviationDir), abbreviationResolver, options.valueOf(abbreviationCacheSize));
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		Map<String, NormalizationModelPredictor> normalizationModels = NormalizeMentions.prepareNormalizationModels(annotator, options.valueOf(compileModel), options.valueOf(normalizationShards));
+		MentionNormalizer normalizer = new MentionNormalizer(normalizationModels, mentionNameProcessor, abbreviationResolver, options.valueOf(cacheSize));
+
+		// Process file(s)
+		String format = options.valueOf(fileFormat).toLowerCase();
+		if (!format.equals("pubtator") && !format.equals("biocxml")) {
+			throw new IllegalArgumentException("File format must be PubTator or BioCXML: " + options.valueOf(fileFormat));
+		}
+		File inFile = new File(options.valueOf(input));
+		File outFile = new File(options.valueOf(output));
+		start = System.currentTimeMillis();
+		if (inFile.isDirectory()) {
+			if (!outFile.isDirectory()) {
+				throw new IllegalArgumentException("If input path is a directory then output path must be a directory: " + outFile.getPath());
+			}
+			logger.info("Processing directory " + inFile.getPath());
+			for (File inputFile : inFile.listFiles()) {
+				if (inputFile.isFile()) {
+					process(format, inputFile, new File(outFile, inputFile.getName()), normalizer);
+				}
+			}
+		} else if (inFile.isFile()) {
+			if (outFile.isDirectory()) {
+				throw new IllegalArgumentException("If input path is a file then output path may not be a directory: " + outFile.getPath());
+			}
+			process(format, inFile, outFile, normalizer);
+		} else {
+			throw new IllegalArgumentException("Path is not a directory or normal file: " + inFile.getPath());
+		}
+		logger.info("Mentions normalized: " + normalizer.getMentions() + ", predicted: " + normalizer.getPredictions());
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+		Profiler.print("\t");
+		logger.info("Done.");
+	}
+
+	private static void process(String format, File inputFile, File outputFile, MentionNormalizer normalizer) throws IOException, XMLStreamException {
+		logger.info("Processing file " + inputFile.getPath() + " to " + outputFile.getPath());
+		if (format.equals("pubtator")) {
+			processPubtator(inputFile, outputFile, normalizer);
+		} else {
+			processBioC(inputFile, outputFile, normalizer);
+		}
+	}
+
+	private static void processPubtator(File inputFile, File outputFile, MentionNormalizer normalizer) throws IOException {
+		PythonLineReader reader = new PythonLineReader(new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), T1Constants.UTF8_FORMAT)));
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), T1Constants.UTF8_FORMAT));
+		// Consecutive annotation lines, normalized together
+		List<String[]> annotations = new ArrayList<String[]>();
+		String line = reader.readLine();
+		while (line != null) {
+			line = strip(line);
+			String[] fields = line.split("\t", -1);
+			if (fields.length == 1) {
+				writeAnnotations(annotations, writer, normalizer);
+				writer.write(line + "\n");
+			} else {
+				if (fields.length < 5) {
+					reader.close();
+					writer.close();
+					throw new IllegalArgumentException("Annotation line must have at least 5 fields in " + inputFile.getPath() + ": " + line);
+				}
+				annotations.add(fields);
+			}
+			line = reader.readLine();
+		}
+		writeAnnotations(annotations, writer, normalizer);
+		reader.close();
+		writer.close();
+	}
+
+	/*
+	 * Writes the PubTator annotation lines with their identifiers, dropping those whose type has no normalization model, then clears them
+	 */
+	private static void writeAnnotations(List<String[]> annotations, Writer writer, MentionNormalizer normalizer) throws IOException {
+		if (annotations.isEmpty()) {
+			return;
+		}
+		List<String> documentIds = new ArrayList<String>(annotations.size());
+		List<String> mentionTexts = new ArrayList<String>(annotations.size());
+		List<String> types = new ArrayList<String>(annotations.size());
+		for (String[] fields : annotations) {
+			documentIds.add(fields[0]);
+			mentionTexts.add(fields[3]);
+			types.add(fields[4]);
+		}
+		List<String> identifiers = normalizer.getIdentifiers(documentIds, mentionTexts, types);
+		for (int i = 0; i < annotations.size(); i++) {
+			String[] fields = annotations.get(i);
+			String identifier = identifiers.get(i);
+			if (identifier != null) {
+				writer.write(fields[0] + "\t" + fields[1] + "\t" + fields[2] + "\t" + fields[3] + "\t" + fields[4] + "\t" + identifier + "\n");
+			}
+		}
+		annotations.clear();
+	}
+
+	static void processBioC(File inputFile, File outputFile, MentionNormalizer normalizer) throws IOException, XMLStreamException {
+		ConnectorWoodstox connector = new ConnectorWoodstox();
+		BioCCollection collection = connector.startRead(new InputStreamReader(new FileInputStream(inputFile), T1Constants.UTF8_FORMAT));
+		BioCFactory factory = BioCFactory.newFactory(BioCFactory.WOODSTOX);
+		BioCDocumentWriter writer = factory.createBioCDocumentWriter(new OutputStreamWriter(new FileOutputStream(outputFile), T1Constants.UTF8_FORMAT));
+		writer.writeCollectionInfo(collection);
+		while (connector.hasNext()) {
+			BioCDocument document = connector.next();
+			String documentId = document.getID();
+			// The annotations of the document are normalized together
+			List<String> documentIds = new ArrayList<String>();
+			List<String> mentionTexts = new ArrayList<String>();
+			List<String> types = new ArrayList<String>();
+			for (BioCPassage passage : document.getPassages()) {
+				for (BioCAnnotation annotation : passage.getAnnotations()) {
+					String text = annotation.getText();
+					String type = annotation.getInfon("type");
+					// The scripts extracted sanitized mentions but looked them up unsanitized, so only mentions unchanged by sanitizing are found
+					if (isSanitized(documentId) && isSanitized(text) && isSanitized(type)) {
+						documentIds.add(documentId);
+						mentionTexts.add(text);
+						types.add(type);
+					}
+				}
+			}
+			Iterator<String> identifiers = normalizer.getIdentifiers(documentIds, mentionTexts, types).iterator();
+			for (BioCPassage passage : document.getPassages()) {
+				Iterator<BioCAnnotation> annotationIterator = passage.getAnnotations().iterator();
+				while (annotationIterator.hasNext()) {
+					BioCAnnotation annotation = annotationIterator.next();
+					String identifier = null;
+					if (isSanitized(documentId) && isSanitized(annotation.getText()) && isSanitized(annotation.getInfon("type"))) {
+						identifier = identifiers.next();
+					}
+					if (identifier == null) {
+						annotationIterator.remove();
+					} else if (identifier.length() == 0) {
+						annotation.getInfons().remove("identifier");
+					} else {
+						annotation.putInfon("identifier", identifier);
+					}
+				}
+			}
+			writer.writeDocument(document);
+		}
+		writer.close();
+	}
+
+	/*
+	 * Equivalent to Python's str.isspace() for a single character
+	 */
+	private static boolean isPythonSpace(char c) {
+		if (c == '\u180E') {
+			return false;
+		}
+		return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+	}
+
+	/*
+	 * Equivalent to Python's str.strip()
+	 */
+	static String strip(String text) {
+		int start = 0;
+		int end = text.length();
+		while (start < end && isPythonSpace(text.charAt(start))) {
+			start++;
+		}
+		while (end > start && isPythonSpace(text.charAt(end - 1))) {
+			end--;
+		}
+		return text.substring(start, end);
+	}
+
+	/*
+	 * Returns true if the text is unchanged by the sanitize() function of extract_mentions.py, which replaces each whitespace character with a space and then strips
+	 */
+	static boolean isSanitized(String text) {
+		if (text == null) {
+			return false;
+		}
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c != ' ' && isPythonSpace(c)) {
+				return false;
+			}
+		}
+		return length == 0 || (text.charAt(0) != ' ' && text.charAt(length - 1) != ' ');
+	}
+
+	/*
+	 * Splits lines at the same boundaries as Python's str.splitlines(), which is what the scripts used to read PubTator files
+	 */
+	static class PythonLineReader {
+
+		private BufferedReader reader;
+		private int next;
+
+		public PythonLineReader(BufferedReader reader) throws IOException {
+			this.reader = reader;
+			next = reader.read();
+		}
+
+		public String readLine() throws IOException {
+			if (next < 0) {
+				return null;
+			}
+			StringBuilder line = new StringBuilder();
+			while (next >= 0) {
+				char c = (char) next;
+				next = reader.read();
+				if (c == '\r') {
+					if (next == '\n') {
+						next = reader.read();
+					}
+					break;
+				}
+				if (c == '\n' || c == '\u000B' || c == '\u000C' || c == '\u001C' || c == '\u001D' || c == '\u001E' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+					break;
+				}
+				line.append(c);
+			}
+			return line.toString();
+		}
+
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -9,8 +9,11 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,6 +21,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.stream.XMLStreamException;
@@ -35,11 +43,15 @@ import bioc.io.woodstox.ConnectorWoodstox;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import ncbi.taggerOne.abbreviation.AbbreviationIndex;
 import ncbi.taggerOne.abbreviation.AbbreviationSource;
 import ncbi.taggerOne.abbreviation.AbbreviationSourceProcessor;
 import ncbi.taggerOne.abbreviation.FileAbbreviationSource;
 import ncbi.taggerOne.lexicon.Lexicon;
+import ncbi.taggerOne.model.normalization.NormalizationModel;
 import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.model.normalization.NormalizationShardClient;
+import ncbi.taggerOne.model.normalization.ShardedNormalizationModel;
 import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
 import ncbi.taggerOne.processing.SentenceBreaker;
 import ncbi.taggerOne.processing.analysis.OutputAnalysisProcessor;
@@ -62,14 +74,26 @@ import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.ProgressReporter;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.Histogram;
+import ncbi.util.metrics.Metrics;
+import ncbi.util.metrics.MetricsExporter;
 import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
+import ncbi.taggerOne.processing.mentionName.ParallelMentionNameProcessor;
 import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.Vector;
 
 public class NormalizeMentions {
 
 	private static final Logger logger = LoggerFactory.getLogger(ProcessText.class);
 	private static final String TMP_FILE_PREFIX = "tmp";
+	static final Counter MENTIONS = Metrics.counter("taggerone_mentions_total", "Mentions normalized");
+	static final Counter DUPLICATE_MENTIONS = Metrics.counter("taggerone_duplicate_mentions_total", "Mentions normalized by reusing the result for an equal mention vector in the same block");
+	static final Histogram MENTION_LATENCY = Metrics.histogram("taggerone_mention_seconds", "Time to expand abbreviations in, process and normalize a mention");
+	private static final Profiler.Probe normalizeProbe = Profiler.probe("NormalizeMentions.normalize()");
 
 	public static void main(String[] args) throws IOException, ClassNotFoundException, XMLStreamException {
 		OptionParser parser = new OptionParser();
@@ -79,6 +103,18 @@ public class NormalizeMentions {
 		OptionSpec<String> modelInputFilename = parser.accepts("modelInputFilename").withRequiredArg().ofType(String.class).required();
 		OptionSpec<Boolean> compileModel = parser.accepts("compileModel").withRequiredArg().ofType(Boolean.class).defaultsTo(true);
 		OptionSpec<String> abbreviationDir = parser.accepts("abbreviationDir").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> abbreviationCacheSize = parser.accepts("abbreviationCacheSize").withRequiredArg().ofType(Integer.class).defaultsTo(10000);
+		OptionSpec<String> normalizationShards = parser.accepts("normalizationShards").withRequiredArg().ofType(String.class);
+		OptionSpec<String> inputFormat = parser.accepts("inputFormat").withRequiredArg().ofType(String.class).defaultsTo("tsv");
+		OptionSpec<String> outputFormat = parser.accepts("outputFormat").withRequiredArg().ofType(String.class).defaultsTo("tsv");
+		OptionSpec<Integer> threads = parser.accepts("threads").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		OptionSpec<Integer> blockSize = parser.accepts("blockSize").withRequiredArg().ofType(Integer.class).defaultsTo(10000);
+		OptionSpec<Boolean> resume = parser.accepts("resume").withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+		OptionSpec<String> metricsFile = parser.accepts("metricsFile").withRequiredArg().ofType(String.class);
+		OptionSpec<String> metricsFormat = parser.accepts("metricsFormat").withRequiredArg().ofType(String.class).defaultsTo(MetricsExporter.PROMETHEUS_FORMAT);
+		OptionSpec<Integer> metricsInterval = parser.accepts("metricsInterval").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+		OptionSpec<Integer> metricsPort = parser.accepts("metricsPort").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> metricsBindAddress = parser.accepts("metricsBindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
 		// TODO Add options for post-processing
 		OptionSet options = parser.parse(args);
 		// TODO Validate
@@ -101,6 +137,15 @@ public class NormalizeMentions {
 			logger.info("\t" + str.toString());
 		}
 
+		MetricsExporter metricsExporter = new MetricsExporter();
+		if (options.has(metricsFile)) {
+			metricsExporter.startFile(new File(options.valueOf(metricsFile)), options.valueOf(metricsFormat), options.valueOf(metricsInterval));
+		}
+		if (options.has(metricsPort)) {
+			metricsExporter.startServer(InetAddress.getByName(options.valueOf(metricsBindAddress)), options.valueOf(metricsPort));
+		}
+		Metrics.registerJVMGauges();
+
 		// Load the annotation pipeline
 		logger.info("Loading model");
 		long start = System.currentTimeMillis();
@@ -113,86 +158,254 @@ public class NormalizeMentions {
 		SegmentMentionProcessor segmentMentionProcessor = (SegmentMentionProcessor) originalProcessors.get(4);
 		MentionNameProcessor mentionNameProcessor = segmentMentionProcessor.getProcessor();
 		Annotator originalAnnotator = (Annotator) originalProcessors.get(5);
-		Map<String, NormalizationModelPredictor> originalNormalizationPredictorModels = originalAnnotator.getNormalizationModels();
-		Map<String, NormalizationModelPredictor> normalizationPredictorModels = originalNormalizationPredictorModels;
 		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
 
 		// Prepare abbreviations source
-		logger.info("Loading abbreviations");
+		logger.info("Indexing abbreviations");
 		start = System.currentTimeMillis();
+		indexAbbreviations(options.valueOf(abbreviationDir), abbreviationResolver, options.valueOf(abbreviationCacheSize));
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		// Compile model
+		Map<String, NormalizationModelPredictor> normalizationPredictorModels = prepareNormalizationModels(originalAnnotator, options.valueOf(compileModel), options.valueOf(normalizationShards));
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+		new Annotator(originalAnnotator.getLexicon(), originalAnnotator.getRecognitionModel(), normalizationPredictorModels).registerMemoryAccounting();
+		MemoryAccounting.register("abbreviations", abbreviationResolver);
+		MemoryAccounting.logReport();
+
+		// Process file(s)
+		String inputFilename = options.valueOf(input);
+		String outputFilename = options.valueOf(output);
+		logger.debug("inputFilename = " + inputFilename);
+		logger.debug("outputFilename = " + outputFilename);
+		File inFile = new File(inputFilename);
+		File outFile = new File(outputFilename);
+		if (inFile.isDirectory()) {
+			throw new IllegalArgumentException("Input must be a TSV or binary file");
+		}
+		if (outFile.isDirectory()) {
+			throw new IllegalArgumentException("Output must be a file");
+		}
+		boolean binaryInput = isBinaryFormat(options.valueOf(inputFormat));
+		boolean binaryOutput = isBinaryFormat(options.valueOf(outputFormat));
+		if (options.valueOf(threads) < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + options.valueOf(threads));
+		}
+		if (options.valueOf(blockSize) < 1) {
+			throw new IllegalArgumentException("blockSize must be at least 1: " + options.valueOf(blockSize));
+		}
+		if (options.valueOf(resume) && !binaryOutput) {
+			throw new IllegalArgumentException("Resuming requires binary output");
+		}
+		process(inFile, binaryInput, outFile, binaryOutput, options.valueOf(threads), options.valueOf(blockSize), options.valueOf(resume), normalizationPredictorModels, mentionNameProcessor, abbreviationResolver);
+		metricsExporter.close();
+		Profiler.print("\t");
+		logger.info("Done.");
+	}
+
+	/*
+	 * Indexes the abbreviation file, or each file in the directory, so the abbreviations for each document are only read when the document is first seen. The abbreviations for the cacheSize most recently seen documents are
+	 * kept.
+	 */
+	static void indexAbbreviations(String abbreviationPath, AbbreviationResolver abbreviationResolver, int cacheSize) {
+		AbbreviationIndex abbreviationIndex = new AbbreviationIndex();
+		abbreviationIndex.add(abbreviationPath);
+		logger.info("Indexed abbreviations for " + abbreviationIndex.size() + " documents");
+		abbreviationResolver.setAbbreviationSource(abbreviationIndex, cacheSize);
+	}
+
+	static void loadAbbreviations(String abbreviationDirStr, AbbreviationResolver abbreviationResolver) {
+		if ((new File(abbreviationDirStr)).isFile()) {
+			loadAbbreviationFile(abbreviationDirStr, abbreviationResolver);
+			return;
+		}
 		// For each file in dir, load abbreviations into abbreviationResolver
-		String abbreviationDirStr = options.valueOf(abbreviationDir);
 		if (!abbreviationDirStr.endsWith("/")) {
 			abbreviationDirStr = abbreviationDirStr + "/";
 		}
 		File[] abbreviationFiles = (new File(abbreviationDirStr)).listFiles();
+		if (abbreviationFiles == null) {
+			throw new IllegalArgumentException("Abbreviation path is not a directory or normal file: " + abbreviationDirStr);
+		}
 		for (int i = 0; i < abbreviationFiles.length; i++) {
 			if (abbreviationFiles[i].isFile()) {
-				FileAbbreviationSource abbreviationLoader = new FileAbbreviationSource();
-				String abbreviationFilename = abbreviationDirStr + abbreviationFiles[i].getName();
-				logger.debug("Loading abbreviations from file " + abbreviationFilename);
-				abbreviationLoader.loadAbbreviations(abbreviationFilename);
-				Map<String, Map<String, String>> abbreviations = abbreviationLoader.getAllAbbreviations();
-				for (String documentId : abbreviations.keySet()) {
-					abbreviationResolver.addAbbreviations(documentId, abbreviations.get(documentId));
-				}
+				loadAbbreviationFile(abbreviationDirStr + abbreviationFiles[i].getName(), abbreviationResolver);
 			}
 		}
-		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+	}
 
-		// Compile model
-		if (options.valueOf(compileModel)) {
+	private static void loadAbbreviationFile(String abbreviationFilename, AbbreviationResolver abbreviationResolver) {
+		FileAbbreviationSource abbreviationLoader = new FileAbbreviationSource();
+		logger.debug("Loading abbreviations from file " + abbreviationFilename);
+		abbreviationLoader.loadAbbreviations(abbreviationFilename);
+		Map<String, Map<String, String>> abbreviations = abbreviationLoader.getAllAbbreviations();
+		for (String documentId : abbreviations.keySet()) {
+			abbreviationResolver.addAbbreviations(documentId, abbreviations.get(documentId));
+		}
+	}
+
+	/*
+	 * Returns the normalization models to use: sharded if shard addresses are given, compiled if requested, or otherwise as loaded
+	 */
+	static Map<String, NormalizationModelPredictor> prepareNormalizationModels(Annotator originalAnnotator, boolean compileModel, String normalizationShards) {
+		Map<String, NormalizationModelPredictor> originalNormalizationPredictorModels = originalAnnotator.getNormalizationModels();
+		if (normalizationShards != null) {
+			logger.info("Connecting to normalization shards");
+			List<NormalizationShardClient> shards = NormalizationShardClient.connect(normalizationShards);
+			Map<String, NormalizationModelPredictor> normalizationPredictorModels = new HashMap<String, NormalizationModelPredictor>();
+			for (String entityType : originalNormalizationPredictorModels.keySet()) {
+				NormalizationModel model = ShardedNormalizationModel.getNormalizationModel(originalNormalizationPredictorModels.get(entityType));
+				normalizationPredictorModels.put(entityType, new ShardedNormalizationModel(model, shards));
+			}
+			return normalizationPredictorModels;
+		}
+		if (compileModel) {
 			logger.info("Compiling model");
 			RecognitionModelPredictor recognitionModel = originalAnnotator.getRecognitionModel().compile();
-			normalizationPredictorModels = new HashMap<String, NormalizationModelPredictor>();
+			Map<String, NormalizationModelPredictor> normalizationPredictorModels = new HashMap<String, NormalizationModelPredictor>();
 			for (String entityType : originalNormalizationPredictorModels.keySet()) {
 				NormalizationModelPredictor originalPredictor = originalNormalizationPredictorModels.get(entityType);
 				NormalizationModelPredictor newPredictor = originalPredictor.compile();
 				normalizationPredictorModels.put(entityType, newPredictor);
 			}
-			logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+			return normalizationPredictorModels;
 		}
+		return originalNormalizationPredictorModels;
+	}
 
-		// Process file(s)
-		String inputFilename = options.valueOf(input);
-		String outputFilename = options.valueOf(output);
-		logger.debug("inputFilename = " + inputFilename);
-		logger.debug("outputFilename = " + outputFilename);
-		File inFile = new File(inputFilename);
-		File outFile = new File(outputFilename);
-		if (inFile.isDirectory()) {
-			throw new IllegalArgumentException("Input must be a TSV file");
+	static boolean isBinaryFormat(String format) {
+		String formatStr = format.toLowerCase(Locale.US);
+		if (formatStr.equals("binary")) {
+			return true;
 		}
-		if (outFile.isDirectory()) {
-			throw new IllegalArgumentException("Output must be a file");
+		if (formatStr.equals("tsv")) {
+			return false;
+		}
+		throw new IllegalArgumentException("Mention file format must be TSV or binary: " + format);
+	}
+
+	/*
+	 * Normalizes the mentions in blocks, using the given number of threads and writing the blocks in input order. When resuming, the blocks already in the binary output are skipped; the block size must be the same as
+	 * for the earlier run if the input is TSV.
+	 */
+	static void process(File inputFile, boolean binaryInput, File outputFile, boolean binaryOutput, int threads, int blockSize, boolean resume, final Map<String, NormalizationModelPredictor> normalizationPredictorModels,
+			final MentionNameProcessor mentionNameProcessor, final AbbreviationResolver abbreviationResolver) throws IOException {
+		BufferedReader tsvReader = null;
+		MentionContainer.Reader containerReader = null;
+		BufferedWriter tsvWriter = null;
+		MentionContainer.Writer containerWriter = null;
+		int completedBlocks = 0;
+		if (binaryOutput) {
+			containerWriter = new MentionContainer.Writer(outputFile, resume);
+			completedBlocks = containerWriter.getBlockCount();
+		} else {
+			tsvWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), T1Constants.UTF8_FORMAT));
+		}
+		if (binaryInput) {
+			containerReader = new MentionContainer.Reader(inputFile);
+			containerReader.seekBlock(Math.min(completedBlocks, containerReader.getBlockCount()));
+		} else {
+			tsvReader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), T1Constants.UTF8_FORMAT));
+			for (int i = 0; i < completedBlocks; i++) {
+				MentionBlock.readTSV(tsvReader, blockSize);
+			}
+		}
+		if (completedBlocks > 0) {
+			logger.info("Resuming after " + completedBlocks + " completed blocks");
+		}
+
+		// Blocks are normalized in parallel and written in order; the number pending is bounded
+		long totalMentions = 0;
+		if (binaryInput) {
+			for (int blockIndex = completedBlocks; blockIndex < containerReader.getBlockCount(); blockIndex++) {
+				totalMentions += containerReader.getBlockSize(blockIndex);
+			}
+		}
+		// The mention name processor is not thread-safe, so each worker thread uses its own copy
+		final MentionNameProcessor workerProcessor = threads == 1 ? mentionNameProcessor : new ParallelMentionNameProcessor(mentionNameProcessor, false);
+		final ProgressReporter reporter = new ProgressReporter("NormalizeMentions", "mentions", 1, ProgressReporter.DEFAULT_REPORTING_INTERVAL);
+		reporter.startBatch(totalMentions);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Deque<Future<MentionBlock>> pending = new ArrayDeque<Future<MentionBlock>>();
+		int blocks = completedBlocks;
+		try {
+			MentionBlock block = binaryInput ? containerReader.readBlock() : MentionBlock.readTSV(tsvReader, blockSize);
+			while (block != null) {
+				final MentionBlock inputBlock = block;
+				pending.add(executor.submit(new Callable<MentionBlock>() {
+					@Override
+					public MentionBlock call() {
+						MentionBlock outputBlock = normalize(inputBlock, normalizationPredictorModels, workerProcessor, abbreviationResolver);
+						reporter.reportCompletions(inputBlock.size());
+						return outputBlock;
+					}
+				}));
+				if (pending.size() > 2 * threads) {
+					writeBlock(pending.remove().get(), tsvWriter, containerWriter);
+					blocks++;
+				}
+				block = binaryInput ? containerReader.readBlock() : MentionBlock.readTSV(tsvReader, blockSize);
+			}
+			while (!pending.isEmpty()) {
+				writeBlock(pending.remove().get(), tsvWriter, containerWriter);
+				blocks++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			// The binary output is left without an index, so a later run can resume from the last complete block
+			logger.error("Failed after " + blocks + " completed blocks");
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			reporter.completeBatch();
+		}
+		logger.info("Completed " + blocks + " blocks");
+		if (binaryInput) {
+			containerReader.close();
+		} else {
+			tsvReader.close();
+		}
+		if (binaryOutput) {
+			containerWriter.close();
+		} else {
+			tsvWriter.close();
+		}
+	}
+
+	private static void writeBlock(MentionBlock block, BufferedWriter tsvWriter, MentionContainer.Writer containerWriter) throws IOException {
+		if (containerWriter != null) {
+			containerWriter.writeBlock(block);
+		} else {
+			block.writeTSV(tsvWriter);
 		}
-		processTSV(inputFilename, outputFilename, normalizationPredictorModels, mentionNameProcessor, abbreviationResolver);
-		Profiler.print("\t");
-		logger.info("Done.");
 	}
 
-	private static void processTSV(String inputFilename, String outputFilename, Map<String, NormalizationModelPredictor> normalizationPredictorModels, MentionNameProcessor mentionNameProcessor, AbbreviationResolver abbreviationResolver)
-			throws IOException {
-
-	
-		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT));
-		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT));
-		String line = reader.readLine();
-		Map<String, String> titles = new HashMap<String, String>();
-		while (line != null) {
-			line = line.trim();
-			String[] fields = line.split("\t");
-			if (fields.length != 3) {
-				throw new RuntimeException("Number of fields must be 3: " + fields.length);
-			}
-			String documentId = fields[0];
-			String mentionText = fields[1];
-			String type = fields[2];
-			// String identifier = fields[3];
+	/*
+	 * Returns the normalized mentions in the block; mentions whose type has no normalization model are dropped. The mention name processor is used without synchronization. The distinct mention vectors of each type are
+	 * normalized together, so a sharded model makes one request to each shard per type in the block.
+	 */
+	static MentionBlock normalize(MentionBlock block, Map<String, NormalizationModelPredictor> normalizationPredictorModels, MentionNameProcessor mentionNameProcessor, AbbreviationResolver abbreviationResolver) {
+		normalizeProbe.start();
+		long blockStart = System.nanoTime();
+		// Distinct mention vectors in the block, by type; mention vectors are frozen, so lookups compare fingerprints, or references for vectors canonicalized to a name vector
+		Map<String, Map<Vector<String>, Integer>> distinctByType = new HashMap<String, Map<Vector<String>, Integer>>();
+		// Mention vector for each mention in the block, or null if the type has no normalization model
+		List<Vector<String>> mentionVectors = new ArrayList<Vector<String>>(block.size());
+		for (int i = 0; i < block.size(); i++) {
+			String documentId = block.getDocumentId(i);
+			String mentionText = block.getMentionText(i);
+			String type = block.getType(i);
 			NormalizationModelPredictor normalizationModel = normalizationPredictorModels.get(type);
 			logger.debug("normalizationModel is " + normalizationModel);
-			
-			if (normalizationModel != null) {
+
+			if (normalizationModel == null) {
+				mentionVectors.add(null);
+			} else {
 				logger.debug("documentId = " + documentId);
 				logger.debug("Mention = " + mentionText);
 				String expandedText = abbreviationResolver.expandAbbreviations(documentId, mentionText);
@@ -201,32 +414,76 @@ public class NormalizeMentions {
 				mentionNameProcessor.process(mentionName);
 				logger.debug("tokens = " + mentionName.getTokens());
 				logger.debug("vector = " + mentionName.getVector());
-				
+
 				if (logger.isDebugEnabled()) {
 					RankedList<Entity> bestEntities = new RankedList<Entity>(5);
 					normalizationModel.findBest(mentionName.getVector(), bestEntities);
-					for (int i = 0; i < bestEntities.size(); i++) {
-						Entity entity = bestEntities.getObject(i);
-						double score = bestEntities.getValue(i);
-						logger.debug(i + "\t" + score + "\t" + entity.getPrimaryIdentifier() + "\t" + entity.getPrimaryName().getName() + "\t" + entity.getPrimaryName().getVector());
-					
+					for (int j = 0; j < bestEntities.size(); j++) {
+						Entity entity = bestEntities.getObject(j);
+						double score = bestEntities.getValue(j);
+						logger.debug(j + "\t" + score + "\t" + entity.getPrimaryIdentifier() + "\t" + entity.getPrimaryName().getName() + "\t" + entity.getPrimaryName().getVector());
 					}
 				}
-				
-				RankedList<Entity> bestEntities = new RankedList<Entity>(1);
-				normalizationModel.findBest(mentionName.getVector(), bestEntities);
-				writer.write(documentId + "\t" + mentionText + "\t" + type);
-				if (bestEntities.size() == 0) {
-					writer.write("\t\t\n");
+
+				Map<Vector<String>, Integer> distinct = distinctByType.get(type);
+				if (distinct == null) {
+					distinct = new HashMap<Vector<String>, Integer>();
+					distinctByType.put(type, distinct);
+				}
+				Vector<String> mentionVector = mentionName.getVector();
+				if (distinct.containsKey(mentionVector)) {
+					DUPLICATE_MENTIONS.increment();
 				} else {
-					Entity entity = bestEntities.getObject(0);
-					writer.write("\t" + entity.getPrimaryIdentifier() + "\t" + entity.getPrimaryName().getName() + "\n");
+					distinct.put(mentionVector, distinct.size());
 				}
+				mentionVectors.add(mentionVector);
+			}
+		}
+
+		// Best entity for each distinct mention vector, by type; null if there is none
+		Map<String, Map<Vector<String>, Entity>> resolvedByType = new HashMap<String, Map<Vector<String>, Entity>>();
+		for (String type : distinctByType.keySet()) {
+			Map<Vector<String>, Integer> distinct = distinctByType.get(type);
+			List<Vector<String>> typeVectors = new ArrayList<Vector<String>>(Collections.<Vector<String>> nCopies(distinct.size(), null));
+			List<RankedList<Entity>> typeBestEntities = new ArrayList<RankedList<Entity>>(distinct.size());
+			for (Map.Entry<Vector<String>, Integer> entry : distinct.entrySet()) {
+				typeVectors.set(entry.getValue(), entry.getKey());
+				typeBestEntities.add(new RankedList<Entity>(1));
+			}
+			ShardedNormalizationModel.findBestAll(normalizationPredictorModels.get(type), typeVectors, typeBestEntities);
+			Map<Vector<String>, Entity> resolved = new HashMap<Vector<String>, Entity>();
+			for (int j = 0; j < typeVectors.size(); j++) {
+				RankedList<Entity> bestEntities = typeBestEntities.get(j);
+				resolved.put(typeVectors.get(j), bestEntities.size() == 0 ? null : bestEntities.getObject(0));
+			}
+			resolvedByType.put(type, resolved);
+		}
+
+		MentionBlock normalizedBlock = new MentionBlock(true);
+		for (int i = 0; i < block.size(); i++) {
+			Vector<String> mentionVector = mentionVectors.get(i);
+			if (mentionVector != null) {
+				String documentId = block.getDocumentId(i);
+				String mentionText = block.getMentionText(i);
+				String type = block.getType(i);
+				Entity entity = resolvedByType.get(type).get(mentionVector);
+				if (entity == null) {
+					normalizedBlock.add(documentId, mentionText, type, "", "");
+				} else {
+					normalizedBlock.add(documentId, mentionText, type, entity.getPrimaryIdentifier(), entity.getPrimaryName().getName());
+				}
+				MENTIONS.increment();
+			}
+		}
+		// Mentions are normalized together, so each is counted with the average time per mention in the block
+		if (normalizedBlock.size() > 0) {
+			long elapsed = Math.max(0, System.nanoTime() - blockStart) / normalizedBlock.size();
+			for (int i = 0; i < normalizedBlock.size(); i++) {
+				MENTION_LATENCY.record(elapsed);
 			}
-			line = reader.readLine();
 		}
-		reader.close();
-		writer.close();
+		normalizeProbe.stop();
+		return normalizedBlock;
 	}
 
 	private static String visualizeIdentifiers(Set<Entity> entities) {
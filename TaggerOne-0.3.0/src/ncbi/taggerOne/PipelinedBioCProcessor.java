@@ -0,0 +1,171 @@
+package ncbi.taggerOne;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bioc.BioCCollection;
+import bioc.BioCDocument;
+import bioc.io.BioCDocumentWriter;
+import bioc.io.BioCFactory;
+import bioc.io.woodstox.ConnectorWoodstox;
+import ncbi.util.Profiler;
+
+/*
+ * Processes a BioC XML collection as a pipeline: a reader thread parses documents ahead of the workers, which process them, while the calling thread writes the processed documents in their original order. At most queueSize
+ * documents are between the reader and the writer at any time, so memory use does not depend on the size of the collection.
+ */
+public class PipelinedBioCProcessor {
+
+	private static final Logger logger = LoggerFactory.getLogger(PipelinedBioCProcessor.class);
+	private static final Profiler.Probe processProbe = Profiler.probe("PipelinedBioCProcessor.process()");
+	private static final Profiler.Probe writeProbe = Profiler.probe("PipelinedBioCProcessor.write()");
+
+	public interface DocumentProcessor {
+		/*
+		 * Updates the document in place; called concurrently if there is more than one worker
+		 */
+		public void process(BioCDocument document);
+	}
+
+	private int workers;
+	private int queueSize;
+
+	public PipelinedBioCProcessor(int workers, int queueSize) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("workers must be at least 1: " + workers);
+		}
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queueSize must be at least 1: " + queueSize);
+		}
+		this.workers = workers;
+		this.queueSize = queueSize;
+	}
+
+	/*
+	 * Reads the collection from input, processes each document and writes the result to output. Both are closed when done.
+	 */
+	public void process(Reader input, Writer output, final DocumentProcessor processor) throws XMLStreamException, IOException {
+		final ConnectorWoodstox connector = new ConnectorWoodstox();
+		BioCCollection collection = connector.startRead(input);
+		BioCFactory factory = BioCFactory.newFactory(BioCFactory.WOODSTOX);
+		BioCDocumentWriter writer = factory.createBioCDocumentWriter(output);
+		writer.writeCollectionInfo(collection);
+
+		final ExecutorService workerExecutor = Executors.newFixedThreadPool(workers, new NamedThreadFactory("PipelinedBioCProcessor-worker"));
+		ExecutorService readerExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("PipelinedBioCProcessor-reader"));
+		// Documents in order; the reader blocks when the writer falls behind
+		final BlockingQueue<Future<BioCDocument>> queue = new ArrayBlockingQueue<Future<BioCDocument>>(queueSize);
+		final Future<BioCDocument> end = new FutureTask<BioCDocument>(new Runnable() {
+			@Override
+			public void run() {
+				// Empty
+			}
+		}, null);
+		Future<?> reader = readerExecutor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws InterruptedException {
+				try {
+					while (connector.hasNext()) {
+						final BioCDocument document = connector.next();
+						queue.put(workerExecutor.submit(new Callable<BioCDocument>() {
+							@Override
+							public BioCDocument call() {
+								processProbe.start();
+								processor.process(document);
+								processProbe.stop();
+								return document;
+							}
+						}));
+					}
+				} catch (final Exception e) {
+					if (e instanceof InterruptedException) {
+						throw (InterruptedException) e;
+					}
+					// Passes the exception to the writer in document order
+					FutureTask<BioCDocument> failed = new FutureTask<BioCDocument>(new Callable<BioCDocument>() {
+						@Override
+						public BioCDocument call() throws Exception {
+							throw e;
+						}
+					});
+					failed.run();
+					queue.put(failed);
+					return null;
+				}
+				queue.put(end);
+				return null;
+			}
+		});
+		boolean success = false;
+		try {
+			Future<BioCDocument> next = queue.take();
+			while (next != end) {
+				BioCDocument document = next.get();
+				writeProbe.start();
+				writer.writeDocument(document);
+				writeProbe.stop();
+				next = queue.take();
+			}
+			success = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof XMLStreamException) {
+				throw (XMLStreamException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			if (!success) {
+				logger.warn("Stopping BioC pipeline after an error");
+				reader.cancel(true);
+				for (Future<BioCDocument> pending : queue) {
+					pending.cancel(true);
+				}
+				queue.clear();
+			}
+			readerExecutor.shutdownNow();
+			workerExecutor.shutdownNow();
+			input.close();
+			writer.close();
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private String prefix;
+		private AtomicInteger count;
+
+		public NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+			count = new AtomicInteger();
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package ncbi.taggerOne;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,6 +8,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -25,23 +25,19 @@ import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import bioc.BioCAnnotation;
-import bioc.BioCCollection;
-import bioc.BioCDocument;
-import bioc.BioCPassage;
-import bioc.io.BioCDocumentWriter;
-import bioc.io.BioCFactory;
-import bioc.io.woodstox.ConnectorWoodstox;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import ncbi.taggerOne.abbreviation.AbbreviationSource;
 import ncbi.taggerOne.abbreviation.AbbreviationSourceProcessor;
 import ncbi.taggerOne.abbreviation.FolderAbbreviationSource;
+import ncbi.taggerOne.dataset.PubtatorReader;
 import ncbi.taggerOne.lexicon.Lexicon;
 import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
 import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
+import ncbi.taggerOne.processing.DocumentTrace;
 import ncbi.taggerOne.processing.SentenceBreaker;
+import ncbi.taggerOne.processing.TextPreprocessor;
 import ncbi.taggerOne.processing.analysis.OutputAnalysisProcessor;
 import ncbi.taggerOne.processing.postProcessing.AbbreviationPostProcessing;
 import ncbi.taggerOne.processing.postProcessing.AbsoluteConsistencyPostProcessing;
@@ -56,6 +52,7 @@ import ncbi.taggerOne.processing.textInstance.SegmentMentionProcessor;
 import ncbi.taggerOne.processing.textInstance.Segmenter;
 import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
 import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.processing.textInstance.TextInstanceTokenizer;
 import ncbi.taggerOne.types.AnnotatedSegment;
 import ncbi.taggerOne.types.Entity;
 import ncbi.taggerOne.types.MentionName;
@@ -63,7 +60,10 @@ import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Metrics;
+import ncbi.util.metrics.MetricsExporter;
 
 public class ProcessText {
 
@@ -89,6 +89,17 @@ public class ProcessText {
 				.defaultsTo(false);
 		OptionSpec<String> abbreviationSources = parser.accepts("abbreviationSource").withRequiredArg().ofType(String.class);
 		OptionSpec<String> postProcessingPatterns = parser.accepts("postProcessingPatterns").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> bioCWorkers = parser.accepts("bioCWorkers").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		OptionSpec<Integer> bioCQueueSize = parser.accepts("bioCQueueSize").withRequiredArg().ofType(Integer.class).defaultsTo(16);
+		OptionSpec<Integer> abbreviationBatchSize = parser.accepts("abbreviationBatchSize").withRequiredArg().ofType(Integer.class).defaultsTo(100);
+		OptionSpec<Integer> preprocessingThreads = parser.accepts("preprocessingThreads").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		OptionSpec<String> metricsFile = parser.accepts("metricsFile").withRequiredArg().ofType(String.class);
+		OptionSpec<String> metricsFormat = parser.accepts("metricsFormat").withRequiredArg().ofType(String.class).defaultsTo(MetricsExporter.PROMETHEUS_FORMAT);
+		OptionSpec<Integer> metricsInterval = parser.accepts("metricsInterval").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+		OptionSpec<Integer> metricsPort = parser.accepts("metricsPort").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> metricsBindAddress = parser.accepts("metricsBindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
+		OptionSpec<Integer> traceThreshold = parser.accepts("traceThreshold").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> slowLogFile = parser.accepts("slowLogFile").withRequiredArg().ofType(String.class);
 		// TODO Add options for post-processing
 		OptionSet options = parser.parse(args);
 		// TODO Validate
@@ -111,6 +122,18 @@ public class ProcessText {
 			logger.info("\t" + str.toString());
 		}
 
+		MetricsExporter metricsExporter = new MetricsExporter();
+		if (options.has(metricsFile)) {
+			metricsExporter.startFile(new File(options.valueOf(metricsFile)), options.valueOf(metricsFormat), options.valueOf(metricsInterval));
+		}
+		if (options.has(metricsPort)) {
+			metricsExporter.startServer(InetAddress.getByName(options.valueOf(metricsBindAddress)), options.valueOf(metricsPort));
+		}
+		Metrics.registerJVMGauges();
+		if (options.has(traceThreshold)) {
+			DocumentTrace.enable(options.valueOf(traceThreshold), options.valueOf(slowLogFile));
+		}
+
 		// Load the annotation pipeline
 		logger.info("Loading model");
 		long start = System.currentTimeMillis();
@@ -153,7 +176,8 @@ public class ProcessText {
 			throw new RuntimeException(e);
 		}
 		List<TextInstanceProcessor> processors = new ArrayList<TextInstanceProcessor>();
-		processors.add(new AbbreviationSourceProcessor(abbreviationSourceList, abbreviationResolver));
+		AbbreviationSourceProcessor abbreviationSourceProcessor = new AbbreviationSourceProcessor(abbreviationSourceList, abbreviationResolver);
+		processors.add(abbreviationSourceProcessor);
 		processors.addAll(originalProcessors);
 		logger.info("Number of abbreviations = " + abbreviationResolver.size());
 		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
@@ -199,7 +223,28 @@ public class ProcessText {
 			}
 		}
 		annotationPipeline = new TextInstanceProcessingPipeline(processors);
+		annotationPipeline.registerMemoryAccounting();
+		MemoryAccounting.logReport();
 		ProcessingTimer processingPipeline = new ProcessingTimer("AnnotationPipeline", annotationPipeline);
+		// PubTator input is broken into sentences and tokenized in parallel before the rest of the pipeline
+		List<TextInstanceProcessor> pubtatorProcessors = new ArrayList<TextInstanceProcessor>(processors);
+		TextInstanceProcessor tokenizer = null;
+		for (int processorIndex = 0; processorIndex < pubtatorProcessors.size(); processorIndex++) {
+			TextInstanceProcessor processor = pubtatorProcessors.get(processorIndex);
+			if (processor instanceof TextInstanceTokenizer) {
+				tokenizer = pubtatorProcessors.remove(processorIndex);
+				break;
+			}
+			// The tokenizer can only be moved ahead of processors that do not use the tokens
+			if (!(processor instanceof AbbreviationSourceProcessor)) {
+				break;
+			}
+		}
+		if (tokenizer == null) {
+			logger.info("Tokenizer not found ahead of the annotation pipeline; PubTator input will be tokenized by the pipeline");
+		}
+		ProcessingTimer pubtatorPipeline = new ProcessingTimer("AnnotationPipeline", new TextInstanceProcessingPipeline(pubtatorProcessors));
+		TextPreprocessor preprocessor = new TextPreprocessor(options.valueOf(useSentenceBreaker) ? new SentenceBreaker() : null, tokenizer, options.valueOf(preprocessingThreads));
 
 		CoordinationPostProcessor coordinationPostProcessor = null;
 		if (options.has(coordinationPostProcessingArgs)) {
@@ -230,6 +275,11 @@ public class ProcessText {
 			logger.info("consistencyPostProcessing disabled");
 		}
 
+		PipelinedBioCProcessor bioCProcessor = new PipelinedBioCProcessor(options.valueOf(bioCWorkers), options.valueOf(bioCQueueSize));
+		BioCDocumentAnnotator.ScoreMode scoreMode = options.valueOf(showEntityScores) ? BioCDocumentAnnotator.ScoreMode.WITH_IDENTIFIER : BioCDocumentAnnotator.ScoreMode.NONE;
+		BioCDocumentAnnotator bioCAnnotator = new BioCDocumentAnnotator(options.valueOf(useSentenceBreaker), scoreMode, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+				consistencyPostProcessing);
+
 		// Process file(s)
 		String inputStr = options.valueOf(input);
 		String outputStr = options.valueOf(output);
@@ -269,8 +319,8 @@ public class ProcessText {
 						boolean moved = false;
 						try {
 							String tempFilename = tempFile.getAbsolutePath();
-							process(options.valueOf(fileFormat), inputFilename, tempFilename, options.valueOf(useSentenceBreaker), options.valueOf(showEntityScores), processingPipeline, coordinationPostProcessor,
-									abbreviationPostProcessing, consistencyPostProcessing);
+							process(options.valueOf(fileFormat), inputFilename, tempFilename, preprocessor, pubtatorPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+									consistencyPostProcessing, bioCProcessor, bioCAnnotator, abbreviationSourceProcessor, options.valueOf(abbreviationBatchSize));
 							moved = tempFile.renameTo(outputFile);
 							if (!moved) {
 								logger.warn("Unable to move temp output file " + tempFilename + " to " + outputFile.getAbsolutePath());
@@ -295,131 +345,32 @@ public class ProcessText {
 			if (!options.valueOf(reprocessInput)) {
 				logger.warn("Option \"reprocessInput\" is ignored for single files");
 			}
-			process(options.valueOf(fileFormat), inputStr, outputStr, options.valueOf(useSentenceBreaker), options.valueOf(showEntityScores), processingPipeline, coordinationPostProcessor,
-					abbreviationPostProcessing, consistencyPostProcessing);
+			process(options.valueOf(fileFormat), inputStr, outputStr, preprocessor, pubtatorPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+					consistencyPostProcessing, bioCProcessor, bioCAnnotator, abbreviationSourceProcessor, options.valueOf(abbreviationBatchSize));
 		}
+		preprocessor.close();
+		DocumentTrace.disable();
+		metricsExporter.close();
 		Profiler.print("\t");
 		System.out.println("Done.");
 	}
 
-	private static void process(String fileFormat, String inputFilename, String outputFilename, boolean useSentenceBreaker, boolean showEntityScores, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
+	private static void process(String fileFormat, String inputFilename, String outputFilename, TextPreprocessor preprocessor, TextInstanceProcessor processingPipeline,
+			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing,
+			PipelinedBioCProcessor bioCProcessor, BioCDocumentAnnotator bioCAnnotator, AbbreviationSourceProcessor abbreviationSourceProcessor, int abbreviationBatchSize)
 			throws XMLStreamException, IOException {
 		if (fileFormat.toLowerCase(Locale.US).equals("pubtator")) {
-			processPubtator(inputFilename, outputFilename, useSentenceBreaker, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
-					consistencyPostProcessing);
+			processPubtator(inputFilename, outputFilename, preprocessor, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+					consistencyPostProcessing, abbreviationSourceProcessor, abbreviationBatchSize);
 		} else if (fileFormat.toLowerCase(Locale.US).equals("bioc")) {
-			processBioC(inputFilename, outputFilename, useSentenceBreaker, showEntityScores, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing, consistencyPostProcessing);
+			processBioC(inputFilename, outputFilename, bioCProcessor, bioCAnnotator);
 		} else {
 			throw new RuntimeException("File format must be BioC or Pubtator = " + fileFormat);
 		}
 	}
 
-	private static void processBioC(String inputFilename, String outputFilename, boolean useSentenceBreaker, boolean showEntityScores, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
-			throws XMLStreamException, IOException {
-
-		// Open BioC file for input
-		ConnectorWoodstox connector = new ConnectorWoodstox();
-		BioCCollection collection = connector.startRead(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT));
-
-		// Open BioC file for output
-		String bioCParser = BioCFactory.WOODSTOX;
-		BioCFactory factory = BioCFactory.newFactory(bioCParser);
-		BioCDocumentWriter writer = factory.createBioCDocumentWriter(new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT));
-		writer.writeCollectionInfo(collection);
-
-		// Iterate through documents
-		while (connector.hasNext()) {
-			BioCDocument document = connector.next();
-			String documentId = document.getID();
-			logger.info("ID=" + documentId);
-
-			List<PassageAndInstances> passages = new ArrayList<PassageAndInstances>();
-			List<TextInstance> instances = new ArrayList<TextInstance>();
-			int annotationIdCounter = 0;
-
-			// Load passages & break into sentences
-			for (BioCPassage passage : document.getPassages()) {
-				// Get instance
-				List<TextInstance> instancesForPassage = new ArrayList<TextInstance>();
-				int offset = passage.getOffset();
-				TextInstance instance = new TextInstance(null, documentId, documentId, passage.getText(), offset);
-				instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
-				instancesForPassage.add(instance);
-				// Break into sentences
-				if (useSentenceBreaker) {
-					SentenceBreaker sentenceBreaker = new SentenceBreaker();
-					instancesForPassage = sentenceBreaker.breakSentences(instancesForPassage);
-				}
-				// Add to lists
-				passages.add(new PassageAndInstances(passage, instancesForPassage));
-				instances.addAll(instancesForPassage);
-			}
-
-			// Process document
-			processingPipeline.processAll(instances);
-			if (coordinationPostProcessor != null) {
-				coordinationPostProcessor.processAll(instances);
-			}
-			if (abbreviationPostProcessing != null) {
-				abbreviationPostProcessing.processAll(instances);
-			}
-			if (consistencyPostProcessing != null) {
-				consistencyPostProcessing.processAll(instances);
-			}
-
-			// Write annotations to passages
-			for (PassageAndInstances passageAndInstances : passages) {
-				BioCPassage passage = passageAndInstances.getPassage();
-				passage.getAnnotations().clear();
-				List<TextInstance> instancesForPassage = passageAndInstances.getInstances();
-
-				for (TextInstance instance2 : instancesForPassage) {
-					List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
-					for (AnnotatedSegment segment : predictedAnnotation) {
-						BioCAnnotation annotation = new BioCAnnotation();
-						annotation.setID(Integer.toString(annotationIdCounter));
-						Map<String, String> infons = new HashMap<String, String>();
-						infons.put("type", segment.getEntityClass());
-						String identifiers = visualizeIdentifiers(segment.getEntities());
-						if (identifiers != null) {
-							infons.put("identifier", identifiers);
-							if (showEntityScores) {
-								infons.put("score", Double.toString(segment.getEntityScore()));
-							}
-						}
-						annotation.setInfons(infons);
-						annotation.setLocation(instance2.getOffset() + segment.getStartChar(), segment.getEndChar() - segment.getStartChar());
-						annotation.setText(segment.getText());
-						annotationIdCounter++;
-						passage.addAnnotation(annotation);
-					}
-				}
-			}
-			writer.writeDocument(document);
-		}
-		writer.close();
-	}
-
-	private static class PassageAndInstances {
-
-		private BioCPassage passage;
-		private List<TextInstance> instances;
-
-		public PassageAndInstances(BioCPassage passage, List<TextInstance> instances) {
-			this.passage = passage;
-			this.instances = instances;
-		}
-
-		public List<TextInstance> getInstances() {
-			return instances;
-		}
-
-		public BioCPassage getPassage() {
-			return passage;
-		}
-
+	private static void processBioC(String inputFilename, String outputFilename, PipelinedBioCProcessor bioCProcessor, BioCDocumentAnnotator bioCAnnotator) throws XMLStreamException, IOException {
+		bioCProcessor.process(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT), new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT), bioCAnnotator);
 	}
 
 	private static String visualizeIdentifiers(Set<Entity> entities) {
@@ -445,99 +396,140 @@ public class ProcessText {
 		return identifiers.toString();
 	}
 
-	private static void processPubtator(String inputFilename, String outputFilename, boolean useSentenceBreaker, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
-			throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT));
+	private static void processPubtator(String inputFilename, String outputFilename, TextPreprocessor preprocessor, TextInstanceProcessor processingPipeline,
+			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing,
+			AbbreviationSourceProcessor abbreviationSourceProcessor, int abbreviationBatchSize) throws IOException {
+		PubtatorReader reader = new PubtatorReader(new File(inputFilename), false);
 		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT));
-		String line = reader.readLine();
-		Map<String, String> titles = new HashMap<String, String>();
-		while (line != null) {
-			line = line.trim();
-			String[] fields = line.split("\\|");
-			if (fields.length == 2 || fields.length == 3) {
-				String id = fields[0];
-				String type = fields[1];
-				String text = "";
-				if (fields.length == 3) {
-					text = fields[2];
-				}
-
-				if (type.equals("t")) {
-					writer.write(id + "|t|" + text + "\n");
-					// Store title
-					titles.put(id, text);
-				} else if (type.equals("a")) {
-					writer.write(id + "|a|" + text + "\n");
-					// Process abstract
-					String title = titles.get(id);
-					List<TextInstance> instances = new ArrayList<TextInstance>();
-					TextInstance instance = new TextInstance(null, id, id, title + " " + text, 0);
+		List<PubtatorReader.Document> documents = new ArrayList<PubtatorReader.Document>();
+		List<TextInstance> abstractInstances = new ArrayList<TextInstance>();
+		PubtatorReader.Document document = reader.next();
+		while (document != null) {
+			// Read ahead so that a batch of documents can be preprocessed and have their abbreviations found at once
+			documents.clear();
+			abstractInstances.clear();
+			while (document != null && documents.size() < abbreviationBatchSize) {
+				if (document.getAbstractText() != null) {
+					String id = document.getId();
+					TextInstance instance = new TextInstance(null, id, id, document.getTitle() + " " + document.getAbstractText(), 0);
 					instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
-					instances.add(instance);
-					// Break into sentences
-					if (useSentenceBreaker) {
-						SentenceBreaker sentenceBreaker = new SentenceBreaker();
-						instances = sentenceBreaker.breakSentences(instances);
-					}
-					// Process
-					processingPipeline.processAll(instances);
-					if (coordinationPostProcessor != null) {
-						coordinationPostProcessor.processAll(instances);
-					}
-					if (abbreviationPostProcessing != null) {
-						abbreviationPostProcessing.processAll(instances);
-					}
-					if (consistencyPostProcessing != null) {
-						consistencyPostProcessing.processAll(instances);
-					}
-					for (TextInstance instance2 : instances) {
-						List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
-						for (AnnotatedSegment segment : predictedAnnotation) {
-							int start = instance2.getOffset() + segment.getStartChar();
-							int end = instance2.getOffset() + segment.getEndChar();
-							writer.write(id + "\t" + start + "\t" + end + "\t" + segment.getText() + "\t");
-							String identifiers = visualizeIdentifiers(segment.getEntities());
-							if (identifiers == null) {
-								writer.write(segment.getEntityClass() + "\n");
-							} else {
-								writer.write(segment.getEntityClass() + "\t" + Entity.visualizePrimaryIdentifiers(segment.getEntities()) + "\n");
-							}
-						}
-					}
-					writer.write("\n");
+					abstractInstances.add(instance);
+				}
+				documents.add(document);
+				document = reader.next();
+			}
+			// Break into sentences and tokenize
+			List<List<TextInstance>> abstractSentences = preprocessor.process(abstractInstances);
+			List<TextInstance> batchInstances = new ArrayList<TextInstance>();
+			for (List<TextInstance> instances : abstractSentences) {
+				batchInstances.addAll(instances);
+			}
+			abbreviationSourceProcessor.prefetch(batchInstances);
+			int abstractIndex = 0;
+			for (int documentIndex = 0; documentIndex < documents.size(); documentIndex++) {
+				List<TextInstance> instances = null;
+				if (documents.get(documentIndex).getAbstractText() != null) {
+					instances = abstractSentences.get(abstractIndex);
+					abstractIndex++;
 				}
+				processPubtatorDocument(documents.get(documentIndex), instances, writer, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+						consistencyPostProcessing);
 			}
-			line = reader.readLine();
 		}
 		reader.close();
 		writer.close();
 	}
 
+	private static void processPubtatorDocument(PubtatorReader.Document document, List<TextInstance> instances, BufferedWriter writer, TextInstanceProcessor processingPipeline,
+			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
+			throws IOException {
+		long documentStart = System.nanoTime();
+		String id = document.getId();
+		DocumentTrace trace = DocumentTrace.start(id);
+		String title = document.getTitle();
+		if (title != null) {
+			writer.write(id + "|t|" + title + "\n");
+		}
+		String text = document.getAbstractText();
+		if (text != null) {
+			writer.write(id + "|a|" + text + "\n");
+			// Process
+			processingPipeline.processAll(instances);
+			long postProcessingStart = System.nanoTime();
+			if (coordinationPostProcessor != null) {
+				coordinationPostProcessor.processAll(instances);
+			}
+			if (abbreviationPostProcessing != null) {
+				abbreviationPostProcessing.processAll(instances);
+			}
+			if (consistencyPostProcessing != null) {
+				consistencyPostProcessing.processAll(instances);
+			}
+			TextInstanceProcessingPipeline.POST_PROCESSING_LATENCY.recordSince(postProcessingStart);
+			if (trace != null) {
+				trace.recordDocumentStage("postprocess", System.nanoTime() - postProcessingStart);
+			}
+			for (TextInstance instance2 : instances) {
+				List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
+				for (AnnotatedSegment segment : predictedAnnotation) {
+					int start = instance2.getOffset() + segment.getStartChar();
+					int end = instance2.getOffset() + segment.getEndChar();
+					writer.write(id + "\t" + start + "\t" + end + "\t" + segment.getText() + "\t");
+					String identifiers = visualizeIdentifiers(segment.getEntities());
+					if (identifiers == null) {
+						writer.write(segment.getEntityClass() + "\n");
+					} else {
+						writer.write(segment.getEntityClass() + "\t" + Entity.visualizePrimaryIdentifiers(segment.getEntities()) + "\n");
+					}
+				}
+			}
+			writer.write("\n");
+		}
+		TextInstanceProcessingPipeline.DOCUMENTS.increment();
+		TextInstanceProcessingPipeline.DOCUMENT_LATENCY.recordSince(documentStart);
+		if (trace != null) {
+			trace.finish();
+		}
+	}
+
 	private static class ProcessingTimer extends TextInstanceProcessor {
 
 		private static final long serialVersionUID = 1L;
 
 		private String timerName;
 		private TextInstanceProcessor wrappedProcessor;
+		// Looked up once rather than by name on each call
+		private transient Profiler.Probe processProbe;
+		private transient Profiler.Probe processAllProbe;
 
 		public ProcessingTimer(String timerName, TextInstanceProcessor wrappedProcessor) {
 			this.timerName = timerName;
 			this.wrappedProcessor = wrappedProcessor;
+			createProbes();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			createProbes();
+		}
+
+		private void createProbes() {
+			processProbe = Profiler.probe(timerName + ".process()");
+			processAllProbe = Profiler.probe(timerName + ".processAll()");
 		}
 
 		@Override
 		public void process(TextInstance input) {
-			Profiler.start(timerName + ".process()");
+			processProbe.start();
 			wrappedProcessor.process(input);
-			Profiler.stop(timerName + ".process()");
+			processProbe.stop();
 		}
 
 		@Override
 		public void processAll(List<TextInstance> input) {
-			Profiler.start(timerName + ".processAll()");
+			processAllProbe.start();
 			wrappedProcessor.processAll(input);
-			Profiler.stop(timerName + ".processAll()");
+			processAllProbe.stop();
 		}
 
 	}
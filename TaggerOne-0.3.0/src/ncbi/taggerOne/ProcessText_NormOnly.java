@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -63,7 +64,10 @@ import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Metrics;
+import ncbi.util.metrics.MetricsExporter;
 import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
 import ncbi.taggerOne.util.RankedList;
 
@@ -91,6 +95,11 @@ public class ProcessText_NormOnly {
 				.defaultsTo(false);
 		OptionSpec<String> abbreviationSources = parser.accepts("abbreviationSource").withRequiredArg().ofType(String.class);
 		OptionSpec<String> postProcessingPatterns = parser.accepts("postProcessingPatterns").withRequiredArg().ofType(String.class);
+		OptionSpec<String> metricsFile = parser.accepts("metricsFile").withRequiredArg().ofType(String.class);
+		OptionSpec<String> metricsFormat = parser.accepts("metricsFormat").withRequiredArg().ofType(String.class).defaultsTo(MetricsExporter.PROMETHEUS_FORMAT);
+		OptionSpec<Integer> metricsInterval = parser.accepts("metricsInterval").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+		OptionSpec<Integer> metricsPort = parser.accepts("metricsPort").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> metricsBindAddress = parser.accepts("metricsBindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
 		// TODO Add options for post-processing
 		OptionSet options = parser.parse(args);
 		// TODO Validate
@@ -113,6 +122,15 @@ public class ProcessText_NormOnly {
 			logger.info("\t" + str.toString());
 		}
 
+		MetricsExporter metricsExporter = new MetricsExporter();
+		if (options.has(metricsFile)) {
+			metricsExporter.startFile(new File(options.valueOf(metricsFile)), options.valueOf(metricsFormat), options.valueOf(metricsInterval));
+		}
+		if (options.has(metricsPort)) {
+			metricsExporter.startServer(InetAddress.getByName(options.valueOf(metricsBindAddress)), options.valueOf(metricsPort));
+		}
+		Metrics.registerJVMGauges();
+
 		// Load the annotation pipeline
 		logger.info("Loading model");
 		long start = System.currentTimeMillis();
@@ -230,6 +248,8 @@ public class ProcessText_NormOnly {
 			}
 		}
 		annotationPipeline = new TextInstanceProcessingPipeline(processors);
+		annotationPipeline.registerMemoryAccounting();
+		MemoryAccounting.logReport();
 		ProcessingTimer processingPipeline = new ProcessingTimer("AnnotationPipeline", annotationPipeline);
 
 		System.out.println("3");
@@ -339,6 +359,7 @@ public class ProcessText_NormOnly {
 			process(options.valueOf(fileFormat), inputStr, outputStr, options.valueOf(useSentenceBreaker), options.valueOf(showEntityScores), processingPipeline, coordinationPostProcessor,
 					abbreviationPostProcessing, consistencyPostProcessing);
 		}
+		metricsExporter.close();
 		Profiler.print("\t");
 		System.out.println("Done.");
 	}
@@ -375,6 +396,7 @@ public class ProcessText_NormOnly {
 		// Iterate through documents
 		while (connector.hasNext()) {
 			BioCDocument document = connector.next();
+			long documentStart = System.nanoTime();
 			String documentId = document.getID();
 			logger.info("ID=" + documentId);
 
@@ -402,6 +424,7 @@ public class ProcessText_NormOnly {
 
 			// Process document
 			processingPipeline.processAll(instances);
+			long postProcessingStart = System.nanoTime();
 			if (coordinationPostProcessor != null) {
 				coordinationPostProcessor.processAll(instances);
 			}
@@ -411,6 +434,7 @@ public class ProcessText_NormOnly {
 			if (consistencyPostProcessing != null) {
 				consistencyPostProcessing.processAll(instances);
 			}
+			TextInstanceProcessingPipeline.POST_PROCESSING_LATENCY.recordSince(postProcessingStart);
 
 			// Write annotations to passages
 			for (PassageAndInstances passageAndInstances : passages) {
@@ -441,6 +465,8 @@ public class ProcessText_NormOnly {
 				}
 			}
 			writer.writeDocument(document);
+			TextInstanceProcessingPipeline.DOCUMENTS.increment();
+			TextInstanceProcessingPipeline.DOCUMENT_LATENCY.recordSince(documentStart);
 		}
 		writer.close();
 	}
@@ -513,6 +539,7 @@ public class ProcessText_NormOnly {
 				} else if (type.equals("a")) {
 					writer.write(id + "|a|" + text + "\n");
 					// Process abstract
+					long documentStart = System.nanoTime();
 					String title = titles.get(id);
 					List<TextInstance> instances = new ArrayList<TextInstance>();
 					TextInstance instance = new TextInstance(null, id, id, title + " " + text, 0);
@@ -525,6 +552,7 @@ public class ProcessText_NormOnly {
 					}
 					// Process
 					processingPipeline.processAll(instances);
+					long postProcessingStart = System.nanoTime();
 					if (coordinationPostProcessor != null) {
 						coordinationPostProcessor.processAll(instances);
 					}
@@ -534,6 +562,7 @@ public class ProcessText_NormOnly {
 					if (consistencyPostProcessing != null) {
 						consistencyPostProcessing.processAll(instances);
 					}
+					TextInstanceProcessingPipeline.POST_PROCESSING_LATENCY.recordSince(postProcessingStart);
 					for (TextInstance instance2 : instances) {
 						List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
 						for (AnnotatedSegment segment : predictedAnnotation) {
@@ -549,6 +578,8 @@ public class ProcessText_NormOnly {
 						}
 					}
 					writer.write("\n");
+					TextInstanceProcessingPipeline.DOCUMENTS.increment();
+					TextInstanceProcessingPipeline.DOCUMENT_LATENCY.recordSince(documentStart);
 				}
 			}
 			line = reader.readLine();
@@ -600,6 +631,7 @@ public class ProcessText_NormOnly {
 			String mentionText = fields[1];
 			String type = fields[2];
 			// String identifier = fields[3];
+			long mentionStart = System.nanoTime();
 			
 			abbreviationResolver.clear();
 			for (AbbreviationSource source : abbreviationSourceList) {
@@ -634,6 +666,8 @@ public class ProcessText_NormOnly {
 				Entity entity = bestEntities.getObject(0);
 				writer.write("\t" + entity.getPrimaryIdentifier() + "\t" + entity.getPrimaryName().getName() + "\n");
 			}
+			NormalizeMentions.MENTIONS.increment();
+			NormalizeMentions.MENTION_LATENCY.recordSince(mentionStart);
 			line = reader.readLine();
 		}
 		reader.close();
@@ -646,10 +680,24 @@ public class ProcessText_NormOnly {
 
 		private String timerName;
 		private TextInstanceProcessor wrappedProcessor;
+		// Looked up once rather than by name on each call
+		private transient Profiler.Probe processProbe;
+		private transient Profiler.Probe processAllProbe;
 
 		public ProcessingTimer(String timerName, TextInstanceProcessor wrappedProcessor) {
 			this.timerName = timerName;
 			this.wrappedProcessor = wrappedProcessor;
+			createProbes();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			createProbes();
+		}
+
+		private void createProbes() {
+			processProbe = Profiler.probe(timerName + ".process()");
+			processAllProbe = Profiler.probe(timerName + ".processAll()");
 		}
 
 		public TextInstanceProcessor getProcessor() {
@@ -658,16 +706,16 @@ public class ProcessText_NormOnly {
 
 		@Override
 		public void process(TextInstance input) {
-			Profiler.start(timerName + ".process()");
+			processProbe.start();
 			wrappedProcessor.process(input);
-			Profiler.stop(timerName + ".process()");
+			processProbe.stop();
 		}
 
 		@Override
 		public void processAll(List<TextInstance> input) {
-			Profiler.start(timerName + ".processAll()");
+			processAllProbe.start();
 			wrappedProcessor.processAll(input);
-			Profiler.stop(timerName + ".processAll()");
+			processAllProbe.stop();
 		}
 
 	}
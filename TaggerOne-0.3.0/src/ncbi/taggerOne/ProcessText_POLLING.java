@@ -1,6 +1,5 @@
 package ncbi.taggerOne;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,6 +8,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -25,19 +25,13 @@ import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import bioc.BioCAnnotation;
-import bioc.BioCCollection;
-import bioc.BioCDocument;
-import bioc.BioCPassage;
-import bioc.io.BioCDocumentWriter;
-import bioc.io.BioCFactory;
-import bioc.io.woodstox.ConnectorWoodstox;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import ncbi.taggerOne.abbreviation.AbbreviationSource;
 import ncbi.taggerOne.abbreviation.AbbreviationSourceProcessor;
 import ncbi.taggerOne.abbreviation.FolderAbbreviationSource;
+import ncbi.taggerOne.dataset.PubtatorReader;
 import ncbi.taggerOne.lexicon.Lexicon;
 import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
 import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
@@ -63,7 +57,11 @@ import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.SpoolDirectory;
+import ncbi.util.metrics.Metrics;
+import ncbi.util.metrics.MetricsExporter;
 
 public class ProcessText_POLLING {
 
@@ -88,6 +86,16 @@ public class ProcessText_POLLING {
 				.defaultsTo(false);
 		OptionSpec<String> abbreviationSources = parser.accepts("abbreviationSource").withRequiredArg().ofType(String.class);
 		OptionSpec<String> postProcessingPatterns = parser.accepts("postProcessingPatterns").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> workers = parser.accepts("workers").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		OptionSpec<Integer> queueSize = parser.accepts("queueSize").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> claimedDir = parser.accepts("claimedDir").withRequiredArg().ofType(String.class);
+		OptionSpec<String> failedDir = parser.accepts("failedDir").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> staleClaimMinutes = parser.accepts("staleClaimMinutes").withRequiredArg().ofType(Integer.class).defaultsTo((int) (SpoolDirectory.DEFAULT_STALE_CLAIM_MILLIS / 60000L));
+		OptionSpec<String> metricsFile = parser.accepts("metricsFile").withRequiredArg().ofType(String.class);
+		OptionSpec<String> metricsFormat = parser.accepts("metricsFormat").withRequiredArg().ofType(String.class).defaultsTo(MetricsExporter.PROMETHEUS_FORMAT);
+		OptionSpec<Integer> metricsInterval = parser.accepts("metricsInterval").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+		OptionSpec<Integer> metricsPort = parser.accepts("metricsPort").withRequiredArg().ofType(Integer.class);
+		OptionSpec<String> metricsBindAddress = parser.accepts("metricsBindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
 		// TODO Add options for post-processing
 		OptionSet options = parser.parse(args);
 		// TODO Validate
@@ -110,6 +118,15 @@ public class ProcessText_POLLING {
 			logger.info("\t" + str.toString());
 		}
 
+		MetricsExporter metricsExporter = new MetricsExporter();
+		if (options.has(metricsFile)) {
+			metricsExporter.startFile(new File(options.valueOf(metricsFile)), options.valueOf(metricsFormat), options.valueOf(metricsInterval));
+		}
+		if (options.has(metricsPort)) {
+			metricsExporter.startServer(InetAddress.getByName(options.valueOf(metricsBindAddress)), options.valueOf(metricsPort));
+		}
+		Metrics.registerJVMGauges();
+
 		// Load the annotation pipeline
 		logger.info("Loading model");
 		long start = System.currentTimeMillis();
@@ -198,6 +215,8 @@ public class ProcessText_POLLING {
 			}
 		}
 		annotationPipeline = new TextInstanceProcessingPipeline(processors);
+		annotationPipeline.registerMemoryAccounting();
+		MemoryAccounting.logReport();
 		ProcessingTimer processingPipeline = new ProcessingTimer("AnnotationPipeline", annotationPipeline);
 
 		CoordinationPostProcessor coordinationPostProcessor = null;
@@ -241,189 +260,141 @@ public class ProcessText_POLLING {
 		if (!outFile.isDirectory()) {
 			throw new IllegalArgumentException("Output must be a directory");
 		}
-
-		if (!inputStr.endsWith("/")) {
-			inputStr = inputStr + "/";
+		File claimedFile = new File(inFile, ".claimed");
+		if (options.has(claimedDir)) {
+			claimedFile = new File(options.valueOf(claimedDir));
 		}
-		if (!outputStr.endsWith("/")) {
-			outputStr = outputStr + "/";
+		File failedFile = new File(inFile, "failed");
+		if (options.has(failedDir)) {
+			failedFile = new File(options.valueOf(failedDir));
+		}
+		int workerCount = options.valueOf(workers);
+		int queueCount = 2 * workerCount;
+		if (options.has(queueSize)) {
+			queueCount = options.valueOf(queueSize);
 		}
 
-		boolean error = false;
+		FileProcessor fileProcessor = new FileProcessor(options.valueOf(fileFormat), outFile, options.valueOf(useSentenceBreaker), processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
+				consistencyPostProcessing, abbreviationResolver, abbreviationSourceList);
+		SpoolDirectory spoolDirectory = new SpoolDirectory(inFile, claimedFile, failedFile, queueCount, options.valueOf(pollingInterval), 60000L * options.valueOf(staleClaimMinutes));
 		System.out.println("Waiting for input");
-		while (!error) {
-
-			File[] listOfFiles = (new File(inputStr)).listFiles();
-			for (int i = 0; i < listOfFiles.length; i++) {
-				String currentFilename = listOfFiles[i].getName();
-				if (listOfFiles[i].isFile() && !currentFilename.endsWith(".incomplete")) {
+		spoolDirectory.run(workerCount, fileProcessor);
+		metricsExporter.close();
+		Profiler.print("\t");
+		System.out.println("Done.");
+	}
 
-					String inputFilename = inputStr + currentFilename;
+	/*
+	 * Processes one input file per call from any number of workers. The annotation pipeline, post-processing and abbreviation sources are shared and not thread-safe, so annotating a file holds a lock. PubTator files are read
+	 * and sentence broken before taking the lock and written after releasing it; BioC files are streamed through a PipelinedBioCProcessor while holding it, so memory does not depend on the file size.
+	 */
+	private static class FileProcessor implements SpoolDirectory.FileHandler {
+
+		private String fileFormat;
+		private File outputDir;
+		private boolean useSentenceBreaker;
+		private TextInstanceProcessor processingPipeline;
+		private CoordinationPostProcessor coordinationPostProcessor;
+		private AbbreviationPostProcessing abbreviationPostProcessing;
+		private AbsoluteConsistencyPostProcessing consistencyPostProcessing;
+		private AbbreviationResolver abbreviationResolver;
+		private List<AbbreviationSource> abbreviationSourceList;
+		private PipelinedBioCProcessor bioCProcessor;
+		private BioCDocumentAnnotator bioCAnnotator;
+
+		public FileProcessor(String fileFormat, File outputDir, boolean useSentenceBreaker, TextInstanceProcessor processingPipeline, CoordinationPostProcessor coordinationPostProcessor,
+				AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing, AbbreviationResolver abbreviationResolver, List<AbbreviationSource> abbreviationSourceList) {
+			this.fileFormat = fileFormat.toLowerCase(Locale.US);
+			if (!this.fileFormat.equals("pubtator") && !this.fileFormat.equals("bioc")) {
+				throw new IllegalArgumentException("File format must be BioC or Pubtator = " + fileFormat);
+			}
+			this.outputDir = outputDir;
+			this.useSentenceBreaker = useSentenceBreaker;
+			this.processingPipeline = processingPipeline;
+			this.coordinationPostProcessor = coordinationPostProcessor;
+			this.abbreviationPostProcessing = abbreviationPostProcessing;
+			this.consistencyPostProcessing = consistencyPostProcessing;
+			this.abbreviationResolver = abbreviationResolver;
+			this.abbreviationSourceList = abbreviationSourceList;
+			bioCProcessor = new PipelinedBioCProcessor(1, 16);
+			bioCAnnotator = new BioCDocumentAnnotator(useSentenceBreaker, BioCDocumentAnnotator.ScoreMode.ALWAYS, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing, consistencyPostProcessing);
+		}
 
-					// Update abbreviations
-					abbreviationResolver.clear();
-					for (AbbreviationSource s : abbreviationSourceList) {
-						if (s instanceof FolderAbbreviationSource) {
-							FolderAbbreviationSource f = (FolderAbbreviationSource) s;
-							f.loadFile(currentFilename);
+		@Override
+		public void process(File inputFile, String name) throws IOException, XMLStreamException {
+			logger.info("Processing file " + name);
+			File outputFile = new File(outputDir, name);
+			File tempFile = new File(outputDir, name + SpoolDirectory.INCOMPLETE_SUFFIX);
+			boolean moved = false;
+			try {
+				if (fileFormat.equals("pubtator")) {
+					List<PubtatorEntry> entries = readPubtator(inputFile, useSentenceBreaker);
+					List<List<TextInstance>> documents = new ArrayList<List<TextInstance>>();
+					for (PubtatorEntry entry : entries) {
+						if (entry.getInstances() != null) {
+							documents.add(entry.getInstances());
 						}
 					}
-
-					logger.info("Processing file " + inputFilename);
-					String outputFilename = outputStr + currentFilename;
-					String tempFilename = outputFilename + ".incomplete";
-					File tempFile = new File(tempFilename);
-					boolean moved = false;
-					try {
-						process(options.valueOf(fileFormat), inputFilename, tempFilename, options.valueOf(useSentenceBreaker), processingPipeline, coordinationPostProcessor,
-								abbreviationPostProcessing, consistencyPostProcessing);
-						moved = tempFile.renameTo(new File(outputFilename));
-						if (!moved) {
-							logger.warn("Unable to move temp output file " + tempFilename + " to " + outputFilename);
-						}
-					} catch (Exception e) {
-						logger.error("Encountered exception while processing file " + inputFilename + ": " + e.toString());
-					} finally {
-						if (!moved) {
-							boolean deleted = tempFile.delete();
-							if (!deleted) {
-								logger.warn("Temp output file " + tempFile.getAbsolutePath() + " could not be deleted");
-							}
-						}
-						// Delete the input file
-						(new File(inputFilename)).delete();
+					annotate(name, documents);
+					writePubtator(entries, tempFile);
+				} else {
+					synchronized (this) {
+						updateAbbreviations(name);
+						bioCProcessor.process(new InputStreamReader(new FileInputStream(inputFile), T1Constants.UTF8_FORMAT), new OutputStreamWriter(new FileOutputStream(tempFile), T1Constants.UTF8_FORMAT),
+								bioCAnnotator);
+					}
+				}
+				moved = tempFile.renameTo(outputFile);
+				if (!moved) {
+					throw new IOException("Unable to move temp output file " + tempFile.getPath() + " to " + outputFile.getPath());
+				}
+			} finally {
+				if (!moved && tempFile.exists()) {
+					boolean deleted = tempFile.delete();
+					if (!deleted) {
+						logger.warn("Temp output file " + tempFile.getAbsolutePath() + " could not be deleted");
 					}
 				}
-			}
-			System.out.println("Waiting for input");
-			try {
-				Thread.sleep(options.valueOf(pollingInterval));
-			} catch (InterruptedException e) {
-				System.err.println("Interrupted while polling:");
-				e.printStackTrace();
-				error = true;
 			}
 		}
-		Profiler.print("\t");
-		System.out.println("Done.");
-	}
-
-	private static void process(String fileFormat, String inputFilename, String outputFilename, boolean useSentenceBreaker, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
-			throws XMLStreamException, IOException {
-		if (fileFormat.toLowerCase(Locale.US).equals("pubtator")) {
-			processPubtator(inputFilename, outputFilename, useSentenceBreaker, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing,
-					consistencyPostProcessing);
-		} else if (fileFormat.toLowerCase(Locale.US).equals("bioc")) {
-			processBioC(inputFilename, outputFilename, useSentenceBreaker, processingPipeline, coordinationPostProcessor, abbreviationPostProcessing, consistencyPostProcessing);
-		} else {
-			throw new RuntimeException("File format must be BioC or Pubtator = " + fileFormat);
-		}
-	}
 
-	private static void processBioC(String inputFilename, String outputFilename, boolean useSentenceBreaker, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
-			throws XMLStreamException, IOException {
-
-		// Open BioC file for input
-		ConnectorWoodstox connector = new ConnectorWoodstox();
-		BioCCollection collection = connector.startRead(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT));
-
-		// Open BioC file for output
-		String bioCParser = BioCFactory.WOODSTOX;
-		BioCFactory factory = BioCFactory.newFactory(bioCParser);
-		BioCDocumentWriter writer = factory.createBioCDocumentWriter(new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT));
-		writer.writeCollectionInfo(collection);
-
-		// Iterate through documents
-		while (connector.hasNext()) {
-			BioCDocument document = connector.next();
-			String documentId = document.getID();
-			logger.info("ID=" + documentId);
-
-			List<PassageAndInstances> passages = new ArrayList<PassageAndInstances>();
-			List<TextInstance> instances = new ArrayList<TextInstance>();
-			int annotationIdCounter = 0;
-
-			// Load passages & break into sentences
-			for (BioCPassage passage : document.getPassages()) {
-				// Get instance
-				List<TextInstance> instancesForPassage = new ArrayList<TextInstance>();
-				int offset = passage.getOffset();
-				TextInstance instance = new TextInstance(null, documentId, documentId, passage.getText(), offset);
-				instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
-				instancesForPassage.add(instance);
-				// Break into sentences
-				if (useSentenceBreaker) {
-					SentenceBreaker sentenceBreaker = new SentenceBreaker();
-					instancesForPassage = sentenceBreaker.breakSentences(instancesForPassage);
+		private void updateAbbreviations(String name) {
+			abbreviationResolver.clear();
+			for (AbbreviationSource s : abbreviationSourceList) {
+				if (s instanceof FolderAbbreviationSource) {
+					FolderAbbreviationSource f = (FolderAbbreviationSource) s;
+					f.loadFile(name);
 				}
-				// Add to lists
-				passages.add(new PassageAndInstances(passage, instancesForPassage));
-				instances.addAll(instancesForPassage);
-			}
-
-			// Process document
-			processingPipeline.processAll(instances);
-			if (coordinationPostProcessor != null) {
-				coordinationPostProcessor.processAll(instances);
-			}
-			if (abbreviationPostProcessing != null) {
-				abbreviationPostProcessing.processAll(instances);
 			}
-			if (consistencyPostProcessing != null) {
-				consistencyPostProcessing.processAll(instances);
-			}
-
-			// Write annotations to passages
-			for (PassageAndInstances passageAndInstances : passages) {
-				BioCPassage passage = passageAndInstances.getPassage();
-				passage.getAnnotations().clear();
-				List<TextInstance> instancesForPassage = passageAndInstances.getInstances();
+		}
 
-				for (TextInstance instance2 : instancesForPassage) {
-					List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
-					for (AnnotatedSegment segment : predictedAnnotation) {
-						BioCAnnotation annotation = new BioCAnnotation();
-						annotation.setID(Integer.toString(annotationIdCounter));
-						Map<String, String> infons = new HashMap<String, String>();
-						infons.put("type", segment.getEntityClass());
-						String identifiers = visualizeIdentifiers(segment.getEntities());
-						if (identifiers != null) {
-							infons.put("identifier", identifiers);
-						}
-						infons.put("score", Double.toString(segment.getEntityScore()));
-						annotation.setInfons(infons);
-						annotation.setLocation(instance2.getOffset() + segment.getStartChar(), segment.getEndChar() - segment.getStartChar());
-						annotation.setText(segment.getText());
-						annotationIdCounter++;
-						passage.addAnnotation(annotation);
+		private void annotate(String name, List<List<TextInstance>> documents) {
+			synchronized (this) {
+				updateAbbreviations(name);
+				List<TextInstance> allInstances = new ArrayList<TextInstance>();
+				for (List<TextInstance> instances : documents) {
+					allInstances.addAll(instances);
+				}
+				AbbreviationSourceProcessor.prefetch(abbreviationSourceList, allInstances);
+				for (List<TextInstance> instances : documents) {
+					long documentStart = System.nanoTime();
+					processingPipeline.processAll(instances);
+					long postProcessingStart = System.nanoTime();
+					if (coordinationPostProcessor != null) {
+						coordinationPostProcessor.processAll(instances);
+					}
+					if (abbreviationPostProcessing != null) {
+						abbreviationPostProcessing.processAll(instances);
 					}
+					if (consistencyPostProcessing != null) {
+						consistencyPostProcessing.processAll(instances);
+					}
+					TextInstanceProcessingPipeline.POST_PROCESSING_LATENCY.recordSince(postProcessingStart);
+					TextInstanceProcessingPipeline.DOCUMENTS.increment();
+					TextInstanceProcessingPipeline.DOCUMENT_LATENCY.recordSince(documentStart);
 				}
 			}
-			writer.writeDocument(document);
-		}
-		writer.close();
-	}
-
-	private static class PassageAndInstances {
-
-		private BioCPassage passage;
-		private List<TextInstance> instances;
-
-		public PassageAndInstances(BioCPassage passage, List<TextInstance> instances) {
-			this.passage = passage;
-			this.instances = instances;
-		}
-
-		public List<TextInstance> getInstances() {
-			return instances;
-		}
-
-		public BioCPassage getPassage() {
-			return passage;
 		}
-
 	}
 
 	private static String visualizeIdentifiers(Set<Entity> entities) {
@@ -449,99 +420,134 @@ public class ProcessText_POLLING {
 		return identifiers.toString();
 	}
 
-	private static void processPubtator(String inputFilename, String outputFilename, boolean useSentenceBreaker, TextInstanceProcessor processingPipeline,
-			CoordinationPostProcessor coordinationPostProcessor, AbbreviationPostProcessing abbreviationPostProcessing, AbsoluteConsistencyPostProcessing consistencyPostProcessing)
-			throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFilename), T1Constants.UTF8_FORMAT));
-		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilename), T1Constants.UTF8_FORMAT));
-		String line = reader.readLine();
-		Map<String, String> titles = new HashMap<String, String>();
-		while (line != null) {
-			line = line.trim();
-			String[] fields = line.split("\\|");
-			if (fields.length == 2 || fields.length == 3) {
-				String id = fields[0];
-				String type = fields[1];
-				String text = "";
-				if (fields.length == 3) {
-					text = fields[2];
+	private static List<PubtatorEntry> readPubtator(File inputFile, boolean useSentenceBreaker) {
+		PubtatorReader reader = new PubtatorReader(inputFile, false);
+		List<PubtatorEntry> entries = new ArrayList<PubtatorEntry>();
+		PubtatorReader.Document document = reader.next();
+		while (document != null) {
+			String id = document.getId();
+			String title = document.getTitle();
+			if (title != null) {
+				entries.add(new PubtatorEntry(id, "t", title, null));
+			}
+			String text = document.getAbstractText();
+			if (text != null) {
+				// Prepare abstract
+				List<TextInstance> instances = new ArrayList<TextInstance>();
+				TextInstance instance = new TextInstance(null, id, id, title + " " + text, 0);
+				instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
+				instances.add(instance);
+				// Break into sentences
+				if (useSentenceBreaker) {
+					SentenceBreaker sentenceBreaker = new SentenceBreaker();
+					instances = sentenceBreaker.breakSentences(instances);
 				}
+				entries.add(new PubtatorEntry(id, "a", text, instances));
+			}
+			document = reader.next();
+		}
+		reader.close();
+		return entries;
+	}
 
-				if (type.equals("t")) {
-					writer.write(id + "|t|" + text + "\n");
-					// Store title
-					titles.put(id, text);
-				} else if (type.equals("a")) {
-					writer.write(id + "|a|" + text + "\n");
-					// Process abstract
-					String title = titles.get(id);
-					List<TextInstance> instances = new ArrayList<TextInstance>();
-					TextInstance instance = new TextInstance(null, id, id, title + " " + text, 0);
-					instance.setTargetAnnotation(new ArrayList<AnnotatedSegment>());
-					instances.add(instance);
-					// Break into sentences
-					if (useSentenceBreaker) {
-						SentenceBreaker sentenceBreaker = new SentenceBreaker();
-						instances = sentenceBreaker.breakSentences(instances);
-					}
-					// Process
-					processingPipeline.processAll(instances);
-					if (coordinationPostProcessor != null) {
-						coordinationPostProcessor.processAll(instances);
-					}
-					if (abbreviationPostProcessing != null) {
-						abbreviationPostProcessing.processAll(instances);
-					}
-					if (consistencyPostProcessing != null) {
-						consistencyPostProcessing.processAll(instances);
-					}
-					for (TextInstance instance2 : instances) {
-						List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
-						for (AnnotatedSegment segment : predictedAnnotation) {
-							int start = instance2.getOffset() + segment.getStartChar();
-							int end = instance2.getOffset() + segment.getEndChar();
-							writer.write(id + "\t" + start + "\t" + end + "\t" + segment.getText() + "\t");
-							String identifiers = visualizeIdentifiers(segment.getEntities());
-							if (identifiers == null) {
-								writer.write(segment.getEntityClass() + "\n");
-							} else {
-								writer.write(segment.getEntityClass() + "\t" + Entity.visualizePrimaryIdentifiers(segment.getEntities()) + "\n");
-							}
+	private static void writePubtator(List<PubtatorEntry> entries, File outputFile) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), T1Constants.UTF8_FORMAT));
+		for (PubtatorEntry entry : entries) {
+			String id = entry.getId();
+			writer.write(id + "|" + entry.getType() + "|" + entry.getText() + "\n");
+			if (entry.getInstances() != null) {
+				for (TextInstance instance2 : entry.getInstances()) {
+					List<AnnotatedSegment> predictedAnnotation = instance2.getPredictedAnnotations().getObject(0);
+					for (AnnotatedSegment segment : predictedAnnotation) {
+						int start = instance2.getOffset() + segment.getStartChar();
+						int end = instance2.getOffset() + segment.getEndChar();
+						writer.write(id + "\t" + start + "\t" + end + "\t" + segment.getText() + "\t");
+						String identifiers = visualizeIdentifiers(segment.getEntities());
+						if (identifiers == null) {
+							writer.write(segment.getEntityClass() + "\n");
+						} else {
+							writer.write(segment.getEntityClass() + "\t" + Entity.visualizePrimaryIdentifiers(segment.getEntities()) + "\n");
 						}
 					}
-					writer.write("\n");
 				}
+				writer.write("\n");
 			}
-			line = reader.readLine();
 		}
-		reader.close();
 		writer.close();
 	}
 
+	/*
+	 * A title or abstract line of a PubTator file; abstracts also hold the instances for the document
+	 */
+	private static class PubtatorEntry {
+
+		private String id;
+		private String type;
+		private String text;
+		private List<TextInstance> instances;
+
+		public PubtatorEntry(String id, String type, String text, List<TextInstance> instances) {
+			this.id = id;
+			this.type = type;
+			this.text = text;
+			this.instances = instances;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public List<TextInstance> getInstances() {
+			return instances;
+		}
+	}
+
 	private static class ProcessingTimer extends TextInstanceProcessor {
 
 		private static final long serialVersionUID = 1L;
 
 		private String timerName;
 		private TextInstanceProcessor wrappedProcessor;
+		// Looked up once rather than by name on each call
+		private transient Profiler.Probe processProbe;
+		private transient Profiler.Probe processAllProbe;
 
 		public ProcessingTimer(String timerName, TextInstanceProcessor wrappedProcessor) {
 			this.timerName = timerName;
 			this.wrappedProcessor = wrappedProcessor;
+			createProbes();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			createProbes();
+		}
+
+		private void createProbes() {
+			processProbe = Profiler.probe(timerName + ".process()");
+			processAllProbe = Profiler.probe(timerName + ".processAll()");
 		}
 
 		@Override
 		public void process(TextInstance input) {
-			Profiler.start(timerName + ".process()");
+			processProbe.start();
 			wrappedProcessor.process(input);
-			Profiler.stop(timerName + ".process()");
+			processProbe.stop();
 		}
 
 		@Override
 		public void processAll(List<TextInstance> input) {
-			Profiler.start(timerName + ".processAll()");
+			processAllProbe.start();
 			wrappedProcessor.processAll(input);
-			Profiler.stop(timerName + ".processAll()");
+			processAllProbe.stop();
 		}
 
 	}
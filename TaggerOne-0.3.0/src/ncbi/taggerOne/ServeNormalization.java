@@ -0,0 +1,74 @@
+package ncbi.taggerOne;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
+import ncbi.taggerOne.processing.textInstance.AbbreviationResolverProcessor;
+import ncbi.taggerOne.processing.textInstance.Annotator;
+import ncbi.taggerOne.processing.textInstance.SegmentMentionProcessor;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.util.AbbreviationResolver;
+
+/*
+ * Loads a model once and serves normalization for all of its entity types until stopped. See NormalizationServer for the protocol.
+ */
+public class ServeNormalization {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServeNormalization.class);
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> modelInputFilename = parser.accepts("modelInputFilename").withRequiredArg().ofType(String.class).required();
+		OptionSpec<Boolean> compileModel = parser.accepts("compileModel").withRequiredArg().ofType(Boolean.class).defaultsTo(true);
+		OptionSpec<String> abbreviationDir = parser.accepts("abbreviationDir").withRequiredArg().ofType(String.class);
+		OptionSpec<String> normalizationShards = parser.accepts("normalizationShards").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> cacheSize = parser.accepts("cacheSize").withRequiredArg().ofType(Integer.class).defaultsTo(100000);
+		OptionSpec<Integer> port = parser.accepts("port").withRequiredArg().ofType(Integer.class).required();
+		OptionSpec<String> bindAddress = parser.accepts("bindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
+		OptionSpec<Integer> threads = parser.accepts("threads").withRequiredArg().ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
+		OptionSpec<Integer> maxPendingConnections = parser.accepts("maxPendingConnections").withRequiredArg().ofType(Integer.class).defaultsTo(16);
+		OptionSpec<Integer> maxBatchSize = parser.accepts("maxBatchSize").withRequiredArg().ofType(Integer.class).defaultsTo(100000);
+		OptionSpec<Integer> idleTimeoutMillis = parser.accepts("idleTimeoutMillis").withRequiredArg().ofType(Integer.class).defaultsTo(600000);
+		OptionSet options = parser.parse(args);
+
+		logger.info("Loading model");
+		long start = System.currentTimeMillis();
+		ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new FileInputStream(options.valueOf(modelInputFilename))));
+		TextInstanceProcessingPipeline annotationPipeline = (TextInstanceProcessingPipeline) ois.readObject();
+		ois.close();
+		List<TextInstanceProcessor> processors = annotationPipeline.getProcessors();
+		AbbreviationResolver abbreviationResolver = ((AbbreviationResolverProcessor) processors.get(3)).getAbbreviationResolver();
+		MentionNameProcessor mentionNameProcessor = ((SegmentMentionProcessor) processors.get(4)).getProcessor();
+		Annotator annotator = (Annotator) processors.get(5);
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		if (options.has(abbreviationDir)) {
+			logger.info("Loading abbreviations");
+			start = System.currentTimeMillis();
+			NormalizeMentions.loadAbbreviations(options.valueOf(abbreviationDir), abbreviationResolver);
+			logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+		}
+
+		Map<String, NormalizationModelPredictor> normalizationModels = NormalizeMentions.prepareNormalizationModels(annotator, options.valueOf(compileModel), options.valueOf(normalizationShards));
+		MentionNormalizer normalizer = new MentionNormalizer(normalizationModels, mentionNameProcessor, abbreviationResolver, options.valueOf(cacheSize));
+		logger.info("Normalizing entity types " + normalizationModels.keySet());
+
+		NormalizationServer server = new NormalizationServer(normalizer, abbreviationResolver, options.valueOf(threads), options.valueOf(maxPendingConnections), options.valueOf(maxBatchSize), options.valueOf(idleTimeoutMillis));
+		server.serve(new ServerSocket(options.valueOf(port), 50, InetAddress.getByName(options.valueOf(bindAddress))));
+	}
+}
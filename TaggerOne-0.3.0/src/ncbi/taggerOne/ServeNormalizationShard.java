@@ -0,0 +1,76 @@
+package ncbi.taggerOne;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import ncbi.taggerOne.model.normalization.NormalizationModel;
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.model.normalization.NormalizationShard;
+import ncbi.taggerOne.model.normalization.NormalizationShardServer;
+import ncbi.taggerOne.model.normalization.ShardedNormalizationModel;
+import ncbi.taggerOne.processing.textInstance.Annotator;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.util.StaticUtilMethods;
+
+/*
+ * Loads a model and serves one shard of the normalization shortcut matrix for each entity type. Run shardCount instances with shardIndex 0 to shardCount - 1, then pass their addresses to NormalizeMentions with
+ * --normalizationShards.
+ */
+public class ServeNormalizationShard {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServeNormalizationShard.class);
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> modelInputFilename = parser.accepts("modelInputFilename").withRequiredArg().ofType(String.class).required();
+		OptionSpec<Integer> shardIndex = parser.accepts("shardIndex").withRequiredArg().ofType(Integer.class).required();
+		OptionSpec<Integer> shardCount = parser.accepts("shardCount").withRequiredArg().ofType(Integer.class).required();
+		OptionSpec<Integer> port = parser.accepts("port").withRequiredArg().ofType(Integer.class).required();
+		OptionSpec<String> bindAddress = parser.accepts("bindAddress").withRequiredArg().ofType(String.class).defaultsTo("127.0.0.1");
+		OptionSpec<String> entityTypes = parser.accepts("entityTypes").withRequiredArg().ofType(String.class);
+		OptionSet options = parser.parse(args);
+
+		logger.info("Loading model");
+		long start = System.currentTimeMillis();
+		ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new FileInputStream(options.valueOf(modelInputFilename))));
+		TextInstanceProcessingPipeline annotationPipeline = (TextInstanceProcessingPipeline) ois.readObject();
+		ois.close();
+		Annotator annotator = (Annotator) annotationPipeline.getProcessors().get(5);
+		Map<String, NormalizationModelPredictor> normalizationModels = annotator.getNormalizationModels();
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		Set<String> entityTypeSet = new HashSet<String>(normalizationModels.keySet());
+		if (options.has(entityTypes)) {
+			entityTypeSet = StaticUtilMethods.getStringSet(options.valueOf(entityTypes));
+		}
+		logger.info("Creating shard " + options.valueOf(shardIndex) + " of " + options.valueOf(shardCount));
+		start = System.currentTimeMillis();
+		Map<String, NormalizationShard> shards = new HashMap<String, NormalizationShard>();
+		for (String entityType : entityTypeSet) {
+			NormalizationModelPredictor predictor = normalizationModels.get(entityType);
+			if (predictor == null) {
+				throw new IllegalArgumentException("Model does not contain a normalization model for entity type " + entityType);
+			}
+			NormalizationModel model = ShardedNormalizationModel.getNormalizationModel(predictor);
+			shards.put(entityType, new NormalizationShard(model, options.valueOf(shardIndex), options.valueOf(shardCount)));
+		}
+		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
+
+		NormalizationShardServer server = new NormalizationShardServer(shards);
+		server.serve(new ServerSocket(options.valueOf(port), 50, InetAddress.getByName(options.valueOf(bindAddress))));
+	}
+}
@@ -1,5 +1,6 @@
 package ncbi.taggerOne;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -10,6 +11,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,6 +42,7 @@ import ncbi.taggerOne.model.recognition.RecognitionModel;
 import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
 import ncbi.taggerOne.processing.SentenceBreaker;
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.TrainingCheckpointer;
 import ncbi.taggerOne.processing.analysis.ErrorAnalyzer;
 import ncbi.taggerOne.processing.evaluation.AnnotationLevelEvaluationProcessor;
 import ncbi.taggerOne.processing.evaluation.AnnotationLevelEvaluationProcessor.Condition;
@@ -63,6 +66,7 @@ import ncbi.taggerOne.processing.features.token.TokenPatternFeatureProcessor;
 import ncbi.taggerOne.processing.mentionName.EntityNameTokenizer;
 import ncbi.taggerOne.processing.mentionName.MentionNameProcessingPipeline;
 import ncbi.taggerOne.processing.mentionName.MentionNameProcessor;
+import ncbi.taggerOne.processing.mentionName.ParallelMentionNameProcessor;
 import ncbi.taggerOne.processing.mentionName.StringProcessNameApplicator;
 import ncbi.taggerOne.processing.mentionName.StringProcessTokenApplicator;
 import ncbi.taggerOne.processing.mentionName.TokenListToVectorConverter;
@@ -100,6 +104,7 @@ import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.util.AbbreviationResolver;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.tokenization.Tokenizer;
+import ncbi.taggerOne.util.vector.FeatureStore;
 import ncbi.taggerOne.util.vector.SparseVector;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.util.MemoryProfiler;
@@ -142,6 +147,15 @@ public class TrainModel {
 		OptionSpec<Boolean> deterministicOrdering = parser.accepts("deterministicOrdering").withRequiredArg().ofType(Boolean.class).defaultsTo(false);
 		OptionSpec<Boolean> averageRecognitionModel = parser.accepts("averageRecognitionModel").withRequiredArg().ofType(Boolean.class).defaultsTo(true);
 		OptionSpec<Boolean> averageNormalizationModels = parser.accepts("averageNormalizationModels").withRequiredArg().ofType(Boolean.class).defaultsTo(true);
+		OptionSpec<Integer> lexiconThreads = parser.accepts("lexiconThreads").withRequiredArg().ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
+		// Memory options
+		OptionSpec<String> featureStorage = parser.accepts("featureStorage").withRequiredArg().ofType(String.class);
+		OptionSpec<String> featureSpillDir = parser.accepts("featureSpillDir").withRequiredArg().ofType(String.class);
+		// Checkpointing
+		OptionSpec<String> checkpointDir = parser.accepts("checkpointDir").withRequiredArg().ofType(String.class);
+		OptionSpec<Integer> checkpointInterval = parser.accepts("checkpointInterval").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		OptionSpec<Integer> fullCheckpointInterval = parser.accepts("fullCheckpointInterval").withRequiredArg().ofType(Integer.class).defaultsTo(10);
+		OptionSpec<Boolean> resumeFromCheckpoint = parser.accepts("resumeFromCheckpoint").withRequiredArg().ofType(Boolean.class).defaultsTo(false);
 		// Output
 		OptionSpec<String> modelOutputFilename = parser.accepts("modelOutputFilename").withRequiredArg().ofType(String.class);
 		OptionSet options = parser.parse(args);
@@ -239,6 +253,9 @@ public class TrainModel {
 			throw new RuntimeException(e);
 		}
 		StringProcessTokenApplicator tokenApplicator = new StringProcessTokenApplicator(new AcronymPreservingLowerCaseStringProcessor(4), new StopWordRemover(new LowerCaseStringProcessor(), StopWordRemover.DEFAULT_STOP_WORDS), stemmer);
+		ForkJoinPool lexiconPool = new ForkJoinPool(options.valueOf(lexiconThreads));
+		// Names are tokenized in parallel; vector space extraction assigns indices and remains sequential
+		ParallelMentionNameProcessor namePreprocessor = new ParallelMentionNameProcessor(lexiconPool, new MentionNameProcessingPipeline(nameApplicator, entityNameTokenizer, tokenApplicator), false);
 		Dictionary<String> mentionVectorSpace = new Dictionary<String>();
 		WeightedVectorSpaceExtractor mentionVectorSpaceExtractor = new WeightedVectorSpaceExtractor(mentionVectorSpace);
 		Map<String, Dictionary<String>> nameVectorSpaces = new HashMap<String, Dictionary<String>>();
@@ -247,7 +264,8 @@ public class TrainModel {
 			Dictionary<String> nameVectorSpace = new Dictionary<String>();
 			nameVectorSpaces.put(entityType, nameVectorSpace);
 			WeightedVectorSpaceExtractor nameVectorSpaceExtractor = new WeightedVectorSpaceExtractor(nameVectorSpace);
-			MentionNameProcessor extractorPipeline = new MentionNameProcessingPipeline(nameApplicator, entityNameTokenizer, tokenApplicator, mentionVectorSpaceExtractor, nameVectorSpaceExtractor);
+			namePreprocessor.process(entityType, lexicon);
+			MentionNameProcessor extractorPipeline = new MentionNameProcessingPipeline(mentionVectorSpaceExtractor, nameVectorSpaceExtractor);
 			extractorPipeline.process(entityType, lexicon);
 			nameVectorSpace.freeze();
 			logger.info("Name vector space extracted for type " + entityType + "; size = " + nameVectorSpace.size());
@@ -365,10 +383,10 @@ public class TrainModel {
 		for (String entityType : entityTypeSet) {
 			Dictionary<String> nameVectorSpace = nameVectorSpaces.get(entityType);
 			TokenListToVectorConverter nameConverter1 = new TokenListToVectorConverter(SparseVector.factory, nameVectorSpace, true);
-			nameConverter1.process(entityType, lexicon);
+			new ParallelMentionNameProcessor(lexiconPool, nameConverter1, true).process(entityType, lexicon);
 			Vector<String> nameVectorSpaceWeights = nameVectorWeights.get(entityType);
 			TokenListToWeightedVectorConverter nameConverter = new TokenListToWeightedVectorConverter(SparseVector.factory, nameVectorSpace, nameVectorSpaceWeights, false, true);
-			nameConverter.process(entityType, lexicon);
+			new ParallelMentionNameProcessor(lexiconPool, nameConverter, true).process(entityType, lexicon);
 		}
 		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
 		MemoryProfiler.logMemoryUsed();
@@ -376,7 +394,8 @@ public class TrainModel {
 		// Create indexes
 		logger.info("Creating indexes");
 		start = System.currentTimeMillis();
-		lexicon.createIndexes(mentionVectorSpace, nameVectorSpaces, true);
+		lexicon.createIndexes(mentionVectorSpace, nameVectorSpaces, true, lexiconPool);
+		lexiconPool.shutdown();
 		// Set index to use a simple form of disambiguation: the frequency of the entity in the training data
 		EntityFrequencyComparator entityFrequencyComparator = new EntityFrequencyComparator();
 		entityFrequencyComparator.updateFrequenciesFromTargetAnnotations(trainingInstances);
@@ -390,7 +409,13 @@ public class TrainModel {
 		// Instantiate the training set features
 		logger.info("Instantiating training set features");
 		start = System.currentTimeMillis();
-		FeatureInstantiator instantiator = new FeatureInstantiator(SparseVector.factory, featureSet, featureProcessors);
+		FeatureStore featureStore = null;
+		if (options.has(featureStorage)) {
+			FeatureStore.Storage storage = FeatureStore.Storage.valueOf(options.valueOf(featureStorage).toUpperCase());
+			File spillDir = options.has(featureSpillDir) ? new File(options.valueOf(featureSpillDir)) : null;
+			featureStore = new FeatureStore(storage, spillDir, FeatureStore.DEFAULT_CHUNK_ENTRIES);
+		}
+		FeatureInstantiator instantiator = new FeatureInstantiator(SparseVector.factory, featureSet, featureProcessors, featureStore);
 		MentionNameProcessingPipeline mentionConverter = new MentionNameProcessingPipeline(nameApplicator, entityNameTokenizer, tokenApplicator,
 				new TokenListToWeightedVectorConverter(SparseVector.factory, mentionVectorSpace, mentionVectorSpaceWeights, false, false));
 		AnnotationToStateConverter stateConverter = new AnnotationToStateConverter(abbreviationResolver, mentionConverter, lexicon.getNonEntity());
@@ -398,6 +423,9 @@ public class TrainModel {
 				new SegmentMentionProcessor(mentionConverter));
 		instantiationPipeline.processAll(trainingInstances);
 		logger.info("Training set instantiated.");
+		if (featureStore != null) {
+			logger.info("Training features: " + featureStore);
+		}
 		logger.info("Elapsed = " + (System.currentTimeMillis() - start));
 
 		// Process the holdout dataset
@@ -499,6 +527,14 @@ public class TrainModel {
 			shuffler = new AnnotationModelTrainer.DeterministicShuffler(trainingProgressTracker, AnnotationModelTrainer.DEFAULT_HASH_SEEDS);
 		}
 		AnnotationModelTrainer trainer = new AnnotationModelTrainer(trainingPipeline, stoppingCriteria, trainingProgressTracker, shuffler);
+		if (options.has(checkpointDir)) {
+			TrainingCheckpointer checkpointer = new TrainingCheckpointer(new File(options.valueOf(checkpointDir)), options.valueOf(checkpointInterval), options.valueOf(fullCheckpointInterval));
+			checkpointer.register("recognition", recognitionModel);
+			for (String entityType : entityTypeSet) {
+				checkpointer.register("normalization." + entityType, (NormalizationModel) entityModels.get(entityType));
+			}
+			trainer.setCheckpointer(checkpointer, options.valueOf(resumeFromCheckpoint));
+		}
 		trainer.processAll(trainingInstances);
 		logger.info("Training complete.");
 		logger.info("Highest evaluation score= " + stoppingCriteria.getHighestScore());
@@ -7,29 +7,65 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.taggerOne.util.LRUCache;
 import ncbi.util.ProcessRunner;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
-public class Ab3PAbbreviationSource implements AbbreviationSource {
+/*
+ * Finds abbreviations by running Ab3P. Results are cached by a hash of the text. When prefetching, the texts are written one per line to a single input file per Ab3P run and the runs are split across the number of
+ * processes given; texts that contain line breaks, or any batch whose output cannot be matched to its input, are run individually when requested.
+ */
+public class Ab3PAbbreviationSource implements BatchAbbreviationSource {
 
 	private static final Logger logger = LoggerFactory.getLogger(Ab3PAbbreviationSource.class);
+	private static final Profiler.Probe getAbbreviationsProbe = Profiler.probe("Ab3PAbbreviationSource.getAbbreviations()");
+	private static final Profiler.Probe prefetchAbbreviationsProbe = Profiler.probe("Ab3PAbbreviationSource.prefetchAbbreviations()");
+	private static final Profiler.Probe ab3pWriteProbe = Profiler.probe("Ab3PAbbreviationSource.run()@write");
+	private static final Profiler.Probe ab3pRunProbe = Profiler.probe("Ab3PAbbreviationSource.run()@run");
+	private static final Profiler.Probe ab3pDeleteProbe = Profiler.probe("Ab3PAbbreviationSource.run()@delete");
+	private static final Profiler.Probe ab3pReadProbe = Profiler.probe("Ab3PAbbreviationSource.run()@read");
 
 	private static final long serialVersionUID = 1L;
+	private static final MetricFamily<Counter> CACHE_REQUESTS = Metrics.counterFamily("taggerone_ab3p_cache_requests_total", "Lookups of Ab3P results for a text, by result", "result");
+	private static final Counter cacheHits = CACHE_REQUESTS.get("hit");
+	private static final Counter cacheMisses = CACHE_REQUESTS.get("miss");
+
+	private static final int DEFAULT_CACHE_SIZE = 100000;
 
 	private String command;
 	private String commandDir;
 	private File tempDir;
 	private long timeout;
+	private int processes = 1;
+	private int cacheSize = DEFAULT_CACHE_SIZE;
 	private Map<String, String> emptyMap = Collections.unmodifiableMap(new HashMap<String, String>());
+	private transient LRUCache<String, Map<String, String>> cache;
+	private transient ExecutorService executor;
 
 	public Ab3PAbbreviationSource() {
 		// Empty
@@ -38,68 +74,158 @@ public class Ab3PAbbreviationSource implements AbbreviationSource {
 	@Override
 	public void setArgs(String... args) {
 		if (args.length < 5) {
-			throw new IllegalArgumentException("Ab3PAbbreviationSource must have four arguments: command, commandDir, tempDir, timeout: " + Arrays.asList(args));
+			throw new IllegalArgumentException("Ab3PAbbreviationSource must have four arguments: command, commandDir, tempDir, timeout, and optionally processes and cacheSize: " + Arrays.asList(args));
 		}
 		command = args[1];
 		commandDir = args[2];
 		tempDir = new File(args[3]);
 		tempDir.mkdirs();
 		timeout = Long.parseLong(args[4]);
+		if (args.length > 5) {
+			processes = Integer.parseInt(args[5]);
+			if (processes < 1) {
+				throw new IllegalArgumentException("Ab3PAbbreviationSource processes must be at least 1: " + processes);
+			}
+		}
+		if (args.length > 6) {
+			cacheSize = Integer.parseInt(args[6]);
+		}
 	}
 
 	public Map<String, String> getAbbreviations(String id, String text) {
-		Profiler.start("Ab3PAbbreviationSource.getAbbreviations()");
+		getAbbreviationsProbe.start();
 		// Check for a parenthesis
 		if (text.indexOf("(") < 0) {
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()");
+			getAbbreviationsProbe.stop();
 			return emptyMap;
 		}
-		try {
+		String key = getKey(text);
+		Map<String, String> abbreviations = getCache().get(key);
+		if (abbreviations == null) {
+			cacheMisses.increment();
 			logger.debug("Getting abbreviations for: " + id);
+			List<Map<String, String>> results = run(id, Collections.singletonList(text), false);
+			if (results == null) {
+				getAbbreviationsProbe.stop();
+				return emptyMap;
+			}
+			abbreviations = results.get(0);
+			getCache().put(key, abbreviations);
+		} else {
+			cacheHits.increment();
+		}
+		getAbbreviationsProbe.stop();
+		return abbreviations;
+	}
 
-			Profiler.start("Ab3PAbbreviationSource.getAbbreviations()@write");
-			// Write text to a temp file
+	@Override
+	public void prefetchAbbreviations(List<TextInstance> instances) {
+		prefetchAbbreviationsProbe.start();
+		final List<String> keys = new ArrayList<String>();
+		final List<String> texts = new ArrayList<String>();
+		Set<String> keySet = new HashSet<String>();
+		for (TextInstance instance : instances) {
+			String text = instance.getText();
+			if (text.indexOf("(") >= 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+				String key = getKey(text);
+				if (getCache().get(key) == null && keySet.add(key)) {
+					keys.add(key);
+					texts.add(text);
+				}
+			}
+		}
+		if (texts.isEmpty()) {
+			prefetchAbbreviationsProbe.stop();
+			return;
+		}
+		logger.debug("Prefetching abbreviations for " + texts.size() + " texts");
+		int batches = Math.min(getProcesses(), texts.size());
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int batch = 0; batch < batches; batch++) {
+			final int start = batch * texts.size() / batches;
+			final int end = (batch + 1) * texts.size() / batches;
+			futures.add(getExecutor().submit(new Runnable() {
+				@Override
+				public void run() {
+					List<Map<String, String>> results = Ab3PAbbreviationSource.this.run("batch", texts.subList(start, end), true);
+					if (results != null) {
+						for (int i = 0; i < results.size(); i++) {
+							getCache().put(keys.get(start + i), results.get(i));
+						}
+					}
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		prefetchAbbreviationsProbe.stop();
+	}
+
+	/*
+	 * Runs Ab3P on the texts, returning the abbreviations for each text, or null if Ab3P failed or, for a batch, if its output does not match the input
+	 */
+	private List<Map<String, String>> run(String id, List<String> texts, boolean batch) {
+		try {
+			ab3pWriteProbe.start();
+			// Write text to a temp file, one text per line for a batch
 			String filenamePrefix = id;
 			while (filenamePrefix.length() < 3) {
 				filenamePrefix = "0" + filenamePrefix;
 			}
 			File f = File.createTempFile(filenamePrefix, ".txt", tempDir);
 			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), T1Constants.UTF8_FORMAT));
-			writer.write(text);
+			for (String text : texts) {
+				if (batch) {
+					writer.write(text.trim());
+					writer.write("\n");
+				} else {
+					writer.write(text);
+				}
+			}
 			writer.close();
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()@write");
+			ab3pWriteProbe.stop();
 
 			// Get abbreviations
-			Profiler.start("Ab3PAbbreviationSource.getAbbreviations()@run");
+			ab3pRunProbe.start();
 			ProcessRunner pw = new ProcessRunner(command + " " + f.getAbsolutePath(), commandDir);
-			pw.await(timeout);
+			pw.await(timeout * texts.size());
 			String result = pw.getResult();
 			String error = pw.getError();
 			logger.debug("Abbreviation result is: " + result);
 			logger.debug("Abbreviation error is: " + error);
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()@run");
+			ab3pRunProbe.stop();
 
 			// Delete temp file
-			Profiler.start("Ab3PAbbreviationSource.getAbbreviations()@delete");
+			ab3pDeleteProbe.start();
 			boolean deleted = f.delete();
 			if (!deleted) {
 				logger.warn("Ab3P temp communication file " + f.getAbsolutePath() + " could not be deleted");
 			}
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()@delete");
+			ab3pDeleteProbe.stop();
 
 			// Return abbreviations found
 			if (result == null || error != null) {
-				Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()");
-				return emptyMap;
+				return null;
 			}
-			Profiler.start("Ab3PAbbreviationSource.getAbbreviations()@read");
-			Map<String, String> abbreviations = new HashMap<String, String>();
+			ab3pReadProbe.start();
+			List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+			Map<String, String> abbreviations = null;
 			BufferedReader reader = new BufferedReader(new StringReader(result));
-			// First line from Ab3P is the input text
-			reader.readLine();
 			String line = reader.readLine();
 			while (line != null) {
-				if (line.startsWith("  ")) {
+				if (abbreviations == null || (batch && !line.startsWith("  ") && line.trim().length() > 0)) {
+					// Ab3P echoes each line of input text before its abbreviations
+					abbreviations = new HashMap<String, String>();
+					results.add(abbreviations);
+				} else if (line.startsWith("  ")) {
 					String[] split = line.trim().split("\\|");
 					if (split.length > 1) {
 						abbreviations.put(split[0], split[1]);
@@ -112,13 +238,56 @@ public class Ab3PAbbreviationSource implements AbbreviationSource {
 				line = reader.readLine();
 			}
 			reader.close();
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()@read");
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()");
-			return abbreviations;
+			ab3pReadProbe.stop();
+			if (results.size() != texts.size()) {
+				logger.warn("Ab3P returned results for " + results.size() + " texts instead of " + texts.size() + "; texts will be run individually");
+				return null;
+			}
+			return results;
 		} catch (IOException e) {
-			Profiler.stop("Ab3PAbbreviationSource.getAbbreviations()");
 			throw new RuntimeException(e);
 		}
 	}
 
+	private static String getKey(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder key = new StringBuilder(2 * digest.length);
+			for (byte b : digest) {
+				key.append(Character.forDigit((b >> 4) & 0xF, 16));
+				key.append(Character.forDigit(b & 0xF, 16));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private synchronized LRUCache<String, Map<String, String>> getCache() {
+		if (cache == null) {
+			// Instances serialized before caching was added have no cache size
+			cache = new LRUCache<String, Map<String, String>>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, cacheSize > 0 ? cacheSize : DEFAULT_CACHE_SIZE);
+		}
+		return cache;
+	}
+
+	private int getProcesses() {
+		// Instances serialized before batching was added have no process count
+		return Math.max(1, processes);
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(getProcesses(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Ab3PAbbreviationSource");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
 }
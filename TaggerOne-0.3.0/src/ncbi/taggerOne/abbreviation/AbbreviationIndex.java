@@ -0,0 +1,258 @@
+package ncbi.taggerOne.abbreviation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import ncbi.util.Profiler;
+
+/*
+ * Reads abbreviations in the same format as FileAbbreviationSource, but only when requested for a document. Adding a file scans it once to record where the lines for each document are; the abbreviations themselves are only
+ * parsed by getAbbreviations(), which may be called from multiple threads. The index is not serialized.
+ */
+public class AbbreviationIndex implements AbbreviationSource {
+
+	private static final Logger logger = LoggerFactory.getLogger(AbbreviationIndex.class);
+	private static final Profiler.Probe addFileProbe = Profiler.probe("AbbreviationIndex.addFile()");
+	private static final Profiler.Probe getAbbreviationsProbe = Profiler.probe("AbbreviationIndex.getAbbreviations()");
+
+	private static final long serialVersionUID = 1L;
+
+	private transient List<String> filenames;
+	private transient FileChannel[] channels;
+	// The line ranges for each document, as a linked list from the most recently added
+	private transient TObjectIntMap<String> lastRange;
+	private transient TIntArrayList rangeFiles;
+	private transient TLongArrayList rangeOffsets;
+	private transient TIntArrayList rangeLengths;
+	private transient TIntArrayList previousRanges;
+
+	public AbbreviationIndex() {
+		clear();
+	}
+
+	@Override
+	public void setArgs(String... args) {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("AbbreviationIndex must have at least one argument: filename or dirname" + Arrays.asList(args));
+		}
+		for (int i = 1; i < args.length; i++) {
+			add(args[i]);
+		}
+	}
+
+	/*
+	 * Adds the file, or each file in the directory
+	 */
+	public void add(String path) {
+		File file = new File(path);
+		if (file.isFile()) {
+			addFile(file);
+			return;
+		}
+		File[] files = file.listFiles();
+		if (files == null) {
+			throw new IllegalArgumentException("Abbreviation path is not a directory or normal file: " + path);
+		}
+		Arrays.sort(files);
+		for (File f : files) {
+			if (f.isFile()) {
+				addFile(f);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		closeChannels();
+		filenames = new ArrayList<String>();
+		lastRange = new TObjectIntHashMap<String>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+		rangeFiles = new TIntArrayList();
+		rangeOffsets = new TLongArrayList();
+		rangeLengths = new TIntArrayList();
+		previousRanges = new TIntArrayList();
+	}
+
+	public int size() {
+		return lastRange.size();
+	}
+
+	private synchronized void addFile(File file) {
+		addFileProbe.start();
+		closeChannels();
+		int fileIndex = filenames.size();
+		filenames.add(file.getPath());
+		int lines = 0;
+		try {
+			InputStream in = new FileInputStream(file);
+			byte[] buffer = new byte[1 << 16];
+			int bufferLength = 0;
+			int bufferPosition = 0;
+			long bufferOffset = 0;
+			byte[] id = new byte[256];
+			String previousId = null;
+			boolean done = false;
+			while (!done) {
+				// Read one line, keeping the bytes before the first tab
+				long lineStart = bufferOffset + bufferPosition;
+				int idLength = 0;
+				boolean idComplete = false;
+				while (true) {
+					if (bufferPosition == bufferLength) {
+						bufferOffset += bufferLength;
+						bufferLength = in.read(buffer);
+						bufferPosition = 0;
+						if (bufferLength < 0) {
+							bufferLength = 0;
+							done = true;
+							break;
+						}
+					}
+					byte b = buffer[bufferPosition++];
+					if (b == '\n') {
+						break;
+					}
+					if (b == '\t') {
+						idComplete = true;
+					} else if (!idComplete) {
+						if (idLength == id.length) {
+							id = Arrays.copyOf(id, 2 * id.length);
+						}
+						id[idLength++] = b;
+					}
+				}
+				long lineEnd = bufferOffset + bufferPosition;
+				// Same as String.trim() on the line before splitting; lines without a tab are reported when the document is requested
+				int idStart = 0;
+				while (idStart < idLength && (id[idStart] & 0xFF) <= ' ') {
+					idStart++;
+				}
+				while (!idComplete && idLength > idStart && (id[idLength - 1] & 0xFF) <= ' ') {
+					idLength--;
+				}
+				if (idStart == idLength) {
+					continue;
+				}
+				String documentId = new String(id, idStart, idLength - idStart, StandardCharsets.UTF_8);
+				lines++;
+				int range = rangeOffsets.size() - 1;
+				if (documentId.equals(previousId) && rangeOffsets.get(range) + rangeLengths.get(range) == lineStart) {
+					// Same document as the previous line
+					rangeLengths.set(range, (int) (lineEnd - rangeOffsets.get(range)));
+				} else {
+					rangeFiles.add(fileIndex);
+					rangeOffsets.add(lineStart);
+					rangeLengths.add((int) (lineEnd - lineStart));
+					previousRanges.add(lastRange.get(documentId));
+					lastRange.put(documentId, rangeOffsets.size() - 1);
+				}
+				previousId = documentId;
+			}
+			in.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		logger.info("Indexed " + lines + " abbreviations from file " + file.getPath());
+		addFileProbe.stop();
+	}
+
+	@Override
+	public Map<String, String> getAbbreviations(String id, String text) {
+		getAbbreviationsProbe.start();
+		Map<String, String> abbreviation = new HashMap<String, String>();
+		// Copy the ranges in the order added
+		List<FileChannel> rangeChannels = new ArrayList<FileChannel>();
+		TIntArrayList fileIndices = new TIntArrayList();
+		TLongArrayList offsets = new TLongArrayList();
+		TIntArrayList lengths = new TIntArrayList();
+		synchronized (this) {
+			FileChannel[] fileChannels = getChannels();
+			int range = lastRange.get(id);
+			while (range >= 0) {
+				rangeChannels.add(0, fileChannels[rangeFiles.get(range)]);
+				fileIndices.insert(0, rangeFiles.get(range));
+				offsets.insert(0, rangeOffsets.get(range));
+				lengths.insert(0, rangeLengths.get(range));
+				range = previousRanges.get(range);
+			}
+		}
+		/*
+		 * As when each file is loaded with FileAbbreviationSource and added to an AbbreviationResolver: within a file the first definition of a short form is kept, but a definition in a later file replaces it
+		 */
+		Map<String, String> fileAbbreviation = new HashMap<String, String>();
+		try {
+			for (int i = 0; i < rangeChannels.size(); i++) {
+				if (i > 0 && fileIndices.get(i) != fileIndices.get(i - 1)) {
+					abbreviation.putAll(fileAbbreviation);
+					fileAbbreviation.clear();
+				}
+				ByteBuffer buffer = ByteBuffer.allocate(lengths.get(i));
+				while (buffer.hasRemaining()) {
+					if (rangeChannels.get(i).read(buffer, offsets.get(i) + buffer.position()) < 0) {
+						throw new IllegalStateException("Abbreviation file changed after indexing for document " + id);
+					}
+				}
+				String lines = new String(buffer.array(), StandardCharsets.UTF_8);
+				for (String line : lines.split("\n")) {
+					line = line.trim();
+					if (line.length() > 0) {
+						String[] split = line.split("\\t");
+						FileAbbreviationSource.addAbbreviation(fileAbbreviation, split[1], split[2]);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		abbreviation.putAll(fileAbbreviation);
+		getAbbreviationsProbe.stop();
+		return abbreviation;
+	}
+
+	private FileChannel[] getChannels() {
+		if (channels == null) {
+			channels = new FileChannel[filenames.size()];
+			try {
+				for (int i = 0; i < channels.length; i++) {
+					channels[i] = new RandomAccessFile(filenames.get(i), "r").getChannel();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return channels;
+	}
+
+	private void closeChannels() {
+		if (channels == null) {
+			return;
+		}
+		for (FileChannel channel : channels) {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to close abbreviation file", e);
+			}
+		}
+		channels = null;
+	}
+}
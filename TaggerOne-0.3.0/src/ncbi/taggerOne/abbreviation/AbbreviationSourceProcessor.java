@@ -11,6 +11,8 @@ import ncbi.util.Profiler;
 public class AbbreviationSourceProcessor extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe prefetchProbe = Profiler.probe("AbbreviationSourceProcessor.prefetch()");
+	private static final Profiler.Probe processProbe = Profiler.probe("AbbreviationSourceProcessor.process()");
 
 	private List<AbbreviationSource> abbreviationSourceList;
 	private AbbreviationResolver resolver;
@@ -29,15 +31,38 @@ public class AbbreviationSourceProcessor extends TextInstanceProcessor {
 		return resolver;
 	}
 
+	/*
+	 * Lets the sources that support batching find the abbreviations for all of the instances at once
+	 */
+	public void prefetch(List<TextInstance> input) {
+		prefetch(abbreviationSourceList, input);
+	}
+
+	public static void prefetch(List<AbbreviationSource> abbreviationSourceList, List<TextInstance> input) {
+		prefetchProbe.start();
+		for (AbbreviationSource source : abbreviationSourceList) {
+			if (source instanceof BatchAbbreviationSource) {
+				((BatchAbbreviationSource) source).prefetchAbbreviations(input);
+			}
+		}
+		prefetchProbe.stop();
+	}
+
+	@Override
+	public void processAll(List<TextInstance> input) {
+		prefetch(input);
+		super.processAll(input);
+	}
+
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("AbbreviationSourceProcessor.process()");
+		processProbe.start();
 		String sourceId = input.getSourceId();
 		for (AbbreviationSource source : abbreviationSourceList) {
 			Map<String, String> abbreviations = source.getAbbreviations(sourceId, input.getText());
 			resolver.addAbbreviations(sourceId, abbreviations);
 		}
-		Profiler.stop("AbbreviationSourceProcessor.process()");
+		processProbe.stop();
 	}
 
 }
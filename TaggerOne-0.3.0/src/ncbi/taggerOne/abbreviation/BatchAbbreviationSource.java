@@ -0,0 +1,17 @@
+package ncbi.taggerOne.abbreviation;
+
+import java.util.List;
+
+import ncbi.taggerOne.types.TextInstance;
+
+/*
+ * An abbreviation source with a high fixed cost per request, which can find the abbreviations for many texts at once
+ */
+public interface BatchAbbreviationSource extends AbbreviationSource {
+
+	/*
+	 * Finds the abbreviations for the text of each instance, so that later calls to getAbbreviations() for the same text do not need another request
+	 */
+	public void prefetchAbbreviations(List<TextInstance> instances);
+
+}
@@ -70,6 +70,13 @@ public class FileAbbreviationSource implements AbbreviationSource {
 			abbreviation = new HashMap<String, String>();
 			abbreviations.put(pmid, abbreviation);
 		}
+		addAbbreviation(abbreviation, shortForm, longForm);
+	}
+
+	/*
+	 * Adds the abbreviation unless the long form contains the short form or the short form is already defined
+	 */
+	static void addAbbreviation(Map<String, String> abbreviation, String shortForm, String longForm) {
 		Pattern pattern = Pattern.compile("\\b" + Pattern.quote(shortForm) + "\\b");
 		Matcher matcher = pattern.matcher(longForm);
 		if (matcher.find()) {
@@ -7,16 +7,22 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/*
+ * Provides the abbreviations from the file with the same name as the input file being processed, in the folder given. The file is indexed when loaded and the abbreviations for each document are only read when requested.
+ */
 public class FolderAbbreviationSource implements AbbreviationSource {
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LoggerFactory.getLogger(FolderAbbreviationSource.class);
 
+	// Kept so serialized instances still load
 	private FileAbbreviationSource fileAbbreviationSource;
 	private String dirName;
+	private transient AbbreviationIndex abbreviationIndex;
 
 	public FolderAbbreviationSource() {
 		fileAbbreviationSource = new FileAbbreviationSource();
+		abbreviationIndex = new AbbreviationIndex();
 	}
 
 	@Override
@@ -32,17 +38,24 @@ public class FolderAbbreviationSource implements AbbreviationSource {
 
 	public void loadFile(String filename) {
 		fileAbbreviationSource.clear();
+		if (abbreviationIndex == null) {
+			abbreviationIndex = new AbbreviationIndex();
+		}
+		abbreviationIndex.clear();
 		File f = new File(dirName + filename);
 		if (!f.exists()) {
 			logger.warn("Abbreviation file \"" + f.getAbsolutePath() + "\" does not exist, skipping");
 		} else {
-			fileAbbreviationSource.loadAbbreviations(dirName + filename);
+			abbreviationIndex.add(dirName + filename);
 		}
 	}
 
 	@Override
 	public Map<String, String> getAbbreviations(String id, String text) {
-		return fileAbbreviationSource.getAbbreviations(id, text);
+		if (abbreviationIndex == null) {
+			return fileAbbreviationSource.getAbbreviations(id, text);
+		}
+		return abbreviationIndex.getAbbreviations(id, text);
 	}
 
 }
@@ -1,8 +1,11 @@
 package ncbi.taggerOne.dataset;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -212,7 +215,7 @@ public class OrderedPubtatorDataset implements Dataset {
 
 	private static List<String> getPMIDs(String filename) throws IOException {
 		List<String> pmids = new ArrayList<String>();
-		BufferedReader dataFile = new BufferedReader(new FileReader(filename));
+		BufferedReader dataFile = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
 		String line = dataFile.readLine();
 		while (line != null) {
 			line = line.trim();
@@ -228,89 +231,51 @@ public class OrderedPubtatorDataset implements Dataset {
 	private static class PubtatorParser {
 
 		private Map<String, String> entityTypeMap;
-		private BufferedReader reader;
-		private String currentLine;
+		private PubtatorReader reader;
 
-		public PubtatorParser(Map<String, String> entityTypeMap, String dataFilename) throws IOException {
+		public PubtatorParser(Map<String, String> entityTypeMap, String dataFilename) {
 			this.entityTypeMap = entityTypeMap;
-			reader = new BufferedReader(new FileReader(dataFilename));
-			nextLine();
+			reader = new PubtatorReader(new File(dataFilename), true);
 		}
 
-		public void close() throws IOException {
+		public void close() {
 			reader.close();
 		}
 
-		public Abstract getAbstract() throws IOException {
-			if (currentLine == null)
+		public Abstract getAbstract() {
+			PubtatorReader.Document document = reader.next();
+			if (document == null)
 				return null;
 			Abstract a = new Abstract();
-			getTitleText(a);
-			getAbstractText(a);
-			Tag t = getTag(a);
-			while (t != null) {
-				a.addTag(t);
-				t = getTag(a);
+			a.setId(document.getId());
+			if (document.getTitle().length() == 0)
+				throw new IllegalArgumentException("Invalid title text for document " + document.getId());
+			a.setTitleText(document.getTitle());
+			String abstractText = document.getAbstractText();
+			if (abstractText != null && abstractText.length() == 0) {
+				throw new IllegalArgumentException("Invalid abstract text for document " + document.getId());
 			}
-			return a;
-		}
-
-		private void getTitleText(Abstract a) throws IOException {
-			String[] split = currentLine.split("\\|");
-			if (split.length != 3)
-				throw new IllegalArgumentException("Invalid title text=\"" + currentLine + "\"");
-			a.setId(split[0]);
-			if (!split[1].equals("t"))
-				throw new IllegalArgumentException("Invalid title text=\"" + currentLine + "\"");
-			a.setTitleText(split[2]);
-			nextLine();
-		}
-
-		private void getAbstractText(Abstract a) throws IOException {
-			if (!currentLine.startsWith(a.getId() + "|a|")) {
-				return;
+			if (abstractText != null) {
+				a.setAbstractText(abstractText);
 			}
-			String[] split = currentLine.split("\\|");
-			// The ID and the field indicator ("a") have already been verified
-			if (split.length != 3) {
-				throw new IllegalArgumentException("Invalid abstract text=\"" + currentLine + "\"");
+			for (PubtatorReader.Annotation annotation : document.getAnnotations()) {
+				a.addTag(getTag(a, annotation));
 			}
-			a.setAbstractText(split[2]);
-			nextLine();
+			return a;
 		}
 
-		private Tag getTag(Abstract a) throws IOException {
-			String line = currentLine;
-			if (line == null) {
-				return null;
-			}
-			if (!line.startsWith(a.getId())) {
-				// This indicates that it found a new abstract
-				return null;
-			}
-			String[] split = line.split("\t");
-			if (split.length < 5 || split.length > 7) {
-				throw new IllegalArgumentException("Annotations should have between 5 and 7 values separated by tabs in abstract " + a.getId() + " text=\"" + line + "\"");
-			}
-			if (!split[0].equals(a.getId()))
-				throw new IllegalArgumentException();
-			int start = Integer.parseInt(split[1]);
-			int end = Integer.parseInt(split[2]);
+		private Tag getTag(Abstract a, PubtatorReader.Annotation annotation) {
+			int start = annotation.getStart();
+			int end = annotation.getEnd();
 			String text = a.getSubText(start, end);
-			if (!split[3].equals(text)) {
-				throw new IllegalArgumentException("Text from mention definition (\"" + split[3] + "\") does not match text specified by mention boundaries (\"" + text + "\") in abstract " + a.getId());
+			if (!annotation.getText().equals(text)) {
+				throw new IllegalArgumentException("Text from mention definition (\"" + annotation.getText() + "\") does not match text specified by mention boundaries (\"" + text + "\") in abstract " + a.getId());
 			}
 			if (!text.equals(text.trim())) {
 				throw new IllegalArgumentException("Mention text cannot begin or end with whitespace (\"" + text + "\") in abstract " + a.getId());
 			}
-			String typeText = mapEntityType(split[4]);
-			String id = null;
-			if (split.length > 5) {
-				id = split[5].trim();
-			}
-			Tag t = new Tag(id, typeText, start, end);
-			nextLine();
-			return t;
+			String typeText = mapEntityType(annotation.getType());
+			return new Tag(annotation.getIdentifier(), typeText, start, end);
 		}
 
 		private String mapEntityType(String entityType) {
@@ -319,15 +284,6 @@ public class OrderedPubtatorDataset implements Dataset {
 			}
 			return entityTypeMap.get(entityType);
 		}
-
-		private String nextLine() throws IOException {
-			do {
-				currentLine = reader.readLine();
-				if (currentLine != null)
-					currentLine = currentLine.trim();
-			} while (currentLine != null && currentLine.length() == 0);
-			return currentLine;
-		}
 	}
 
 	private static class Abstract {
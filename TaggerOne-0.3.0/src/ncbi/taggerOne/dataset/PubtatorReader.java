@@ -0,0 +1,385 @@
+package ncbi.taggerOne.dataset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.util.Profiler;
+
+/*
+ * Reads the documents in a PubTator file one at a time. The file is memory-mapped and scanned for line and field boundaries at the byte level, and only the fields used are decoded, always as UTF-8. Lines are trimmed and blank
+ * lines ignored, as with BufferedReader.readLine() and String.trim(). Title and abstract text runs to the end of the line, so it may contain '|'.
+ *
+ * If annotations are read, annotation lines must belong to the current document and malformed lines are errors; otherwise annotation lines and malformed lines are skipped without being decoded.
+ */
+public class PubtatorReader implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PubtatorReader.class);
+	private static final long MAX_WINDOW_BYTES = 1L << 30;
+	private static final Profiler.Probe nextProbe = Profiler.probe("PubtatorReader.next()");
+
+	private boolean readAnnotations;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long fileSize;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long position;
+	private int lineStart;
+	private int lineEnd;
+	private byte[] decodeBuffer;
+	private int[] fieldStarts;
+	private int[] fieldEnds;
+	private Document next;
+
+	public PubtatorReader(File pubtatorFile, boolean readAnnotations) {
+		this.readAnnotations = readAnnotations;
+		try {
+			file = new RandomAccessFile(pubtatorFile, "r");
+			channel = file.getChannel();
+			fileSize = channel.size();
+			map(0);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		decodeBuffer = new byte[256];
+		fieldStarts = new int[8];
+		fieldEnds = new int[8];
+	}
+
+	/*
+	 * Returns the next document, or null if there are no more documents
+	 */
+	public Document next() {
+		if (window == null) {
+			throw new IllegalStateException("PubtatorReader is closed");
+		}
+		nextProbe.start();
+		Document document = next;
+		next = null;
+		while (nextLine()) {
+			int firstPipe = -1;
+			int firstTab = -1;
+			for (int i = lineStart; i < lineEnd && firstPipe < 0 && firstTab < 0; i++) {
+				byte b = window.get(i);
+				if (b == '|') {
+					firstPipe = i;
+				} else if (b == '\t') {
+					firstTab = i;
+				}
+			}
+			char textType = getTextType(firstPipe);
+			if (textType == 't') {
+				Document title = new Document(decode(lineStart, firstPipe), decodeText(firstPipe));
+				if (document != null) {
+					next = title;
+					break;
+				}
+				document = title;
+			} else if (textType == 'a') {
+				String abstractText = decodeText(firstPipe);
+				if (document != null && document.abstractText == null && matchesId(lineStart, firstPipe, document.id)) {
+					document.abstractText = abstractText;
+				} else if (readAnnotations) {
+					throw new IllegalArgumentException("Abstract text must follow the title of the same document: \"" + decode(lineStart, lineEnd) + "\"");
+				} else {
+					// Abstract without a title
+					Document untitled = new Document(decode(lineStart, firstPipe), null);
+					untitled.abstractText = abstractText;
+					if (document != null) {
+						next = untitled;
+						break;
+					}
+					document = untitled;
+				}
+			} else if (readAnnotations) {
+				if (firstTab < 0) {
+					throw new IllegalArgumentException("Line is not title text, abstract text or an annotation: \"" + decode(lineStart, lineEnd) + "\"");
+				}
+				if (document == null || !matchesId(lineStart, firstTab, document.id)) {
+					throw new IllegalArgumentException("Annotation does not belong to the current document: \"" + decode(lineStart, lineEnd) + "\"");
+				}
+				document.annotations.add(readAnnotation(document.id));
+			}
+		}
+		nextProbe.stop();
+		return document;
+	}
+
+	@Override
+	public void close() {
+		if (window == null) {
+			return;
+		}
+		unmap(window);
+		window = null;
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void map(long start) throws IOException {
+		if (window != null) {
+			unmap(window);
+			window = null;
+		}
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(fileSize - start, MAX_WINDOW_BYTES));
+	}
+
+	/*
+	 * Releases the mapping now rather than when the buffer is garbage collected, so closed readers do not hold up to MAX_WINDOW_BYTES of address space each, and the file can be deleted on Windows. The buffer must not be
+	 * used afterwards. There is no public API for this: uses Unsafe.invokeCleaner() on Java 9 and later and the buffer's Cleaner on Java 8, and otherwise leaves the mapping to the garbage collector.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (NoSuchMethodException e) {
+				invokeCleaner = null;
+			}
+			if (invokeCleaner != null) {
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} else {
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (ReflectiveOperationException e) {
+			logger.debug("Could not unmap buffer, leaving it to the garbage collector", e);
+		} catch (RuntimeException e) {
+			logger.debug("Could not unmap buffer, leaving it to the garbage collector", e);
+		}
+	}
+
+	/*
+	 * Finds the next non-blank line, setting lineStart and lineEnd to its trimmed bounds in the window
+	 */
+	private boolean nextLine() {
+		try {
+			while (position < fileSize) {
+				int start = (int) (position - windowStart);
+				int limit = window.limit();
+				int end = start;
+				while (end < limit) {
+					byte b = window.get(end);
+					if (b == '\n' || b == '\r') {
+						break;
+					}
+					end++;
+				}
+				if (end == limit && windowStart + limit < fileSize) {
+					// The line continues past the window
+					if (start == 0) {
+						throw new IllegalArgumentException("Line is longer than " + MAX_WINDOW_BYTES + " bytes");
+					}
+					map(position);
+					continue;
+				}
+				position = windowStart + Math.min(end + 1, limit);
+				// Same as String.trim(): all bytes up to space are single-byte characters in UTF-8
+				while (start < end && (window.get(start) & 0xFF) <= ' ') {
+					start++;
+				}
+				while (end > start && (window.get(end - 1) & 0xFF) <= ' ') {
+					end--;
+				}
+				if (start < end) {
+					lineStart = start;
+					lineEnd = end;
+					return true;
+				}
+			}
+			return false;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/*
+	 * Returns 't' or 'a' if the line is title or abstract text, or 0 otherwise
+	 */
+	private char getTextType(int firstPipe) {
+		if (firstPipe <= lineStart || firstPipe + 1 >= lineEnd) {
+			return 0;
+		}
+		byte type = window.get(firstPipe + 1);
+		if ((type != 't' && type != 'a') || (firstPipe + 2 < lineEnd && window.get(firstPipe + 2) != '|')) {
+			return 0;
+		}
+		return (char) type;
+	}
+
+	private String decodeText(int firstPipe) {
+		return decode(Math.min(firstPipe + 3, lineEnd), lineEnd);
+	}
+
+	private boolean matchesId(int start, int end, String id) {
+		// Document IDs are compared without decoding; they are ASCII in practice, and otherwise are decoded for comparison
+		if (end - start != id.length()) {
+			return decode(start, end).equals(id);
+		}
+		for (int i = 0; i < id.length(); i++) {
+			if (window.get(start + i) != id.charAt(i)) {
+				return decode(start, end).equals(id);
+			}
+		}
+		return true;
+	}
+
+	private Annotation readAnnotation(String documentId) {
+		// Same fields as String.split("\t"), which drops trailing empty fields
+		int fieldCount = 0;
+		int fieldStart = lineStart;
+		for (int i = lineStart; i <= lineEnd; i++) {
+			if (i == lineEnd || window.get(i) == '\t') {
+				if (fieldCount == fieldStarts.length) {
+					fieldStarts = grow(fieldStarts);
+					fieldEnds = grow(fieldEnds);
+				}
+				fieldStarts[fieldCount] = fieldStart;
+				fieldEnds[fieldCount] = i;
+				fieldCount++;
+				fieldStart = i + 1;
+			}
+		}
+		while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+			fieldCount--;
+		}
+		if (fieldCount < 5 || fieldCount > 7) {
+			throw new IllegalArgumentException("Annotations should have between 5 and 7 values separated by tabs in abstract " + documentId + " text=\"" + decode(lineStart, lineEnd) + "\"");
+		}
+		Annotation annotation = new Annotation();
+		annotation.start = parseInt(fieldStarts[1], fieldEnds[1]);
+		annotation.end = parseInt(fieldStarts[2], fieldEnds[2]);
+		annotation.text = decode(fieldStarts[3], fieldEnds[3]);
+		annotation.type = decode(fieldStarts[4], fieldEnds[4]);
+		if (fieldCount > 5) {
+			annotation.identifier = decode(fieldStarts[5], fieldEnds[5]).trim();
+		}
+		return annotation;
+	}
+
+	private int parseInt(int start, int end) {
+		int value = 0;
+		boolean negative = start < end && window.get(start) == '-';
+		int i = negative ? start + 1 : start;
+		if (i == end) {
+			throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+		}
+		for (; i < end; i++) {
+			int digit = window.get(i) - '0';
+			if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+				throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	private String decode(int start, int end) {
+		int length = end - start;
+		if (decodeBuffer.length < length) {
+			decodeBuffer = new byte[Math.max(length, 2 * decodeBuffer.length)];
+		}
+		for (int i = 0; i < length; i++) {
+			decodeBuffer[i] = window.get(start + i);
+		}
+		return new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[2 * array.length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	public static class Document {
+
+		private String id;
+		private String title;
+		private String abstractText;
+		private List<Annotation> annotations;
+
+		public Document(String id, String title) {
+			this.id = id;
+			this.title = title;
+			annotations = new ArrayList<Annotation>();
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/*
+		 * Returns the title, or null if the document only has abstract text
+		 */
+		public String getTitle() {
+			return title;
+		}
+
+		/*
+		 * Returns the abstract text, or null if the document has no abstract line
+		 */
+		public String getAbstractText() {
+			return abstractText;
+		}
+
+		public List<Annotation> getAnnotations() {
+			return annotations;
+		}
+	}
+
+	public static class Annotation {
+
+		private int start;
+		private int end;
+		private String text;
+		private String type;
+		private String identifier;
+
+		public int getStart() {
+			return start;
+		}
+
+		public int getEnd() {
+			return end;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		/*
+		 * Returns the identifier field, trimmed, or null if there is none
+		 */
+		public String getIdentifier() {
+			return identifier;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package ncbi.taggerOne.lexicon;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -19,8 +21,11 @@ import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.util.ArraySet;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.VectorInterner;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 
-public class Index implements Serializable {
+public class Index implements Serializable, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(Index.class);
 	private static final long serialVersionUID = 1L;
@@ -64,6 +69,9 @@ public class Index implements Serializable {
 			for (MentionName name : entity.getNames()) {
 				Vector<String> nameVector = name.getVector();
 				if (nameVector != null) {
+					// Names with equal vectors share one instance, which mention vectors are then canonicalized to
+					nameVector = VectorInterner.intern(nameVector);
+					name.setVector(nameVector);
 					Set<Entity> entitySet = vectorToEntityMap.get(nameVector);
 					if (entitySet == null) {
 						entitySet = new HashSet<Entity>();
@@ -122,6 +130,29 @@ public class Index implements Serializable {
 		}
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		/*
+		 * The intern table is not serialized, so the name vectors are added again for mention vectors to be canonicalized to. Models saved before interning hold SparseVectors, and the table holds frozen copies, so the
+		 * name vectors are replaced with the canonical instances; otherwise each would be held twice and lookups would not get the reference comparison. The dictionary is replaced in place, as the models share it.
+		 */
+		for (int nameVectorIndex = 0; nameVectorIndex < nameVectors.size(); nameVectorIndex++) {
+			Vector<String> nameVector = nameVectors.getElement(nameVectorIndex);
+			Vector<String> internedVector = VectorInterner.intern(nameVector);
+			if (internedVector != nameVector) {
+				nameVectors.replaceElement(nameVectorIndex, internedVector);
+			}
+		}
+		for (int entityIndex = 0; entityIndex < entityDictionary.size(); entityIndex++) {
+			for (MentionName name : entityDictionary.getElement(entityIndex).getNames()) {
+				Vector<String> nameVector = name.getVector();
+				if (nameVector != null) {
+					name.setVector(VectorInterner.intern(nameVector));
+				}
+			}
+		}
+	}
+
 	public Dictionary<String> getMentionVectorSpace() {
 		return mentionVectorSpace;
 	}
@@ -159,4 +190,18 @@ public class Index implements Serializable {
 	public Entity getUnknownEntity() {
 		return unknownEntity;
 	}
+
+	/*
+	 * Counts the name vectors and the entity sets for each; the entities and the vector spaces are counted separately
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = MemoryAccounting.object(7, 0) + nameVectors.getEstimatedBytes() + entityDictionary.getEstimatedBytes();
+		bytes += MemoryAccounting.object(1, 8) + MemoryAccounting.referenceArray(nameVectorEntitySets.size());
+		for (Set<Entity> entitySet : nameVectorEntitySets) {
+			// ArraySet wrapping an ArrayList created at the size of the set
+			bytes += MemoryAccounting.object(1, 0) + MemoryAccounting.object(1, 8) + MemoryAccounting.referenceArray(entitySet.size());
+		}
+		return bytes;
+	}
 }
@@ -5,6 +5,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.types.Entity;
@@ -120,6 +124,38 @@ public class Lexicon implements Serializable {
 		}
 	}
 
+	/*
+	 * Creates the index for each entity type as a separate task. Each index is built by a single task from its own entities, so the result is the same as for the sequential version.
+	 */
+	public void createIndexes(final Dictionary<String> mentionVectorSpace, final Map<String, Dictionary<String>> nameVectorSpaces, final boolean removeAmbiguousIfPrimaryForOther, ExecutorService executor) {
+		if (typeToIndex != null) {
+			return;
+		}
+		Map<String, Future<Index>> typeToFuture = new HashMap<String, Future<Index>>();
+		for (final String type : typeToEntities.keySet()) {
+			if (!type.equals(T1Constants.NONENTITY_STATE)) {
+				typeToFuture.put(type, executor.submit(new Callable<Index>() {
+					@Override
+					public Index call() {
+						return new Index(mentionVectorSpace, nameVectorSpaces.get(type), typeToEntities.get(type), unknownEntities.get(type), removeAmbiguousIfPrimaryForOther);
+					}
+				}));
+			}
+		}
+		Map<String, Index> indexes = new HashMap<String, Index>();
+		for (Map.Entry<String, Future<Index>> entry : typeToFuture.entrySet()) {
+			try {
+				indexes.put(entry.getKey(), entry.getValue().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		typeToIndex = indexes;
+	}
+
 	public Index getIndex(String type) {
 		if (typeToIndex == null) {
 			throw new IllegalStateException("Must first create indexes");
@@ -22,6 +22,9 @@ import ncbi.util.Profiler;
 public class LexiconMappings {
 
 	protected static final Logger logger = LoggerFactory.getLogger(LexiconMappings.class);
+	private static final Profiler.Probe addIdentifierProbe = Profiler.probe("LexiconMappings.addIdentifier()");
+	private static final Profiler.Probe containsIdentifierProbe = Profiler.probe("LexiconMappings.containsIdentifier()");
+	private static final Profiler.Probe addIdentifierEquivalenceProbe = Profiler.probe("LexiconMappings.addIdentifierEquivalence()");
 
 	private Set<String> namespaces;
 	private Set<String> entityTypes;
@@ -46,7 +49,7 @@ public class LexiconMappings {
 	}
 
 	public void addIdentifier(String identifier, String entityType, boolean isPreferred) {
-		Profiler.start("LexiconMappings.addIdentifier()");
+		addIdentifierProbe.start();
 		logger.trace("Adding identifier " + identifier + " of entity type " + entityType + ", isPreferred = " + isPreferred);
 		if (!entityTypes.contains(entityType)) {
 			throw new IllegalArgumentException("Cannot add identifier " + identifier + ": entity type " + entityType + " is unknown");
@@ -75,13 +78,13 @@ public class LexiconMappings {
 		if (isPreferred) {
 			preferredIdentifiers.add(identifier);
 		}
-		Profiler.stop("LexiconMappings.addIdentifier()");
+		addIdentifierProbe.stop();
 	}
 
 	public boolean containsIdentifier(String identifier) {
-		Profiler.start("LexiconMappings.containsIdentifier()");
+		containsIdentifierProbe.start();
 		boolean contains = identifierToType.containsKey(identifier);
-		Profiler.stop("LexiconMappings.containsIdentifier()");
+		containsIdentifierProbe.stop();
 		return contains;
 	}
 
@@ -90,7 +93,7 @@ public class LexiconMappings {
 	}
 
 	public void addIdentifierEquivalence(String identifier1, String identifier2) {
-		Profiler.start("LexiconMappings.addIdentifierEquivalence()");
+		addIdentifierEquivalenceProbe.start();
 		logger.trace("Adding identifier equivalence: " + identifier1 + " = " + identifier2);
 		String entityType1 = identifierToType.get(identifier1);
 		if (entityType1 == null) {
@@ -116,7 +119,7 @@ public class LexiconMappings {
 				identifierToEquivalencyKey.put(identifier, equivalencyKey1);
 			}
 		}
-		Profiler.stop("LexiconMappings.addIdentifierEquivalence()");
+		addIdentifierEquivalenceProbe.stop();
 	}
 
 	public void addTerm(String identifier, String name, boolean isPreferred) {
@@ -1,18 +1,18 @@
 package ncbi.taggerOne.lexicon.loader;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
-import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.lexicon.LexiconMappings;
+import ncbi.util.ChunkedFileParser;
 
 public class CTDDiseaseLexiconMappingsLoader implements LexiconMappingsLoader {
 
 	private String entityType;
 	private String lexiconFilename;
+	private List<Record> records;
 
 	public CTDDiseaseLexiconMappingsLoader() {
 		// Empty
@@ -24,6 +24,7 @@ public class CTDDiseaseLexiconMappingsLoader implements LexiconMappingsLoader {
 		}
 		this.entityType = args[1];
 		this.lexiconFilename = args[2];
+		records = null;
 	}
 
 	private void checkArgs() {
@@ -32,6 +33,39 @@ public class CTDDiseaseLexiconMappingsLoader implements LexiconMappingsLoader {
 		}
 	}
 
+	private List<Record> getRecords() {
+		// The file is read once and the parsed records are kept until loadNames() is called
+		if (records == null) {
+			List<List<Record>> chunks = new ChunkedFileParser().parse(new File(lexiconFilename), new ChunkedFileParser.ChunkHandler<List<Record>>() {
+				@Override
+				public List<Record> parse(List<String> lines) {
+					List<Record> chunkRecords = new ArrayList<Record>(lines.size());
+					for (String line : lines) {
+						line = line.trim();
+						if (!line.startsWith("#")) {
+							String[] split = line.split("\t");
+							String[] alternateIDs = new String[0];
+							if (split.length > 2) {
+								alternateIDs = split[2].split("\\|");
+							}
+							String[] alternateNames = new String[0];
+							if (split.length > 7) {
+								alternateNames = split[7].split("\\|");
+							}
+							chunkRecords.add(new Record(split[1], split[0], alternateIDs, alternateNames));
+						}
+					}
+					return chunkRecords;
+				}
+			});
+			records = new ArrayList<Record>();
+			for (List<Record> chunk : chunks) {
+				records.addAll(chunk);
+			}
+		}
+		return records;
+	}
+
 	@Override
 	public Set<String> getNamespaceSet() {
 		// FIXME
@@ -41,101 +75,58 @@ public class CTDDiseaseLexiconMappingsLoader implements LexiconMappingsLoader {
 	@Override
 	public void loadIdentifiers(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					String[] split = line.split("\t");
-
-					// Get identifiers
-					String id = split[1]; // Primary ID
-					lexiconMappings.addIdentifier(id, entityType, true);
-					if (split.length > 2) {
-						String[] alternateIDs = split[2].split("\\|");
-						for (String alternateId : alternateIDs) {
-							alternateId = alternateId.trim();
-							if (alternateId.length() > 0) {
-								lexiconMappings.addIdentifier(alternateId, entityType, false);
-							}
-						}
-					}
+		for (Record record : getRecords()) {
+			// Get identifiers
+			lexiconMappings.addIdentifier(record.id, entityType, true); // Primary ID
+			for (String alternateId : record.alternateIDs) {
+				alternateId = alternateId.trim();
+				if (alternateId.length() > 0) {
+					lexiconMappings.addIdentifier(alternateId, entityType, false);
 				}
-				line = reader.readLine();
 			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
 		}
 	}
 
 	@Override
 	public void loadIdentifierEquivalencies(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					String[] split = line.split("\t");
-
-					// Get identifiers
-					String id = split[1]; // Primary ID
-					if (split.length > 2) {
-						String[] alternateIDs = split[2].split("\\|");
-						for (String alternateId : alternateIDs) {
-							alternateId = alternateId.trim();
-							if (alternateId.length() > 0) {
-								lexiconMappings.addIdentifierEquivalence(id, alternateId);
-							}
-						}
-					}
+		for (Record record : getRecords()) {
+			for (String alternateId : record.alternateIDs) {
+				alternateId = alternateId.trim();
+				if (alternateId.length() > 0) {
+					lexiconMappings.addIdentifierEquivalence(record.id, alternateId);
 				}
-				line = reader.readLine();
 			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
 		}
 	}
 
 	@Override
 	public void loadNames(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					String[] split = line.split("\t");
-
-					// Get identifier
-					String identifier = split[1];
-
-					// Get names
-					lexiconMappings.addTerm(identifier, split[0], true); // Primary name
-					if (split.length > 7) {
-						for (String name : split[7].split("\\|")) {
-							name = name.trim();
-							if (name.length() > 0) {
-								lexiconMappings.addTerm(identifier, name, false); // Alternate names
-							}
-						}
-					}
+		for (Record record : getRecords()) {
+			// Get names
+			lexiconMappings.addTerm(record.id, record.primaryName, true); // Primary name
+			for (String name : record.alternateNames) {
+				name = name.trim();
+				if (name.length() > 0) {
+					lexiconMappings.addTerm(record.id, name, false); // Alternate names
 				}
-				line = reader.readLine();
 			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		}
+		records = null;
+	}
+
+	private static class Record {
+		String id;
+		String primaryName;
+		String[] alternateIDs;
+		String[] alternateNames;
+
+		public Record(String id, String primaryName, String[] alternateIDs, String[] alternateNames) {
+			this.id = id;
+			this.primaryName = primaryName;
+			this.alternateIDs = alternateIDs;
+			this.alternateNames = alternateNames;
 		}
 	}
 }
@@ -1,21 +1,20 @@
 package ncbi.taggerOne.lexicon.loader;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.lexicon.LexiconMappings;
+import ncbi.util.ChunkedFileParser;
 
 public class OBOLexiconMappingsLoader implements LexiconMappingsLoader {
 
 	private static final Logger logger = LoggerFactory.getLogger(OBOLexiconMappingsLoader.class);
+	private static final String TERM_LINE = "[Term]";
 	private static final String ID_LINE = "id: ";
 	private static final String NAME_LINE = "name: ";
 	private static final String SYNONYM_LINE = "synonym: ";
@@ -25,6 +24,7 @@ public class OBOLexiconMappingsLoader implements LexiconMappingsLoader {
 
 	private String entityType;
 	private String filename;
+	private List<Line> termLines;
 
 	@Override
 	public void setArgs(String... args) {
@@ -33,6 +33,7 @@ public class OBOLexiconMappingsLoader implements LexiconMappingsLoader {
 		}
 		this.entityType = args[1];
 		this.filename = args[2];
+		termLines = null;
 	}
 
 	@Override
@@ -41,41 +42,60 @@ public class OBOLexiconMappingsLoader implements LexiconMappingsLoader {
 		return null;
 	}
 
-	@Override
-	public void loadIdentifiers(LexiconMappings lexiconMappings) {
-		try {
-			BufferedReader reader = null;
-			if (filename.endsWith(".gz")) {
-				reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename)), T1Constants.UTF8_FORMAT));
-			} else {
-				reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), T1Constants.UTF8_FORMAT));
-			}
-			String line = reader.readLine();
-			while (line != null) {
-				// Advance to [Term]
-				while (line != null && !line.trim().equals("[Term]")) {
-					line = reader.readLine();
+	/*
+	 * Returns the start, id, name and synonym lines of each [Term] stanza. Lines are classified in parallel, then the stanza boundaries are applied in file order since a chunk may begin in the middle of a stanza.
+	 */
+	private List<Line> getTermLines() {
+		if (termLines == null) {
+			List<List<Line>> chunks = new ChunkedFileParser().parse(new File(filename), new ChunkedFileParser.ChunkHandler<List<Line>>() {
+				@Override
+				public List<Line> parse(List<String> lines) {
+					List<Line> chunkLines = new ArrayList<Line>();
+					for (String line : lines) {
+						String trimmed = line.trim();
+						if (trimmed.length() == 0) {
+							chunkLines.add(new Line(LineType.BLANK, null));
+						} else if (trimmed.equals(TERM_LINE)) {
+							chunkLines.add(new Line(LineType.TERM, null));
+						} else if (line.startsWith(ID_LINE)) {
+							chunkLines.add(new Line(LineType.ID, line.substring(ID_START, line.length()).trim()));
+						} else if (line.startsWith(NAME_LINE)) {
+							chunkLines.add(new Line(LineType.NAME, line.substring(NAME_START, line.length()).trim()));
+						} else if (line.startsWith(SYNONYM_LINE)) {
+							chunkLines.add(new Line(LineType.SYNONYM, line.substring(SYNONYM_START, line.length()).trim()));
+						}
+					}
+					return chunkLines;
 				}
-				String id = null;
-				if (line != null) {
-					// Get past [Term]
-					line = reader.readLine();
-					while (line != null && line.trim().length() > 0) {
-						// Handle lines
-						if (line.startsWith(ID_LINE)) {
-							id = line.substring(ID_START, line.length()).trim();
-							lexiconMappings.addIdentifier(id, entityType, true);
-							logger.trace("Adding identifier \"" + id + "\"");
+			});
+			termLines = new ArrayList<Line>();
+			boolean inTerm = false;
+			for (List<Line> chunk : chunks) {
+				for (Line line : chunk) {
+					if (!inTerm) {
+						// Advance to [Term], keeping it to mark the start of the stanza
+						if (line.type == LineType.TERM) {
+							inTerm = true;
+							termLines.add(line);
 						}
-						line = reader.readLine();
+					} else if (line.type == LineType.BLANK) {
+						inTerm = false;
+					} else if (line.type != LineType.TERM) {
+						termLines.add(line);
 					}
 				}
 			}
-			reader.close();
-			reader = null;
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		}
+		return termLines;
+	}
+
+	@Override
+	public void loadIdentifiers(LexiconMappings lexiconMappings) {
+		for (Line line : getTermLines()) {
+			if (line.type == LineType.ID) {
+				lexiconMappings.addIdentifier(line.text, entityType, true);
+				logger.trace("Adding identifier \"" + line.text + "\"");
+			}
 		}
 	}
 
@@ -86,45 +106,34 @@ public class OBOLexiconMappingsLoader implements LexiconMappingsLoader {
 
 	@Override
 	public void loadNames(LexiconMappings lexiconMappings) {
-		try {
-			BufferedReader reader = null;
-			if (filename.endsWith(".gz")) {
-				reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename)), T1Constants.UTF8_FORMAT));
-			} else {
-				reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), T1Constants.UTF8_FORMAT));
+		String id = null;
+		for (Line line : getTermLines()) {
+			if (line.type == LineType.TERM) {
+				id = null;
+			} else if (line.type == LineType.ID) {
+				id = line.text;
+			} else if (line.type == LineType.NAME) {
+				logger.trace("Adding name term \"" + line.text + "\" to " + id);
+				lexiconMappings.addTerm(id, line.text, true);
+			} else if (line.type == LineType.SYNONYM) {
+				logger.trace("Adding synonym term \"" + line.text + "\" to " + id);
+				lexiconMappings.addTerm(id, line.text, false);
 			}
-			String line = reader.readLine();
-			while (line != null) {
-				// Advance to [Term]
-				while (line != null && !line.trim().equals("[Term]")) {
-					line = reader.readLine();
-				}
-				String id = null;
-				if (line != null) {
-					// Get past [Term]
-					line = reader.readLine();
-					while (line != null && line.trim().length() > 0) {
-						// Handle lines
-						if (line.startsWith(ID_LINE)) {
-							id = line.substring(ID_START, line.length()).trim();
-						} else if (line.startsWith(NAME_LINE)) {
-							String termStr = line.substring(NAME_START, line.length()).trim();
-							logger.trace("Adding name term \"" + termStr + "\" to " + id);
-							lexiconMappings.addTerm(id, termStr, true);
-						} else if (line.startsWith(SYNONYM_LINE)) {
-							String termStr = line.substring(SYNONYM_START, line.length()).trim();
-							logger.trace("Adding synonym term \"" + termStr + "\" to " + id);
-							lexiconMappings.addTerm(id, termStr, false);
-						}
-						line = reader.readLine();
-					}
-				}
-			}
-			reader.close();
-			reader = null;
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		}
+		termLines = null;
+	}
+
+	private enum LineType {
+		TERM, BLANK, ID, NAME, SYNONYM;
+	}
+
+	private static class Line {
+		LineType type;
+		String text;
+
+		public Line(LineType type, String text) {
+			this.type = type;
+			this.text = text;
 		}
 	}
 
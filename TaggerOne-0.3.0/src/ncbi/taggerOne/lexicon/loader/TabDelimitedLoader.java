@@ -1,23 +1,23 @@
 package ncbi.taggerOne.lexicon.loader;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.lexicon.LexiconMappings;
+import ncbi.util.ChunkedFileParser;
 
 public class TabDelimitedLoader implements LexiconMappingsLoader {
 
 	private static final Logger logger = LoggerFactory.getLogger(TabDelimitedLoader.class);
 
 	private String lexiconFilename;
+	private List<Record> records;
 
 	/*
 	 * This lexicon format is intended for user-defined data and therefore loads the data exactly as provided. The file format is: Type \t Identifier \t Name | Name ... Identifiers may appear on more than one line. The first name listed for
@@ -33,6 +33,7 @@ public class TabDelimitedLoader implements LexiconMappingsLoader {
 			throw new IllegalArgumentException("TabDelimitedLoader must have one argument: lexiconFilename");
 		}
 		this.lexiconFilename = args[1];
+		records = null;
 	}
 
 	private void checkArgs() {
@@ -41,58 +42,50 @@ public class TabDelimitedLoader implements LexiconMappingsLoader {
 		}
 	}
 
+	private List<Record> getRecords() {
+		// The file is read once and the parsed records are kept until loadNames() is called
+		if (records == null) {
+			List<List<Record>> chunks = new ChunkedFileParser().parse(new File(lexiconFilename), new ChunkedFileParser.ChunkHandler<List<Record>>() {
+				@Override
+				public List<Record> parse(List<String> lines) {
+					List<Record> chunkRecords = new ArrayList<Record>(lines.size());
+					for (String line : lines) {
+						line = line.trim();
+						if (!line.startsWith("#")) {
+							String[] fields = line.split("\t");
+							chunkRecords.add(new Record(fields[0], fields[1], fields[2].split("\\|")));
+						}
+					}
+					return chunkRecords;
+				}
+			});
+			records = new ArrayList<Record>();
+			for (List<Record> chunk : chunks) {
+				records.addAll(chunk);
+			}
+		}
+		return records;
+	}
+
 	@Override
 	public Set<String> getNamespaceSet() {
 		checkArgs();
-		try {
-			Set<String> namespaces = new HashSet<String>();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					String[] fields = line.split("\t");
-					String identifier = fields[1]; // ID
-					String[] split = identifier.split(":");
-					namespaces.add(split[0]);
-				}
-				line = reader.readLine();
-			}
-			reader.close();
-			return namespaces;
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		Set<String> namespaces = new HashSet<String>();
+		for (Record record : getRecords()) {
+			String[] split = record.id.split(":");
+			namespaces.add(split[0]);
 		}
+		return namespaces;
 	}
 
 	@Override
 	public void loadIdentifiers(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					// logger.info("LINE1: " + line);
-					String[] fields = line.split("\t");
-
-					String entityType = fields[0]; // Entity type
-					String id = fields[1]; // ID
-
-					// Adds the identifier as the specified type
-					// Readding as same type is ok
-					// Throws error if adding as a different type
-					lexiconMappings.addIdentifier(id, entityType, true);
-				}
-				line = reader.readLine();
-			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		for (Record record : getRecords()) {
+			// Adds the identifier as the specified type
+			// Readding as same type is ok
+			// Throws error if adding as a different type
+			lexiconMappings.addIdentifier(record.id, record.entityType, true);
 		}
 	}
 
@@ -104,32 +97,26 @@ public class TabDelimitedLoader implements LexiconMappingsLoader {
 	@Override
 	public void loadNames(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			Set<String> hasPrimaryName = new HashSet<String>();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), T1Constants.UTF8_FORMAT));
-			String line = reader.readLine();
-			while (line != null) {
-				line = line.trim();
-				if (!line.startsWith("#")) {
-					// logger.info("LINE2: " + line);
-					String[] fields = line.split("\t");
-
-					String id = fields[1]; // ID
-
-					// Get names
-					String[] names = fields[2].split("\\|");
-					for (int nameIndex = 0; nameIndex < names.length; nameIndex++) {
-						boolean added = hasPrimaryName.add(id);
-						logger.trace("Adding name " + names[nameIndex] + " to ID " + id);
-						lexiconMappings.addTerm(id, names[nameIndex], added);
-					}
-				}
-				line = reader.readLine();
+		Set<String> hasPrimaryName = new HashSet<String>();
+		for (Record record : getRecords()) {
+			for (int nameIndex = 0; nameIndex < record.names.length; nameIndex++) {
+				boolean added = hasPrimaryName.add(record.id);
+				logger.trace("Adding name " + record.names[nameIndex] + " to ID " + record.id);
+				lexiconMappings.addTerm(record.id, record.names[nameIndex], added);
 			}
-			reader.close();
-		} catch (IOException e) {
-			// TODO Improve error handling
-			throw new RuntimeException(e);
+		}
+		records = null;
+	}
+
+	private static class Record {
+		String entityType;
+		String id;
+		String[] names;
+
+		public Record(String entityType, String id, String[] names) {
+			this.entityType = entityType;
+			this.id = id;
+			this.names = names;
 		}
 	}
 }
@@ -1,28 +1,29 @@
 package ncbi.taggerOne.lexicon.loader;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.lexicon.LexiconMappings;
+import ncbi.util.ChunkedFileParser;
 import ncbi.util.Profiler;
 import ncbi.util.StaticUtilMethods;
 
 public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMappingsLoader {
+	private static final Profiler.Probe preloadProbe = Profiler.probe("UMLSMetaThesaurus2013AALexiconMappingsLoader.preload()");
+	private static final Profiler.Probe loadIdentifiersProbe = Profiler.probe("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifiers()");
+	private static final Profiler.Probe loadIdentifierEquivalenciesProbe = Profiler.probe("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifierEquivalencies()");
+	private static final Profiler.Probe loadNamesProbe = Profiler.probe("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadNames()");
+
 	// FIXME Upgrade to 2015AA
 	// Note that this class is designed to add term variants in the UMLS to a set of existing identifiers and mappings
 
@@ -36,6 +37,7 @@ public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMapp
 
 	private Map<String, String> cuiToLexiconIdentifier;
 	private Map<String, String> cuiToLexiconType;
+	private List<String[]> cuiNames;
 
 	public UMLSMetaThesaurus2013AALexiconMappingsLoader() {
 		// Empty
@@ -102,61 +104,97 @@ public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMapp
 	// C0000039|T119|||||
 	// C0000039|T121|||||
 
-	private void preload(LexiconMappings lexiconMappings) {
-		try {
-			Profiler.start("UMLSMetaThesaurus2013AALexiconMappingsLoader.preload()");
-			cuiToLexiconIdentifier = new HashMap<String, String>();
-			cuiToLexiconType = new HashMap<String, String>();
-			MultiFileReader reader = new MultiFileReader(conceptNamesFolder, "MRCONSO.RRF");
-			String line = reader.readLine();
-			int lineNum = 0;
-			LineFieldParser parser = new LineFieldParser();
-			while (line != null) {
-				parser.init(line);
-				String CUI = parser.getField(0);
-				boolean add = true;
-				add &= (allowedLang == null) || (allowedLang.contains(parser.getField(1))); // Language
-				add &= (allowedPref == null) || (allowedPref.contains(parser.getField(6))); // Preferred
-				String SDUI = parser.getField(10); // "Source asserted descriptor identifier"
-				String SAB = parser.getField(11); // "Source abbreviation"
-				String CODE = parser.getField(13); // "Unique Identifier or code for string in source"
-				add &= (allowedSupp == null) || (allowedSupp.contains(parser.getField(16))); // Suppressed
-				if (add) {
-					String identifier = getFullIdentifier(SAB, SDUI);
-					if (identifier != null) {
-						String entityType = lexiconMappings.getIdentifierType(identifier);
-						if (entityType != null) {
-							cuiToLexiconIdentifier.put(CUI, identifier);
-							cuiToLexiconType.put(CUI, entityType);
-						}
+	/*
+	 * Reads MRCONSO once, in parallel chunks, creating the CUI mappings and keeping the names of the CUIs that may be mapped. MRCONSO is sorted by CUI, so all rows for a CUI are within one chunk unless the CUI is the first or last in
+	 * the chunk. Names are therefore kept only for CUIs mapped within the chunk and for the first and last CUIs. If the files turn out not to be sorted, the names are instead read by a second pass in loadNames().
+	 */
+	private void preload(final LexiconMappings lexiconMappings) {
+		preloadProbe.start();
+		List<ChunkResult> chunks = new ChunkedFileParser().parse(getConceptNameFiles(), new ChunkedFileParser.ChunkHandler<ChunkResult>() {
+			@Override
+			public ChunkResult parse(List<String> lines) {
+				ChunkResult result = new ChunkResult();
+				List<String[]> names = new ArrayList<String[]>();
+				LineFieldParser parser = new LineFieldParser();
+				for (String line : lines) {
+					if (line.length() == 0) {
+						continue;
 					}
-					identifier = getFullIdentifier(SAB, CODE);
-					if (identifier != null) {
-						String entityType = lexiconMappings.getIdentifierType(identifier);
-						if (entityType != null) {
-							cuiToLexiconIdentifier.put(CUI, identifier);
-							cuiToLexiconType.put(CUI, entityType);
-						}
+					parser.init(line);
+					String CUI = parser.getField(0);
+					result.addCUI(CUI);
+					boolean add = true;
+					add &= (allowedLang == null) || (allowedLang.contains(parser.getField(1))); // Language
+					add &= (allowedPref == null) || (allowedPref.contains(parser.getField(6))); // Preferred
+					String SDUI = parser.getField(10); // "Source asserted descriptor identifier"
+					String SAB = parser.getField(11); // "Source abbreviation"
+					String CODE = parser.getField(13); // "Unique Identifier or code for string in source"
+					String STR = parser.getField(14); // String (the actual term)
+					add &= (allowedSupp == null) || (allowedSupp.contains(parser.getField(16))); // Suppressed
+					if (add) {
+						result.map(CUI, getFullIdentifier(SAB, SDUI), lexiconMappings);
+						result.map(CUI, getFullIdentifier(SAB, CODE), lexiconMappings);
+						names.add(new String[] { CUI, STR });
 					}
 				}
-				line = reader.readLine();
-				lineNum++;
-				if (lineNum % 1000000 == 0) {
-					logger.info("preload() Line: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size()); // TODO Modify this output to look more like
+				for (String[] name : names) {
+					if (result.cuiToIdentifier.containsKey(name[0]) || name[0].equals(result.firstCUI) || name[0].equals(result.lastCUI)) {
+						result.names.add(name);
+					}
 				}
+				return result;
 			}
-			reader.close();
-			Profiler.stop("UMLSMetaThesaurus2013AALexiconMappingsLoader.preload()");
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		});
+		cuiToLexiconIdentifier = new HashMap<String, String>();
+		cuiToLexiconType = new HashMap<String, String>();
+		cuiNames = new ArrayList<String[]>();
+		boolean sorted = true;
+		String previousCUI = null;
+		int lineNum = 0;
+		for (ChunkResult chunk : chunks) {
+			// Later rows replace earlier ones, as when reading sequentially
+			cuiToLexiconIdentifier.putAll(chunk.cuiToIdentifier);
+			cuiToLexiconType.putAll(chunk.cuiToType);
+			cuiNames.addAll(chunk.names);
+			sorted &= chunk.sorted;
+			if (chunk.firstCUI != null) {
+				sorted &= previousCUI == null || previousCUI.compareTo(chunk.firstCUI) <= 0;
+				previousCUI = chunk.lastCUI;
+			}
+			lineNum += chunk.lines;
+		}
+		logger.info("preload() Lines: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size());
+		if (!sorted) {
+			logger.warn("Concept names in " + conceptNamesFolder + " are not sorted by CUI; names will be loaded with a second pass");
+			cuiNames = null;
 		}
+		preloadProbe.stop();
+	}
+
+	private List<File> getConceptNameFiles() {
+		File dir = new File(conceptNamesFolder);
+		File[] filesArray = dir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith("MRCONSO.RRF");
+			}
+		});
+		if (filesArray == null) {
+			throw new IllegalArgumentException("Cannot read concept names folder " + conceptNamesFolder);
+		}
+		List<File> files = Arrays.asList(filesArray);
+		Collections.sort(files);
+		for (File file : files) {
+			logger.info("Reading from file " + file.getAbsolutePath());
+		}
+		return files;
 	}
 
 	@Override
 	public void loadIdentifiers(LexiconMappings lexiconMappings) {
 		checkArgs();
 		preload(lexiconMappings);
-		Profiler.start("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifiers()");
+		loadIdentifiersProbe.start();
 		int lineNum = 0;
 		for (String cui : cuiToLexiconIdentifier.keySet()) {
 			String entityType = cuiToLexiconType.get(cui);
@@ -166,7 +204,7 @@ public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMapp
 				logger.info("loadIdentifiers() Line: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size()); // TODO Modify this output to look more like
 			}
 		}
-		Profiler.stop("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifiers()");
+		loadIdentifiersProbe.stop();
 	}
 
 	private static String getFullIdentifier(String namespace, String identifier) {
@@ -194,7 +232,7 @@ public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMapp
 	@Override
 	public void loadIdentifierEquivalencies(LexiconMappings lexiconMappings) {
 		checkArgs();
-		Profiler.start("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifierEquivalencies()");
+		loadIdentifierEquivalenciesProbe.start();
 		int lineNum = 0;
 		for (String cui : cuiToLexiconIdentifier.keySet()) {
 			String identifier = cuiToLexiconIdentifier.get(cui);
@@ -204,111 +242,87 @@ public class UMLSMetaThesaurus2013AALexiconMappingsLoader implements LexiconMapp
 				logger.info("loadIdentifierEquivalencies() Line: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size()); // TODO Modify this output to look more like
 			}
 		}
-		Profiler.stop("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadIdentifierEquivalencies()");
+		loadIdentifierEquivalenciesProbe.stop();
 	}
 
 	@Override
 	public void loadNames(LexiconMappings lexiconMappings) {
 		checkArgs();
-		try {
-			Profiler.start("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadNames()");
-			MultiFileReader reader = new MultiFileReader(conceptNamesFolder, "MRCONSO.RRF");
-			String line = reader.readLine();
-			int lineNum = 0;
-			LineFieldParser parser = new LineFieldParser();
-			while (line != null) {
-				parser.init(line);
-				String CUI = parser.getField(0);
-				boolean add = cuiToLexiconIdentifier.containsKey(CUI);
-				add &= (allowedLang == null) || (allowedLang.contains(parser.getField(1))); // Language
-				add &= (allowedPref == null) || (allowedPref.contains(parser.getField(6))); // Preferred
-				String STR = parser.getField(14); // String (the actual term)
-				add &= (allowedSupp == null) || (allowedSupp.contains(parser.getField(16))); // Suppressed
-				if (add) {
-					String primaryIdentifier = UMLS_METATHESAURUS_NAMESPACE + ":" + CUI;
-					lexiconMappings.addTerm(primaryIdentifier, STR, false); // TODO How to handle preferences?
-				}
-				line = reader.readLine();
+		loadNamesProbe.start();
+		if (cuiNames == null) {
+			cuiNames = readNames();
+		}
+		int lineNum = 0;
+		for (String[] name : cuiNames) {
+			if (cuiToLexiconIdentifier.containsKey(name[0])) {
+				String primaryIdentifier = UMLS_METATHESAURUS_NAMESPACE + ":" + name[0];
+				lexiconMappings.addTerm(primaryIdentifier, name[1], false); // TODO How to handle preferences?
 				lineNum++;
-				if (lineNum % 100000 == 0) {
-					logger.info("loadNames() Line: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size()); // TODO Modify this output to look more like
-				}
 			}
-			reader.close();
-			Profiler.stop("UMLSMetaThesaurus2013AALexiconMappingsLoader.loadNames()");
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
+		logger.info("loadNames() Names: " + lineNum + " Entries: " + cuiToLexiconIdentifier.size());
+		cuiNames = null;
+		loadNamesProbe.stop();
 	}
 
-	private class MultiFileReader {
-		private List<File> files;
-		private BufferedReader currentReader;
-		private int currentFile;
-		private String currentLine;
-
-		public MultiFileReader(String folder, String filename) throws IOException {
-			final String filter = filename;
-			File dir = new File(folder);
-			File[] filesArray = dir.listFiles(new FilenameFilter() {
-				@Override
-				public boolean accept(File dir, String name) {
-					return name.startsWith(filter);
-				}
-			});
-			files = Arrays.asList(filesArray);
-			Collections.sort(files);
-			currentFile = -1;
-			incrementFile();
-		}
-
-		public String readLine() throws IOException {
-			String nextLine = null;
-			if (currentReader != null) {
-				nextLine = currentReader.readLine();
-				if (nextLine == null) {
-					// Handle end of file
-					// TODO This assumes that the last line in a file will always be concatenated with the first line of the next file
-					String partialLine = currentLine;
-					incrementFile();
-					if (currentReader != null) {
-						currentLine = partialLine + currentLine;
-						nextLine = currentReader.readLine();
-					} else {
-						currentLine = partialLine + currentLine;
+	private List<String[]> readNames() {
+		List<List<String[]>> chunks = new ChunkedFileParser().parse(getConceptNameFiles(), new ChunkedFileParser.ChunkHandler<List<String[]>>() {
+			@Override
+			public List<String[]> parse(List<String> lines) {
+				List<String[]> names = new ArrayList<String[]>();
+				LineFieldParser parser = new LineFieldParser();
+				for (String line : lines) {
+					if (line.length() == 0) {
+						continue;
+					}
+					parser.init(line);
+					String CUI = parser.getField(0);
+					boolean add = cuiToLexiconIdentifier.containsKey(CUI);
+					add &= (allowedLang == null) || (allowedLang.contains(parser.getField(1))); // Language
+					add &= (allowedPref == null) || (allowedPref.contains(parser.getField(6))); // Preferred
+					String STR = parser.getField(14); // String (the actual term)
+					add &= (allowedSupp == null) || (allowedSupp.contains(parser.getField(16))); // Suppressed
+					if (add) {
+						names.add(new String[] { CUI, STR });
 					}
 				}
+				return names;
 			}
-			String returnLine = currentLine;
-			currentLine = nextLine;
-			return returnLine;
+		});
+		List<String[]> names = new ArrayList<String[]>();
+		for (List<String[]> chunk : chunks) {
+			names.addAll(chunk);
 		}
+		return names;
+	}
 
-		private void incrementFile() throws IOException {
-			if (currentReader != null) {
-				currentReader.close();
-				currentReader = null;
-			}
-			currentFile++;
-			if (currentFile < files.size()) {
-				String filename = files.get(currentFile).getCanonicalPath();
-				logger.info("Reading from file " + filename);
-				if (filename.endsWith(".gz")) {
-					currentReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename)), T1Constants.UTF8_FORMAT));
-				} else {
-					currentReader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), T1Constants.UTF8_FORMAT));
-				}
-				currentLine = currentReader.readLine();
+	private static class ChunkResult {
+		Map<String, String> cuiToIdentifier = new HashMap<String, String>();
+		Map<String, String> cuiToType = new HashMap<String, String>();
+		List<String[]> names = new ArrayList<String[]>();
+		String firstCUI;
+		String lastCUI;
+		boolean sorted = true;
+		int lines;
+
+		public void addCUI(String CUI) {
+			if (firstCUI == null) {
+				firstCUI = CUI;
+			} else {
+				sorted &= lastCUI.compareTo(CUI) <= 0;
 			}
+			lastCUI = CUI;
+			lines++;
 		}
 
-		public void close() throws IOException {
-			if (currentReader != null) {
-				currentReader.close();
-				currentReader = null;
+		public void map(String CUI, String identifier, LexiconMappings lexiconMappings) {
+			if (identifier != null) {
+				String entityType = lexiconMappings.getIdentifierType(identifier);
+				if (entityType != null) {
+					cuiToIdentifier.put(CUI, identifier);
+					cuiToType.put(CUI, entityType);
+				}
 			}
-			files = null;
-			currentLine = null;
 		}
 	}
 
@@ -6,6 +6,7 @@ import java.util.List;
 
 import ncbi.taggerOne.lexicon.Index;
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.ParameterSnapshot;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
 import ncbi.taggerOne.util.matrix.Matrix;
@@ -17,6 +18,11 @@ import ncbi.util.Profiler;
 public class AveragedNormalizationModel extends NormalizationModel {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe visualizeScoreProbe = Profiler.probe("AveragedNormalizationModel.visualizeScore()");
+	private static final Profiler.Probe getScoreBoundProbe = Profiler.probe("AveragedNormalizationModel.getScoreBound()");
+	private static final Profiler.Probe convertMentionVectorToNameVectorEquivalentProbe = Profiler.probe("AveragedNormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+	private static final Profiler.Probe scoreProbe = Profiler.probe("AveragedNormalizationModel.score()");
+	private static final Profiler.Probe updateProbe = Profiler.probe("AveragedNormalizationModel.update()");
 
 	protected double[] cosineSimWeight2;
 	protected DenseBySparseMatrix<String, String> weights2;
@@ -44,7 +50,8 @@ public class AveragedNormalizationModel extends NormalizationModel {
 		return new NormalizationModel(index, mentionVectorSpace, nameVectorSpace, cosineSimWeight, weights, trainingProgress);
 	}
 
-	public NormalizationModelPredictor compile() {
+	@Override
+	public DenseBySparseMatrix<String, String> getCompiledWeights() {
 		DenseBySparseMatrix<String, String> compiledWeights = new DenseBySparseMatrix<String, String>(mentionVectorSpace, nameVectorSpace);
 		double factor = -1.0 / trainingProgress.getInstances();
 		compiledWeights.increment(weights);
@@ -56,7 +63,7 @@ public class AveragedNormalizationModel extends NormalizationModel {
 				compiledWeights.set(mentionIndex, nameIndex, weight);
 			}
 		}
-		return new CompiledNormalizationModel(index, mentionVectorSpace, nameVectorSpace, compiledWeights);
+		return compiledWeights;
 	}
 
 	// TODO update the API to specify different forms of compile
@@ -71,7 +78,7 @@ public class AveragedNormalizationModel extends NormalizationModel {
 	}
 
 	public void visualizeScore(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("AveragedNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.start();
 		double factor = -1.0 / trainingProgress.getInstances();
 		List<String> scoreLines = new ArrayList<String>();
 		if (mentionVectorSpace != null && nameVectorSpace != null && mentionVector != null) {
@@ -101,12 +108,12 @@ public class AveragedNormalizationModel extends NormalizationModel {
 		for (String line : scoreLines) {
 			System.out.println(line);
 		}
-		Profiler.stop("AveragedNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.stop();
 	}
 
 	@Override
 	public double getScoreBound(Vector<String> mentionVector) {
-		Profiler.start("AveragedNormalizationModel.getScoreBound()");
+		getScoreBoundProbe.start();
 		if (mentionVector == null) {
 			return 0.0;
 		}
@@ -123,7 +130,7 @@ public class AveragedNormalizationModel extends NormalizationModel {
 			}
 		}
 
-		Profiler.stop("AveragedNormalizationModel.getScoreBound()");
+		getScoreBoundProbe.stop();
 		return scoreBound;
 	}
 
@@ -138,7 +145,7 @@ public class AveragedNormalizationModel extends NormalizationModel {
 	}
 
 	protected Vector<String> convertMentionVectorToNameVectorEquivalent(Vector<String> mentionVector) {
-		Profiler.start("AveragedNormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.start();
 		SparseVector<String> nameVectorEquivalent = new SparseVector<String>(nameVectorSpace);
 		// Converts a mention vector to a name vector
 		double factor = -1.0 / trainingProgress.getInstances();
@@ -162,13 +169,13 @@ public class AveragedNormalizationModel extends NormalizationModel {
 				nameVectorEquivalent.increment(factor * mentionValue, nameVector);
 			}
 		}
-		Profiler.stop("AveragedNormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.stop();
 		return nameVectorEquivalent;
 	}
 
 	@Override
 	protected double score(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("AveragedNormalizationModel.score()");
+		scoreProbe.start();
 		double factor = -1.0 / trainingProgress.getInstances();
 		double score = 0.0;
 		VectorIterator mentionIterator = mentionVector.getIterator();
@@ -188,18 +195,32 @@ public class AveragedNormalizationModel extends NormalizationModel {
 				}
 			}
 		}
-		Profiler.stop("AveragedNormalizationModel.score()");
+		scoreProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void update(double cosineSimWeight, Matrix<String, String> weightUpdates) {
-		Profiler.start("AveragedNormalizationModel.update()");
+		updateProbe.start();
 		int instances = trainingProgress.getInstances();
 		this.cosineSimWeight[0] += cosineSimWeight;
 		this.cosineSimWeight2[0] += instances * cosineSimWeight;
 		weights.increment(weightUpdates);
 		weights2.increment(instances, weightUpdates);
-		Profiler.stop("AveragedNormalizationModel.update()");
+		updateProbe.stop();
+	}
+
+	@Override
+	public void captureParameters(String prefix, ParameterSnapshot snapshot) {
+		super.captureParameters(prefix, snapshot);
+		snapshot.putDense(prefix + ".cosineSimWeight2", cosineSimWeight2.clone());
+		snapshot.capture(prefix + ".weights2", weights2);
+	}
+
+	@Override
+	public void restoreParameters(String prefix, ParameterSnapshot snapshot) {
+		super.restoreParameters(prefix, snapshot);
+		cosineSimWeight2[0] = snapshot.getDense(prefix + ".cosineSimWeight2")[0];
+		snapshot.restore(prefix + ".weights2", weights2);
 	}
 }
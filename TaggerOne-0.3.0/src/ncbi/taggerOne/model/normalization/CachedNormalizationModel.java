@@ -1,16 +1,32 @@
 package ncbi.taggerOne.model.normalization;
 
+import ncbi.taggerOne.processing.DocumentTrace;
 import ncbi.taggerOne.types.Entity;
 import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.util.LRUCache;
 import ncbi.taggerOne.util.RankedList;
 import ncbi.taggerOne.util.matrix.Matrix;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
-public class CachedNormalizationModel implements NormalizationModelPredictor, NormalizationModelUpdater {
+public class CachedNormalizationModel implements NormalizationModelPredictor, NormalizationModelUpdater, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe getScoreBoundWrappedProbe = Profiler.probe("CachedNormalizationModel.getScoreBound()@wrapped");
+	private static final Profiler.Probe getScoreBoundCacheProbe = Profiler.probe("CachedNormalizationModel.getScoreBound()@cache");
+	private static final Profiler.Probe findBestWrappedProbe = Profiler.probe("CachedNormalizationModel.findBest()@wrapped");
+	private static final Profiler.Probe findBestExpandProbe = Profiler.probe("CachedNormalizationModel.findBest()@expand");
+	private static final Profiler.Probe findBestCacheProbe = Profiler.probe("CachedNormalizationModel.findBest()@cache");
+
+	private static final MetricFamily<Counter> CACHE_REQUESTS = Metrics.counterFamily("taggerone_normalization_cache_requests_total", "Normalization cache lookups by findBest(), by result", "result");
+	private static final Counter cacheHits = CACHE_REQUESTS.get("hit");
+	private static final Counter cacheMisses = CACHE_REQUESTS.get("miss");
+	private static final Counter cacheExpansions = CACHE_REQUESTS.get("expand");
 
 	private NormalizationModelPredictor wrappedPredictor;
 	private NormalizationModelUpdater wrappedUpdater;
@@ -50,6 +66,11 @@ public class CachedNormalizationModel implements NormalizationModelPredictor, No
 		return cache.getMaxSize();
 	}
 
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(3, 0) + MemoryAccounting.sizeOf(wrappedPredictor) + cache.getEstimatedBytes();
+	}
+
 	@Override
 	public void update(double cosineSimWeight, Matrix<String, String> weights) {
 		cache.clear();
@@ -63,13 +84,13 @@ public class CachedNormalizationModel implements NormalizationModelPredictor, No
 		RankedList<Entity> cachedEntities = cache.get(mentionVector);
 		if (cachedEntities == null) {
 			// TODO PERFORMANCE Add a cache for the scoreBound times
-			Profiler.start("CachedNormalizationModel.getScoreBound()@wrapped");
+			getScoreBoundWrappedProbe.start();
 			highest = wrappedPredictor.getScoreBound(mentionVector);
-			Profiler.stop("CachedNormalizationModel.getScoreBound()@wrapped");
+			getScoreBoundWrappedProbe.stop();
 		} else {
-			Profiler.start("CachedNormalizationModel.getScoreBound()@cache");
+			getScoreBoundCacheProbe.start();
 			highest = cachedEntities.getValue(0);
-			Profiler.stop("CachedNormalizationModel.getScoreBound()@cache");
+			getScoreBoundCacheProbe.stop();
 		}
 		return highest;
 	}
@@ -92,21 +113,28 @@ public class CachedNormalizationModel implements NormalizationModelPredictor, No
 	public void findBest(Vector<String> mentionVector, RankedList<Entity> bestEntities) {
 		RankedList<Entity> cachedEntities = cache.get(mentionVector);
 		if (cachedEntities == null) {
-			Profiler.start("CachedNormalizationModel.findBest()@wrapped");
+			cacheMisses.increment();
+			findBestWrappedProbe.start();
 			wrappedPredictor.findBest(mentionVector, bestEntities);
 			cache.put(mentionVector, bestEntities);
-			Profiler.stop("CachedNormalizationModel.findBest()@wrapped");
+			findBestWrappedProbe.stop();
 		} else if (cachedEntities.maxSize() < bestEntities.maxSize()) {
-			Profiler.start("CachedNormalizationModel.findBest()@expand");
+			cacheExpansions.increment();
+			findBestExpandProbe.start();
 			wrappedPredictor.findBest(mentionVector, bestEntities);
 			cache.put(mentionVector, bestEntities);
-			Profiler.stop("CachedNormalizationModel.findBest()@expand");
+			findBestExpandProbe.stop();
 		} else {
-			Profiler.start("CachedNormalizationModel.findBest()@cache");
+			cacheHits.increment();
+			DocumentTrace trace = DocumentTrace.current();
+			if (trace != null) {
+				trace.countCacheHit();
+			}
+			findBestCacheProbe.start();
 			for (int i = 0; i < cachedEntities.size(); i++) {
 				bestEntities.add(cachedEntities.getValue(i), cachedEntities.getObject(i));
 			}
-			Profiler.stop("CachedNormalizationModel.findBest()@cache");
+			findBestCacheProbe.stop();
 		}
 	}
 
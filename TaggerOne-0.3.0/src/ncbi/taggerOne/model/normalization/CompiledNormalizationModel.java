@@ -15,11 +15,32 @@ import ncbi.taggerOne.util.vector.DenseVector;
 import ncbi.taggerOne.util.vector.SparseVector;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
-public class CompiledNormalizationModel implements NormalizationModelPredictor {
+public class CompiledNormalizationModel implements NormalizationModelPredictor, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe convertNameVectorToNameScoresProbe = Profiler.probe("CompiledNormalizationModel.convertNameVectorToNameScores()");
+	private static final Profiler.Probe getHighestScoreProbe = Profiler.probe("CompiledNormalizationModel.getHighestScore()");
+	private static final Profiler.Probe findBestProbe = Profiler.probe("CompiledNormalizationModel.findBest()");
+	private static final Profiler.Probe fastPathProbe = Profiler.probe("CompiledNormalizationModel.findBest()@FAST");
+	private static final Profiler.Probe accumulateScoresProbe = Profiler.probe("CompiledNormalizationModel.findBest()@1");
+	private static final Profiler.Probe rankNameVectorsProbe = Profiler.probe("CompiledNormalizationModel.findBest()@2");
+	private static final Profiler.Probe findBestNameProbe = Profiler.probe("CompiledNormalizationModel.findBestName()");
+	private static final Profiler.Probe scoreEntityProbe = Profiler.probe("CompiledNormalizationModel.scoreEntity()");
+	private static final Profiler.Probe scoreNameVectorProbe = Profiler.probe("CompiledNormalizationModel.scoreNameVector()");
+	private static final Profiler.Probe visualizeScoreProbe = Profiler.probe("CompiledNormalizationModel.visualizeScore()");
+	private static final Profiler.Probe scoreProbe = Profiler.probe("CompiledNormalizationModel.score()");
+
+	// Shared with LowMemCompiledNormalizationModel
+	static final MetricFamily<Counter> FIND_BEST_PATHS = Metrics.counterFamily("taggerone_normalization_find_best_total", "Calls to findBest() on a compiled normalization model, by whether the single token fast path was taken", "path");
+	static final Counter findBestFastCount = FIND_BEST_PATHS.get("fast");
+	static final Counter findBestFullCount = FIND_BEST_PATHS.get("full");
 
 	private Index index;
 	private Dictionary<String> mentionVectorSpace;
@@ -37,27 +58,7 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 		this.weights = weights;
 		this.index = index;
 		this.nameVectorDictionary = index.getNameVectorDictionary();
-		// Initialize lexiconMatrix
-		DenseBySparseMatrix<String, Vector<String>> lexiconMatrix = new DenseBySparseMatrix<String, Vector<String>>(nameVectorSpace, nameVectorDictionary);
-		for (int nameVectorIndex = 0; nameVectorIndex < nameVectorDictionary.size(); nameVectorIndex++) {
-			Vector<String> nameVector = nameVectorDictionary.getElement(nameVectorIndex);
-			VectorIterator iterator = nameVector.getIterator();
-			while (iterator.next()) {
-				int nameVectorSpaceIndex = iterator.getIndex();
-				double value = iterator.getValue();
-				lexiconMatrix.set(nameVectorSpaceIndex, nameVectorIndex, value);
-			}
-		}
-		// Initialize shortcutMatrix
-		shortcutMatrix = new DenseBySparseMatrix<String, Vector<String>>(mentionVectorSpace, nameVectorDictionary);
-		for (int mentionVectorSpaceIndex = 0; mentionVectorSpaceIndex < mentionVectorSpace.size(); mentionVectorSpaceIndex++) {
-			Vector<String> nameVectorEquivalent = weights.getRowVector(mentionVectorSpaceIndex);
-			if (nameVectorEquivalent != null) {
-				Vector<Vector<String>> nameScores = convertNameVectorToNameScores(lexiconMatrix, nameVectorEquivalent);
-				shortcutMatrix.incrementRow(mentionVectorSpaceIndex, nameScores);
-			}
-		}
-		lexiconMatrix = null;
+		shortcutMatrix = createShortcutMatrix(mentionVectorSpace, nameVectorSpace, nameVectorDictionary, weights, 0, 1);
 		// Initialize highestVector
 		this.highestVector = new DenseVector<String>(mentionVectorSpace);
 		this.indexOfHighestVector = new int[mentionVectorSpace.size()];
@@ -80,8 +81,36 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 		}
 	}
 
-	private Vector<Vector<String>> convertNameVectorToNameScores(DenseBySparseMatrix<String, Vector<String>> lexiconMatrix, Vector<String> nameVectorEquivalent) {
-		Profiler.start("CompiledNormalizationModel.convertNameVectorToNameScores()");
+	/*
+	 * Creates the matrix of scores between each mention vector space element and each name vector, using only the name vectors whose index modulo shardCount is shardIndex
+	 */
+	static DenseBySparseMatrix<String, Vector<String>> createShortcutMatrix(Dictionary<String> mentionVectorSpace, Dictionary<String> nameVectorSpace, Dictionary<Vector<String>> nameVectorDictionary,
+			DenseBySparseMatrix<String, String> weights, int shardIndex, int shardCount) {
+		// Initialize lexiconMatrix
+		DenseBySparseMatrix<String, Vector<String>> lexiconMatrix = new DenseBySparseMatrix<String, Vector<String>>(nameVectorSpace, nameVectorDictionary);
+		for (int nameVectorIndex = shardIndex; nameVectorIndex < nameVectorDictionary.size(); nameVectorIndex += shardCount) {
+			Vector<String> nameVector = nameVectorDictionary.getElement(nameVectorIndex);
+			VectorIterator iterator = nameVector.getIterator();
+			while (iterator.next()) {
+				int nameVectorSpaceIndex = iterator.getIndex();
+				double value = iterator.getValue();
+				lexiconMatrix.set(nameVectorSpaceIndex, nameVectorIndex, value);
+			}
+		}
+		// Initialize shortcutMatrix
+		DenseBySparseMatrix<String, Vector<String>> shortcutMatrix = new DenseBySparseMatrix<String, Vector<String>>(mentionVectorSpace, nameVectorDictionary);
+		for (int mentionVectorSpaceIndex = 0; mentionVectorSpaceIndex < mentionVectorSpace.size(); mentionVectorSpaceIndex++) {
+			Vector<String> nameVectorEquivalent = weights.getRowVector(mentionVectorSpaceIndex);
+			if (nameVectorEquivalent != null) {
+				Vector<Vector<String>> nameScores = convertNameVectorToNameScores(nameVectorDictionary, lexiconMatrix, nameVectorEquivalent);
+				shortcutMatrix.incrementRow(mentionVectorSpaceIndex, nameScores);
+			}
+		}
+		return shortcutMatrix;
+	}
+
+	private static Vector<Vector<String>> convertNameVectorToNameScores(Dictionary<Vector<String>> nameVectorDictionary, DenseBySparseMatrix<String, Vector<String>> lexiconMatrix, Vector<String> nameVectorEquivalent) {
+		convertNameVectorToNameScoresProbe.start();
 		SparseVector<Vector<String>> nameVectorScores = new SparseVector<Vector<String>>(nameVectorDictionary);
 		VectorIterator nameVectorSpaceIndexIterator = nameVectorEquivalent.getIterator();
 		while (nameVectorSpaceIndexIterator.next()) {
@@ -92,7 +121,7 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				nameVectorScores.increment(nameVectorSpaceValue, lexiconVector);
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.convertNameVectorToNameScores()");
+		convertNameVectorToNameScoresProbe.stop();
 		return nameVectorScores;
 	}
 
@@ -103,12 +132,12 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 
 	@Override
 	public double getScoreBound(Vector<String> mentionVector) {
-		Profiler.start("CompiledNormalizationModel.getHighestScore()");
+		getHighestScoreProbe.start();
 		double highest = 0.0;
 		if (mentionVector != null) {
 			highest = mentionVector.dotProduct(highestVector);
 		}
-		Profiler.stop("CompiledNormalizationModel.getHighestScore()");
+		getHighestScoreProbe.stop();
 		return highest;
 	}
 
@@ -120,13 +149,22 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 		return shortcutMatrix;
 	}
 
+	/*
+	 * Counts the weights, the shortcut matrix and the score bound arrays; the index and vector spaces are counted separately
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(8, 0) + weights.getEstimatedBytes() + shortcutMatrix.getEstimatedBytes() + MemoryAccounting.sizeOf(highestVector) + MemoryAccounting.array(indexOfHighestVector.length, 4);
+	}
+
 	@Override
 	public void findBest(Vector<String> mentionVector, RankedList<Entity> bestEntities) {
-		Profiler.start("CompiledNormalizationModel.findBest()");
+		findBestProbe.start();
 		double unknownScore = scoreEntity(mentionVector, index.getUnknownEntity());
 		bestEntities.add(unknownScore, index.getUnknownEntity());
 		if (mentionVector.cardinality() == 1 && bestEntities.maxSize() == 1) {
-			Profiler.start("CompiledNormalizationModel.findBest()@FAST");
+			findBestFastCount.increment();
+			fastPathProbe.start();
 			VectorIterator mentionIterator = mentionVector.getIterator();
 			mentionIterator.next();
 			int mentionIndex = mentionIterator.getIndex();
@@ -136,11 +174,12 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				Vector<String> nameVector = nameVectorDictionary.getElement(nameVectorIndex);
 				bestEntities.add(mentionValue * highestVector.get(mentionIndex), index.getEntities(nameVector).iterator().next());
 			}
-			Profiler.stop("CompiledNormalizationModel.findBest()@FAST");
-			Profiler.stop("CompiledNormalizationModel.findBest()");
+			fastPathProbe.stop();
+			findBestProbe.stop();
 			return;
 		}
-		Profiler.start("CompiledNormalizationModel.findBest()@1");
+		findBestFullCount.increment();
+		accumulateScoresProbe.start();
 		SparseVector<Vector<String>> nameVectorScores = new SparseVector<Vector<String>>(nameVectorDictionary);
 		VectorIterator mentionIterator = mentionVector.getIterator();
 		while (mentionIterator.next()) {
@@ -151,9 +190,9 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				nameVectorScores.increment(mentionValue, shortcutVector);
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.findBest()@1");
+		accumulateScoresProbe.stop();
 		// TODO PERFORMANCE 2% speedup possible if
-		Profiler.start("CompiledNormalizationModel.findBest()@2");
+		rankNameVectorsProbe.start();
 		VectorIterator nameVectorIterator = nameVectorScores.getIterator();
 		while (nameVectorIterator.next()) {
 			double score = nameVectorIterator.getValue();
@@ -166,13 +205,13 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.findBest()@2");
-		Profiler.stop("CompiledNormalizationModel.findBest()");
+		rankNameVectorsProbe.stop();
+		findBestProbe.stop();
 	}
 
 	@Override
 	public MentionName findBestName(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("CompiledNormalizationModel.findBestName()");
+		findBestNameProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -189,13 +228,13 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.findBestName()");
+		findBestNameProbe.stop();
 		return bestName;
 	}
 
 	@Override
 	public double scoreEntity(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("CompiledNormalizationModel.scoreEntity()");
+		scoreEntityProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -210,13 +249,13 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.scoreEntity()");
+		scoreEntityProbe.stop();
 		return bestScore;
 	}
 
 	@Override
 	public double scoreNameVector(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -224,13 +263,13 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 			throw new IllegalArgumentException("Name vector dimensions are not equal");
 		}
 		double score = score(mentionVector, nameVector);
-		Profiler.stop("CompiledNormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void visualizeScore(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.start();
 		List<String> scoreLines = new ArrayList<String>();
 		VectorIterator mentionIterator = mentionVector.getIterator();
 		while (mentionIterator.next()) {
@@ -252,11 +291,11 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 		for (String line : scoreLines) {
 			System.out.println(line);
 		}
-		Profiler.stop("CompiledNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.stop();
 	}
 
 	private double score(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.score()");
+		scoreProbe.start();
 		double score = 0.0;
 		VectorIterator mentionIterator = mentionVector.getIterator();
 		while (mentionIterator.next()) {
@@ -272,7 +311,7 @@ public class CompiledNormalizationModel implements NormalizationModelPredictor {
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.score()");
+		scoreProbe.stop();
 		return score;
 	}
 }
@@ -18,12 +18,24 @@ import ncbi.taggerOne.util.vector.DenseVector;
 import ncbi.taggerOne.util.vector.SparseVector;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
-public class LowMemCompiledNormalizationModel implements NormalizationModelPredictor {
+public class LowMemCompiledNormalizationModel implements NormalizationModelPredictor, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(LowMemCompiledNormalizationModel.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe getScoreBoundProbe = Profiler.probe("CompiledNormalizationModel.getScoreBound()");
+	private static final Profiler.Probe findBestProbe = Profiler.probe("CompiledNormalizationModel.findBest()");
+	private static final Profiler.Probe fastPathProbe = Profiler.probe("CompiledNormalizationModel.findBest()@FAST");
+	private static final Profiler.Probe convertMentionVectorToNameVectorEquivalentProbe = Profiler.probe("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+	private static final Profiler.Probe convertNameVectorToNameScoresProbe = Profiler.probe("CompiledNormalizationModel.convertNameVectorToNameScores()");
+	private static final Profiler.Probe findBestNameProbe = Profiler.probe("CompiledNormalizationModel.findBestName()");
+	private static final Profiler.Probe scoreEntityProbe = Profiler.probe("CompiledNormalizationModel.scoreEntity()");
+	private static final Profiler.Probe scoreNameVectorProbe = Profiler.probe("CompiledNormalizationModel.scoreNameVector()");
+	private static final Profiler.Probe visualizeScoreProbe = Profiler.probe("CompiledNormalizationModel.visualizeScore()");
+	private static final Profiler.Probe scoreProbe = Profiler.probe("CompiledNormalizationModel.score()");
 
 	protected Index index;
 
@@ -90,24 +102,36 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 		return this;
 	}
 
+	/*
+	 * Counts the weights, the lexicon matrix and the score bound arrays; the index and vector spaces are counted separately
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = MemoryAccounting.object(10, 0) + weights.getEstimatedBytes() + lexiconMatrix.getEstimatedBytes();
+		bytes += MemoryAccounting.array(cosineSimWeight.length, 8) + MemoryAccounting.array(mentionIndexToNameIndex.length, 4);
+		bytes += MemoryAccounting.sizeOf(highestVector) + MemoryAccounting.array(indexOfHighestVector.length, 4);
+		return bytes;
+	}
+
 	@Override
 	public double getScoreBound(Vector<String> mentionVector) {
-		Profiler.start("CompiledNormalizationModel.getScoreBound()");
+		getScoreBoundProbe.start();
 		double highest = 0.0;
 		if (mentionVector != null) {
 			highest = mentionVector.dotProduct(highestVector);
 		}
-		Profiler.stop("CompiledNormalizationModel.getScoreBound()");
+		getScoreBoundProbe.stop();
 		return highest;
 	}
 
 	@Override
 	public void findBest(Vector<String> mentionVector, RankedList<Entity> bestEntities) {
-		Profiler.start("CompiledNormalizationModel.findBest()");
+		findBestProbe.start();
 		double unknownScore = scoreEntity(mentionVector, index.getUnknownEntity());
 		bestEntities.add(unknownScore, index.getUnknownEntity());
 		if (mentionVector.cardinality() == 1 && bestEntities.maxSize() == 1) {
-			Profiler.start("CompiledNormalizationModel.findBest()@FAST");
+			CompiledNormalizationModel.findBestFastCount.increment();
+			fastPathProbe.start();
 			VectorIterator mentionIterator = mentionVector.getIterator();
 			mentionIterator.next();
 			int mentionIndex = mentionIterator.getIndex();
@@ -117,10 +141,11 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				Vector<String> nameVector = nameVectorDictionary.getElement(nameVectorIndex);
 				bestEntities.add(mentionValue * highestVector.get(mentionIndex), index.getEntities(nameVector).iterator().next());
 			}
-			Profiler.stop("CompiledNormalizationModel.findBest()@FAST");
-			Profiler.stop("CompiledNormalizationModel.findBest()");
+			fastPathProbe.stop();
+			findBestProbe.stop();
 			return;
 		}
+		CompiledNormalizationModel.findBestFullCount.increment();
 		Vector<String> nameVectorEquivalent = convertMentionVectorToNameVectorEquivalent(mentionVector);
 		Vector<Vector<String>> nameVectorScores = convertNameVectorToNameScores(nameVectorEquivalent);
 		VectorIterator nameVectorIterator = nameVectorScores.getIterator();
@@ -135,11 +160,11 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.findBest()");
+		findBestProbe.stop();
 	}
 
 	protected Vector<String> convertMentionVectorToNameVectorEquivalent(Vector<String> mentionVector) {
-		Profiler.start("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.start();
 		SparseVector<String> nameVectorEquivalent = new SparseVector<String>(nameVectorSpace);
 		// Converts a mention vector to a name vector
 		VectorIterator mentionIterator = mentionVector.getIterator();
@@ -157,12 +182,12 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				nameVectorEquivalent.increment(mentionValue, nameVector);
 			}
 		}
-		Profiler.stop("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.stop();
 		return nameVectorEquivalent;
 	}
 
 	private Vector<Vector<String>> convertNameVectorToNameScores(Vector<String> nameVectorEquivalent) {
-		Profiler.start("CompiledNormalizationModel.convertNameVectorToNameScores()");
+		convertNameVectorToNameScoresProbe.start();
 		DenseVector<Vector<String>> nameVectorScores = new DenseVector<Vector<String>>(nameVectorDictionary);
 		VectorIterator nameVectorSpaceIndexIterator = nameVectorEquivalent.getIterator();
 		while (nameVectorSpaceIndexIterator.next()) {
@@ -173,13 +198,13 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				nameVectorScores.increment(nameVectorSpaceValue, lexiconVector);
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.convertNameVectorToNameScores()");
+		convertNameVectorToNameScoresProbe.stop();
 		return nameVectorScores;
 	}
 
 	@Override
 	public MentionName findBestName(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("CompiledNormalizationModel.findBestName()");
+		findBestNameProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -196,13 +221,13 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.findBestName()");
+		findBestNameProbe.stop();
 		return bestName;
 	}
 
 	@Override
 	public double scoreEntity(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("CompiledNormalizationModel.scoreEntity()");
+		scoreEntityProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -217,13 +242,13 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.scoreEntity()");
+		scoreEntityProbe.stop();
 		return bestScore;
 	}
 
 	@Override
 	public double scoreNameVector(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -231,13 +256,13 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 			throw new IllegalArgumentException("Name vector dimensions are not equal");
 		}
 		double score = score(mentionVector, nameVector);
-		Profiler.stop("CompiledNormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void visualizeScore(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.start();
 		List<String> scoreLines = new ArrayList<String>();
 		if (mentionVectorSpace != null && nameVectorSpace != null && mentionVector != null) {
 			for (int i = 0; i < mentionVector.dimensions(); i++) {
@@ -261,11 +286,11 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 		for (String line : scoreLines) {
 			logger.info(line);
 		}
-		Profiler.stop("CompiledNormalizationModel.visualizeScore()");
+		visualizeScoreProbe.stop();
 	}
 
 	private double score(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("CompiledNormalizationModel.score()");
+		scoreProbe.start();
 		double score = 0.0;
 		if (mentionVector != null && nameVector != null) {
 			VectorIterator mentionIterator = mentionVector.getIterator();
@@ -286,7 +311,7 @@ public class LowMemCompiledNormalizationModel implements NormalizationModelPredi
 				}
 			}
 		}
-		Profiler.stop("CompiledNormalizationModel.score()");
+		scoreProbe.stop();
 		return score;
 	}
 }
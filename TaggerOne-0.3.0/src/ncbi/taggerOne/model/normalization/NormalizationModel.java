@@ -13,6 +13,8 @@ import org.slf4j.LoggerFactory;
 
 import ncbi.taggerOne.lexicon.Index;
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.Checkpointable;
+import ncbi.taggerOne.processing.checkpoint.ParameterSnapshot;
 import ncbi.taggerOne.types.Entity;
 import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.util.Dictionary;
@@ -25,10 +27,20 @@ import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.Vector.VectorIterator;
 import ncbi.util.Profiler;
 
-public class NormalizationModel implements NormalizationModelPredictor, NormalizationModelUpdater, Serializable {
+public class NormalizationModel implements NormalizationModelPredictor, NormalizationModelUpdater, Checkpointable, Serializable {
 
 	private static final Logger logger = LoggerFactory.getLogger(NormalizationModel.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe getScoreBoundProbe = Profiler.probe("NormalizationModel.getScoreBound()");
+	private static final Profiler.Probe findBestProbe = Profiler.probe("NormalizationModel.findBest()");
+	private static final Profiler.Probe convertMentionVectorToNameVectorEquivalentProbe = Profiler.probe("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+	private static final Profiler.Probe convertNameVectorToNameScoresProbe = Profiler.probe("NormalizationModel.convertNameVectorToNameScores()");
+	private static final Profiler.Probe findBestNameProbe = Profiler.probe("NormalizationModel.findBestName()");
+	private static final Profiler.Probe scoreEntityProbe = Profiler.probe("NormalizationModel.scoreEntity()");
+	private static final Profiler.Probe scoreNameVectorProbe = Profiler.probe("NormalizationModel.scoreNameVector()");
+	private static final Profiler.Probe visualizeScoreProbe = Profiler.probe("NormalizationModel.visualizeScore()");
+	private static final Profiler.Probe scoreProbe = Profiler.probe("NormalizationModel.score()");
+	private static final Profiler.Probe updateProbe = Profiler.probe("NormalizationModel.update()");
 
 	protected TrainingProgressTracker trainingProgress;
 	protected Index index;
@@ -92,6 +104,13 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 	}
 
 	public NormalizationModelPredictor compile() {
+		return new CompiledNormalizationModel(index, mentionVectorSpace, nameVectorSpace, getCompiledWeights());
+	}
+
+	/*
+	 * Returns the weights with the cosine similarity weight folded in, as used by the compiled predictors
+	 */
+	public DenseBySparseMatrix<String, String> getCompiledWeights() {
 		DenseBySparseMatrix<String, String> compiledWeights = new DenseBySparseMatrix<String, String>(mentionVectorSpace, nameVectorSpace);
 		compiledWeights.increment(weights);
 		for (int mentionIndex = 0; mentionIndex < mentionIndexToNameIndex.length; mentionIndex++) {
@@ -101,14 +120,26 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				compiledWeights.set(mentionIndex, nameIndex, weight);
 			}
 		}
-		return new CompiledNormalizationModel(index, mentionVectorSpace, nameVectorSpace, compiledWeights);
+		return compiledWeights;
+	}
+
+	public Index getIndex() {
+		return index;
+	}
+
+	public Dictionary<String> getMentionVectorSpace() {
+		return mentionVectorSpace;
+	}
+
+	public Dictionary<String> getNameVectorSpace() {
+		return nameVectorSpace;
 	}
 
 	@Override
 	public double getScoreBound(Vector<String> mentionVector) {
-		Profiler.start("NormalizationModel.getScoreBound()");
+		getScoreBoundProbe.start();
 		if (mentionVector == null) {
-			Profiler.stop("NormalizationModel.getScoreBound()");
+			getScoreBoundProbe.stop();
 			return 0.0;
 		}
 
@@ -144,7 +175,7 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				}
 			}
 		}
-		Profiler.stop("NormalizationModel.getScoreBound()");
+		getScoreBoundProbe.stop();
 		return scoreBound;
 	}
 
@@ -164,7 +195,7 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 
 	@Override
 	public void findBest(Vector<String> mentionVector, RankedList<Entity> bestEntities) {
-		Profiler.start("NormalizationModel.findBest()");
+		findBestProbe.start();
 		Vector<String> nameVectorEquivalent = convertMentionVectorToNameVectorEquivalent(mentionVector);
 		logger.trace("nameVectorEquivalent = " + nameVectorEquivalent);
 		Vector<Vector<String>> nameVectorScores = convertNameVectorToNameScores(nameVectorEquivalent);
@@ -183,11 +214,11 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				}
 			}
 		}
-		Profiler.stop("NormalizationModel.findBest()");
+		findBestProbe.stop();
 	}
 
 	protected Vector<String> convertMentionVectorToNameVectorEquivalent(Vector<String> mentionVector) {
-		Profiler.start("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.start();
 		SparseVector<String> nameVectorEquivalent = new SparseVector<String>(nameVectorSpace);
 		// Converts a mention vector to a name vector
 		VectorIterator mentionIterator = mentionVector.getIterator();
@@ -205,12 +236,12 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				nameVectorEquivalent.increment(mentionValue, nameVector);
 			}
 		}
-		Profiler.stop("NormalizationModel.convertMentionVectorToNameVectorEquivalent()");
+		convertMentionVectorToNameVectorEquivalentProbe.stop();
 		return nameVectorEquivalent;
 	}
 
 	private Vector<Vector<String>> convertNameVectorToNameScores(Vector<String> nameVectorEquivalent) {
-		Profiler.start("NormalizationModel.convertNameVectorToNameScores()");
+		convertNameVectorToNameScoresProbe.start();
 		DenseVector<Vector<String>> nameVectorScores = new DenseVector<Vector<String>>(nameVectorDictionary);
 		VectorIterator nameVectorSpaceIndexIterator = nameVectorEquivalent.getIterator();
 		while (nameVectorSpaceIndexIterator.next()) {
@@ -221,13 +252,13 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				nameVectorScores.increment(nameVectorSpaceValue, lexiconVector);
 			}
 		}
-		Profiler.stop("NormalizationModel.convertNameVectorToNameScores()");
+		convertNameVectorToNameScoresProbe.stop();
 		return nameVectorScores;
 	}
 
 	@Override
 	public MentionName findBestName(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("NormalizationModel.findBestName()");
+		findBestNameProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -241,13 +272,13 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				bestName = name;
 			}
 		}
-		Profiler.stop("NormalizationModel.findBestName()");
+		findBestNameProbe.stop();
 		return bestName;
 	}
 
 	@Override
 	public double scoreEntity(Vector<String> mentionVector, Entity entity) {
-		Profiler.start("NormalizationModel.scoreEntity()");
+		scoreEntityProbe.start();
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
 			throw new IllegalArgumentException("Mention vector dimensions are not equal");
 		}
@@ -259,15 +290,15 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				bestScore = score;
 			}
 		}
-		Profiler.stop("NormalizationModel.scoreEntity()");
+		scoreEntityProbe.stop();
 		return bestScore;
 	}
 
 	@Override
 	public double scoreNameVector(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("NormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.start();
 		if (mentionVector == null || nameVector == null) {
-			Profiler.stop("NormalizationModel.scoreNameVector()");
+			scoreNameVectorProbe.stop();
 			return 0.0;
 		}
 		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
@@ -277,13 +308,13 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 			throw new IllegalArgumentException("Name vector dimensions are not equal");
 		}
 		double score = score(mentionVector, nameVector);
-		Profiler.stop("NormalizationModel.scoreNameVector()");
+		scoreNameVectorProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void visualizeScore(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("NormalizationModel.visualizeScore()");
+		visualizeScoreProbe.start();
 		List<String> scoreLines = new ArrayList<String>();
 		if (mentionVectorSpace != null && nameVectorSpace != null && mentionVector != null) {
 			for (int i = 0; i < mentionVector.dimensions(); i++) {
@@ -307,11 +338,11 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 		for (String line : scoreLines) {
 			logger.info(line);
 		}
-		Profiler.stop("NormalizationModel.visualizeScore()");
+		visualizeScoreProbe.stop();
 	}
 
 	protected double score(Vector<String> mentionVector, Vector<String> nameVector) {
-		Profiler.start("NormalizationModel.score()");
+		scoreProbe.start();
 		double score = 0.0;
 		if (mentionVector != null && nameVector != null) {
 			VectorIterator mentionIterator = mentionVector.getIterator();
@@ -332,15 +363,28 @@ public class NormalizationModel implements NormalizationModelPredictor, Normaliz
 				}
 			}
 		}
-		Profiler.stop("NormalizationModel.score()");
+		scoreProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void update(double cosineSimWeight, Matrix<String, String> weightUpdates) {
-		Profiler.start("NormalizationModel.update()");
+		updateProbe.start();
 		this.cosineSimWeight[0] += cosineSimWeight;
 		weights.increment(weightUpdates);
-		Profiler.stop("NormalizationModel.update()");
+		updateProbe.stop();
+	}
+
+	@Override
+	public void captureParameters(String prefix, ParameterSnapshot snapshot) {
+		snapshot.putDense(prefix + ".cosineSimWeight", cosineSimWeight.clone());
+		snapshot.capture(prefix + ".weights", weights);
+	}
+
+	@Override
+	public void restoreParameters(String prefix, ParameterSnapshot snapshot) {
+		// Arrays and matrices are updated in place since training predictors share them
+		cosineSimWeight[0] = snapshot.getDense(prefix + ".cosineSimWeight")[0];
+		snapshot.restore(prefix + ".weights", weights);
 	}
 }
@@ -0,0 +1,89 @@
+package ncbi.taggerOne.model.normalization;
+
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+import ncbi.util.Profiler;
+
+/*
+ * One partition of the shortcut matrix of a compiled normalization model, containing the name vectors whose index modulo shardCount is shardIndex. Results refer to name vectors by their index in the full name vector dictionary, so
+ * the results from all shards can be merged by a ShardedNormalizationModel.
+ */
+public class NormalizationShard {
+
+	private static final Profiler.Probe findBestProbe = Profiler.probe("NormalizationShard.findBest()");
+
+	private int shardIndex;
+	private int shardCount;
+	private Dictionary<Vector<String>> nameVectorDictionary;
+	private DenseBySparseMatrix<String, Vector<String>> shortcutMatrix; // rows indexed by mention vector space, columns indexed by name vector dictionary
+	private double[] highestValues;
+
+	public NormalizationShard(NormalizationModel model, int shardIndex, int shardCount) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("shardCount must be at least 1: " + shardCount);
+		}
+		if (shardIndex < 0 || shardIndex >= shardCount) {
+			throw new IllegalArgumentException("shardIndex must be between 0 and " + (shardCount - 1) + ": " + shardIndex);
+		}
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		Dictionary<String> mentionVectorSpace = model.getMentionVectorSpace();
+		nameVectorDictionary = model.getIndex().getNameVectorDictionary();
+		shortcutMatrix = CompiledNormalizationModel.createShortcutMatrix(mentionVectorSpace, model.getNameVectorSpace(), nameVectorDictionary, model.getCompiledWeights(), shardIndex, shardCount);
+		highestValues = new double[mentionVectorSpace.size()];
+		for (int i = 0; i < mentionVectorSpace.size(); i++) {
+			Vector<Vector<String>> shortcutVector = shortcutMatrix.getRowVector(i);
+			if (shortcutVector != null) {
+				VectorIterator shortcutIterator = shortcutVector.getIterator();
+				while (shortcutIterator.next()) {
+					highestValues[i] = Math.max(highestValues[i], shortcutIterator.getValue());
+				}
+			}
+		}
+	}
+
+	public int getShardIndex() {
+		return shardIndex;
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	public int getNameVectorCount() {
+		return nameVectorDictionary.size();
+	}
+
+	/*
+	 * Returns the highest score of any name vector in this shard for each element of the mention vector space
+	 */
+	public double[] getHighestValues() {
+		return highestValues;
+	}
+
+	/*
+	 * Adds the name vectors in this shard with the highest scores for the mention vector to bestNameVectors
+	 */
+	public void findBest(int[] mentionIndices, double[] mentionValues, RankedList<Integer> bestNameVectors) {
+		findBestProbe.start();
+		SparseVector<Vector<String>> nameVectorScores = new SparseVector<Vector<String>>(nameVectorDictionary);
+		for (int i = 0; i < mentionIndices.length; i++) {
+			Vector<Vector<String>> shortcutVector = shortcutMatrix.getRowVector(mentionIndices[i]);
+			if (shortcutVector != null) {
+				nameVectorScores.increment(mentionValues[i], shortcutVector);
+			}
+		}
+		VectorIterator nameVectorIterator = nameVectorScores.getIterator();
+		while (nameVectorIterator.next()) {
+			double score = nameVectorIterator.getValue();
+			if (bestNameVectors.check(score)) {
+				bestNameVectors.add(score, nameVectorIterator.getIndex());
+			}
+		}
+		findBestProbe.stop();
+	}
+}
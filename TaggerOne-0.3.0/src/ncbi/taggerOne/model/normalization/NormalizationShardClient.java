@@ -0,0 +1,221 @@
+package ncbi.taggerOne.model.normalization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+
+/*
+ * Client for a NormalizationShardServer. Each request is an operation byte and the entity type, followed by the arguments; each response is a status byte followed by the results or an error message. Requests from
+ * different threads are sent on different connections, which are kept open for reuse; the server handles each connection on its own thread. A connection that fails during a request is closed rather than reused.
+ */
+public class NormalizationShardClient {
+
+	private static final Logger logger = LoggerFactory.getLogger(NormalizationShardClient.class);
+
+	private String host;
+	private int port;
+	private ConcurrentLinkedQueue<Connection> idleConnections;
+	private volatile boolean closed;
+
+	public NormalizationShardClient(String host, int port) {
+		this.host = host;
+		this.port = port;
+		idleConnections = new ConcurrentLinkedQueue<Connection>();
+		// Connect immediately, so an unreachable shard is reported at startup
+		idleConnections.add(new Connection());
+	}
+
+	/*
+	 * Parses a comma-separated list of host:port pairs and connects to each
+	 */
+	public static List<NormalizationShardClient> connect(String hostPorts) {
+		List<NormalizationShardClient> clients = new ArrayList<NormalizationShardClient>();
+		for (String hostPort : hostPorts.split(",")) {
+			hostPort = hostPort.trim();
+			int separator = hostPort.lastIndexOf(':');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Shard address must be host:port: " + hostPort);
+			}
+			clients.add(new NormalizationShardClient(hostPort.substring(0, separator), Integer.parseInt(hostPort.substring(separator + 1))));
+		}
+		return clients;
+	}
+
+	/*
+	 * Returns the shard index, shard count and number of name vectors for the entity type
+	 */
+	public int[] getInfo(String entityType) {
+		Connection connection = borrowConnection();
+		boolean reusable = false;
+		try {
+			connection.startRequest(NormalizationShardServer.OP_INFO, entityType);
+			connection.output.flush();
+			connection.readStatus();
+			int[] info = new int[3];
+			for (int i = 0; i < info.length; i++) {
+				info[i] = connection.input.readInt();
+			}
+			reusable = true;
+			return info;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseConnection(connection, reusable);
+		}
+	}
+
+	public double[] getHighestValues(String entityType) {
+		Connection connection = borrowConnection();
+		boolean reusable = false;
+		try {
+			connection.startRequest(NormalizationShardServer.OP_HIGHEST_VALUES, entityType);
+			connection.output.flush();
+			connection.readStatus();
+			double[] highestValues = new double[connection.input.readInt()];
+			for (int i = 0; i < highestValues.length; i++) {
+				highestValues[i] = connection.input.readDouble();
+			}
+			reusable = true;
+			return highestValues;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseConnection(connection, reusable);
+		}
+	}
+
+	/*
+	 * Returns the indices and scores of the best name vectors in the shard for each mention vector
+	 */
+	public List<RankedList<Integer>> findBest(String entityType, int maxSize, List<Vector<String>> mentionVectors) {
+		Connection connection = borrowConnection();
+		boolean reusable = false;
+		try {
+			DataOutputStream output = connection.output;
+			DataInputStream input = connection.input;
+			connection.startRequest(NormalizationShardServer.OP_FIND_BEST, entityType);
+			output.writeInt(maxSize);
+			output.writeInt(mentionVectors.size());
+			for (Vector<String> mentionVector : mentionVectors) {
+				output.writeInt(mentionVector.cardinality());
+				VectorIterator iterator = mentionVector.getIterator();
+				while (iterator.next()) {
+					output.writeInt(iterator.getIndex());
+					output.writeDouble(iterator.getValue());
+				}
+			}
+			output.flush();
+			connection.readStatus();
+			List<RankedList<Integer>> results = new ArrayList<RankedList<Integer>>(mentionVectors.size());
+			for (int mentionIndex = 0; mentionIndex < mentionVectors.size(); mentionIndex++) {
+				RankedList<Integer> bestNameVectors = new RankedList<Integer>(maxSize);
+				int size = input.readInt();
+				for (int rank = 0; rank < size; rank++) {
+					int nameVectorIndex = input.readInt();
+					bestNameVectors.add(input.readDouble(), nameVectorIndex);
+				}
+				results.add(bestNameVectors);
+			}
+			reusable = true;
+			return results;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseConnection(connection, reusable);
+		}
+	}
+
+	/*
+	 * Closes the idle connections; connections in use are closed when their requests complete
+	 */
+	public void close() {
+		closed = true;
+		Connection connection = idleConnections.poll();
+		while (connection != null) {
+			connection.close();
+			connection = idleConnections.poll();
+		}
+	}
+
+	private Connection borrowConnection() {
+		if (closed) {
+			throw new IllegalStateException("Client for normalization shard at " + host + ":" + port + " is closed");
+		}
+		Connection connection = idleConnections.poll();
+		if (connection == null) {
+			connection = new Connection();
+		}
+		return connection;
+	}
+
+	/*
+	 * Returns the connection for reuse, or closes it if the request did not complete, since the rest of the response may still be unread
+	 */
+	private void releaseConnection(Connection connection, boolean reusable) {
+		if (!reusable || closed) {
+			connection.close();
+			return;
+		}
+		idleConnections.add(connection);
+		// The client may have been closed while the connection was being added
+		if (closed) {
+			close();
+		}
+	}
+
+	private class Connection {
+
+		private Socket socket;
+		private DataInputStream input;
+		private DataOutputStream output;
+
+		public Connection() {
+			try {
+				socket = new Socket(host, port);
+				socket.setTcpNoDelay(true);
+				input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot connect to normalization shard at " + host + ":" + port, e);
+			}
+		}
+
+		public void startRequest(byte op, String entityType) throws IOException {
+			output.writeByte(op);
+			output.writeUTF(entityType);
+		}
+
+		public void readStatus() throws IOException {
+			byte status = input.readByte();
+			if (status != NormalizationShardServer.STATUS_OK) {
+				throw new IllegalStateException("Normalization shard at " + host + ":" + port + " returned an error: " + input.readUTF());
+			}
+		}
+
+		public void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				logger.warn("Error closing connection to normalization shard at " + host + ":" + port, e);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + port;
+	}
+}
@@ -0,0 +1,200 @@
+package ncbi.taggerOne.model.normalization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.util.RankedList;
+
+/*
+ * Serves the normalization shards for one or more entity types over a socket. Each connection is handled by its own thread and requests on a connection are answered in order. See NormalizationShardClient for the protocol.
+ */
+public class NormalizationShardServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(NormalizationShardServer.class);
+
+	static final byte OP_INFO = 1;
+	static final byte OP_HIGHEST_VALUES = 2;
+	static final byte OP_FIND_BEST = 3;
+	static final byte STATUS_OK = 0;
+	static final byte STATUS_ERROR = 1;
+
+	private Map<String, NormalizationShard> shards;
+	private ServerSocket serverSocket;
+
+	public NormalizationShardServer(Map<String, NormalizationShard> shards) {
+		if (shards == null || shards.isEmpty()) {
+			throw new IllegalArgumentException("shards cannot be empty");
+		}
+		this.shards = shards;
+	}
+
+	/*
+	 * Accepts connections on the calling thread until close() is called
+	 */
+	public void serve(ServerSocket serverSocket) {
+		setServerSocket(serverSocket);
+		acceptConnections();
+	}
+
+	/*
+	 * Accepts connections on a background thread until close() is called
+	 */
+	public void start(ServerSocket serverSocket) {
+		setServerSocket(serverSocket);
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		}, "NormalizationShardServer-accept");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	private synchronized void setServerSocket(ServerSocket serverSocket) {
+		if (this.serverSocket != null) {
+			throw new IllegalStateException("NormalizationShardServer is already started");
+		}
+		this.serverSocket = serverSocket;
+		logger.info("Serving normalization shards for " + shards.keySet() + " on " + serverSocket.getLocalSocketAddress());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				Thread connectionThread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						handleConnection(socket);
+					}
+				}, "NormalizationShardServer-" + socket.getRemoteSocketAddress());
+				connectionThread.setDaemon(true);
+				connectionThread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					logger.error("Error accepting connection", e);
+				}
+			}
+		}
+	}
+
+	private void handleConnection(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (true) {
+				byte op;
+				try {
+					op = input.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				String entityType = input.readUTF();
+				NormalizationShard shard = shards.get(entityType);
+				if (op == OP_FIND_BEST) {
+					// Read the whole request before checking it so the connection remains usable
+					handleFindBest(shard, entityType, input, output);
+				} else if (shard == null) {
+					writeError(output, "No shard for entity type " + entityType);
+				} else if (op == OP_INFO) {
+					output.writeByte(STATUS_OK);
+					output.writeInt(shard.getShardIndex());
+					output.writeInt(shard.getShardCount());
+					output.writeInt(shard.getNameVectorCount());
+				} else if (op == OP_HIGHEST_VALUES) {
+					double[] highestValues = shard.getHighestValues();
+					output.writeByte(STATUS_OK);
+					output.writeInt(highestValues.length);
+					for (int i = 0; i < highestValues.length; i++) {
+						output.writeDouble(highestValues[i]);
+					}
+				} else {
+					writeError(output, "Unknown operation " + op);
+					output.flush();
+					break;
+				}
+				output.flush();
+			}
+		} catch (IOException e) {
+			logger.warn("Connection from " + socket.getRemoteSocketAddress() + " closed: " + e.getMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	private static void handleFindBest(NormalizationShard shard, String entityType, DataInputStream input, DataOutputStream output) throws IOException {
+		int maxSize = input.readInt();
+		int batchSize = input.readInt();
+		int[][] mentionIndices = new int[batchSize][];
+		double[][] mentionValues = new double[batchSize][];
+		for (int mentionIndex = 0; mentionIndex < batchSize; mentionIndex++) {
+			int cardinality = input.readInt();
+			mentionIndices[mentionIndex] = new int[cardinality];
+			mentionValues[mentionIndex] = new double[cardinality];
+			for (int i = 0; i < cardinality; i++) {
+				mentionIndices[mentionIndex][i] = input.readInt();
+				mentionValues[mentionIndex][i] = input.readDouble();
+			}
+		}
+		if (shard == null) {
+			writeError(output, "No shard for entity type " + entityType);
+			return;
+		}
+		// The results are found before any are written, so an error can still be reported in place of the whole response
+		List<RankedList<Integer>> results = new ArrayList<RankedList<Integer>>(batchSize);
+		try {
+			for (int mentionIndex = 0; mentionIndex < batchSize; mentionIndex++) {
+				RankedList<Integer> bestNameVectors = new RankedList<Integer>(maxSize);
+				shard.findBest(mentionIndices[mentionIndex], mentionValues[mentionIndex], bestNameVectors);
+				results.add(bestNameVectors);
+			}
+		} catch (RuntimeException e) {
+			logger.error("Error finding best name vectors for entity type " + entityType, e);
+			writeError(output, "Error finding best name vectors: " + e);
+			return;
+		}
+		output.writeByte(STATUS_OK);
+		for (RankedList<Integer> bestNameVectors : results) {
+			output.writeInt(bestNameVectors.size());
+			for (int rank = 0; rank < bestNameVectors.size(); rank++) {
+				output.writeInt(bestNameVectors.getObject(rank));
+				output.writeDouble(bestNameVectors.getValue(rank));
+			}
+		}
+	}
+
+	private static void writeError(DataOutputStream output, String message) throws IOException {
+		output.writeByte(STATUS_ERROR);
+		output.writeUTF(message);
+	}
+}
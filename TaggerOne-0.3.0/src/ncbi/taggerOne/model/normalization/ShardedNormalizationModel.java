@@ -0,0 +1,320 @@
+package ncbi.taggerOne.model.normalization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.lexicon.Index;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+import ncbi.taggerOne.util.vector.DenseVector;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+import ncbi.util.Profiler;
+
+/*
+ * Predictor equivalent to CompiledNormalizationModel whose shortcut matrix is partitioned across NormalizationShardServer processes. Each shard returns its best name vectors for a batch of mentions, which are merged here into the
+ * final ranking. Only the weights and the index are held locally, so the shards cannot be serialized with the model.
+ */
+public class ShardedNormalizationModel implements NormalizationModelPredictor {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedNormalizationModel.class);
+	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe getScoreBoundProbe = Profiler.probe("ShardedNormalizationModel.getScoreBound()");
+	private static final Profiler.Probe findBestProbe = Profiler.probe("ShardedNormalizationModel.findBest()");
+	private static final Profiler.Probe findBestNameProbe = Profiler.probe("ShardedNormalizationModel.findBestName()");
+	private static final Profiler.Probe scoreEntityProbe = Profiler.probe("ShardedNormalizationModel.scoreEntity()");
+	private static final Profiler.Probe scoreNameVectorProbe = Profiler.probe("ShardedNormalizationModel.scoreNameVector()");
+
+	private String entityType;
+	private Index index;
+	private Dictionary<String> mentionVectorSpace;
+	private Dictionary<String> nameVectorSpace;
+	private Dictionary<Vector<String>> nameVectorDictionary;
+	private DenseBySparseMatrix<String, String> weights; // rows indexed by mention vector space, columns indexed by name vector space
+	private Vector<String> highestVector;
+	private transient List<NormalizationShardClient> shards;
+	private transient ExecutorService executor;
+
+	public ShardedNormalizationModel(NormalizationModel model, List<NormalizationShardClient> shards) {
+		if (shards == null || shards.isEmpty()) {
+			throw new IllegalArgumentException("shards cannot be empty");
+		}
+		this.index = model.getIndex();
+		this.entityType = index.getUnknownEntity().getType();
+		this.mentionVectorSpace = model.getMentionVectorSpace();
+		this.nameVectorSpace = model.getNameVectorSpace();
+		this.nameVectorDictionary = index.getNameVectorDictionary();
+		this.weights = model.getCompiledWeights();
+		this.shards = new ArrayList<NormalizationShardClient>(shards);
+		// Verify that the shards are complete and were created from the same model
+		boolean[] found = new boolean[shards.size()];
+		for (NormalizationShardClient shard : shards) {
+			int[] info = shard.getInfo(entityType);
+			if (info[1] != shards.size()) {
+				throw new IllegalArgumentException("Shard " + shard + " is one of " + info[1] + " shards, but " + shards.size() + " were given");
+			}
+			if (found[info[0]]) {
+				throw new IllegalArgumentException("Shard " + shard + " duplicates shard index " + info[0]);
+			}
+			found[info[0]] = true;
+			if (info[2] != nameVectorDictionary.size()) {
+				throw new IllegalArgumentException("Shard " + shard + " has " + info[2] + " name vectors for entity type " + entityType + ", but the model has " + nameVectorDictionary.size());
+			}
+		}
+		// Initialize highestVector
+		highestVector = new DenseVector<String>(mentionVectorSpace);
+		for (NormalizationShardClient shard : shards) {
+			double[] highestValues = shard.getHighestValues(entityType);
+			for (int i = 0; i < highestValues.length; i++) {
+				highestVector.set(i, Math.max(highestVector.get(i), highestValues[i]));
+			}
+		}
+		executor = Executors.newFixedThreadPool(shards.size(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ShardedNormalizationModel-" + entityType);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		logger.info("Using " + shards.size() + " normalization shards for entity type " + entityType + ": " + shards);
+	}
+
+	/*
+	 * Returns the NormalizationModel underlying a predictor loaded from a model file
+	 */
+	public static NormalizationModel getNormalizationModel(NormalizationModelPredictor predictor) {
+		while (predictor instanceof CachedNormalizationModel) {
+			predictor = ((CachedNormalizationModel) predictor).getWrappedPredictor();
+		}
+		if (!(predictor instanceof NormalizationModel)) {
+			throw new IllegalArgumentException("Normalization model cannot be sharded: " + predictor.getClass().getName());
+		}
+		return (NormalizationModel) predictor;
+	}
+
+	@Override
+	public NormalizationModelPredictor compile() {
+		return this;
+	}
+
+	public void close() {
+		executor.shutdown();
+		for (NormalizationShardClient shard : shards) {
+			shard.close();
+		}
+	}
+
+	@Override
+	public double getScoreBound(Vector<String> mentionVector) {
+		getScoreBoundProbe.start();
+		double highest = 0.0;
+		if (mentionVector != null) {
+			highest = mentionVector.dotProduct(highestVector);
+		}
+		getScoreBoundProbe.stop();
+		return highest;
+	}
+
+	@Override
+	public void findBest(Vector<String> mentionVector, RankedList<Entity> bestEntities) {
+		findBest(Collections.singletonList(mentionVector), Collections.singletonList(bestEntities));
+	}
+
+	/*
+	 * Finds the best entities for each mention vector, using one request to each shard for the whole batch if the predictor is sharded. All lists in bestEntities must have the same maximum size.
+	 */
+	public static void findBestAll(NormalizationModelPredictor predictor, List<Vector<String>> mentionVectors, List<RankedList<Entity>> bestEntities) {
+		if (predictor instanceof ShardedNormalizationModel) {
+			((ShardedNormalizationModel) predictor).findBest(mentionVectors, bestEntities);
+			return;
+		}
+		if (mentionVectors.size() != bestEntities.size()) {
+			throw new IllegalArgumentException("Number of mention vectors and ranked lists must be equal");
+		}
+		for (int i = 0; i < mentionVectors.size(); i++) {
+			predictor.findBest(mentionVectors.get(i), bestEntities.get(i));
+		}
+	}
+
+	/*
+	 * Finds the best entities for a batch of mention vectors using one request to each shard. All lists in bestEntities must have the same maximum size.
+	 */
+	public void findBest(final List<Vector<String>> mentionVectors, List<RankedList<Entity>> bestEntities) {
+		findBestProbe.start();
+		if (mentionVectors.size() != bestEntities.size()) {
+			throw new IllegalArgumentException("Number of mention vectors and ranked lists must be equal");
+		}
+		if (mentionVectors.isEmpty()) {
+			findBestProbe.stop();
+			return;
+		}
+		final int maxSize = bestEntities.get(0).maxSize();
+		List<Future<List<RankedList<Integer>>>> futures = new ArrayList<Future<List<RankedList<Integer>>>>(shards.size());
+		for (final NormalizationShardClient shard : shards) {
+			futures.add(executor.submit(new Callable<List<RankedList<Integer>>>() {
+				@Override
+				public List<RankedList<Integer>> call() {
+					return shard.findBest(entityType, maxSize, mentionVectors);
+				}
+			}));
+		}
+		for (int mentionIndex = 0; mentionIndex < mentionVectors.size(); mentionIndex++) {
+			RankedList<Entity> mentionBestEntities = bestEntities.get(mentionIndex);
+			if (mentionBestEntities.maxSize() != maxSize) {
+				throw new IllegalArgumentException("All ranked lists must have the same maximum size");
+			}
+			double unknownScore = scoreEntity(mentionVectors.get(mentionIndex), index.getUnknownEntity());
+			mentionBestEntities.add(unknownScore, index.getUnknownEntity());
+		}
+		for (Future<List<RankedList<Integer>>> future : futures) {
+			List<RankedList<Integer>> shardResults = getResult(future);
+			for (int mentionIndex = 0; mentionIndex < mentionVectors.size(); mentionIndex++) {
+				RankedList<Integer> bestNameVectors = shardResults.get(mentionIndex);
+				RankedList<Entity> mentionBestEntities = bestEntities.get(mentionIndex);
+				// As in the fast path of CompiledNormalizationModel, only the first entity of the best name vector is used for single-token mentions
+				boolean fast = mentionVectors.get(mentionIndex).cardinality() == 1 && maxSize == 1;
+				for (int rank = 0; rank < bestNameVectors.size(); rank++) {
+					double score = bestNameVectors.getValue(rank);
+					if (mentionBestEntities.check(score)) {
+						Vector<String> nameVector = nameVectorDictionary.getElement(bestNameVectors.getObject(rank));
+						Set<Entity> entities = index.getEntities(nameVector);
+						if (fast) {
+							mentionBestEntities.add(score, entities.iterator().next());
+						} else {
+							for (Entity entity : entities) {
+								mentionBestEntities.add(score, entity);
+							}
+						}
+					}
+				}
+			}
+		}
+		findBestProbe.stop();
+	}
+
+	private static <T> T getResult(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	@Override
+	public MentionName findBestName(Vector<String> mentionVector, Entity entity) {
+		findBestNameProbe.start();
+		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
+			throw new IllegalArgumentException("Mention vector dimensions are not equal");
+		}
+		MentionName bestName = null;
+		double bestScore = Double.NEGATIVE_INFINITY; // Always pick a name
+		for (MentionName name : entity.getNames()) {
+			Vector<String> nameVector = name.getVector();
+			if (nameVector != null) {
+				double score = score(mentionVector, nameVector);
+				if (score > bestScore) {
+					bestScore = score;
+					bestName = name;
+				}
+			}
+		}
+		findBestNameProbe.stop();
+		return bestName;
+	}
+
+	@Override
+	public double scoreEntity(Vector<String> mentionVector, Entity entity) {
+		scoreEntityProbe.start();
+		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
+			throw new IllegalArgumentException("Mention vector dimensions are not equal");
+		}
+		double bestScore = Double.NEGATIVE_INFINITY; // Always pick a name
+		for (MentionName name : entity.getNames()) {
+			Vector<String> nameVector = name.getVector();
+			if (nameVector != null) {
+				double score = score(mentionVector, nameVector);
+				if (score > bestScore) {
+					bestScore = score;
+				}
+			}
+		}
+		scoreEntityProbe.stop();
+		return bestScore;
+	}
+
+	@Override
+	public double scoreNameVector(Vector<String> mentionVector, Vector<String> nameVector) {
+		scoreNameVectorProbe.start();
+		if (mentionVector.dimensions() != mentionVectorSpace.size()) {
+			throw new IllegalArgumentException("Mention vector dimensions are not equal");
+		}
+		if (nameVector.dimensions() != nameVectorSpace.size()) {
+			throw new IllegalArgumentException("Name vector dimensions are not equal");
+		}
+		double score = score(mentionVector, nameVector);
+		scoreNameVectorProbe.stop();
+		return score;
+	}
+
+	@Override
+	public void visualizeScore(Vector<String> mentionVector, Vector<String> nameVector) {
+		List<String> scoreLines = new ArrayList<String>();
+		VectorIterator mentionIterator = mentionVector.getIterator();
+		while (mentionIterator.next()) {
+			int mentionIndex = mentionIterator.getIndex();
+			VectorIterator nameIterator = nameVector.getIterator();
+			while (nameIterator.next()) {
+				int nameIndex = nameIterator.getIndex();
+				double weight = weights.get(mentionIndex, nameIndex);
+				if (weight != 0.0) {
+					String mentionElement = mentionVectorSpace.getElement(mentionIndex);
+					String nameElement = nameVectorSpace.getElement(nameIndex);
+					scoreLines.add("\t\t\t" + mentionElement + "\t" + mentionIterator.getValue() + "\t" + nameElement + "\t" + nameIterator.getValue() + "\t" + weight);
+				}
+			}
+		}
+		Collections.sort(scoreLines);
+		for (String line : scoreLines) {
+			System.out.println(line);
+		}
+	}
+
+	private double score(Vector<String> mentionVector, Vector<String> nameVector) {
+		double score = 0.0;
+		VectorIterator mentionIterator = mentionVector.getIterator();
+		while (mentionIterator.next()) {
+			int mentionIndex = mentionIterator.getIndex();
+			double mentionValue = mentionIterator.getValue();
+			VectorIterator nameIterator = nameVector.getIterator();
+			while (nameIterator.next()) {
+				double jointWeight = weights.get(mentionIndex, nameIterator.getIndex());
+				if (jointWeight != 0.0) {
+					score += mentionValue * jointWeight * nameIterator.getValue();
+				}
+			}
+		}
+		return score;
+	}
+}
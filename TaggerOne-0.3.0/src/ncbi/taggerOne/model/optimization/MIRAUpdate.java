@@ -40,6 +40,12 @@ import ncbi.util.Profiler;
 public class MIRAUpdate implements OnlineOptimizer {
 
 	private static final Logger logger = LoggerFactory.getLogger(MIRAUpdate.class);
+	private static final Profiler.Probe updateProbe = Profiler.probe("MIRAUpdate.update()");
+	private static final Profiler.Probe updateSetupProbe = Profiler.probe("MIRAUpdate.update()@setup");
+	private static final Profiler.Probe updateDeltaProbe = Profiler.probe("MIRAUpdate.update()@delta");
+	private static final Profiler.Probe updateSolveProbe = Profiler.probe("MIRAUpdate.update()@solve");
+	private static final Profiler.Probe updateApplyProbe = Profiler.probe("MIRAUpdate.update()@apply");
+	private static final Profiler.Probe scoreStateSequenceNERProbe = Profiler.probe("MIRAUpdate.scoreStateSequenceNER()");
 
 	private Lexicon lexicon;
 	private Dictionary<String> mentionVectorSpace;
@@ -100,8 +106,8 @@ public class MIRAUpdate implements OnlineOptimizer {
 
 	@Override
 	public void update(List<AnnotatedSegment> targetStateSequence, List<AnnotatedSegment> predictedStateSequence, double margin) {
-		Profiler.start("MIRAUpdate.update()");
-		Profiler.start("MIRAUpdate.update()@setup");
+		updateProbe.start();
+		updateSetupProbe.start();
 
 		logger.debug("Updating sequence");
 		logger.debug("\ttarget= " + AnnotatedSegment.visualizeStates(targetStateSequence));
@@ -177,21 +183,21 @@ public class MIRAUpdate implements OnlineOptimizer {
 			qp.addNonNegativeCosineSimNormalizationConstraints(normalizationUpdaterModels);
 		}
 
-		Profiler.stop("MIRAUpdate.update()@setup");
+		updateSetupProbe.stop();
 
 		if (qp.getConstraintCount() == 0) {
 			logger.warn("QP has 0 constraints");
-			Profiler.stop("MIRAUpdate.update()");
+			updateProbe.stop();
 			return;
 		}
 		if (qp.getVariableCount() == 0) {
 			logger.warn("QP has 0 variables");
-			Profiler.stop("MIRAUpdate.update()");
+			updateProbe.stop();
 			return;
 		}
 
 		// Prepare delta variables
-		Profiler.start("MIRAUpdate.update()@delta");
+		updateDeltaProbe.start();
 		Dictionary<String> entityClassStates = recognitionModelPredictor.getEntityClassStates();
 		Dictionary<String> featureSet = recognitionModelUpdater.getFeatureSet();
 		Matrix<String, String> featureWeightUpdates = new SparseMatrix<String, String>(entityClassStates, featureSet);
@@ -202,20 +208,20 @@ public class MIRAUpdate implements OnlineOptimizer {
 			Matrix<String, String> normalizationWeightUpdate = new SparseMatrix<String, String>(mentionVectorSpace, index.getNameVectorSpace());
 			normalizationTypeToWeightUpdates.put(entityType, normalizationWeightUpdate);
 		}
-		Profiler.stop("MIRAUpdate.update()@delta");
+		updateDeltaProbe.stop();
 
 		// Solve and apply
-		Profiler.start("MIRAUpdate.update()@solve");
+		updateSolveProbe.start();
 		boolean success = qp.solve(featureWeightUpdates, cosineSimUpdates, normalizationTypeToWeightUpdates);
-		Profiler.stop("MIRAUpdate.update()@solve");
+		updateSolveProbe.stop();
 
 		if (!success) {
 			logger.warn("QP solution failed");
-			Profiler.stop("MIRAUpdate.update()");
+			updateProbe.stop();
 			return;
 		}
 
-		Profiler.start("MIRAUpdate.update()@apply");
+		updateApplyProbe.start();
 		recognitionModelUpdater.update(featureWeightUpdates);
 		for (String entityType : normalizationUpdaterModels.keySet()) {
 			NormalizationModelUpdater normalizationModelUpdater = normalizationUpdaterModels.get(entityType);
@@ -223,17 +229,17 @@ public class MIRAUpdate implements OnlineOptimizer {
 			Matrix<String, String> normalizationWeightUpdate = normalizationTypeToWeightUpdates.get(entityType);
 			normalizationModelUpdater.update(cosineSimUpdate, normalizationWeightUpdate);
 		}
-		Profiler.stop("MIRAUpdate.update()@apply");
-		Profiler.stop("MIRAUpdate.update()");
+		updateApplyProbe.stop();
+		updateProbe.stop();
 	}
 
 	private double scoreStateSequenceNER(List<AnnotatedSegment> stateSequence) {
-		Profiler.start("MIRAUpdate.scoreStateSequenceNER()");
+		scoreStateSequenceNERProbe.start();
 		double score = 0.0;
 		for (AnnotatedSegment nextSegment : stateSequence) {
 			score += recognitionModelPredictor.predict(nextSegment.getEntityClass(), nextSegment);
 		}
-		Profiler.stop("MIRAUpdate.scoreStateSequenceNER()");
+		scoreStateSequenceNERProbe.stop();
 		return score;
 	}
 
@@ -40,6 +40,11 @@ import org.slf4j.LoggerFactory;
 public class QuadraticProgram {
 
 	private static final Logger logger = LoggerFactory.getLogger(QuadraticProgram.class);
+	private static final Profiler.Probe getMinimalQPProbe = Profiler.probe("QP.getMinimalQP()");
+	private static final Profiler.Probe solveProbe = Profiler.probe("QP.solve()");
+	private static final Profiler.Probe solveSetupProbe = Profiler.probe("QP.solve()@setup");
+	private static final Profiler.Probe solveSolveProbe = Profiler.probe("QP.solve()@solve");
+	private static final Profiler.Probe solveFinalizationProbe = Profiler.probe("QP.solve()@finalization");
 
 	// TODO PERFORMANCE Every use of Map.keys() should take better advantage of sparsity
 	// TODO PERFORMANCE Consider implementing an int matrix type to replace uses of TLongIntMap
@@ -195,7 +200,7 @@ public class QuadraticProgram {
 	}
 
 	public QuadraticProgram getMinimalQP() {
-		Profiler.start("QP.getMinimalQP()");
+		getMinimalQPProbe.start();
 		boolean[] hasNonZeroCoefficient = new boolean[varCount];
 		for (QPConstraint constraint : constraints) {
 			if (!constraint.markNonZeroCoefficients(hasNonZeroCoefficient)) {
@@ -203,7 +208,7 @@ public class QuadraticProgram {
 			}
 		}
 		QuadraticProgram minimalQP = convertQP(hasNonZeroCoefficient);
-		Profiler.stop("QP.getMinimalQP()");
+		getMinimalQPProbe.stop();
 		return minimalQP;
 	}
 
@@ -276,7 +281,7 @@ public class QuadraticProgram {
 	}
 
 	public boolean solve(Matrix<String, String> featureWeightUpdates, TObjectDoubleMap<String> cosineSimUpdates, Map<String, Matrix<String, String>> normalizationTypeToWeightUpdates) {
-		Profiler.start("QP.solve()");
+		solveProbe.start();
 
 		// TODO PERFORMANCE Can we create the stores directly?
 
@@ -288,7 +293,7 @@ public class QuadraticProgram {
 			}
 		}
 
-		Profiler.start("QP.solve()@setup");
+		solveSetupProbe.start();
 
 		// Constrain any slack variables to be non-negative
 		int[] slackVarKeys = slackVars.keys();
@@ -334,10 +339,10 @@ public class QuadraticProgram {
 		final PrimitiveDenseStore cStore = PrimitiveDenseStore.FACTORY.rows(cArray);
 		final PrimitiveDenseStore aiStore = PrimitiveDenseStore.FACTORY.rows(aiArray);
 		final PrimitiveDenseStore biStore = PrimitiveDenseStore.FACTORY.rows(biArray);
-		Profiler.stop("QP.solve()@setup");
+		solveSetupProbe.stop();
 
 		// Solve
-		Profiler.start("QP.solve()@solve");
+		solveSolveProbe.start();
 		SolverThread solverThread = new SolverThread(qStore, cStore, aiStore, biStore);
 		solverThread.start();
 		try {
@@ -350,16 +355,16 @@ public class QuadraticProgram {
 			solverThread.interrupt();
 		}
 		solverThread = null;
-		Profiler.stop("QP.solve()@solve");
+		solveSolveProbe.stop();
 
-		// Profiler.start("QP.solve()@solve");
+		// solveSolveProbe.start();
 		// ConvexSolver solver = new ConvexSolver.Builder(qStore, cStore.transpose()).inequalities(aiStore, biStore).build();
 		// logger.info("\tSolving QP");
 		// long elapsed = -System.currentTimeMillis();
 		// Optimisation.Result result = solver.solve();
 		// elapsed += System.currentTimeMillis();
 		// logger.info("\tQP solution took " + elapsed + " ms");
-		// Profiler.stop("QP.solve()@solve");
+		// solveSolveProbe.stop();
 
 		// Check for failures
 		if (result == null) {
@@ -373,7 +378,7 @@ public class QuadraticProgram {
 			for (int i = 0; i < constraintCount; i++) {
 				logger.warn("\t" + Arrays.toString(aiArray[i]) + " <= " + biArray[i][0]);
 			}
-			Profiler.stop("QP.solve()");
+			solveProbe.stop();
 			return false;
 		} else if (result.getState().isFailure()) {
 			logger.warn("QP solution failed; state = " + result.getState().toString());
@@ -386,7 +391,7 @@ public class QuadraticProgram {
 			for (int i = 0; i < constraintCount; i++) {
 				logger.warn("\t" + Arrays.toString(aiArray[i]) + " <= " + biArray[i][0]);
 			}
-			Profiler.stop("QP.solve()");
+			solveProbe.stop();
 			return false;
 		}
 
@@ -398,7 +403,7 @@ public class QuadraticProgram {
 			}
 		}
 
-		Profiler.start("QP.solve()@finalization");
+		solveFinalizationProbe.start();
 		logger.debug("\tSolution state = " + result.getState().toString());
 
 		// Determine scaling
@@ -424,8 +429,8 @@ public class QuadraticProgram {
 		logger.debug("\tSize of full update = " + Math.sqrt(sqrSum));
 		checkSlackResult(result);
 
-		Profiler.stop("QP.solve()@finalization");
-		Profiler.stop("QP.solve()");
+		solveFinalizationProbe.stop();
+		solveProbe.stop();
 		return true;
 	}
 
@@ -1,6 +1,7 @@
 package ncbi.taggerOne.model.recognition;
 
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.ParameterSnapshot;
 import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.Dictionary;
@@ -12,6 +13,8 @@ import ncbi.util.Profiler;
 public class AveragedRecognitionModel extends RecognitionModel {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe predictProbe = Profiler.probe("AveragedRecognitionModel.predict()");
+	private static final Profiler.Probe updateProbe = Profiler.probe("AveragedRecognitionModel.update()");
 
 	protected DenseByDenseMatrix<String, String> featureWeights2;
 
@@ -37,7 +40,7 @@ public class AveragedRecognitionModel extends RecognitionModel {
 
 	@Override
 	public double predict(String toState, Segment segment) {
-		Profiler.start("AveragedRecognitionModel.predict()");
+		predictProbe.start();
 		int toStateIndex = entityClassStates.getIndex(toState);
 		Vector<String> featureVector = segment.getFeatures();
 		double score = featureVector.dotProduct(featureWeights.getRowVector(toStateIndex)) - featureVector.dotProduct(featureWeights2.getRowVector(toStateIndex)) / trainingProgress.getInstances();
@@ -45,15 +48,27 @@ public class AveragedRecognitionModel extends RecognitionModel {
 			featureVector = token.getFeatures();
 			score += featureVector.dotProduct(featureWeights.getRowVector(toStateIndex)) - featureVector.dotProduct(featureWeights2.getRowVector(toStateIndex)) / trainingProgress.getInstances();
 		}
-		Profiler.stop("AveragedRecognitionModel.predict()");
+		predictProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void update(Matrix<String, String> updates) {
-		Profiler.start("AveragedRecognitionModel.update()");
+		updateProbe.start();
 		featureWeights.increment(updates);
 		featureWeights2.increment(trainingProgress.getInstances(), updates);
-		Profiler.stop("AveragedRecognitionModel.update()");
+		updateProbe.stop();
+	}
+
+	@Override
+	public void captureParameters(String prefix, ParameterSnapshot snapshot) {
+		super.captureParameters(prefix, snapshot);
+		snapshot.capture(prefix + ".featureWeights2", featureWeights2);
+	}
+
+	@Override
+	public void restoreParameters(String prefix, ParameterSnapshot snapshot) {
+		super.restoreParameters(prefix, snapshot);
+		snapshot.restore(prefix + ".featureWeights2", featureWeights2);
 	}
 }
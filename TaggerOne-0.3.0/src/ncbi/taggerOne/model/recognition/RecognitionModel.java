@@ -8,19 +8,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.Checkpointable;
+import ncbi.taggerOne.processing.checkpoint.ParameterSnapshot;
 import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.matrix.DenseByDenseMatrix;
 import ncbi.taggerOne.util.matrix.Matrix;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 import ncbi.util.SimpleComparator;
 
-public class RecognitionModel implements RecognitionModelPredictor, RecognitionModelUpdater {
+public class RecognitionModel implements RecognitionModelPredictor, RecognitionModelUpdater, Checkpointable, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(RecognitionModel.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe predictProbe = Profiler.probe("RecognitionModel.predict()");
+	private static final Profiler.Probe updateProbe = Profiler.probe("RecognitionModel.update()");
 
 	protected TrainingProgressTracker trainingProgress;
 	protected Dictionary<String> entityClassStates;
@@ -63,6 +69,14 @@ public class RecognitionModel implements RecognitionModelPredictor, RecognitionM
 		return featureWeights;
 	}
 
+	/*
+	 * Counts the feature weights; the feature set is counted separately
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(4, 0) + featureWeights.getEstimatedBytes();
+	}
+
 	@Override
 	public void visualize() {
 		for (int stateIndex = 0; stateIndex < entityClassStates.size(); stateIndex++) {
@@ -107,7 +121,7 @@ public class RecognitionModel implements RecognitionModelPredictor, RecognitionM
 
 	@Override
 	public double predict(String toState, Segment segment) {
-		Profiler.start("RecognitionModel.predict()");
+		predictProbe.start();
 		int toStateIndex = entityClassStates.getIndex(toState);
 		if (toStateIndex < 0) {
 			logger.error("toState = " + toState + " index = " + toStateIndex + " segment = " + segment.getText());
@@ -118,14 +132,24 @@ public class RecognitionModel implements RecognitionModelPredictor, RecognitionM
 		for (Token token : segment.getTokens()) {
 			score += token.getFeatures().dotProduct(featureWeightsForState);
 		}
-		Profiler.stop("RecognitionModel.predict()");
+		predictProbe.stop();
 		return score;
 	}
 
 	@Override
 	public void update(Matrix<String, String> updates) {
-		Profiler.start("RecognitionModel.update()");
+		updateProbe.start();
 		featureWeights.increment(updates);
-		Profiler.stop("RecognitionModel.update()");
+		updateProbe.stop();
+	}
+
+	@Override
+	public void captureParameters(String prefix, ParameterSnapshot snapshot) {
+		snapshot.capture(prefix + ".featureWeights", featureWeights);
+	}
+
+	@Override
+	public void restoreParameters(String prefix, ParameterSnapshot snapshot) {
+		snapshot.restore(prefix + ".featureWeights", featureWeights);
 	}
 }
@@ -0,0 +1,250 @@
+package ncbi.taggerOne.processing;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.Metrics;
+
+/*
+ * Opt-in timing of each document by pipeline stage and by sentence, with the token and segment counts and the number of normalization lookups. Tracing is disabled unless enable() is called; while disabled, current()
+ * returns null after reading one volatile field. A trace belongs to the thread that started it, so the document must be processed on that thread. Documents that take longer than the threshold are written to the slow
+ * log with the breakdown of their time, to find pathological inputs and to tune the maximum segment length.
+ */
+public class DocumentTrace {
+
+	private static final Logger logger = LoggerFactory.getLogger(DocumentTrace.class);
+
+	private static final Counter slowDocuments = Metrics.counter("taggerone_slow_documents_total", "Documents that took longer than the trace threshold");
+	// Number of sentences listed for each slow document, slowest first
+	private static final int MAX_SENTENCES_LOGGED = 5;
+
+	private static volatile boolean enabled = false;
+	private static long thresholdNanos;
+	private static Writer slowLog;
+	private static final ThreadLocal<DocumentTrace> currentTrace = new ThreadLocal<DocumentTrace>();
+
+	private String documentId;
+	private long startTime;
+	private Map<String, Long> stageNanos;
+	private List<SentenceTrace> sentences;
+	private SentenceTrace currentSentence;
+
+	private DocumentTrace(String documentId) {
+		this.documentId = documentId;
+		startTime = System.nanoTime();
+		stageNanos = new LinkedHashMap<String, Long>();
+		sentences = new ArrayList<SentenceTrace>();
+	}
+
+	/*
+	 * Enables tracing, writing documents that take at least thresholdMillis to the slow log file, or to this class's logger if slowLogFilename is null
+	 */
+	public static synchronized void enable(long thresholdMillis, String slowLogFilename) {
+		if (thresholdMillis < 0) {
+			throw new IllegalArgumentException("Trace threshold cannot be negative: " + thresholdMillis);
+		}
+		thresholdNanos = thresholdMillis * 1000000L;
+		if (slowLogFilename != null) {
+			try {
+				slowLog = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(slowLogFilename, true), T1Constants.UTF8_FORMAT));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		enabled = true;
+		logger.info("Tracing documents; threshold for slow log = " + thresholdMillis + "ms");
+	}
+
+	public static synchronized void disable() {
+		enabled = false;
+		if (slowLog != null) {
+			try {
+				slowLog.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			slowLog = null;
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * Starts the trace for a document on the current thread, or returns null if tracing is disabled
+	 */
+	public static DocumentTrace start(String documentId) {
+		if (!enabled) {
+			return null;
+		}
+		DocumentTrace trace = new DocumentTrace(documentId);
+		currentTrace.set(trace);
+		return trace;
+	}
+
+	/*
+	 * Returns the trace for the document being processed on the current thread, or null if there is none
+	 */
+	public static DocumentTrace current() {
+		if (!enabled) {
+			return null;
+		}
+		return currentTrace.get();
+	}
+
+	/*
+	 * Makes the instance the current sentence, unless it already is, as when pipelines are nested
+	 */
+	public void startInstance(TextInstance instance) {
+		if (currentSentence == null || currentSentence.instance != instance) {
+			currentSentence = new SentenceTrace(instance);
+			sentences.add(currentSentence);
+		}
+	}
+
+	/*
+	 * Adds time spent in the stage to the current sentence, if any, and to the document
+	 */
+	public void recordStage(String stage, long nanos) {
+		add(stageNanos, stage, nanos);
+		if (currentSentence != null) {
+			add(currentSentence.stageNanos, stage, nanos);
+			currentSentence.nanos += nanos;
+			currentSentence.countElements();
+		}
+	}
+
+	/*
+	 * Adds time spent in a stage that processes the whole document, such as post-processing, to the document only
+	 */
+	public void recordDocumentStage(String stage, long nanos) {
+		add(stageNanos, stage, nanos);
+	}
+
+	private static void add(Map<String, Long> nanosByStage, String stage, long nanos) {
+		Long previous = nanosByStage.get(stage);
+		nanosByStage.put(stage, previous == null ? nanos : previous + nanos);
+	}
+
+	public void countFindBest() {
+		if (currentSentence != null) {
+			currentSentence.findBestCalls++;
+		}
+	}
+
+	public void countCacheHit() {
+		if (currentSentence != null) {
+			currentSentence.cacheHits++;
+		}
+	}
+
+	/*
+	 * Ends the trace, writing it to the slow log if the document took at least the threshold
+	 */
+	public void finish() {
+		currentTrace.remove();
+		long elapsed = System.nanoTime() - startTime;
+		if (elapsed < thresholdNanos) {
+			return;
+		}
+		slowDocuments.increment();
+		String report = getReport(elapsed);
+		synchronized (DocumentTrace.class) {
+			if (slowLog == null) {
+				logger.warn(report);
+				return;
+			}
+			try {
+				slowLog.write(report);
+				slowLog.write("\n");
+				slowLog.flush();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	String getReport(long elapsed) {
+		int tokens = 0;
+		int segments = 0;
+		int findBestCalls = 0;
+		int cacheHits = 0;
+		for (SentenceTrace sentence : sentences) {
+			tokens += sentence.tokens;
+			segments += sentence.segments;
+			findBestCalls += sentence.findBestCalls;
+			cacheHits += sentence.cacheHits;
+		}
+		StringBuilder report = new StringBuilder();
+		report.append("Slow document ID=" + documentId + " total=" + formatMillis(elapsed) + " sentences=" + sentences.size() + " tokens=" + tokens + " segments=" + segments + " findBest=" + findBestCalls
+				+ " cacheHits=" + cacheHits);
+		appendStages(report, stageNanos);
+		List<SentenceTrace> slowest = new ArrayList<SentenceTrace>(sentences);
+		Collections.sort(slowest, new Comparator<SentenceTrace>() {
+			@Override
+			public int compare(SentenceTrace sentence1, SentenceTrace sentence2) {
+				return Long.compare(sentence2.nanos, sentence1.nanos);
+			}
+		});
+		for (SentenceTrace sentence : slowest.subList(0, Math.min(MAX_SENTENCES_LOGGED, slowest.size()))) {
+			report.append("\n\tsentence offset=" + sentence.instance.getOffset() + " chars=" + sentence.instance.getText().length() + " tokens=" + sentence.tokens + " segments=" + sentence.segments + " findBest="
+					+ sentence.findBestCalls + " cacheHits=" + sentence.cacheHits + " total=" + formatMillis(sentence.nanos));
+			appendStages(report, sentence.stageNanos);
+		}
+		return report.toString();
+	}
+
+	private static void appendStages(StringBuilder report, Map<String, Long> nanosByStage) {
+		for (Map.Entry<String, Long> entry : nanosByStage.entrySet()) {
+			report.append(" " + entry.getKey() + "=" + formatMillis(entry.getValue()));
+		}
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format("%.1fms", nanos / 1.0e6);
+	}
+
+	private static class SentenceTrace {
+
+		private TextInstance instance;
+		private Map<String, Long> stageNanos;
+		private long nanos;
+		private int tokens;
+		private int segments;
+		private int findBestCalls;
+		private int cacheHits;
+
+		public SentenceTrace(TextInstance instance) {
+			this.instance = instance;
+			stageNanos = new LinkedHashMap<String, Long>();
+		}
+
+		/*
+		 * Keeps the largest counts seen, since later stages may clear the tokens or segments
+		 */
+		public void countElements() {
+			if (instance.getTokens() != null) {
+				tokens = Math.max(tokens, instance.getTokens().size());
+			}
+			if (instance.getSegments() != null) {
+				segments = Math.max(segments, instance.getSegments().size());
+			}
+		}
+	}
+}
@@ -17,6 +17,14 @@ public class SentenceBreaker implements Serializable {
 	private static final Logger logger = LoggerFactory.getLogger(SentenceBreaker.class);
 	private static final long serialVersionUID = 1L;
 
+	// Break iterators are expensive to create and not thread-safe, so each thread reuses its own
+	private static final ThreadLocal<BreakIterator> breakIterators = new ThreadLocal<BreakIterator>() {
+		@Override
+		protected BreakIterator initialValue() {
+			return BreakIterator.getSentenceInstance(Locale.US);
+		}
+	};
+
 	public SentenceBreaker() {
 		// Empty
 	}
@@ -33,27 +41,32 @@ public class SentenceBreaker implements Serializable {
 	public List<TextInstance> breakSentences(TextInstance instance) {
 		// TODO Verify id, text and target annotations set
 		List<TextInstance> sentenceInstances = new ArrayList<TextInstance>();
-		BreakIterator bi = BreakIterator.getSentenceInstance(Locale.US);
+		BreakIterator bi = breakIterators.get();
 		String text = instance.getText();
 		bi.setText(text);
 		int start = 0;
 		int counter = 0;
 		int offset = instance.getOffset();
+		// The parenthesis depth of the text from start to end, updated as the end moves forward
+		int depth = 0;
+		int end = 0;
 		while (bi.next() != BreakIterator.DONE) {
-			String sentenceText = text.substring(start, bi.current());
-			int depth = getParenDepth(sentenceText);
+			depth += getParenDepth(text, end, bi.current());
+			end = bi.current();
 			if (depth <= 0) {
+				String sentenceText = text.substring(start, end);
 				sentenceInstances.add(getSentenceInstance(instance, offset, start, counter, sentenceText));
 				counter++;
-				start = bi.current();
+				start = end;
+				depth = 0;
 			}
 		}
 		return sentenceInstances;
 	}
 
-	private static int getParenDepth(String text) {
+	private static int getParenDepth(String text, int start, int end) {
 		int depth = 0;
-		for (int i = 0; i < text.length(); i++) {
+		for (int i = start; i < end; i++) {
 			if (text.charAt(i) == '(')
 				depth++;
 			if (text.charAt(i) == ')')
@@ -0,0 +1,124 @@
+package ncbi.taggerOne.processing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.util.Profiler;
+import ncbi.util.metrics.Histogram;
+
+/*
+ * Breaks documents into sentences and tokenizes them, splitting the documents across threads. Either step may be omitted. The results are the same as running the sentence breaker and tokenizer on each document in turn, so
+ * the tokenizer used must be safe to call from multiple threads, as TextInstanceTokenizer is.
+ */
+public class TextPreprocessor {
+
+	private static final Logger logger = LoggerFactory.getLogger(TextPreprocessor.class);
+	private static final Profiler.Probe processProbe = Profiler.probe("TextPreprocessor.process()");
+
+	private static final Histogram sentenceBreakLatency = TextInstanceProcessingPipeline.STAGE_LATENCY.get("sentence_break");
+	private static final Histogram tokenizeLatency = TextInstanceProcessingPipeline.STAGE_LATENCY.get("tokenize");
+
+	private SentenceBreaker sentenceBreaker;
+	private TextInstanceProcessor tokenizer;
+	private int threads;
+	private ExecutorService executor;
+
+	public TextPreprocessor(SentenceBreaker sentenceBreaker, TextInstanceProcessor tokenizer, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+		}
+		this.sentenceBreaker = sentenceBreaker;
+		this.tokenizer = tokenizer;
+		this.threads = threads;
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "TextPreprocessor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/*
+	 * Returns the instances for each document, in the same order as the documents
+	 */
+	public List<List<TextInstance>> process(List<TextInstance> documents) {
+		processProbe.start();
+		final List<List<TextInstance>> results = new ArrayList<List<TextInstance>>(Collections.<List<TextInstance>> nCopies(documents.size(), null));
+		final List<TextInstance> input = documents;
+		int batches = Math.min(threads, documents.size());
+		if (batches <= 1) {
+			process(input, results, 0, documents.size());
+		} else {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int batch = 0; batch < batches; batch++) {
+				final int start = batch * documents.size() / batches;
+				final int end = (batch + 1) * documents.size() / batches;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						process(input, results, start, end);
+					}
+				}));
+			}
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		logger.debug("Preprocessed " + documents.size() + " documents");
+		processProbe.stop();
+		return results;
+	}
+
+	private void process(List<TextInstance> documents, List<List<TextInstance>> results, int start, int end) {
+		for (int documentIndex = start; documentIndex < end; documentIndex++) {
+			TextInstance document = documents.get(documentIndex);
+			List<TextInstance> instances;
+			if (sentenceBreaker == null) {
+				instances = new ArrayList<TextInstance>();
+				instances.add(document);
+			} else {
+				long sentenceBreakStart = System.nanoTime();
+				instances = sentenceBreaker.breakSentences(document);
+				sentenceBreakLatency.recordSince(sentenceBreakStart);
+			}
+			if (tokenizer != null) {
+				for (TextInstance instance : instances) {
+					long tokenizeStart = System.nanoTime();
+					tokenizer.process(instance);
+					tokenizeLatency.recordSince(tokenizeStart);
+				}
+			}
+			// Each thread sets different elements, and Future.get() makes them visible to the caller
+			results.set(documentIndex, instances);
+		}
+	}
+
+	public void close() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package ncbi.taggerOne.processing;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 public class TrainingProgressTracker implements Serializable {
@@ -45,4 +48,16 @@ public class TrainingProgressTracker implements Serializable {
 	public int getIteration() {
 		return iteration;
 	}
-}
\ No newline at end of file
+
+	public void writeState(DataOutput output) throws IOException {
+		output.writeInt(updates);
+		output.writeInt(instances);
+		output.writeInt(iteration);
+	}
+
+	public void readState(DataInput input) throws IOException {
+		updates = input.readInt();
+		instances = input.readInt();
+		iteration = input.readInt();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package ncbi.taggerOne.processing.checkpoint;
+
+/*
+ * A model whose trainable parameters can be copied into and restored from a ParameterSnapshot. Block names are prefixed so that several models can share one snapshot.
+ */
+public interface Checkpointable {
+
+	public void captureParameters(String prefix, ParameterSnapshot snapshot);
+
+	public void restoreParameters(String prefix, ParameterSnapshot snapshot);
+
+}
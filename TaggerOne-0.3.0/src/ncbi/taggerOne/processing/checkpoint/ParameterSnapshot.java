@@ -0,0 +1,322 @@
+package ncbi.taggerOne.processing.checkpoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ncbi.taggerOne.util.matrix.DenseByDenseMatrix;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+
+/*
+ * A copy of the trainable parameters of a set of models, organized as named blocks. Dense blocks hold every value, sparse blocks hold (row, column) keys sorted in row-major order. Snapshots can be written in full or as the
+ * difference from a previous snapshot, and read back by applying a full snapshot followed by each of its deltas.
+ */
+public class ParameterSnapshot {
+
+	private static final byte DENSE = 1;
+	private static final byte SPARSE = 2;
+
+	private Map<String, double[]> denseBlocks;
+	private Map<String, SparseBlock> sparseBlocks;
+
+	public ParameterSnapshot() {
+		denseBlocks = new TreeMap<String, double[]>();
+		sparseBlocks = new TreeMap<String, SparseBlock>();
+	}
+
+	public void putDense(String name, double[] values) {
+		denseBlocks.put(name, values);
+	}
+
+	public double[] getDense(String name) {
+		double[] values = denseBlocks.get(name);
+		if (values == null) {
+			throw new IllegalStateException("Snapshot does not contain dense block " + name);
+		}
+		return values;
+	}
+
+	public void capture(String name, DenseByDenseMatrix<?, ?> matrix) {
+		putDense(name, matrix.toArray());
+	}
+
+	public void restore(String name, DenseByDenseMatrix<?, ?> matrix) {
+		matrix.setFromArray(getDense(name));
+	}
+
+	public <R, C> void capture(String name, DenseBySparseMatrix<R, C> matrix) {
+		int count = 0;
+		long[] keys = new long[16];
+		double[] values = new double[16];
+		int[] rowColumns = new int[16];
+		double[] rowValues = new double[16];
+		for (int rowIndex = 0; rowIndex < matrix.numRows(); rowIndex++) {
+			Vector<C> row = matrix.getRowVector(rowIndex);
+			if (row == null) {
+				continue;
+			}
+			int rowSize = 0;
+			VectorIterator iterator = row.getIterator();
+			while (iterator.next()) {
+				if (rowSize == rowColumns.length) {
+					rowColumns = Arrays.copyOf(rowColumns, 2 * rowSize);
+					rowValues = Arrays.copyOf(rowValues, 2 * rowSize);
+				}
+				rowColumns[rowSize] = iterator.getIndex();
+				rowValues[rowSize] = iterator.getValue();
+				rowSize++;
+			}
+			// Sort the row by column, keeping each value with its column
+			long[] order = new long[rowSize];
+			for (int i = 0; i < rowSize; i++) {
+				order[i] = (((long) rowColumns[i]) << 32) | i;
+			}
+			Arrays.sort(order);
+			if (count + rowSize > keys.length) {
+				int newLength = Math.max(count + rowSize, 2 * keys.length);
+				keys = Arrays.copyOf(keys, newLength);
+				values = Arrays.copyOf(values, newLength);
+			}
+			for (int i = 0; i < rowSize; i++) {
+				int position = (int) order[i];
+				keys[count] = getKey(rowIndex, rowColumns[position]);
+				values[count] = rowValues[position];
+				count++;
+			}
+		}
+		sparseBlocks.put(name, new SparseBlock(Arrays.copyOf(keys, count), Arrays.copyOf(values, count)));
+	}
+
+	public <R, C> void restore(String name, DenseBySparseMatrix<R, C> matrix) {
+		SparseBlock block = sparseBlocks.get(name);
+		if (block == null) {
+			throw new IllegalStateException("Snapshot does not contain sparse block " + name);
+		}
+		matrix.clear();
+		for (int i = 0; i < block.keys.length; i++) {
+			if (block.values[i] != 0.0) {
+				matrix.set(getRow(block.keys[i]), getColumn(block.keys[i]), block.values[i]);
+			}
+		}
+	}
+
+	public int getBlockCount() {
+		return denseBlocks.size() + sparseBlocks.size();
+	}
+
+	/*
+	 * Writes every block, or only the values that differ from the previous snapshot if one is given
+	 */
+	public void write(DataOutput output, ParameterSnapshot previous) throws IOException {
+		output.writeInt(denseBlocks.size());
+		for (Map.Entry<String, double[]> entry : denseBlocks.entrySet()) {
+			output.writeUTF(entry.getKey());
+			output.writeByte(DENSE);
+			double[] current = entry.getValue();
+			output.writeInt(current.length);
+			double[] base = previous == null ? null : previous.denseBlocks.get(entry.getKey());
+			if (base == null || base.length != current.length) {
+				output.writeBoolean(false);
+				for (int i = 0; i < current.length; i++) {
+					output.writeDouble(current[i]);
+				}
+			} else {
+				output.writeBoolean(true);
+				int changed = 0;
+				for (int i = 0; i < current.length; i++) {
+					if (Double.doubleToLongBits(current[i]) != Double.doubleToLongBits(base[i])) {
+						changed++;
+					}
+				}
+				output.writeInt(changed);
+				for (int i = 0; i < current.length; i++) {
+					if (Double.doubleToLongBits(current[i]) != Double.doubleToLongBits(base[i])) {
+						output.writeInt(i);
+						output.writeDouble(current[i]);
+					}
+				}
+			}
+		}
+		output.writeInt(sparseBlocks.size());
+		for (Map.Entry<String, SparseBlock> entry : sparseBlocks.entrySet()) {
+			output.writeUTF(entry.getKey());
+			output.writeByte(SPARSE);
+			SparseBlock current = entry.getValue();
+			SparseBlock base = previous == null ? null : previous.sparseBlocks.get(entry.getKey());
+			if (base == null) {
+				output.writeBoolean(false);
+				output.writeInt(current.keys.length);
+				for (int i = 0; i < current.keys.length; i++) {
+					output.writeLong(current.keys[i]);
+					output.writeDouble(current.values[i]);
+				}
+			} else {
+				output.writeBoolean(true);
+				SparseBlock delta = current.differenceFrom(base);
+				output.writeInt(delta.keys.length);
+				for (int i = 0; i < delta.keys.length; i++) {
+					output.writeLong(delta.keys[i]);
+					output.writeDouble(delta.values[i]);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Reads a snapshot; deltas are applied to the previous snapshot, which is required if the input is a delta
+	 */
+	public static ParameterSnapshot read(DataInput input, ParameterSnapshot previous) throws IOException {
+		ParameterSnapshot snapshot = new ParameterSnapshot();
+		int denseCount = input.readInt();
+		for (int blockIndex = 0; blockIndex < denseCount; blockIndex++) {
+			String name = input.readUTF();
+			checkKind(input.readByte(), DENSE, name);
+			int length = input.readInt();
+			boolean isDelta = input.readBoolean();
+			double[] values;
+			if (isDelta) {
+				double[] base = previous == null ? null : previous.denseBlocks.get(name);
+				if (base == null || base.length != length) {
+					throw new IOException("Delta for dense block " + name + " has no matching base");
+				}
+				values = Arrays.copyOf(base, length);
+				int changed = input.readInt();
+				for (int i = 0; i < changed; i++) {
+					int index = input.readInt();
+					values[index] = input.readDouble();
+				}
+			} else {
+				values = new double[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = input.readDouble();
+				}
+			}
+			snapshot.denseBlocks.put(name, values);
+		}
+		int sparseCount = input.readInt();
+		for (int blockIndex = 0; blockIndex < sparseCount; blockIndex++) {
+			String name = input.readUTF();
+			checkKind(input.readByte(), SPARSE, name);
+			boolean isDelta = input.readBoolean();
+			int length = input.readInt();
+			long[] keys = new long[length];
+			double[] values = new double[length];
+			for (int i = 0; i < length; i++) {
+				keys[i] = input.readLong();
+				values[i] = input.readDouble();
+			}
+			SparseBlock block = new SparseBlock(keys, values);
+			if (isDelta) {
+				SparseBlock base = previous == null ? null : previous.sparseBlocks.get(name);
+				if (base == null) {
+					throw new IOException("Delta for sparse block " + name + " has no matching base");
+				}
+				block = base.apply(block);
+			}
+			snapshot.sparseBlocks.put(name, block);
+		}
+		return snapshot;
+	}
+
+	private static void checkKind(byte kind, byte expected, String name) throws IOException {
+		if (kind != expected) {
+			throw new IOException("Unexpected block kind " + kind + " for block " + name);
+		}
+	}
+
+	private static long getKey(int rowIndex, int columnIndex) {
+		return (((long) rowIndex) << 32) | (columnIndex & 0xFFFFFFFFL);
+	}
+
+	private static int getRow(long key) {
+		return (int) (key >>> 32);
+	}
+
+	private static int getColumn(long key) {
+		return (int) key;
+	}
+
+	private static class SparseBlock {
+
+		long[] keys; // Sorted
+		double[] values;
+
+		public SparseBlock(long[] keys, double[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		/*
+		 * Returns the entries that were added or changed, plus a 0.0 entry for each entry that was removed
+		 */
+		public SparseBlock differenceFrom(SparseBlock base) {
+			long[] deltaKeys = new long[keys.length + base.keys.length];
+			double[] deltaValues = new double[deltaKeys.length];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < keys.length || j < base.keys.length) {
+				if (j >= base.keys.length || (i < keys.length && keys[i] < base.keys[j])) {
+					deltaKeys[count] = keys[i];
+					deltaValues[count] = values[i];
+					count++;
+					i++;
+				} else if (i >= keys.length || base.keys[j] < keys[i]) {
+					deltaKeys[count] = base.keys[j];
+					deltaValues[count] = 0.0;
+					count++;
+					j++;
+				} else {
+					if (Double.doubleToLongBits(values[i]) != Double.doubleToLongBits(base.values[j])) {
+						deltaKeys[count] = keys[i];
+						deltaValues[count] = values[i];
+						count++;
+					}
+					i++;
+					j++;
+				}
+			}
+			return new SparseBlock(Arrays.copyOf(deltaKeys, count), Arrays.copyOf(deltaValues, count));
+		}
+
+		/*
+		 * Returns this block with the delta applied; entries set to 0.0 are removed
+		 */
+		public SparseBlock apply(SparseBlock delta) {
+			long[] newKeys = new long[keys.length + delta.keys.length];
+			double[] newValues = new double[newKeys.length];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < keys.length || j < delta.keys.length) {
+				long key;
+				double value;
+				if (j >= delta.keys.length || (i < keys.length && keys[i] < delta.keys[j])) {
+					key = keys[i];
+					value = values[i];
+					i++;
+				} else if (i >= keys.length || delta.keys[j] < keys[i]) {
+					key = delta.keys[j];
+					value = delta.values[j];
+					j++;
+				} else {
+					key = delta.keys[j];
+					value = delta.values[j];
+					i++;
+					j++;
+				}
+				if (value != 0.0) {
+					newKeys[count] = key;
+					newValues[count] = value;
+					count++;
+				}
+			}
+			return new SparseBlock(Arrays.copyOf(newKeys, count), Arrays.copyOf(newValues, count));
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package ncbi.taggerOne.processing.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Writes periodic training checkpoints to a directory and restores the most recent one. The parameters of each registered model are copied on the training thread, then compared against the previous checkpoint and written on a
+ * background thread. Every fullInterval checkpoints a full snapshot is written and older files are deleted; checkpoints in between only hold the values that changed. Each checkpoint also holds an opaque block of trainer state.
+ */
+public class TrainingCheckpointer {
+
+	private static final Logger logger = LoggerFactory.getLogger(TrainingCheckpointer.class);
+
+	private static final int MAGIC = 0x54314350; // "T1CP"
+	private static final int VERSION = 1;
+	private static final Pattern FILENAME_PATTERN = Pattern.compile("checkpoint_(\\d+)_(full|delta)\\.bin\\.gz");
+
+	private File directory;
+	private int interval;
+	private int fullInterval;
+	private Map<String, Checkpointable> components;
+	private ExecutorService executor;
+	private Future<?> pendingWrite;
+
+	// Owned by the write in progress, if any
+	private ParameterSnapshot previousSnapshot;
+	private int sequence;
+	private int checkpointsSinceFull;
+
+	public TrainingCheckpointer(File directory, int interval, int fullInterval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be at least 1: " + interval);
+		}
+		if (fullInterval < 1) {
+			throw new IllegalArgumentException("fullInterval must be at least 1: " + fullInterval);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalArgumentException("Could not create checkpoint directory " + directory.getAbsolutePath());
+		}
+		this.directory = directory;
+		this.interval = interval;
+		this.fullInterval = fullInterval;
+		components = new LinkedHashMap<String, Checkpointable>();
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "TrainingCheckpointer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		pendingWrite = null;
+		previousSnapshot = null;
+		sequence = 0;
+		checkpointsSinceFull = 0;
+	}
+
+	public void register(String name, Checkpointable component) {
+		if (components.containsKey(name)) {
+			throw new IllegalArgumentException("Component already registered: " + name);
+		}
+		components.put(name, component);
+	}
+
+	public boolean isDue(int iteration) {
+		return iteration % interval == 0;
+	}
+
+	/*
+	 * Copies the current parameters and queues them to be written with the given trainer state. Waits for the previous checkpoint to finish writing first, so at most one copy is held in memory.
+	 */
+	public void checkpoint(byte[] state) {
+		waitForPendingWrite();
+		final ParameterSnapshot snapshot = new ParameterSnapshot();
+		for (Map.Entry<String, Checkpointable> entry : components.entrySet()) {
+			entry.getValue().captureParameters(entry.getKey(), snapshot);
+		}
+		final byte[] stateCopy = state.clone();
+		pendingWrite = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				write(snapshot, stateCopy);
+			}
+		});
+	}
+
+	private void write(ParameterSnapshot snapshot, byte[] state) {
+		boolean full = previousSnapshot == null || checkpointsSinceFull + 1 >= fullInterval;
+		int currentSequence = sequence + 1;
+		File file = new File(directory, getFilename(currentSequence, full));
+		File tempFile = new File(directory, file.getName() + ".tmp");
+		long start = System.currentTimeMillis();
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(currentSequence);
+			output.writeInt(state.length);
+			output.write(state);
+			snapshot.write(output, full ? null : previousSnapshot);
+			output.close();
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		logger.info("Wrote " + (full ? "full" : "delta") + " checkpoint " + file.getName() + " (" + file.length() + " bytes) in " + (System.currentTimeMillis() - start) + " ms");
+		sequence = currentSequence;
+		previousSnapshot = snapshot;
+		if (full) {
+			checkpointsSinceFull = 0;
+			deleteBefore(currentSequence);
+		} else {
+			checkpointsSinceFull++;
+		}
+	}
+
+	private void deleteBefore(int currentSequence) {
+		for (CheckpointFile checkpointFile : listCheckpointFiles()) {
+			if (checkpointFile.sequence < currentSequence && !checkpointFile.file.delete()) {
+				logger.warn("Could not delete old checkpoint " + checkpointFile.file.getAbsolutePath());
+			}
+		}
+	}
+
+	/*
+	 * Restores the parameters of the registered models from the most recent checkpoint and returns the trainer state saved with it, or null if there is no checkpoint.
+	 */
+	public byte[] restore() {
+		waitForPendingWrite();
+		List<CheckpointFile> checkpointFiles = listCheckpointFiles();
+		int fullIndex = -1;
+		for (int i = 0; i < checkpointFiles.size(); i++) {
+			if (checkpointFiles.get(i).full) {
+				fullIndex = i;
+			}
+		}
+		if (fullIndex < 0) {
+			logger.info("No checkpoint found in " + directory.getAbsolutePath());
+			return null;
+		}
+		ParameterSnapshot snapshot = null;
+		byte[] state = null;
+		int restoredSequence = 0;
+		int deltas = 0;
+		for (int i = fullIndex; i < checkpointFiles.size(); i++) {
+			CheckpointFile checkpointFile = checkpointFiles.get(i);
+			if (snapshot != null && checkpointFile.sequence != restoredSequence + 1) {
+				logger.warn("Checkpoint sequence has a gap before " + checkpointFile.file.getName() + "; ignoring later checkpoints");
+				break;
+			}
+			try {
+				DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(checkpointFile.file))));
+				try {
+					if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readInt() != checkpointFile.sequence) {
+						throw new IOException("Invalid checkpoint header");
+					}
+					byte[] fileState = new byte[input.readInt()];
+					input.readFully(fileState);
+					snapshot = ParameterSnapshot.read(input, snapshot);
+					state = fileState;
+				} finally {
+					input.close();
+				}
+			} catch (IOException e) {
+				if (snapshot == null) {
+					throw new RuntimeException("Could not read full checkpoint " + checkpointFile.file.getAbsolutePath(), e);
+				}
+				logger.warn("Could not read checkpoint " + checkpointFile.file.getName() + "; ignoring it and later checkpoints: " + e.getMessage());
+				break;
+			}
+			restoredSequence = checkpointFile.sequence;
+			if (!checkpointFile.full) {
+				deltas++;
+			}
+		}
+		for (Map.Entry<String, Checkpointable> entry : components.entrySet()) {
+			entry.getValue().restoreParameters(entry.getKey(), snapshot);
+		}
+		// Later checkpoints continue the chain, overwriting any unreadable files
+		previousSnapshot = snapshot;
+		sequence = restoredSequence;
+		checkpointsSinceFull = deltas;
+		logger.info("Restored checkpoint " + restoredSequence + " (" + deltas + " deltas) from " + directory.getAbsolutePath());
+		return state;
+	}
+
+	private List<CheckpointFile> listCheckpointFiles() {
+		List<CheckpointFile> checkpointFiles = new ArrayList<CheckpointFile>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Matcher matcher = FILENAME_PATTERN.matcher(file.getName());
+				if (matcher.matches()) {
+					checkpointFiles.add(new CheckpointFile(file, Integer.parseInt(matcher.group(1)), matcher.group(2).equals("full")));
+				}
+			}
+		}
+		Collections.sort(checkpointFiles, new Comparator<CheckpointFile>() {
+			@Override
+			public int compare(CheckpointFile checkpointFile1, CheckpointFile checkpointFile2) {
+				return Integer.compare(checkpointFile1.sequence, checkpointFile2.sequence);
+			}
+		});
+		return checkpointFiles;
+	}
+
+	private static String getFilename(int sequence, boolean full) {
+		return String.format("checkpoint_%06d_%s.bin.gz", sequence, full ? "full" : "delta");
+	}
+
+	private void waitForPendingWrite() {
+		if (pendingWrite == null) {
+			return;
+		}
+		try {
+			pendingWrite.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pendingWrite = null;
+		}
+	}
+
+	/*
+	 * Waits for the last checkpoint to be written and stops the background thread
+	 */
+	public void close() {
+		try {
+			waitForPendingWrite();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static class CheckpointFile {
+		File file;
+		int sequence;
+		boolean full;
+
+		public CheckpointFile(File file, int sequence, boolean full) {
+			this.file = file;
+			this.sequence = sequence;
+			this.full = full;
+		}
+	}
+}
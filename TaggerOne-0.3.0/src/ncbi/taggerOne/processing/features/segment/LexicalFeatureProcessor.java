@@ -28,13 +28,18 @@ import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.Trie;
 import ncbi.taggerOne.util.tokenization.Tokenizer;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
-public class LexicalFeatureProcessor implements FeatureProcessor {
+public class LexicalFeatureProcessor implements FeatureProcessor, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(LexicalFeatureProcessor.class);
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe loadFromFileProbe = Profiler.probe("ExactMatchLexicalFeatureProcessor.loadFromFile()");
+	private static final Profiler.Probe nameTypeTrieGetValueProbe = Profiler.probe("ExactMatchLexicalFeatureProcessor.nameTypeTrie.getValue()");
+	private static final Profiler.Probe prepareKeyProbe = Profiler.probe("ExactMatchLexicalFeatureProcessor.prepareKey()");
 
 	private String prefix;
 	private StringProcessor segmentProcessor;
@@ -64,8 +69,13 @@ public class LexicalFeatureProcessor implements FeatureProcessor {
 		}
 	}
 
+	@Override
+	public long getEstimatedBytes() {
+		return nameTypeTrie.getEstimatedBytes();
+	}
+
 	public void loadFromFile(String filename) {
-		Profiler.start("ExactMatchLexicalFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.start();
 		logger.info("Loading ExactMatchLexicalFeatureProcessor from file " + filename);
 		int entries = 0;
 		try {
@@ -93,7 +103,7 @@ public class LexicalFeatureProcessor implements FeatureProcessor {
 			throw new RuntimeException(e);
 		}
 		logger.info("Loaded " + entries + " entries into ExactMatchLexicalFeatureProcessor");
-		Profiler.stop("ExactMatchLexicalFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.stop();
 	}
 
 	private void addEntry(String name, List<String> types) {
@@ -112,9 +122,9 @@ public class LexicalFeatureProcessor implements FeatureProcessor {
 		for (int i = 0; i < segments.size(); i++) {
 			Segment segment = segments.get(i);
 			List<String> tokens = prepareKey(segment.getText());
-			Profiler.start("ExactMatchLexicalFeatureProcessor.nameTypeTrie.getValue()");
+			nameTypeTrieGetValueProbe.start();
 			Set<String> types = nameTypeTrie.get(tokens);
-			Profiler.stop("ExactMatchLexicalFeatureProcessor.nameTypeTrie.getValue()");
+			nameTypeTrieGetValueProbe.stop();
 			if (types != null) {
 				Vector<String> featureVector = segment.getFeatures();
 				logger.trace("Marking segment \"" + segment.getText() + "\" as lexical types: " + types);
@@ -127,7 +137,7 @@ public class LexicalFeatureProcessor implements FeatureProcessor {
 	}
 
 	private List<String> prepareKey(String segmentText) {
-		Profiler.start("ExactMatchLexicalFeatureProcessor.prepareKey()");
+		prepareKeyProbe.start();
 		String processedText = null;
 		if (segmentProcessor == null) {
 			processedText = segmentText;
@@ -146,7 +156,7 @@ public class LexicalFeatureProcessor implements FeatureProcessor {
 			}
 			tokens = processedTokens;
 		}
-		Profiler.stop("ExactMatchLexicalFeatureProcessor.prepareKey()");
+		prepareKeyProbe.stop();
 		return tokens;
 	}
 
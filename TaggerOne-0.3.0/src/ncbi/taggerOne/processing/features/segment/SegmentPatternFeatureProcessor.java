@@ -16,6 +16,7 @@ import ncbi.util.Profiler;
 public class SegmentPatternFeatureProcessor implements FeatureProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("SegmentPatternFeatureProcessor.process()");
 	private static final int MAX_LEN = 1024;
 
 	private String featureName;
@@ -56,7 +57,8 @@ public class SegmentPatternFeatureProcessor implements FeatureProcessor {
 
 	@Override
 	public void process(TextInstance input, FeatureProcessorCallback featureProcessorCallback) {
-		Profiler.start("SegmentPatternFeatureProcessor.process()@featureName=" + featureName);
+		Profiler.Probe featureProbe = processProbe.child(featureName);
+		featureProbe.start();
 		List<Segment> segments = input.getSegments();
 		for (int i = 0; i < segments.size(); i++) {
 			Segment segment = segments.get(i);
@@ -69,6 +71,6 @@ public class SegmentPatternFeatureProcessor implements FeatureProcessor {
 				}
 			}
 		}
-		Profiler.stop("SegmentPatternFeatureProcessor.process()@featureName=" + featureName);
+		featureProbe.stop();
 	}
 }
@@ -24,6 +24,7 @@ import ncbi.util.Profiler;
 public class BrownClustersFeatureProcessor implements FeatureProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe loadFromFileProbe = Profiler.probe("BrownClustersFeatureProcessor.loadFromFile()");
 
 	private static final Logger logger = LoggerFactory.getLogger(BrownClustersFeatureProcessor.class);
 
@@ -37,7 +38,7 @@ public class BrownClustersFeatureProcessor implements FeatureProcessor {
 		this.stringProcessor = stringProcessor;
 		this.prefixLengths = prefixLengths;
 		tokenToPath = new HashMap<String, String>();
-		Profiler.start("BrownClustersFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.start();
 		logger.info("Loading BrownClustersFeatureProcessor from file " + filename);
 		try {
 			BufferedReader reader = null;
@@ -66,7 +67,7 @@ public class BrownClustersFeatureProcessor implements FeatureProcessor {
 			throw new RuntimeException(e);
 		}
 		logger.info("Loaded " + tokenToPath.size() + " entries into BrownClustersFeatureProcessor");
-		Profiler.stop("BrownClustersFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.stop();
 	}
 
 	@Override
@@ -21,13 +21,18 @@ import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.Trie;
 import ncbi.taggerOne.util.tokenization.Tokenizer;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
-public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
+public class WordVectorClusterFeatureProcessor implements FeatureProcessor, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(WordVectorClusterFeatureProcessor.class);
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe loadFromFileProbe = Profiler.probe("WordVectorClusterFeatureProcessor.loadFromFile()");
+	private static final Profiler.Probe nameTypeTrieGetValueProbe = Profiler.probe("WordVectorClusterFeatureProcessor.nameTypeTrie.getValue()");
+	private static final Profiler.Probe prepareKeyProbe = Profiler.probe("WordVectorClusterFeatureProcessor.prepareKey()");
 
 	private String prefix;
 	private Tokenizer tokenizer;
@@ -39,8 +44,13 @@ public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
 		this.nameTypeTrie = new Trie<String, Set<String>>();
 	}
 
+	@Override
+	public long getEstimatedBytes() {
+		return nameTypeTrie.getEstimatedBytes();
+	}
+
 	public void loadFromFile(String filename) {
-		Profiler.start("WordVectorClusterFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.start();
 		logger.info("Loading WordVectorClusterFeatureProcessor from file " + filename);
 		int entries = 0;
 		try {
@@ -59,9 +69,9 @@ public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
 					String[] fields = line.split("\t");
 					List<String> nameTokens = prepareKey(fields[0]);
 					if (nameTokens != null && !nameTokens.isEmpty()) {
-						// Profiler.start("WordVectorClusterFeatureProcessor.nameTypeTrie.getValue()");
+						// nameTypeTrieGetValueProbe.start();
 						Set<String> result = nameTypeTrie.get(nameTokens);
-						// Profiler.stop("WordVectorClusterFeatureProcessor.nameTypeTrie.getValue()");
+						// nameTypeTrieGetValueProbe.stop();
 						if (result == null) {
 							result = new HashSet<String>();
 							nameTypeTrie.add(nameTokens, result);
@@ -81,7 +91,7 @@ public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
 			throw new RuntimeException(e);
 		}
 		logger.info("Loaded " + entries + " entries into WordVectorClusterFeatureProcessor");
-		Profiler.stop("WordVectorClusterFeatureProcessor.loadFromFile()");
+		loadFromFileProbe.stop();
 	}
 
 	@Override
@@ -92,9 +102,9 @@ public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
 			Vector<String> featureVector = token.getFeatures();
 			List<String> tokenKey = prepareKey(token.getText());
 			if (tokenKey != null && !tokenKey.isEmpty()) {
-				// Profiler.start("WordVectorClusterFeatureProcessor.nameTypeTrie.getValue()");
+				// nameTypeTrieGetValueProbe.start();
 				Set<String> types = nameTypeTrie.get(tokenKey);
-				// Profiler.stop("WordVectorClusterFeatureProcessor.nameTypeTrie.getValue()");
+				// nameTypeTrieGetValueProbe.stop();
 				for (String type : types) {
 					String featureName = prefix + "=" + type;
 					featureProcessorCallback.callback(featureName, 1.0, featureVector);
@@ -104,14 +114,14 @@ public class WordVectorClusterFeatureProcessor implements FeatureProcessor {
 	}
 
 	private List<String> prepareKey(String segmentText) {
-		Profiler.start("WordVectorClusterFeatureProcessor.prepareKey()");
+		prepareKeyProbe.start();
 		List<String> tokens = new ArrayList<String>();
 		tokenizer.reset(segmentText);
 		while (tokenizer.nextToken()) {
 			String token = segmentText.substring(tokenizer.startChar(), tokenizer.endChar());
 			tokens.add(token);
 		}
-		Profiler.stop("WordVectorClusterFeatureProcessor.prepareKey()");
+		prepareKeyProbe.stop();
 		// Ignore all inputs longer than one token
 		if (tokens.size() > 1) {
 			return null;
@@ -9,6 +9,7 @@ import ncbi.util.Profiler;
 public class MentionNameProcessingPipeline extends MentionNameProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("MentionNameProcessingPipeline.process()");
 
 	private List<MentionNameProcessor> processors;
 
@@ -22,13 +23,14 @@ public class MentionNameProcessingPipeline extends MentionNameProcessor {
 
 	@Override
 	public void process(MentionName entityName) {
-		Profiler.start("MentionNameProcessingPipeline.process()");
+		processProbe.start();
 		for (MentionNameProcessor p : processors) {
 			String mentionProcessorName = p.getClass().getName();
-			Profiler.start("MentionNameProcessingPipeline.process()@" + mentionProcessorName);
+			Profiler.Probe mentionProcessorProbe = processProbe.child(mentionProcessorName);
+			mentionProcessorProbe.start();
 			p.process(entityName);
-			Profiler.stop("MentionNameProcessingPipeline.process()@" + mentionProcessorName);
+			mentionProcessorProbe.stop();
 		}
-		Profiler.stop("MentionNameProcessingPipeline.process()");
+		processProbe.stop();
 	}
 }
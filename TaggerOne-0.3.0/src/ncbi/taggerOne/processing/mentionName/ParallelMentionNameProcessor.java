@@ -0,0 +1,198 @@
+package ncbi.taggerOne.processing.mentionName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ncbi.taggerOne.lexicon.Lexicon;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+
+/*
+ * Applies a MentionNameProcessor to all names of an entity type using a fork-join pool. Each name must be processed independently of all others, so processors that assign dictionary indices (such as the vector space
+ * extractors) must not be used here. Processors that are not thread-safe, such as tokenizers and stemmers, are copied once per worker thread. The copies share frozen dictionaries with the original, so the vectors they
+ * create have the same dictionary instances as the model.
+ */
+public class ParallelMentionNameProcessor extends MentionNameProcessor {
+
+	private static final long serialVersionUID = 1L;
+	private static final int SEQUENTIAL_THRESHOLD = 256;
+
+	private MentionNameProcessor processor;
+	private boolean threadSafe;
+	private transient ForkJoinPool pool;
+	private transient ThreadLocal<MentionNameProcessor> workerProcessors;
+
+	public ParallelMentionNameProcessor(ForkJoinPool pool, MentionNameProcessor processor, boolean threadSafe) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		this.pool = pool;
+		this.processor = processor;
+		this.threadSafe = threadSafe;
+		createWorkerProcessors();
+	}
+
+	/*
+	 * Creates a processor without a pool, for processing single names from multiple threads with process(MentionName)
+	 */
+	public ParallelMentionNameProcessor(MentionNameProcessor processor, boolean threadSafe) {
+		this.processor = processor;
+		this.threadSafe = threadSafe;
+		createWorkerProcessors();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		createWorkerProcessors();
+	}
+
+	/*
+	 * Created up front rather than on first use, so getting a worker's processor takes no lock
+	 */
+	private void createWorkerProcessors() {
+		workerProcessors = new ThreadLocal<MentionNameProcessor>() {
+			@Override
+			protected MentionNameProcessor initialValue() {
+				return copy(processor);
+			}
+		};
+	}
+
+	@Override
+	public void process(String entityType, Lexicon lexicon) {
+		List<MentionName> names = new ArrayList<MentionName>();
+		for (Entity entity : lexicon.getEntities(entityType)) {
+			names.addAll(entity.getNames());
+		}
+		processAll(names);
+	}
+
+	@Override
+	public void process(Entity entity) {
+		processAll(new ArrayList<MentionName>(entity.getNames()));
+	}
+
+	@Override
+	public void process(MentionName entityName) {
+		getWorkerProcessor().process(entityName);
+	}
+
+	public void processAll(final List<MentionName> names) {
+		if (pool == null) {
+			throw new IllegalStateException("ParallelMentionNameProcessor has no pool, either because it was created without one or after deserialization");
+		}
+		try {
+			pool.submit(new NameRangeAction(names, 0, names.size())).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private MentionNameProcessor getWorkerProcessor() {
+		if (threadSafe) {
+			return processor;
+		}
+		return workerProcessors.get();
+	}
+
+	/*
+	 * Copies the processor by serialization, except that frozen dictionaries are shared rather than copied: they are read-only, and vectors with the same dictionary instance compare without comparing the dictionaries
+	 */
+	private static MentionNameProcessor copy(MentionNameProcessor processor) {
+		final List<Dictionary<?>> sharedDictionaries = new ArrayList<Dictionary<?>>();
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bytes) {
+				{
+					enableReplaceObject(true);
+				}
+
+				@Override
+				protected Object replaceObject(Object obj) {
+					if (obj instanceof Dictionary && ((Dictionary<?>) obj).isFrozen()) {
+						sharedDictionaries.add((Dictionary<?>) obj);
+						return new SharedDictionary(sharedDictionaries.size() - 1);
+					}
+					return obj;
+				}
+			};
+			oos.writeObject(processor);
+			oos.close();
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+				{
+					enableResolveObject(true);
+				}
+
+				@Override
+				protected Object resolveObject(Object obj) {
+					if (obj instanceof SharedDictionary) {
+						return sharedDictionaries.get(((SharedDictionary) obj).index);
+					}
+					return obj;
+				}
+			};
+			MentionNameProcessor copy = (MentionNameProcessor) ois.readObject();
+			ois.close();
+			return copy;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/*
+	 * Stands in for a frozen dictionary while copying
+	 */
+	private static class SharedDictionary implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int index;
+
+		public SharedDictionary(int index) {
+			this.index = index;
+		}
+	}
+
+	private class NameRangeAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<MentionName> names;
+		private int start;
+		private int end;
+
+		public NameRangeAction(List<MentionName> names, int start, int end) {
+			this.names = names;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				MentionNameProcessor workerProcessor = getWorkerProcessor();
+				for (int i = start; i < end; i++) {
+					workerProcessor.process(names.get(i));
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new NameRangeAction(names, start, middle), new NameRangeAction(names, middle, end));
+		}
+	}
+}
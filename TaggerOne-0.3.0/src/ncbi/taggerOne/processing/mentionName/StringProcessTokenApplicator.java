@@ -11,6 +11,7 @@ import ncbi.util.Profiler;
 public class StringProcessTokenApplicator extends MentionNameProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("StringProcessTokenApplicator.process()");
 
 	private List<StringProcessor> processors;
 
@@ -24,9 +25,9 @@ public class StringProcessTokenApplicator extends MentionNameProcessor {
 
 	@Override
 	public void process(MentionName entityName) {
-		Profiler.start("StringProcessTokenApplicator.process()");
+		processProbe.start();
 		if (entityName.isLabel()) {
-			Profiler.stop("StringProcessTokenApplicator.process()");
+			processProbe.stop();
 			return;
 		}
 		List<String> tokens = entityName.getTokens();
@@ -34,7 +35,8 @@ public class StringProcessTokenApplicator extends MentionNameProcessor {
 		for (StringProcessor p : processors) {
 			ArrayList<String> newTokens = new ArrayList<String>(updatedTokens.size());
 			String mentionProcessorName = p.getClass().getName();
-			Profiler.start("StringProcessTokenApplicator.process()@" + mentionProcessorName);
+			Profiler.Probe mentionProcessorProbe = processProbe.child(mentionProcessorName);
+			mentionProcessorProbe.start();
 			for (int i = 0; i < updatedTokens.size(); i++) {
 				String token = updatedTokens.get(i);
 				token = p.process(token);
@@ -42,11 +44,11 @@ public class StringProcessTokenApplicator extends MentionNameProcessor {
 					newTokens.add(token);
 				}
 			}
-			Profiler.stop("StringProcessTokenApplicator.process()@" + mentionProcessorName);
+			mentionProcessorProbe.stop();
 			updatedTokens = newTokens;
 		}
 		updatedTokens.trimToSize();
 		entityName.setTokens(updatedTokens);
-		Profiler.stop("StringProcessTokenApplicator.process()");
+		processProbe.stop();
 	}
 }
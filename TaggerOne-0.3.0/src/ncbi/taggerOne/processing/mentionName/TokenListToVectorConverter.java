@@ -7,6 +7,7 @@ import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.VectorFactory;
+import ncbi.taggerOne.util.vector.VectorInterner;
 
 public class TokenListToVectorConverter extends MentionNameProcessor {
 
@@ -40,6 +41,8 @@ public class TokenListToVectorConverter extends MentionNameProcessor {
 		if (nameVector.isEmpty() && warnOnEmptyVector) {
 			logger.warn("name \"" + entityName.getName() + "\" resulted in an empty vector");
 		}
+		// Vectors are not modified after conversion, so they can be shared with equal name vectors
+		nameVector = VectorInterner.canonicalize(nameVector);
 		entityName.setVector(nameVector);
 		// FIXME
 		// if (!entityName.isLabel()) {
@@ -8,12 +8,14 @@ import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.VectorFactory;
+import ncbi.taggerOne.util.vector.VectorInterner;
 import ncbi.util.Profiler;
 
 public class TokenListToWeightedVectorConverter extends MentionNameProcessor {
 
 	private static final Logger logger = LoggerFactory.getLogger(TokenListToWeightedVectorConverter.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("TokenListToWeightedVectorConverter.process()");
 
 	private boolean dontNormalizeVectors;
 	private boolean warnOnEmptyVector;
@@ -34,7 +36,7 @@ public class TokenListToWeightedVectorConverter extends MentionNameProcessor {
 
 	@Override
 	public void process(MentionName entityName) {
-		Profiler.start("TokenListToWeightedVectorConverter.process()");
+		processProbe.start();
 		if (!vectorSpace.isFrozen()) {
 			throw new IllegalStateException("Cannot convert to vector until Dictionary is frozen");
 		}
@@ -59,10 +61,12 @@ public class TokenListToWeightedVectorConverter extends MentionNameProcessor {
 			nameVector.normalize();
 		}
 		nameVector.pack();
+		// Vectors are not modified after conversion, so they can be shared with equal name vectors
+		nameVector = VectorInterner.canonicalize(nameVector);
 		entityName.setVector(nameVector);
 		if (!entityName.isLabel()) {
 			entityName.setTokens(null);
 		}
-		Profiler.stop("TokenListToWeightedVectorConverter.process()");
+		processProbe.stop();
 	}
 }
\ No newline at end of file
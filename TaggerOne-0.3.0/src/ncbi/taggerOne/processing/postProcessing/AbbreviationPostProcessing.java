@@ -28,6 +28,7 @@ public class AbbreviationPostProcessing extends TextInstanceProcessor {
 
 	private static final Logger logger = LoggerFactory.getLogger(AbbreviationPostProcessing.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processAllProbe = Profiler.probe("AbbreviationPostProcessing.processAll()");
 
 	private AbbreviationResolver abbreviationResolver;
 	private int changeThreshold;
@@ -44,7 +45,7 @@ public class AbbreviationPostProcessing extends TextInstanceProcessor {
 
 	@Override
 	public void processAll(List<TextInstance> input) {
-		Profiler.start("AbbreviationPostProcessing.processAll()");
+		processAllProbe.start();
 
 		// For each abstract, get mentions and their count as each type
 		Map<String, TObjectIntMap<Set<Entity>>> mentionTextToEntityCounts = new HashMap<String, TObjectIntMap<Set<Entity>>>();
@@ -171,7 +172,7 @@ public class AbbreviationPostProcessing extends TextInstanceProcessor {
 			instance.setPredictedAnnotations(newAnnotationsList);
 		}
 
-		Profiler.stop("AbbreviationPostProcessing.processAll()");
+		processAllProbe.stop();
 	}
 
 	private static int vectorSum(TObjectIntMap<Set<Entity>> entityCountsForMention) {
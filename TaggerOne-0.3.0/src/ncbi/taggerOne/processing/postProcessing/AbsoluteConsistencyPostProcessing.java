@@ -58,17 +58,17 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 
 		// For mentions without annotations, add non
 		for (TextInstance instance : input) {
-			List<AnnotatedSegment> predictedAnnotations = instance.getPredictedAnnotations().getObject(0);
+			AnnotatedSegmentIndex predictedAnnotations = new AnnotatedSegmentIndex(instance.getPredictedAnnotations().getObject(0));
 			for (Segment segment : instance.getSegments()) {
 				// Determine if this text has at least one annotation
 				String mentionText = segment.getText();
 				Object2IntOpenHashMap<Set<Entity>> countsForMention = mentionTextToEntityCounts.get(mentionText);
 				if (countsForMention != null) {
 					// Determine if this segment has an annotation
-					AnnotatedSegment predictedSegment = find(segment, predictedAnnotations);
+					AnnotatedSegment predictedSegment = predictedAnnotations.find(segment);
 					if (predictedSegment == null) {
 						// This segment has no annotation, check if it has an overlapping prediction
-						AnnotatedSegment overlappingPrediction = overlap(segment, predictedAnnotations);
+						AnnotatedSegment overlappingPrediction = predictedAnnotations.overlap(segment);
 						// If no overlapping prediction, count as a nonentity
 						if (overlappingPrediction == null) {
 							countsForMention.addTo(nonEntitySet, 1);
@@ -80,7 +80,7 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 
 		// Change types of existing annotations as needed
 		for (TextInstance instance : input) {
-			List<AnnotatedSegment> predictedAnnotationsCopy = new ArrayList<AnnotatedSegment>(instance.getPredictedAnnotations().getObject(0));
+			AnnotatedSegmentIndex predictedAnnotationsCopy = new AnnotatedSegmentIndex(instance.getPredictedAnnotations().getObject(0));
 			List<AnnotatedSegment> newAnnotations = new ArrayList<AnnotatedSegment>();
 			for (Segment segment : instance.getSegments()) {
 				String mentionText = segment.getText();
@@ -88,7 +88,7 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 				Object2IntOpenHashMap<Set<Entity>> countsForMention = mentionTextToEntityCounts.get(mentionText);
 				if (countsForMention != null) {
 					Set<Entity> maxEntities = getMax(countsForMention);
-					AnnotatedSegment predictedSegment = find(segment, predictedAnnotationsCopy);
+					AnnotatedSegment predictedSegment = predictedAnnotationsCopy.find(segment);
 					Set<Entity> predictedEntities = nonEntitySet;
 					if (predictedSegment != null) {
 						predictedEntities = predictedSegment.getEntities();
@@ -97,7 +97,7 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 						// predicted entities for this segment and the entities most commonly predicted for this mention text do not match
 
 						// Output descriptive log message
-						AnnotatedSegment overlappingPrediction = overlap(segment, predictedAnnotationsCopy);
+						AnnotatedSegment overlappingPrediction = predictedAnnotationsCopy.overlap(segment);
 						String logText = instance.getSourceId() + "\t" + instance.getOffset() + "\t" + segment.getStartChar() + "->" + segment.getEndChar() + "\t" + segment.getText();
 						logText += "\tCounts = " + getCountString(countsForMention);
 						logText += "\tPrediction = " + Entity.visualizePrimaryIdentifiers(predictedEntities);
@@ -139,7 +139,7 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 			}
 
 			// Add remaining annotations
-			newAnnotations.addAll(predictedAnnotationsCopy);
+			newAnnotations.addAll(predictedAnnotationsCopy.getAnnotations());
 			Collections.sort(newAnnotations);
 
 			// Finalize
@@ -205,27 +205,6 @@ public class AbsoluteConsistencyPostProcessing extends TextInstanceProcessor {
 		return maxEntities;
 	}
 
-	private static AnnotatedSegment find(Segment segment, List<AnnotatedSegment> states) {
-		// TODO PERFORMANCE and DESIGN
-		for (AnnotatedSegment s : states) {
-			if (s.getStartChar() == segment.getStartChar() && s.getEndChar() == segment.getEndChar()) {
-				return s;
-			}
-		}
-		return null;
-	}
-
-	// Find a non-exact overlapping segment
-	private static AnnotatedSegment overlap(Segment segment, List<AnnotatedSegment> states) {
-		// TODO PERFORMANCE and DESIGN
-		for (AnnotatedSegment s : states) {
-			if (s.overlaps(segment) && (segment.getStartChar() != s.getStartChar() || segment.getEndChar() != s.getEndChar())) {
-				return s;
-			}
-		}
-		return null;
-	}
-
 	@Override
 	public void process(TextInstance input) {
 		throw new RuntimeException("Not allowed");
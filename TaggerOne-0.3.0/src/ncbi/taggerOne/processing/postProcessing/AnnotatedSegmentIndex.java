@@ -0,0 +1,124 @@
+package ncbi.taggerOne.processing.postProcessing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ncbi.taggerOne.types.AnnotatedSegment;
+import ncbi.taggerOne.types.Span;
+
+/*
+ * Finds annotations by span without scanning the whole list. The annotations are sorted by start offset, so exact matches are found by binary search and overlaps are limited to annotations starting within the longest
+ * annotation length. Where several annotations match, the one earliest in the original list is returned, the same as a linear scan; removed annotations are skipped.
+ */
+public class AnnotatedSegmentIndex {
+
+	private List<AnnotatedSegment> annotations;
+	// Index into annotations, sorted by start offset then position in the list
+	private int[] order;
+	private int[] starts;
+	private int maxLength;
+	private boolean[] removed;
+	private int removedCount;
+
+	public AnnotatedSegmentIndex(List<AnnotatedSegment> annotations) {
+		this.annotations = new ArrayList<AnnotatedSegment>(annotations);
+		int size = this.annotations.size();
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			AnnotatedSegment annotation = this.annotations.get(i);
+			keys[i] = ((long) annotation.getStartChar() << 32) | i;
+			maxLength = Math.max(maxLength, annotation.getEndChar() - annotation.getStartChar());
+		}
+		Arrays.sort(keys);
+		order = new int[size];
+		starts = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = (int) keys[i];
+			starts[i] = (int) (keys[i] >> 32);
+		}
+		removed = new boolean[size];
+		removedCount = 0;
+	}
+
+	/*
+	 * Returns the annotation with the same start and end as the span, or null if there is none
+	 */
+	public AnnotatedSegment find(Span span) {
+		int position = lowerBound(span.getStartChar());
+		while (position < order.length && starts[position] == span.getStartChar()) {
+			int index = order[position];
+			if (!removed[index] && annotations.get(index).getEndChar() == span.getEndChar()) {
+				return annotations.get(index);
+			}
+			position++;
+		}
+		return null;
+	}
+
+	/*
+	 * Returns an annotation that overlaps the span but does not have the same start and end, or null if there is none
+	 */
+	public AnnotatedSegment overlap(Span span) {
+		int bestIndex = Integer.MAX_VALUE;
+		// An overlapping annotation must start less than the longest annotation length before the span
+		int position = lowerBound(span.getStartChar() - maxLength + 1);
+		while (position < order.length && starts[position] < span.getEndChar()) {
+			int index = order[position];
+			AnnotatedSegment annotation = annotations.get(index);
+			if (index < bestIndex && !removed[index] && annotation.overlaps(span)
+					&& (span.getStartChar() != annotation.getStartChar() || span.getEndChar() != annotation.getEndChar())) {
+				bestIndex = index;
+			}
+			position++;
+		}
+		if (bestIndex == Integer.MAX_VALUE) {
+			return null;
+		}
+		return annotations.get(bestIndex);
+	}
+
+	/*
+	 * Removes the annotation, which must be the same instance as one in the index
+	 */
+	public void remove(AnnotatedSegment annotation) {
+		int position = lowerBound(annotation.getStartChar());
+		while (position < order.length && starts[position] == annotation.getStartChar()) {
+			int index = order[position];
+			if (!removed[index] && annotations.get(index) == annotation) {
+				removed[index] = true;
+				removedCount++;
+				return;
+			}
+			position++;
+		}
+		throw new IllegalArgumentException("Annotation is not in the index: " + annotation.getText());
+	}
+
+	/*
+	 * Returns the annotations not removed, in their original order
+	 */
+	public List<AnnotatedSegment> getAnnotations() {
+		List<AnnotatedSegment> remaining = new ArrayList<AnnotatedSegment>(annotations.size() - removedCount);
+		for (int i = 0; i < annotations.size(); i++) {
+			if (!removed[i]) {
+				remaining.add(annotations.get(i));
+			}
+		}
+		return remaining;
+	}
+
+	private int lowerBound(int start) {
+		int low = 0;
+		int high = starts.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (starts[middle] < start) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -62,6 +62,8 @@ public class CoordinationPostProcessor extends TextInstanceProcessor {
 	@Override
 	public void processAll(List<TextInstance> instances) {
 		Map<String, Set<String>> resolvedCoordinations = runSimConcept(instances);
+		// The same coordination usually appears several times in a document, so its normalization is remembered for the document
+		Map<String, List<Entity>> normalizedMentions = new HashMap<String, List<Entity>>();
 		for (TextInstance instance : instances) {
 			RankedList<List<AnnotatedSegment>> predictedAnnotationRankedList = instance.getPredictedAnnotations();
 			int size = predictedAnnotationRankedList.size();
@@ -78,21 +80,17 @@ public class CoordinationPostProcessor extends TextInstanceProcessor {
 					} else {
 						logger.info("COORDINATION: \"" + segment.getText() + "\" contains " + resolved.size() + " entities");
 						String entityClass = segment.getEntityClass();
-						NormalizationModelPredictor normalizationModelPredictor = normalizationTrainingPredictionModels.get(entityClass);
 						Set<Entity> newEntities = new HashSet<Entity>();
 						for (String mentionText : resolved) {
-							MentionName name = new MentionName(mentionText);
-							mentionNameProcessor.process(name);
-							Vector<String> mentionVector = name.getVector();
-							if (mentionVector != null) {
-								RankedList<Entity> bestEntites = new RankedList<Entity>(1);
-								normalizationModelPredictor.findBest(mentionVector, bestEntites);
-								logger.info("COORDINATION: \"" + mentionVector.visualize() + "\" returned " + bestEntites.size() + " entities");
-								for (int rank = 0; rank < bestEntites.size(); rank++) {
-									Entity entity = bestEntites.getObject(rank);
-									logger.info("COORDINATION: adding entity " + entity.getPrimaryName().getName());
-									newEntities.add(entity);
-								}
+							String key = entityClass + "\t" + mentionText;
+							List<Entity> entities = normalizedMentions.get(key);
+							if (entities == null) {
+								entities = normalize(entityClass, mentionText);
+								normalizedMentions.put(key, entities);
+							}
+							for (Entity entity : entities) {
+								logger.info("COORDINATION: adding entity " + entity.getPrimaryName().getName());
+								newEntities.add(entity);
 							}
 						}
 						AnnotatedSegment newSegment = new AnnotatedSegment(segment.getSourceText(), segment.getStartChar(), segment.getEndChar(), segment.getTokens(), newEntities, segment.getEntityScore());
@@ -105,6 +103,23 @@ public class CoordinationPostProcessor extends TextInstanceProcessor {
 		}
 	}
 
+	private List<Entity> normalize(String entityClass, String mentionText) {
+		List<Entity> entities = new ArrayList<Entity>();
+		MentionName name = new MentionName(mentionText);
+		mentionNameProcessor.process(name);
+		Vector<String> mentionVector = name.getVector();
+		if (mentionVector != null) {
+			NormalizationModelPredictor normalizationModelPredictor = normalizationTrainingPredictionModels.get(entityClass);
+			RankedList<Entity> bestEntites = new RankedList<Entity>(1);
+			normalizationModelPredictor.findBest(mentionVector, bestEntites);
+			logger.info("COORDINATION: \"" + mentionVector.visualize() + "\" returned " + bestEntites.size() + " entities");
+			for (int rank = 0; rank < bestEntites.size(); rank++) {
+				entities.add(bestEntites.getObject(rank));
+			}
+		}
+		return entities;
+	}
+
 	@Override
 	public void process(TextInstance input) {
 		throw new RuntimeException("Not allowed");
@@ -1,5 +1,7 @@
 package ncbi.taggerOne.processing.stoppingCriteria;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
@@ -129,4 +131,21 @@ public class EvaluationProcessorStoppingCriteria extends StoppingCriteria {
 	public double getHighestScore() {
 		return highestScore;
 	}
+
+	@Override
+	public void writeState(DataOutput output) throws IOException {
+		output.writeDouble(highestScore);
+		output.writeInt(previousIteration);
+		output.writeBoolean(previousModelOutputFilename != null);
+		if (previousModelOutputFilename != null) {
+			output.writeUTF(previousModelOutputFilename);
+		}
+	}
+
+	@Override
+	public void readState(DataInput input) throws IOException {
+		highestScore = input.readDouble();
+		previousIteration = input.readInt();
+		previousModelOutputFilename = input.readBoolean() ? input.readUTF() : null;
+	}
 }
@@ -1,5 +1,8 @@
 package ncbi.taggerOne.processing.stoppingCriteria;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 import ncbi.taggerOne.processing.TrainingProgressTracker;
@@ -21,4 +24,15 @@ public class StoppingCriteria implements Serializable {
 		return callback.getIteration() >= maxIterations;
 	}
 
-}
\ No newline at end of file
+	/*
+	 * Saves any state needed to resume training from a checkpoint; the default has none
+	 */
+	public void writeState(DataOutput output) throws IOException {
+		// Empty
+	}
+
+	public void readState(DataInput input) throws IOException {
+		// Empty
+	}
+
+}
\ No newline at end of file
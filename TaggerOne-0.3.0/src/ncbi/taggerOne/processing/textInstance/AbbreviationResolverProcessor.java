@@ -4,11 +4,13 @@ import ncbi.taggerOne.types.MentionName;
 import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
 public class AbbreviationResolverProcessor extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("AbbreviationResolverProcessor.process()");
 
 	private AbbreviationResolver abbreviationResolver;
 
@@ -20,16 +22,21 @@ public class AbbreviationResolverProcessor extends TextInstanceProcessor {
 		return abbreviationResolver;
 	}
 
+	@Override
+	public void registerMemoryAccounting() {
+		MemoryAccounting.register("abbreviations", abbreviationResolver);
+	}
+
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("AbbreviationResolverProcessor.process()");
+		processProbe.start();
 		for (Segment segment : input.getSegments()) {
 			// Do abbreviation pre-processing
 			MentionName mentionName = segment.getMentionName();
 			String id = input.getSourceId();
 			abbreviationResolver.expand(id, mentionName);
 		}
-		Profiler.stop("AbbreviationResolverProcessor.process()");
+		processProbe.stop();
 	}
 
 }
@@ -1,5 +1,12 @@
 package ncbi.taggerOne.processing.textInstance;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
@@ -7,13 +14,17 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.processing.checkpoint.TrainingCheckpointer;
 import ncbi.taggerOne.processing.stoppingCriteria.StoppingCriteria;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.util.Profiler;
@@ -24,6 +35,9 @@ public class AnnotationModelTrainer extends TextInstanceProcessor {
 	private static final Logger logger = LoggerFactory.getLogger(AnnotationModelTrainer.class);
 	public static final int[] DEFAULT_HASH_SEEDS = { 1758616143, -2030729035, 1541601825, -459744459, 1856439628, 1300393201, -1256964498, -1352518603, 1521303043, 1428983660, 363908407, 1578659438,
 			-432498204, 1039836170, -198760098, 1011801700, 29212369, 1537831493, 1323612324, 261725082 };
+	private static final Profiler.Probe trainingProbe = Profiler.probe("AnnotationModelTrainer.processAll():training");
+	private static final Profiler.Probe stoppingCriteriaProbe = Profiler.probe("AnnotationModelTrainer.processAll():stop");
+	private static final Profiler.Probe checkpointProbe = Profiler.probe("AnnotationModelTrainer.processAll():checkpoint");
 
 	private static final long serialVersionUID = 1L;
 
@@ -31,6 +45,9 @@ public class AnnotationModelTrainer extends TextInstanceProcessor {
 	private StoppingCriteria stoppingCriteria;
 	private TrainingProgressTracker callback;
 	private Comparator<TextInstance> instanceOrdering;
+	private Random random;
+	private transient TrainingCheckpointer checkpointer;
+	private transient boolean resume;
 
 	public AnnotationModelTrainer(TextInstanceProcessor trainingProcessor, StoppingCriteria stoppingCriteria, TrainingProgressTracker callback) {
 		this(trainingProcessor, stoppingCriteria, callback, null);
@@ -41,6 +58,15 @@ public class AnnotationModelTrainer extends TextInstanceProcessor {
 		this.stoppingCriteria = stoppingCriteria;
 		this.callback = callback;
 		this.instanceOrdering = instanceOrdering;
+		this.random = new Random();
+	}
+
+	/*
+	 * Writes a checkpoint after each iteration the checkpointer says is due, and optionally resumes from the latest checkpoint before training
+	 */
+	public void setCheckpointer(TrainingCheckpointer checkpointer, boolean resume) {
+		this.checkpointer = checkpointer;
+		this.resume = resume;
 	}
 
 	@Override
@@ -51,27 +77,93 @@ public class AnnotationModelTrainer extends TextInstanceProcessor {
 	@Override
 	public void processAll(List<TextInstance> input) {
 		List<TextInstance> input2 = new ArrayList<TextInstance>(input);
-		boolean stop = stoppingCriteria.stop();
+		boolean stop;
+		if (checkpointer != null && resume && restoreCheckpoint(input, input2)) {
+			// Checkpoints are only written when training continues
+			stop = false;
+		} else {
+			stop = stoppingCriteria.stop();
+		}
 		while (!stop) {
 			callback.resetUpdates();
 			if (instanceOrdering == null) {
-				Collections.shuffle(input2);
+				Collections.shuffle(input2, random);
 			} else {
 				Collections.sort(input2, instanceOrdering);
 			}
-			Profiler.start("AnnotationModelTrainer.processAll():training");
+			trainingProbe.start();
 			trainingProcessor.processAll(input2);
-			Profiler.stop("AnnotationModelTrainer.processAll():training");
+			trainingProbe.stop();
 
 			callback.incrementIteration();
 			int iteration = callback.getIteration();
 			// TODO Would reporting the training set hinge loss also be informative?
 			logger.info("Iteration " + iteration + ", updates = " + callback.getUpdates() + "/" + input2.size());
 			Profiler.print("\t");
-			Profiler.start("AnnotationModelTrainer.processAll():stop");
+			stoppingCriteriaProbe.start();
 			stop = stoppingCriteria.stop();
-			Profiler.stop("AnnotationModelTrainer.processAll():stop");
+			stoppingCriteriaProbe.stop();
+			if (!stop && checkpointer != null && checkpointer.isDue(iteration)) {
+				checkpointProbe.start();
+				checkpointer.checkpoint(getCheckpointState(input, input2));
+				checkpointProbe.stop();
+			}
+		}
+		if (checkpointer != null) {
+			checkpointer.close();
+		}
+	}
+
+	private byte[] getCheckpointState(List<TextInstance> input, List<TextInstance> input2) {
+		Map<TextInstance, Integer> inputIndices = new IdentityHashMap<TextInstance, Integer>();
+		for (int i = 0; i < input.size(); i++) {
+			inputIndices.put(input.get(i), i);
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(bytes);
+			callback.writeState(output);
+			stoppingCriteria.writeState(output);
+			output.writeInt(input2.size());
+			for (TextInstance instance : input2) {
+				output.writeInt(inputIndices.get(instance));
+			}
+			ObjectOutputStream oos = new ObjectOutputStream(output);
+			oos.writeObject(random);
+			oos.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private boolean restoreCheckpoint(List<TextInstance> input, List<TextInstance> input2) {
+		byte[] state = checkpointer.restore();
+		if (state == null) {
+			return false;
+		}
+		try {
+			DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(state));
+			callback.readState(inputStream);
+			stoppingCriteria.readState(inputStream);
+			int size = inputStream.readInt();
+			if (size != input.size()) {
+				throw new IllegalStateException("Checkpoint was written for " + size + " training instances, but there are " + input.size());
+			}
+			input2.clear();
+			for (int i = 0; i < size; i++) {
+				input2.add(input.get(inputStream.readInt()));
+			}
+			ObjectInputStream ois = new ObjectInputStream(inputStream);
+			random = (Random) ois.readObject();
+			ois.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
 		}
+		logger.info("Resuming training after iteration " + callback.getIteration());
+		return true;
 	}
 
 	public static class DeterministicShuffler extends SimpleComparator<TextInstance> {
@@ -20,6 +20,7 @@ public class AnnotationModelTrainingIteration extends TextInstanceProcessor {
 
 	private static final Logger logger = LoggerFactory.getLogger(AnnotationModelTrainingIteration.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("AnnotationModelTrainingIteration.process()");
 
 	protected Map<String, NormalizationModelPredictor> normalizationPredictionModels;
 	protected OnlineOptimizer optimizer;
@@ -37,7 +38,7 @@ public class AnnotationModelTrainingIteration extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("AnnotationModelTrainingIteration.process()");
+		processProbe.start();
 		long start = System.currentTimeMillis();
 		logger.debug(input.getInstanceId() + ": Getting target state sequence; elapsed=" + (System.currentTimeMillis() - start));
 		List<AnnotatedSegment> targetStateSequence = input.getTargetStateSequence();
@@ -117,6 +118,6 @@ public class AnnotationModelTrainingIteration extends TextInstanceProcessor {
 		if (callback != null) {
 			callback.incrementInstances();
 		}
-		Profiler.stop("AnnotationModelTrainingIteration.process()");
+		processProbe.stop();
 	}
 }
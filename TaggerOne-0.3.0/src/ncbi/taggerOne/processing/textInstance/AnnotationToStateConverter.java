@@ -17,6 +17,7 @@ import ncbi.util.Profiler;
 public class AnnotationToStateConverter extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("AnnotationToStateConverter.process()");
 
 	// TODO DESIGN Remove these to their own processors
 	private AbbreviationResolver abbreviationResolver;
@@ -31,7 +32,7 @@ public class AnnotationToStateConverter extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("AnnotationToStateConverter.process()");
+		processProbe.start();
 		// Convert annotations to states
 		// TODO What to do with mismatched boundaries
 		List<AnnotatedSegment> stateSegments = new ArrayList<AnnotatedSegment>();
@@ -81,7 +82,7 @@ public class AnnotationToStateConverter extends TextInstanceProcessor {
 			}
 		}
 		input.setTargetStateSequence(stateSegments);
-		Profiler.stop("AnnotationToStateConverter.process()");
+		processProbe.stop();
 	}
 
 	private static AnnotatedSegment getOverlapping(Token span, List<AnnotatedSegment> segments) {
@@ -17,6 +17,7 @@ import ncbi.taggerOne.lexicon.Lexicon;
 import ncbi.taggerOne.model.normalization.CachedNormalizationModel;
 import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
 import ncbi.taggerOne.model.recognition.RecognitionModelPredictor;
+import ncbi.taggerOne.processing.DocumentTrace;
 import ncbi.taggerOne.types.AnnotatedSegment;
 import ncbi.taggerOne.types.Entity;
 import ncbi.taggerOne.types.Segment;
@@ -24,13 +25,27 @@ import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.RankedList;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Histogram;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
 public class Annotator extends TextInstanceProcessor {
 
 	private static final Logger logger = LoggerFactory.getLogger(Annotator.class);
 	private static final long serialVersionUID = 1L;
 
+	public static final MetricFamily<Histogram> NORMALIZATION_LATENCY = Metrics.histogramFamily("taggerone_normalization_seconds", "Time to normalize a segment, by entity type", "entity_type");
+	private static final Profiler.Probe processProbe = Profiler.probe("Annotator.process()");
+	private static final Profiler.Probe scoreStateSequenceProbe = Profiler.probe("Annotator.scoreStateSequence()");
+	private static final Profiler.Probe getPredictedStateSequencesProbe = Profiler.probe("Annotator.getPredictedStateSequences()");
+	private static final Profiler.Probe getPredictedStateSequencesInitProbe = Profiler.probe("Annotator.getPredictedStateSequences():init");
+	private static final Profiler.Probe getPredictedStateSequencesFinalizeProbe = Profiler.probe("Annotator.getPredictedStateSequences():finalize");
+	private static final Profiler.Probe getBoundedPathsProbe = Profiler.probe("Annotator.getBoundedPaths()");
+	private static final Profiler.Probe getBestPathProbe = Profiler.probe("Annotator.getBestPath()");
+
 	protected Lexicon lexicon;
 	protected RecognitionModelPredictor recognitionModel;
 	protected Map<String, NormalizationModelPredictor> normalizationModels;
@@ -68,16 +83,36 @@ public class Annotator extends TextInstanceProcessor {
 		return normalizationModels;
 	}
 
+	/*
+	 * Registers the index, vector spaces and normalization model for each entity type, and the recognition model
+	 */
+	@Override
+	public void registerMemoryAccounting() {
+		for (String entityType : normalizationModels.keySet()) {
+			Index index = lexicon.getIndex(entityType);
+			MemoryAccounting.register(entityType + ".index", index);
+			MemoryAccounting.register(entityType + ".mention_vector_space", index.getMentionVectorSpace());
+			MemoryAccounting.register(entityType + ".name_vector_space", index.getNameVectorSpace());
+			NormalizationModelPredictor normalizationModel = normalizationModels.get(entityType);
+			if (normalizationModel instanceof MemoryAccountable) {
+				MemoryAccounting.register(entityType + ".normalization", (MemoryAccountable) normalizationModel);
+			}
+		}
+		if (recognitionModel instanceof MemoryAccountable) {
+			MemoryAccounting.register("recognition", (MemoryAccountable) recognitionModel);
+		}
+	}
+
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("Annotator.process()");
+		processProbe.start();
 		RankedList<List<AnnotatedSegment>> paths = getPredictedStateSequences(input);
 		input.setPredictedStates(paths);
-		Profiler.stop("Annotator.process()");
+		processProbe.stop();
 	}
 
 	public double scoreStateSequence(List<AnnotatedSegment> stateSequence) {
-		Profiler.start("Annotator.scoreStateSequence()");
+		scoreStateSequenceProbe.start();
 		if (logger.isTraceEnabled()) {
 			logger.trace("SCORE\tAnnotator.scoreStateSequence()");
 		}
@@ -104,18 +139,18 @@ public class Annotator extends TextInstanceProcessor {
 						+ nextSegment.getMentionName().getName() + "\t" + normalizationScore + "\t" + nextSegment.visualizeEntitiesPrimaryIdentifiers());
 			}
 		}
-		Profiler.stop("Annotator.scoreStateSequence()");
+		scoreStateSequenceProbe.stop();
 		return score;
 	}
 
 	public RankedList<List<AnnotatedSegment>> getPredictedStateSequences(TextInstance input) {
-		Profiler.start("Annotator.getPredictedStateSequences()");
-		Profiler.start("Annotator.getPredictedStateSequences():init");
+		getPredictedStateSequencesProbe.start();
+		getPredictedStateSequencesInitProbe.start();
 		// Initialize data structures to hold partial paths and scores
 		List<Token> tokens = input.getTokens();
 		int length = tokens.size();
 		PathNode[] paths = new PathNode[length];
-		Profiler.stop("Annotator.getPredictedStateSequences():init");
+		getPredictedStateSequencesInitProbe.stop();
 
 		for (int tokenIndex = 0; tokenIndex < length; tokenIndex++) {
 			// Given paths up to tokenIndex - 1 are calculated
@@ -125,7 +160,7 @@ public class Annotator extends TextInstanceProcessor {
 			paths[tokenIndex] = getBestPath(boundedPaths);
 		}
 
-		Profiler.start("Annotator.getPredictedStateSequences():finalize");
+		getPredictedStateSequencesFinalizeProbe.start();
 		RankedList<List<AnnotatedSegment>> rankedPaths = new RankedList<List<AnnotatedSegment>>(1);
 		if (length == 0) {
 			rankedPaths.add(0.0, new ArrayList<AnnotatedSegment>());
@@ -134,13 +169,13 @@ public class Annotator extends TextInstanceProcessor {
 			List<AnnotatedSegment> bestPath = finalPath.getFinalPath();
 			rankedPaths.add(finalPath.getPathScore(), bestPath);
 		}
-		Profiler.stop("Annotator.getPredictedStateSequences():finalize");
-		Profiler.stop("Annotator.getPredictedStateSequences()");
+		getPredictedStateSequencesFinalizeProbe.stop();
+		getPredictedStateSequencesProbe.stop();
 		return rankedPaths;
 	}
 
 	private List<PathNode> getBoundedPaths(PathNode[] paths, List<Segment> segments) {
-		Profiler.start("Annotator.getBoundedPaths()");
+		getBoundedPathsProbe.start();
 		List<PathNode> boundedPaths = new ArrayList<PathNode>(segments.size());
 
 		// Do segments as nonentity type
@@ -188,12 +223,12 @@ public class Annotator extends TextInstanceProcessor {
 			}
 		}
 
-		Profiler.stop("Annotator.getBoundedPaths()");
+		getBoundedPathsProbe.stop();
 		return boundedPaths;
 	}
 
 	private PathNode getBestPath(List<PathNode> boundedPaths) {
-		Profiler.start("Annotator.getBestPath()");
+		getBestPathProbe.start();
 		Collections.sort(boundedPaths);
 		PathNode bestPath = null;
 		for (int pathIndex = 0; pathIndex < boundedPaths.size(); pathIndex++) {
@@ -204,10 +239,11 @@ public class Annotator extends TextInstanceProcessor {
 					logger.trace("Annotator.getBestPath(): " + bestPath.getPathScore() + " > " + path.getBoundedPathScore() + " @ " + pathIndex + "/" + boundedPaths.size() + " " + bestPath.toString());
 				}
 				logger.trace("Annotator.getBestPath(): " + bestPath.getPathScore() + " > " + path.getBoundedPathScore() + " @ " + pathIndex + "/" + boundedPaths.size() + " {} ", bestPath);
-				Profiler.stop("Annotator.getBestPath()");
+				getBestPathProbe.stop();
 				return bestPath;
 			}
-			Profiler.start("Annotator.getBestPath()@" + Integer.toString(pathIndex));
+			Profiler.Probe pathProbe = getBestPathProbe.child(pathIndex);
+			pathProbe.start();
 			String entityType = path.getEntityType();
 			if (entityType.equals(T1Constants.NONENTITY_STATE)) {
 				path.setNormalization(0.0, lexicon.getNonEntity());
@@ -220,10 +256,15 @@ public class Annotator extends TextInstanceProcessor {
 				if (mentionVector != null) {
 					NormalizationModelPredictor normalizationPredictor = normalizationModels.get(entityType);
 					if (normalizationPredictor != null) {
+						long normalizationStart = System.nanoTime();
 						// TODO PERFORMANCE Only score the unknown entity if it couldn't run findBest
 						normalizationScore = normalizationPredictor.scoreEntity(mentionVector, index.getUnknownEntity());
 						RankedList<Entity> bestEntities = new RankedList<Entity>(1);
 						normalizationPredictor.findBest(mentionVector, bestEntities);
+						DocumentTrace trace = DocumentTrace.current();
+						if (trace != null) {
+							trace.countFindBest();
+						}
 						if (bestEntities.size() > 0) {
 							normalizationScore = bestEntities.getValue(0);
 							entity = bestEntities.getObject(0);
@@ -235,6 +276,7 @@ public class Annotator extends TextInstanceProcessor {
 							// normalizationPredictor.visualizeScore(mentionVector, bestName.getVector());
 							// }
 						}
+						NORMALIZATION_LATENCY.get(entityType).recordSince(normalizationStart);
 						if (logger.isTraceEnabled()) {
 							logger.trace("SCORE\tNORM\t" + segment.getStartChar() + "\t" + segment.getEndChar() + "\t" + entityType + "\t" + segment.getText() + "\t\t" + segment.getMentionName().getName() + "\t" + normalizationScore + "\t"
 									+ entity.getPrimaryIdentifier() + "\t" + segment.getMentionName().getVector().visualize());
@@ -248,12 +290,12 @@ public class Annotator extends TextInstanceProcessor {
 			} else if (path.getPathScore() > bestPath.getPathScore()) {
 				bestPath = path;
 			}
-			Profiler.stop("Annotator.getBestPath()@" + Integer.toString(pathIndex));
+			pathProbe.stop();
 		}
 		if (logger.isTraceEnabled()) {
 			logger.trace("Annotator.getBestPath(): " + bestPath.getPathScore() + " " + bestPath.toString());
 		}
-		Profiler.stop("Annotator.getBestPath()");
+		getBestPathProbe.stop();
 		return bestPath;
 	}
 
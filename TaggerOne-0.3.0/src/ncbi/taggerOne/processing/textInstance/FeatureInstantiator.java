@@ -8,36 +8,63 @@ import ncbi.taggerOne.types.Segment;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.taggerOne.types.Token;
 import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.vector.FeatureStore;
 import ncbi.taggerOne.util.vector.Vector;
 import ncbi.taggerOne.util.vector.VectorFactory;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
 /*
- * Instantiates the set of features for TextInstances
+ * Instantiates the set of features for TextInstances. If a FeatureStore is provided, the features are compacted into it once instantiated and the Tokens and Segments hold read-only slices of the store.
  */
 public class FeatureInstantiator extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("FeatureInstantiator.process()");
+	private static final Profiler.Probe processCreateProbe = Profiler.probe("FeatureInstantiator.process()@create");
+	private static final Profiler.Probe processStoreProbe = Profiler.probe("FeatureInstantiator.process()@store");
 
 	private VectorFactory vectorFactory;
 	private Dictionary<String> featureSet;
 	private List<FeatureProcessor> featureProcessors;
 	private FeatureProcessorCallback callback;
+	private transient FeatureStore featureStore;
 
 	public FeatureInstantiator(VectorFactory vectorFactory, Dictionary<String> featureSet, List<FeatureProcessor> featureProcessors) {
+		this(vectorFactory, featureSet, featureProcessors, null);
+	}
+
+	public FeatureInstantiator(VectorFactory vectorFactory, Dictionary<String> featureSet, List<FeatureProcessor> featureProcessors, FeatureStore featureStore) {
 		this.vectorFactory = vectorFactory;
 		this.featureSet = featureSet;
 		this.callback = new StandardFeatureInstantiatorCallback(featureSet);
 		this.featureProcessors = featureProcessors;
+		this.featureStore = featureStore;
+	}
+
+	public FeatureStore getFeatureStore() {
+		return featureStore;
+	}
+
+	@Override
+	public void registerMemoryAccounting() {
+		MemoryAccounting.register("recognition.feature_set", featureSet);
+		for (int processorIndex = 0; processorIndex < featureProcessors.size(); processorIndex++) {
+			FeatureProcessor featureProcessor = featureProcessors.get(processorIndex);
+			if (featureProcessor instanceof MemoryAccountable) {
+				MemoryAccounting.register("features." + processorIndex + "." + featureProcessor.getClass().getSimpleName(), (MemoryAccountable) featureProcessor);
+			}
+		}
 	}
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("FeatureInstantiator.process()");
+		processProbe.start();
 		if (!featureSet.isFrozen()) {
 			throw new IllegalStateException("Cannot instantiate features until Dictionary is frozen");
 		}
-		Profiler.start("FeatureInstantiator.process()@create");
+		processCreateProbe.start();
 		// Set the feature vector for each segment
 		for (Token token : input.getTokens()) {
 			token.setFeatures(vectorFactory.create(featureSet));
@@ -45,15 +72,26 @@ public class FeatureInstantiator extends TextInstanceProcessor {
 		for (Segment segment : input.getSegments()) {
 			segment.setFeatures(vectorFactory.create(featureSet));
 		}
-		Profiler.stop("FeatureInstantiator.process()@create");
+		processCreateProbe.stop();
 		// Instantiate the features
 		for (FeatureProcessor featureProcessor : featureProcessors) {
 			String featureProcessorName = featureProcessor.getClass().getName();
-			Profiler.start("FeatureInstantiator.process()@" + featureProcessorName);
+			Profiler.Probe featureProcessorProbe = processProbe.child(featureProcessorName);
+			featureProcessorProbe.start();
 			featureProcessor.process(input, callback);
-			Profiler.stop("FeatureInstantiator.process()@" + featureProcessorName);
+			featureProcessorProbe.stop();
+		}
+		if (featureStore != null) {
+			processStoreProbe.start();
+			for (Token token : input.getTokens()) {
+				token.setFeatures(featureStore.add(token.getFeatures()));
+			}
+			for (Segment segment : input.getSegments()) {
+				segment.setFeatures(featureStore.add(segment.getFeatures()));
+			}
+			processStoreProbe.stop();
 		}
-		Profiler.stop("FeatureInstantiator.process()");
+		processProbe.stop();
 	}
 
 	private static class StandardFeatureInstantiatorCallback implements FeatureProcessorCallback {
@@ -75,4 +113,4 @@ public class FeatureInstantiator extends TextInstanceProcessor {
 			}
 		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
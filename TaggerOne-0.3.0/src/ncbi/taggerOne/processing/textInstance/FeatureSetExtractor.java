@@ -15,6 +15,7 @@ import ncbi.util.Profiler;
 public class FeatureSetExtractor extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("FeatureSetExtractor.process()");
 
 	private Dictionary<String> featureSet;
 	private List<FeatureProcessor> featureProcessors;
@@ -28,17 +29,18 @@ public class FeatureSetExtractor extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("FeatureSetExtractor.process()");
+		processProbe.start();
 		if (featureSet.isFrozen()) {
 			throw new IllegalStateException("Cannot extract features after Dictionary is frozen");
 		}
 		for (FeatureProcessor featureProcessor : featureProcessors) {
 			String featureProcessorName = featureProcessor.getClass().getName();
-			Profiler.start("FeatureSetExtractor.process()@" + featureProcessorName);
+			Profiler.Probe featureProcessorProbe = processProbe.child(featureProcessorName);
+			featureProcessorProbe.start();
 			featureProcessor.process(input, callback);
-			Profiler.stop("FeatureSetExtractor.process()@" + featureProcessorName);
+			featureProcessorProbe.stop();
 		}
-		Profiler.stop("FeatureSetExtractor.process()");
+		processProbe.stop();
 	}
 
 	private class FeatureSetExtractorCallback implements FeatureProcessorCallback {
@@ -9,6 +9,7 @@ import ncbi.util.Profiler;
 public class InstanceElementClearer extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("InstanceElementClearer.process()");
 
 	private Set<InstanceElement> elementsToClear;
 
@@ -22,11 +23,11 @@ public class InstanceElementClearer extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("InstanceElementClearer.process()");
+		processProbe.start();
 		for (InstanceElement element : elementsToClear) {
 			element.clear(input);
 		}
-		Profiler.stop("InstanceElementClearer.process()");
+		processProbe.stop();
 	}
 
 	public enum InstanceElement {
@@ -12,6 +12,7 @@ import ncbi.util.Profiler;
 public class PredictedStatesToAnnotationConverter extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("PredictedStatesToAnnotationConverter.process()");
 
 	public PredictedStatesToAnnotationConverter() {
 		// Empty
@@ -19,7 +20,7 @@ public class PredictedStatesToAnnotationConverter extends TextInstanceProcessor
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("PredictedStatesToAnnotationConverter.process()");
+		processProbe.start();
 		RankedList<List<AnnotatedSegment>> predictedStates = input.getPredictedStates();
 		RankedList<List<AnnotatedSegment>> predictedAnnotations = new RankedList<List<AnnotatedSegment>>(predictedStates.maxSize());
 		for (int i = 0; i < predictedStates.size(); i++) {
@@ -34,6 +35,6 @@ public class PredictedStatesToAnnotationConverter extends TextInstanceProcessor
 			predictedAnnotations.add(predictedStates.getValue(i), predictedAnnotationsAtIndex);
 		}
 		input.setPredictedAnnotations(predictedAnnotations);
-		Profiler.stop("PredictedStatesToAnnotationConverter.process()");
+		processProbe.stop();
 	}
 }
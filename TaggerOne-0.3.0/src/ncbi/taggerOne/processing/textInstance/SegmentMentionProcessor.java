@@ -9,6 +9,7 @@ import ncbi.util.Profiler;
 public class SegmentMentionProcessor extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("SegmentMentionProcessor.process()");
 
 	private MentionNameProcessor processor;
 
@@ -22,15 +23,16 @@ public class SegmentMentionProcessor extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("SegmentMentionProcessor.process()");
+		processProbe.start();
 		for (Segment segment : input.getSegments()) {
 			MentionName mentionName = segment.getMentionName();
 			String mentionProcessorName = processor.getClass().getName();
-			Profiler.start("SegmentMentionProcessor.process()@" + mentionProcessorName);
+			Profiler.Probe mentionProcessorProbe = processProbe.child(mentionProcessorName);
+			mentionProcessorProbe.start();
 			processor.process(mentionName);
-			Profiler.stop("SegmentMentionProcessor.process()@" + mentionProcessorName);
+			mentionProcessorProbe.stop();
 		}
-		Profiler.stop("SegmentMentionProcessor.process()");
+		processProbe.stop();
 	}
 
 }
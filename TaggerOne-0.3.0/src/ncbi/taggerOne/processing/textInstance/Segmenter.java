@@ -14,6 +14,7 @@ import ncbi.util.Profiler;
 public class Segmenter extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("Segmenter.process()");
 
 	private int maxLength;
 
@@ -31,7 +32,7 @@ public class Segmenter extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("Segmenter.process()");
+		processProbe.start();
 		List<Token> inputTokens = input.getTokens();
 		List<Segment> segments = new ArrayList<Segment>();
 		for (int i = 0; i < inputTokens.size(); i++) {
@@ -43,6 +44,6 @@ public class Segmenter extends TextInstanceProcessor {
 			}
 		}
 		input.setSegments(segments);
-		Profiler.stop("Segmenter.process()");
+		processProbe.stop();
 	}
 }
\ No newline at end of file
@@ -3,8 +3,14 @@ package ncbi.taggerOne.processing.textInstance;
 import java.util.Arrays;
 import java.util.List;
 
+import ncbi.taggerOne.abbreviation.AbbreviationSourceProcessor;
+import ncbi.taggerOne.processing.DocumentTrace;
 import ncbi.taggerOne.types.TextInstance;
 import ncbi.util.ProgressReporter;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.Histogram;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
 public class TextInstanceProcessingPipeline extends TextInstanceProcessor {
 
@@ -12,8 +18,15 @@ public class TextInstanceProcessingPipeline extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
 
+	public static final MetricFamily<Histogram> STAGE_LATENCY = Metrics.histogramFamily("taggerone_pipeline_stage_seconds", "Time spent in each pipeline stage per text instance", "stage");
+	// Updated by the callers that process whole documents
+	public static final Counter DOCUMENTS = Metrics.counter("taggerone_documents_total", "Documents annotated");
+	public static final Histogram DOCUMENT_LATENCY = Metrics.histogram("taggerone_document_seconds", "Time to annotate a document, including post-processing");
+	public static final Histogram POST_PROCESSING_LATENCY = STAGE_LATENCY.get("postprocess");
+
 	private ProgressReporter reporter;
 	private List<TextInstanceProcessor> processors;
+	private transient Histogram[] stageLatencies;
 
 	public TextInstanceProcessingPipeline(ProgressReporter reporter, List<TextInstanceProcessor> processors) {
 		this.reporter = reporter;
@@ -34,11 +47,61 @@ public class TextInstanceProcessingPipeline extends TextInstanceProcessor {
 
 	@Override
 	public void process(TextInstance input) {
-		for (TextInstanceProcessor p : processors) {
-			p.process(input);
+		Histogram[] latencies = getStageLatencies();
+		DocumentTrace trace = DocumentTrace.current();
+		if (trace != null) {
+			trace.startInstance(input);
+		}
+		for (int processorIndex = 0; processorIndex < processors.size(); processorIndex++) {
+			TextInstanceProcessor processor = processors.get(processorIndex);
+			long start = System.nanoTime();
+			processor.process(input);
+			latencies[processorIndex].recordSince(start);
+			// Nested pipelines record their own stages
+			if (trace != null && !(processor instanceof TextInstanceProcessingPipeline)) {
+				trace.recordStage(getStageName(processor), System.nanoTime() - start);
+			}
 		}
 	}
 
+	private Histogram[] getStageLatencies() {
+		// Processors are not added after the pipeline is in use, so a race here only looks up the same histograms twice
+		Histogram[] latencies = stageLatencies;
+		if (latencies == null || latencies.length != processors.size()) {
+			latencies = new Histogram[processors.size()];
+			for (int processorIndex = 0; processorIndex < latencies.length; processorIndex++) {
+				latencies[processorIndex] = STAGE_LATENCY.get(getStageName(processors.get(processorIndex)));
+			}
+			stageLatencies = latencies;
+		}
+		return latencies;
+	}
+
+	/*
+	 * Returns the name of the stage the processor is reported under
+	 */
+	public static String getStageName(TextInstanceProcessor processor) {
+		if (processor instanceof TextInstanceTokenizer) {
+			return "tokenize";
+		}
+		if (processor instanceof Segmenter) {
+			return "segment";
+		}
+		if (processor instanceof FeatureInstantiator || processor instanceof FeatureSetExtractor) {
+			return "featurize";
+		}
+		if (processor instanceof Annotator) {
+			return "decode";
+		}
+		if (processor instanceof AbbreviationSourceProcessor || processor instanceof AbbreviationResolverProcessor) {
+			return "abbreviation";
+		}
+		if (processor instanceof SegmentMentionProcessor) {
+			return "mention_name";
+		}
+		return processor.getClass().getSimpleName();
+	}
+
 	@Override
 	public void processAll(List<TextInstance> input) {
 		if (reporter != null) {
@@ -48,7 +111,7 @@ public class TextInstanceProcessingPipeline extends TextInstanceProcessor {
 			TextInstance instance = input.get(instanceIndex);
 			process(instance);
 			if (reporter != null) {
-				reporter.reportCompletion(instanceIndex);
+				reporter.reportCompletion();
 			}
 		}
 		if (reporter != null) {
@@ -63,6 +126,13 @@ public class TextInstanceProcessingPipeline extends TextInstanceProcessor {
 		}
 	}
 
+	@Override
+	public void registerMemoryAccounting() {
+		for (TextInstanceProcessor p : processors) {
+			p.registerMemoryAccounting();
+		}
+	}
+
 	public List<TextInstanceProcessor> getProcessors() {
 		return processors;
 	}
@@ -25,4 +25,11 @@ public abstract class TextInstanceProcessor implements Serializable {
 		// Empty
 	}
 
+	/*
+	 * Registers the major structures held by this processor with MemoryAccounting
+	 */
+	public void registerMemoryAccounting() {
+		// Empty
+	}
+
 }
\ No newline at end of file
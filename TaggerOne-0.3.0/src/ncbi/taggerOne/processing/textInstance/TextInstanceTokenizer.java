@@ -1,5 +1,7 @@
 package ncbi.taggerOne.processing.textInstance;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,21 +11,39 @@ import ncbi.taggerOne.util.tokenization.Tokenizer;
 import ncbi.util.Profiler;
 
 /*
- * Converts an input text into individual tokens.
+ * Converts an input text into individual tokens. Tokenizers are stateful, so each thread uses its own copy of the tokenizer given.
  */
 public class TextInstanceTokenizer extends TextInstanceProcessor {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe processProbe = Profiler.probe("TextInstanceTokenizer.process()");
 
 	private Tokenizer tokenizer;
+	private transient ThreadLocal<Tokenizer> threadTokenizers;
 
 	public TextInstanceTokenizer(Tokenizer tokenizer) {
 		this.tokenizer = tokenizer;
+		initThreadTokenizers();
+	}
+
+	private void initThreadTokenizers() {
+		threadTokenizers = new ThreadLocal<Tokenizer>() {
+			@Override
+			protected Tokenizer initialValue() {
+				return tokenizer.newInstance();
+			}
+		};
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		initThreadTokenizers();
 	}
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("TextInstanceTokenizer.process()");
+		processProbe.start();
+		Tokenizer tokenizer = threadTokenizers.get();
 		String text = input.getText();
 		tokenizer.reset(text);
 		List<Token> tokens = new ArrayList<Token>();
@@ -34,6 +54,6 @@ public class TextInstanceTokenizer extends TextInstanceProcessor {
 			index++;
 		}
 		input.setTokens(tokens);
-		Profiler.stop("TextInstanceTokenizer.process()");
+		processProbe.stop();
 	}
 }
@@ -23,6 +23,9 @@ public class UnknownNormalizationIterationWrapper extends TextInstanceProcessor
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LoggerFactory.getLogger(UnknownNormalizationIterationWrapper.class);
+	private static final Profiler.Probe processProbe = Profiler.probe("UnknownNormalizationIterationWrapper.process()");
+	private static final Profiler.Probe guessAnyEntitiesProbe = Profiler.probe("UnknownNormalizationIterationWrapper.guessAnyEntities()");
+	private static final Profiler.Probe resolveAnyEntityProbe = Profiler.probe("UnknownNormalizationIterationWrapper.resolveAnyEntity()");
 
 	private AnnotationModelTrainingIteration trainingIteration;
 	private Lexicon lexicon;
@@ -36,7 +39,7 @@ public class UnknownNormalizationIterationWrapper extends TextInstanceProcessor
 
 	@Override
 	public void process(TextInstance input) {
-		Profiler.start("UnknownNormalizationIterationWrapper.process()");
+		processProbe.start();
 
 		// Get a copy of the instance with the any entities replaced with best guesses
 		TextInstance inputCopy = input.copy();
@@ -47,11 +50,11 @@ public class UnknownNormalizationIterationWrapper extends TextInstanceProcessor
 		trainingIteration.process(inputCopy);
 
 		// TODO Is there any cleanup needed?
-		Profiler.stop("UnknownNormalizationIterationWrapper.process()");
+		processProbe.stop();
 	}
 
 	private List<AnnotatedSegment> guessAnyEntities(List<AnnotatedSegment> segments) {
-		Profiler.start("UnknownNormalizationIterationWrapper.guessAnyEntities()");
+		guessAnyEntitiesProbe.start();
 		boolean updated = false;
 		List<AnnotatedSegment> segments2 = new ArrayList<AnnotatedSegment>();
 		for (AnnotatedSegment segment : segments) {
@@ -79,12 +82,12 @@ public class UnknownNormalizationIterationWrapper extends TextInstanceProcessor
 			logger.info("Raw target = " + AnnotatedSegment.visualizeStates(segments));
 			logger.info("Resolved target = " + AnnotatedSegment.visualizeStates(segments2));
 		}
-		Profiler.stop("UnknownNormalizationIterationWrapper.guessAnyEntities()");
+		guessAnyEntitiesProbe.stop();
 		return segments2;
 	}
 
 	private RankedList<Entity> resolveAnyEntity(AnnotatedSegment segment) {
-		Profiler.start("UnknownNormalizationIterationWrapper.resolveAnyEntity()");
+		resolveAnyEntityProbe.start();
 		String entityClass = segment.getEntityClass();
 		NormalizationModelPredictor normalizationModelPredictor = normalizationPredictionModels.get(entityClass);
 		Vector<String> mentionVector = segment.getMentionName().getVector();
@@ -99,7 +102,7 @@ public class UnknownNormalizationIterationWrapper extends TextInstanceProcessor
 			logger.error("Lookup returned no matches");
 			bestEntities.add(0.0, lexicon.getUnknownEntity(entityClass));
 		}
-		Profiler.stop("UnknownNormalizationIterationWrapper.resolveAnyEntity()");
+		resolveAnyEntityProbe.stop();
 		return bestEntities;
 	}
 }
@@ -12,26 +12,59 @@ import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ncbi.taggerOne.abbreviation.AbbreviationSource;
 import ncbi.taggerOne.types.MentionName;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
 
-public class AbbreviationResolver implements Serializable {
+public class AbbreviationResolver implements Serializable, MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(AbbreviationResolver.class);
+	private static final Profiler.Probe expandAbbreviationsProbe = Profiler.probe("AbbreviationResolver.expandAbbreviations()");
+	private static final Profiler.Probe loadAbbreviationsProbe = Profiler.probe("AbbreviationResolver.getDocumentAbbreviations()@LOAD");
+	private static final Profiler.Probe expandProbe = Profiler.probe("AbbreviationResolver.expand()");
 
 	private static final long serialVersionUID = 1L;
 
+	private static final Counter expansions = Metrics.counter("taggerone_abbreviation_expansions_total", "Short forms replaced while expanding abbreviations");
+	private static final MetricFamily<Counter> DOCUMENT_CACHE_REQUESTS = Metrics.counterFamily("taggerone_abbreviation_document_cache_requests_total", "Lookups of the abbreviations for a document from the abbreviation source, by result", "result");
+	private static final Counter documentCacheHits = DOCUMENT_CACHE_REQUESTS.get("hit");
+	private static final Counter documentCacheMisses = DOCUMENT_CACHE_REQUESTS.get("miss");
+
 	private Map<String, Map<String, String>> abbreviations;
+	// Kept as abbreviations are added so the size can be estimated without iterating the map while it is being modified
+	private long abbreviationCount;
+	private long abbreviationStringBytes;
+	// Abbreviations read when first needed for documents not added explicitly; not serialized
+	private transient AbbreviationSource abbreviationSource;
+	private transient LRUCache<String, DocumentAbbreviations> documentCache;
 
 	public AbbreviationResolver() {
 		abbreviations = new HashMap<String, Map<String, String>>();
 	}
 
+	/*
+	 * Sets the source for the abbreviations of documents that have none added explicitly. The source is queried at most once per document while the document is among the cacheSize most recently used, and must be
+	 * thread-safe if abbreviations are expanded from multiple threads.
+	 */
+	public void setAbbreviationSource(AbbreviationSource abbreviationSource, int cacheSize) {
+		this.abbreviationSource = abbreviationSource;
+		documentCache = null;
+		if (abbreviationSource != null) {
+			documentCache = new LRUCache<String, DocumentAbbreviations>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, cacheSize);
+		}
+	}
+
 	public void addAbbreviations(String id, Map<String, String> abbreviation) {
 		Map<String, String> abbreviationMap = abbreviations.get(id);
 		if (abbreviationMap == null) {
 			abbreviationMap = new HashMap<String, String>();
 			abbreviations.put(id, abbreviationMap);
+			abbreviationStringBytes += MemoryAccounting.string(id);
 		}
 		// Iterate through mappings and add
 		Iterator<String> shortFormIterator = abbreviation.keySet().iterator();
@@ -43,24 +76,56 @@ public class AbbreviationResolver implements Serializable {
 			if (longFormMatcher.find()) {
 				logger.warn("Ignoring abbreviation \"" + shortForm + "\" -> \"" + longForm + "\" because long form contains short form");
 			} else {
-				abbreviationMap.put(shortForm, longForm);
+				String previous = abbreviationMap.put(shortForm, longForm);
+				if (previous == null) {
+					abbreviationCount++;
+					abbreviationStringBytes += MemoryAccounting.string(shortForm);
+				} else {
+					abbreviationStringBytes -= MemoryAccounting.string(previous);
+				}
+				abbreviationStringBytes += MemoryAccounting.string(longForm);
 			}
 		}
 	}
 
 	public void clear() {
 		abbreviations.clear();
+		abbreviationCount = 0;
+		abbreviationStringBytes = 0;
+		if (documentCache != null) {
+			documentCache.clear();
+		}
 	}
 
 	public int size() {
 		return abbreviations.size();
 	}
 
+	/*
+	 * Counts the explicitly added abbreviations from totals kept as they are added, and the document cache when reading from an abbreviation source
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		int documentCount = abbreviations.size();
+		long bytes = MemoryAccounting.object(4, 16) + MemoryAccounting.hashMap(documentCount) + documentCount * MemoryAccounting.hashMap(0);
+		bytes += abbreviationCount * (MemoryAccounting.object(3, 4) + 2 * MemoryAccounting.REFERENCE_BYTES) + abbreviationStringBytes;
+		LRUCache<String, DocumentAbbreviations> cache = documentCache;
+		if (cache != null) {
+			bytes += cache.getEstimatedBytes();
+		}
+		return bytes;
+	}
+
 	public String expandAbbreviations(String documentId, String lookupText) {
-		Profiler.start("AbbreviationResolver.expandAbbreviations()");
+		expandAbbreviationsProbe.start();
 		Map<String, String> abbreviationMap = abbreviations.get(documentId);
+		DocumentAbbreviations documentAbbreviations = null;
+		if (abbreviationMap == null && abbreviationSource != null) {
+			documentAbbreviations = getDocumentAbbreviations(documentId);
+			abbreviationMap = documentAbbreviations.getAbbreviations();
+		}
 		if (abbreviationMap == null) {
-			Profiler.stop("AbbreviationResolver.expandAbbreviations()");
+			expandAbbreviationsProbe.stop();
 			return lookupText;
 		}
 		// Make a copy so we can mark short forms as used
@@ -76,7 +141,9 @@ public class AbbreviationResolver implements Serializable {
 				if (result.contains(shortForm)) {
 					String longForm = abbreviationMap.get(shortForm);
 					String updated = null;
-					if (result.contains(longForm)) {
+					if (documentAbbreviations != null) {
+						updated = documentAbbreviations.expand(result, shortForm, longForm);
+					} else if (result.contains(longForm)) {
 						// TODO PERFORMANCE Convert these to use Pattern
 						updated = result.replaceAll("\\s*\\(\\s*" + Pattern.quote(shortForm) + "\\s*\\)\\s*$", "");
 						updated = updated.replaceAll("\\s*\\(\\s*" + Pattern.quote(shortForm) + "\\s*\\)\\s*", " ");
@@ -87,27 +154,98 @@ public class AbbreviationResolver implements Serializable {
 					if (!updated.equals(result)) {
 						logger.trace("Resolving abbreviation \"" + shortForm + "\"->\"" + longForm + "\" to convert \"" + result + "\" to \"" + updated + "\" in document ID " + documentId);
 						result = updated;
+						expansions.increment();
 						// Remove this short form so it cannot be used again
 						shortFormIterator.remove();
 					}
 				}
 			}
 		}
-		Profiler.stop("AbbreviationResolver.expandAbbreviations()");
+		expandAbbreviationsProbe.stop();
 		return result;
 	}
 
+	private DocumentAbbreviations getDocumentAbbreviations(String documentId) {
+		DocumentAbbreviations documentAbbreviations = documentCache.get(documentId);
+		if (documentAbbreviations == null) {
+			documentCacheMisses.increment();
+			loadAbbreviationsProbe.start();
+			documentAbbreviations = new DocumentAbbreviations(abbreviationSource.getAbbreviations(documentId, null));
+			documentCache.put(documentId, documentAbbreviations);
+			loadAbbreviationsProbe.stop();
+		} else {
+			documentCacheHits.increment();
+		}
+		return documentAbbreviations;
+	}
+
 	// TODO Move this functionality to someplace related to a MentionNameProcessor
 	public void expand(String documentId, MentionName mentionName) {
 		if (mentionName.isLabel()) {
 			return;
 		}
-		Profiler.start("AbbreviationResolver.expand()");
+		expandProbe.start();
 		String originalText = mentionName.getName();
 		String modifiedText = expandAbbreviations(documentId, originalText);
 		if (!modifiedText.equals(originalText)) {
 			mentionName.setName(modifiedText);
 		}
-		Profiler.stop("AbbreviationResolver.expand()");
+		expandProbe.stop();
+	}
+
+	/*
+	 * The abbreviations for one document read from the abbreviation source, with the patterns for expanding each short form compiled once
+	 */
+	private static class DocumentAbbreviations implements MemoryAccountable {
+
+		private Map<String, String> abbreviations;
+		private Map<String, Pattern[]> patterns;
+		private long estimatedBytes;
+
+		public DocumentAbbreviations(Map<String, String> abbreviation) {
+			abbreviations = new HashMap<String, String>();
+			patterns = new HashMap<String, Pattern[]>();
+			for (String shortForm : abbreviation.keySet()) {
+				Pattern shortFormPattern = Pattern.compile("\\b" + Pattern.quote(shortForm) + "\\b");
+				String longForm = abbreviation.get(shortForm);
+				if (shortFormPattern.matcher(longForm).find()) {
+					logger.warn("Ignoring abbreviation \"" + shortForm + "\" -> \"" + longForm + "\" because long form contains short form");
+				} else {
+					abbreviations.put(shortForm, longForm);
+					Pattern parenthesizedAtEnd = Pattern.compile("\\s*\\(\\s*" + Pattern.quote(shortForm) + "\\s*\\)\\s*$");
+					Pattern parenthesized = Pattern.compile("\\s*\\(\\s*" + Pattern.quote(shortForm) + "\\s*\\)\\s*");
+					patterns.put(shortForm, new Pattern[] { shortFormPattern, parenthesizedAtEnd, parenthesized });
+				}
+			}
+			estimatedBytes = MemoryAccounting.object(2, 8) + MemoryAccounting.hashMapWithContents(abbreviations) + MemoryAccounting.hashMap(patterns.size());
+			for (Pattern[] shortFormPatterns : patterns.values()) {
+				estimatedBytes += MemoryAccounting.referenceArray(shortFormPatterns.length);
+				for (Pattern pattern : shortFormPatterns) {
+					// The compiled node graph is approximated as twice the size of the source
+					estimatedBytes += MemoryAccounting.object(10, 24) + 3 * MemoryAccounting.string(pattern.pattern());
+				}
+			}
+		}
+
+		@Override
+		public long getEstimatedBytes() {
+			return estimatedBytes;
+		}
+
+		public Map<String, String> getAbbreviations() {
+			return abbreviations;
+		}
+
+		/*
+		 * Same replacements as expandAbbreviations() makes for explicitly added abbreviations
+		 */
+		public String expand(String text, String shortForm, String longForm) {
+			Pattern[] shortFormPatterns = patterns.get(shortForm);
+			if (text.contains(longForm)) {
+				String updated = shortFormPatterns[1].matcher(text).replaceAll("");
+				return shortFormPatterns[2].matcher(updated).replaceAll(" ");
+			}
+			return shortFormPatterns[0].matcher(text).replaceAll(Matcher.quoteReplacement(longForm));
+		}
 	}
 }
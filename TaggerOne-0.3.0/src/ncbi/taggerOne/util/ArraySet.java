@@ -11,6 +11,7 @@ import ncbi.util.Profiler;
 public class ArraySet<E extends Serializable> implements Set<E>, Serializable {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe addProbe = Profiler.probe("ArraySet.add()");
 
 	private ArrayList<E> elements;
 
@@ -24,13 +25,13 @@ public class ArraySet<E extends Serializable> implements Set<E>, Serializable {
 
 	@Override
 	public boolean add(E e) {
-		Profiler.start("ArraySet.add()");
+		addProbe.start();
 		if (elements.contains(e)) {
-			Profiler.stop("ArraySet.add()");
+			addProbe.stop();
 			return false;
 		}
 		elements.add(e);
-		Profiler.stop("ArraySet.add()");
+		addProbe.stop();
 		return true;
 	}
 
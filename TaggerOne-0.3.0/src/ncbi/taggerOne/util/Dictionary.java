@@ -9,7 +9,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class Dictionary<E> implements Serializable {
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
+
+public class Dictionary<E> implements Serializable, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -19,6 +22,8 @@ public class Dictionary<E> implements Serializable {
 	private ArrayList<E> indexToElement;
 	private TObjectIntMap<E> elementToIndex;
 	private int hashCode;
+	// Computed once the dictionary is frozen, as the elements may be many
+	private transient long estimatedBytes;
 
 	public Dictionary() {
 		frozen = false;
@@ -41,6 +46,20 @@ public class Dictionary<E> implements Serializable {
 		return index;
 	}
 
+	/*
+	 * Replaces the element at the index with an equal instance, such as its canonical instance, so the dictionary holds that instance; indices are unchanged, so this is allowed when frozen
+	 */
+	public void replaceElement(int index, E element) {
+		E existing = indexToElement.get(index);
+		if (!existing.equals(element)) {
+			throw new IllegalArgumentException("Replacement element must equal the existing element");
+		}
+		// Trove keeps the existing key object on put, so it is removed first
+		elementToIndex.remove(existing);
+		elementToIndex.put(element, index);
+		indexToElement.set(index, element);
+	}
+
 	public int getIndex(E element) {
 		// Note Integer.MIN_VALUE is the no entry value
 		return elementToIndex.get(element);
@@ -70,6 +89,27 @@ public class Dictionary<E> implements Serializable {
 		return indexToElement.size();
 	}
 
+	/*
+	 * Counts the list, the Trove map and the elements that are Strings or estimate their own size, such as vectors
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		if (frozen && estimatedBytes > 0) {
+			return estimatedBytes;
+		}
+		long bytes = MemoryAccounting.object(3, 5);
+		bytes += MemoryAccounting.object(1, 8) + MemoryAccounting.referenceArray(indexToElement.size());
+		int capacity = ((TObjectIntHashMap<E>) elementToIndex).capacity();
+		bytes += MemoryAccounting.object(2, 32) + MemoryAccounting.referenceArray(capacity) + MemoryAccounting.array(capacity, 4);
+		for (int i = 0; i < indexToElement.size(); i++) {
+			bytes += MemoryAccounting.sizeOf(indexToElement.get(i));
+		}
+		if (frozen) {
+			estimatedBytes = bytes;
+		}
+		return bytes;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -7,7 +7,10 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class LRUCache<K, V> implements Serializable {
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
+
+public class LRUCache<K, V> implements Serializable, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -17,6 +20,7 @@ public class LRUCache<K, V> implements Serializable {
 	private int initialCapacity;
 	private float loadFactor;
 	private int maxSize;
+	private transient LRULinkedHashMap<K, V> entries;
 	private transient Map<K, V> cache;
 
 	public LRUCache(int initialCapacity, float loadFactor, int maxSize) {
@@ -29,12 +33,15 @@ public class LRUCache<K, V> implements Serializable {
 		this.initialCapacity = initialCapacity;
 		this.loadFactor = loadFactor;
 		this.maxSize = maxSize;
-		cache = Collections.synchronizedMap(new LRULinkedHashMap<K, V>(initialCapacity, loadFactor, maxSize));
+		entries = new LRULinkedHashMap<K, V>(initialCapacity, loadFactor, maxSize);
+		cache = Collections.synchronizedMap(entries);
 	}
 
 	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
 		in.defaultReadObject();
-		this.cache = new LRULinkedHashMap<K, V>(initialCapacity, loadFactor, maxSize);
+		// Synchronized as in the constructor: even get() modifies an access-ordered map, and deserialized models are shared between threads
+		this.entries = new LRULinkedHashMap<K, V>(initialCapacity, loadFactor, maxSize);
+		this.cache = Collections.synchronizedMap(entries);
 	}
 
 	private static class LRULinkedHashMap<K, V> extends LinkedHashMap<K, V> {
@@ -42,14 +49,47 @@ public class LRUCache<K, V> implements Serializable {
 		private static final long serialVersionUID = 1L;
 
 		private int maxSize;
+		// Total size of the keys and values, kept as entries are added and removed so the size can be estimated without iterating the map. Only changed while holding the lock of the synchronized map.
+		private volatile long entryBytes;
 
 		public LRULinkedHashMap(int initialCapacity, float loadFactor, int maxSize) {
 			super(initialCapacity, loadFactor, true);
 			this.maxSize = maxSize;
 		}
 
+		@Override
+		public V put(K key, V value) {
+			V previous = super.put(key, value);
+			if (previous == null) {
+				entryBytes += MemoryAccounting.sizeOf(key) + MemoryAccounting.sizeOf(value);
+			} else {
+				entryBytes += MemoryAccounting.sizeOf(value) - MemoryAccounting.sizeOf(previous);
+			}
+			return previous;
+		}
+
+		@Override
+		public V remove(Object key) {
+			V previous = super.remove(key);
+			if (previous != null) {
+				entryBytes -= MemoryAccounting.sizeOf(key) + MemoryAccounting.sizeOf(previous);
+			}
+			return previous;
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			entryBytes = 0;
+		}
+
+		@Override
 		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-			return size() > maxSize;
+			if (size() > maxSize) {
+				entryBytes -= MemoryAccounting.sizeOf(eldest.getKey()) + MemoryAccounting.sizeOf(eldest.getValue());
+				return true;
+			}
+			return false;
 		}
 
 	}
@@ -83,4 +123,15 @@ public class LRUCache<K, V> implements Serializable {
 	public int size() {
 		return cache.size();
 	}
+
+	/*
+	 * Counts the map and each key and value that can be sized, from a total kept as entries are added and evicted, so neither takes the cache lock nor iterates the entries. Assumes keys and values do not change size
+	 * while cached.
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = MemoryAccounting.object(2, 12) + MemoryAccounting.object(2, 0);
+		bytes += MemoryAccounting.linkedHashMap(entries.size(), loadFactor);
+		return bytes + entries.entryBytes;
+	}
 }
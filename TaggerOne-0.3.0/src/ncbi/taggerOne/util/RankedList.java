@@ -2,7 +2,10 @@ package ncbi.taggerOne.util;
 
 import java.io.Serializable;
 
-public class RankedList<E> implements Serializable {
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
+
+public class RankedList<E> implements Serializable, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -18,6 +21,14 @@ public class RankedList<E> implements Serializable {
 		objects = (E[]) new Object[maxSize];
 	}
 
+	/*
+	 * Counts the arrays but not the ranked objects, which are shared
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(2, 4) + MemoryAccounting.array(values.length, 8) + MemoryAccounting.referenceArray(objects.length);
+	}
+
 	public void add(double value, E obj) {
 		int index = size;
 		while ((index > 0) && (value > values[index - 1])) {
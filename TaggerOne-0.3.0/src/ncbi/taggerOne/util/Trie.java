@@ -6,11 +6,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
+
 /**
  * A Trie (also known as a prefix tree) essentially maps from a list of objects (keys) to a value. The interface is very similar, therefore, to the interface for {@link Map}, except that the key is a
  * {@link List} of objects. This data structure allows searching in O(m) time, where m is the depth of the tree.
  */
-public class Trie<K, V> implements Serializable {
+public class Trie<K, V> implements Serializable, MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -32,6 +35,14 @@ public class Trie<K, V> implements Serializable {
 		return root.size();
 	}
 
+	/*
+	 * Counts the nodes and their child maps, with the keys and values that can be sized
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(1, 0) + root.getEstimatedBytes();
+	}
+
 	private static class TrieNode<K, V> implements Serializable {
 
 		private static final long serialVersionUID = 1L;
@@ -89,6 +100,17 @@ public class Trie<K, V> implements Serializable {
 		public int size() {
 			return size;
 		}
+
+		public long getEstimatedBytes() {
+			long bytes = MemoryAccounting.object(2, 4) + MemoryAccounting.sizeOf(value);
+			if (children != null) {
+				bytes += MemoryAccounting.hashMap(children.size());
+				for (Map.Entry<K, TrieNode<K, V>> entry : children.entrySet()) {
+					bytes += MemoryAccounting.sizeOf(entry.getKey()) + entry.getValue().getEstimatedBytes();
+				}
+			}
+			return bytes;
+		}
 	}
 
 }
@@ -5,9 +5,11 @@ import java.io.Serializable;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.vector.DenseVector;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
-public class DenseByDenseMatrix<R, C> extends Matrix<R, C> {
+public class DenseByDenseMatrix<R, C> extends Matrix<R, C> implements MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -35,6 +37,15 @@ public class DenseByDenseMatrix<R, C> extends Matrix<R, C> {
 		return values[rowIndex].get(columnIndex);
 	}
 
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = MemoryAccounting.object(3, 8) + MemoryAccounting.referenceArray(values.length);
+		for (int rowIndex = 0; rowIndex < values.length; rowIndex++) {
+			bytes += values[rowIndex].getEstimatedBytes();
+		}
+		return bytes;
+	}
+
 	public Vector<C> getRowVector(int rowIndex) {
 		return values[rowIndex];
 	}
@@ -47,6 +58,29 @@ public class DenseByDenseMatrix<R, C> extends Matrix<R, C> {
 		values[rowIndex].increment(factor, rowVector);
 	}
 
+	/*
+	 * Copies all values into a single array in row-major order
+	 */
+	public double[] toArray() {
+		double[] array = new double[numRows * numColumns];
+		for (int rowIndex = 0; rowIndex < numRows; rowIndex++) {
+			values[rowIndex].copyTo(array, rowIndex * numColumns);
+		}
+		return array;
+	}
+
+	/*
+	 * Replaces all values from a single array in row-major order
+	 */
+	public void setFromArray(double[] array) {
+		if (array.length != numRows * numColumns) {
+			throw new IllegalArgumentException("Array length must equal number of rows times number of columns: " + array.length + " != " + (numRows * numColumns));
+		}
+		for (int rowIndex = 0; rowIndex < numRows; rowIndex++) {
+			values[rowIndex].copyFrom(array, rowIndex * numColumns);
+		}
+	}
+
 	@Override
 	public void set(int rowIndex, int columnIndex, double value) {
 		checkIndices(rowIndex, columnIndex);
@@ -5,9 +5,11 @@ import java.io.Serializable;
 import ncbi.taggerOne.util.Dictionary;
 import ncbi.taggerOne.util.vector.SparseVector;
 import ncbi.taggerOne.util.vector.Vector;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
-public class DenseBySparseMatrix<R, C> extends Matrix<R, C> {
+public class DenseBySparseMatrix<R, C> extends Matrix<R, C> implements MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -36,6 +38,20 @@ public class DenseBySparseMatrix<R, C> extends Matrix<R, C> {
 		return row.get(columnIndex);
 	}
 
+	/*
+	 * Counts the row array and each row present; the dictionaries are not counted
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = MemoryAccounting.object(3, 8) + MemoryAccounting.referenceArray(values.length);
+		for (int rowIndex = 0; rowIndex < values.length; rowIndex++) {
+			if (values[rowIndex] != null) {
+				bytes += values[rowIndex].getEstimatedBytes();
+			}
+		}
+		return bytes;
+	}
+
 	public Vector<C> getRowVector(int rowIndex) {
 		return values[rowIndex];
 	}
@@ -49,6 +65,12 @@ public class DenseBySparseMatrix<R, C> extends Matrix<R, C> {
 		row.increment(rowVector);
 	}
 
+	public void clear() {
+		for (int rowIndex = 0; rowIndex < numRows; rowIndex++) {
+			values[rowIndex] = null;
+		}
+	}
+
 	@Override
 	public void set(int rowIndex, int columnIndex, double value) {
 		checkIndices(rowIndex, columnIndex);
@@ -17,6 +17,17 @@ public abstract class Tokenizer implements Serializable {
 
 	public abstract int endChar();
 
+	/*
+	 * Returns a new tokenizer with the same configuration, for use by another thread; subclasses with configuration must override
+	 */
+	public Tokenizer newInstance() {
+		try {
+			return getClass().getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	// TODO TEST Verify this correctly handles Unicode characters && is independent of the current Locale
 	public static boolean isLowerCaseLetter(char ch) {
 		if (!Character.isLetter(ch)) {
@@ -0,0 +1,73 @@
+package ncbi.taggerOne.util.vector;
+
+/*
+ * Loops over double arrays for the dense vector operations, written so the JIT can compile them to SIMD instructions. Element-wise loops (axpy, add) have no dependency between iterations, which HotSpot's superword
+ * pass vectorizes. Reductions (dot, gatherDot) are split across four independent sums: a single sum forces one addition at a time, since floating point addition is not associative and the JIT will not reorder it.
+ * The results of the reductions may therefore differ from a simple loop in the last digits.
+ */
+public final class DenseKernels {
+
+	private DenseKernels() {
+		// Not instantiable
+	}
+
+	/*
+	 * Returns the sum of x[i] * y[i] for i < length
+	 */
+	public static double dot(double[] x, double[] y, int length) {
+		double sum0 = 0.0;
+		double sum1 = 0.0;
+		double sum2 = 0.0;
+		double sum3 = 0.0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += x[i] * y[i];
+			sum1 += x[i + 1] * y[i + 1];
+			sum2 += x[i + 2] * y[i + 2];
+			sum3 += x[i + 3] * y[i + 3];
+		}
+		for (; i < length; i++) {
+			sum0 += x[i] * y[i];
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/*
+	 * Sets y[i] += factor * x[i] for i < length
+	 */
+	public static void axpy(double factor, double[] x, double[] y, int length) {
+		for (int i = 0; i < length; i++) {
+			y[i] += factor * x[i];
+		}
+	}
+
+	/*
+	 * Sets y[i] += x[i] for i < length
+	 */
+	public static void add(double[] x, double[] y, int length) {
+		for (int i = 0; i < length; i++) {
+			y[i] += x[i];
+		}
+	}
+
+	/*
+	 * Returns the sum of values[i] * dense[indices[i]] for i < length, the dot product of a dense vector with a sparse vector held as parallel arrays
+	 */
+	public static double gatherDot(double[] dense, int[] indices, double[] values, int length) {
+		double sum0 = 0.0;
+		double sum1 = 0.0;
+		double sum2 = 0.0;
+		double sum3 = 0.0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += values[i] * dense[indices[i]];
+			sum1 += values[i + 1] * dense[indices[i + 1]];
+			sum2 += values[i + 2] * dense[indices[i + 2]];
+			sum3 += values[i + 3] * dense[indices[i + 3]];
+		}
+		for (; i < length; i++) {
+			sum0 += values[i] * dense[indices[i]];
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+}
@@ -6,11 +6,13 @@ import java.util.Arrays;
 import java.util.List;
 
 import ncbi.taggerOne.util.Dictionary;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 
 /*
  * An array of values. Used in conjunction with a Dictionary.
  */
-public class DenseVector<E> extends Vector<E> {
+public class DenseVector<E> extends Vector<E> implements MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -35,6 +37,11 @@ public class DenseVector<E> extends Vector<E> {
 		this.values = values;
 	}
 
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(2, 0) + MemoryAccounting.array(values.length, 8);
+	}
+
 	public boolean isEmpty() {
 		for (int i = 0; i < values.length; i++) {
 			if (values[i] != 0.0) {
@@ -65,13 +72,15 @@ public class DenseVector<E> extends Vector<E> {
 	@Override
 	public void increment(double factor, Vector<E> vector) {
 		checkDictionary(vector);
-		if (vector instanceof SparseVector) {
+		if (vector instanceof SparseVector || vector instanceof FrozenSparseVector || vector instanceof FeatureSliceVector) {
 			VectorIterator iterator = vector.getIterator();
 			while (iterator.next()) {
 				int index = iterator.getIndex();
 				double value = iterator.getValue();
 				values[index] += factor * value;
 			}
+		} else if (vector instanceof DenseVector) {
+			DenseKernels.axpy(factor, ((DenseVector<E>) vector).values, values, values.length);
 		} else {
 			int size = dictionary.size();
 			for (int i = 0; i < size; i++) {
@@ -83,13 +92,15 @@ public class DenseVector<E> extends Vector<E> {
 	@Override
 	public void increment(Vector<E> vector) {
 		checkDictionary(vector);
-		if (vector instanceof SparseVector) {
+		if (vector instanceof SparseVector || vector instanceof FrozenSparseVector || vector instanceof FeatureSliceVector) {
 			VectorIterator iterator = vector.getIterator();
 			while (iterator.next()) {
 				int index = iterator.getIndex();
 				double value = iterator.getValue();
 				values[index] += value;
 			}
+		} else if (vector instanceof DenseVector) {
+			DenseKernels.add(((DenseVector<E>) vector).values, values, values.length);
 		} else {
 			int size = dictionary.size();
 			for (int i = 0; i < size; i++) {
@@ -100,12 +111,7 @@ public class DenseVector<E> extends Vector<E> {
 
 	@Override
 	public double length() {
-		double length = 0.0;
-		int size = dictionary.size();
-		for (int i = 0; i < size; i++) {
-			length += values[i] * values[i];
-		}
-		return Math.sqrt(length);
+		return Math.sqrt(DenseKernels.dot(values, values, values.length));
 	}
 
 	@Override
@@ -122,10 +128,24 @@ public class DenseVector<E> extends Vector<E> {
 		// Empty
 	}
 
+	public void copyTo(double[] target, int offset) {
+		System.arraycopy(values, 0, target, offset, values.length);
+	}
+
+	public void copyFrom(double[] source, int offset) {
+		System.arraycopy(source, offset, values, 0, values.length);
+	}
+
 	@Override
 	public double dotProduct(Vector<E> vector) {
 		checkDictionary(vector);
-		// TODO PERFORMANCE Fix this to take advantage of sparsity in the other vector
+		if (vector instanceof DenseVector) {
+			return DenseKernels.dot(values, ((DenseVector<E>) vector).values, values.length);
+		}
+		if (vector instanceof SparseVector || vector instanceof FrozenSparseVector || vector instanceof SparseArrayVector || vector instanceof FeatureSliceVector) {
+			// Only visits the entries of the other vector
+			return vector.dotProduct(this);
+		}
 		double sum = 0.0;
 		int size = dictionary.size();
 		for (int i = 0; i < size; i++) {
@@ -212,4 +232,4 @@ public class DenseVector<E> extends Vector<E> {
 	public String toString() {
 		return "DenseVector " + visualize();
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package ncbi.taggerOne.util.vector;
+
+import java.io.ObjectStreamException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+import ncbi.taggerOne.util.Dictionary;
+
+/*
+ * A read-only Vector backed by a slice of a FeatureStore. Entries are sorted by index, so lookups use binary search and dot products against dense vectors read the weight array directly.
+ */
+public class FeatureSliceVector<E> extends Vector<E> {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient FeatureStore store;
+	private int chunk;
+	private int offset;
+	private int size;
+
+	FeatureSliceVector(Dictionary<E> dictionary, FeatureStore store, int chunk, int offset, int size) {
+		super(dictionary);
+		this.store = store;
+		this.chunk = chunk;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public int cardinality() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public double get(int index) {
+		checkIndex(index);
+		if (size == 0) {
+			return 0.0;
+		}
+		IntBuffer indices = store.getIndexChunk(chunk);
+		int low = offset;
+		int high = offset + size - 1;
+		while (high >= low) {
+			int middle = (low + high) >>> 1;
+			int indexAtMiddle = indices.get(middle);
+			if (indexAtMiddle == index) {
+				return store.getValueChunk(chunk).get(middle);
+			}
+			if (indexAtMiddle < index) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return 0.0;
+	}
+
+	@Override
+	public void set(int index, double value) {
+		throw new UnsupportedOperationException("FeatureSliceVector is read-only");
+	}
+
+	@Override
+	public void increment(int index, double value) {
+		throw new UnsupportedOperationException("FeatureSliceVector is read-only");
+	}
+
+	@Override
+	public void increment(double factor, Vector<E> vector) {
+		throw new UnsupportedOperationException("FeatureSliceVector is read-only");
+	}
+
+	@Override
+	public void increment(Vector<E> vector) {
+		throw new UnsupportedOperationException("FeatureSliceVector is read-only");
+	}
+
+	@Override
+	public double length() {
+		if (size == 0) {
+			return 0.0;
+		}
+		DoubleBuffer values = store.getValueChunk(chunk);
+		double length = 0.0;
+		for (int i = offset; i < offset + size; i++) {
+			double value = values.get(i);
+			length += value * value;
+		}
+		return Math.sqrt(length);
+	}
+
+	@Override
+	public void normalize() {
+		throw new UnsupportedOperationException("FeatureSliceVector is read-only");
+	}
+
+	@Override
+	public void pack() {
+		// Empty
+	}
+
+	@Override
+	public double dotProduct(Vector<E> vector) {
+		checkDictionary(vector);
+		if (size == 0) {
+			return 0.0;
+		}
+		IntBuffer indices = store.getIndexChunk(chunk);
+		DoubleBuffer values = store.getValueChunk(chunk);
+		double sum = 0.0;
+		if (vector instanceof DenseVector) {
+			double[] denseValues = ((DenseVector<E>) vector).values;
+			for (int i = offset; i < offset + size; i++) {
+				sum += values.get(i) * denseValues[indices.get(i)];
+			}
+		} else {
+			for (int i = offset; i < offset + size; i++) {
+				sum += values.get(i) * vector.get(indices.get(i));
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public Vector<E> copy() {
+		SparseVector<E> copy = new SparseVector<E>(dictionary);
+		VectorIterator iterator = getIterator();
+		while (iterator.next()) {
+			copy.set(iterator.getIndex(), iterator.getValue());
+		}
+		return copy;
+	}
+
+	/*
+	 * The store is not serialized; serialized forms hold an independent copy
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return copy();
+	}
+
+	@Override
+	public String visualize() {
+		StringBuilder str = new StringBuilder("[");
+		VectorIterator iterator = getIterator();
+		boolean first = true;
+		while (iterator.next()) {
+			if (!first) {
+				str.append(", ");
+			}
+			first = false;
+			int index = iterator.getIndex();
+			str.append(index);
+			str.append(":");
+			str.append(dictionary.getElement(index));
+			str.append("=");
+			str.append(iterator.getValue());
+		}
+		str.append("]");
+		return str.toString();
+	}
+
+	@Override
+	public VectorIterator getIterator() {
+		return new FeatureSliceVectorIterator();
+	}
+
+	private class FeatureSliceVectorIterator implements VectorIterator {
+
+		private IntBuffer indices;
+		private DoubleBuffer values;
+		private int currentPosition;
+
+		public FeatureSliceVectorIterator() {
+			if (size > 0) {
+				indices = store.getIndexChunk(chunk);
+				values = store.getValueChunk(chunk);
+			}
+			currentPosition = offset - 1;
+		}
+
+		@Override
+		public boolean next() {
+			currentPosition++;
+			return currentPosition < offset + size;
+		}
+
+		@Override
+		public int getIndex() {
+			return indices.get(currentPosition);
+		}
+
+		@Override
+		public double getValue() {
+			return values.get(currentPosition);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		VectorIterator iterator = getIterator();
+		while (iterator.next()) {
+			result = prime * result + iterator.getIndex();
+			result = prime * result + Double.hashCode(iterator.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		FeatureSliceVector<?> other = (FeatureSliceVector<?>) obj;
+		if (size != other.size)
+			return false;
+		VectorIterator iterator = getIterator();
+		VectorIterator otherIterator = other.getIterator();
+		while (iterator.next() && otherIterator.next()) {
+			if (iterator.getIndex() != otherIterator.getIndex() || iterator.getValue() != otherIterator.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "FeatureSliceVector " + visualize();
+	}
+}
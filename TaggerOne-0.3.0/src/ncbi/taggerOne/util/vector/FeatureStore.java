@@ -0,0 +1,230 @@
+package ncbi.taggerOne.util.vector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+
+/*
+ * Columnar (CSR) storage for the feature vectors of training instances. Each stored vector is a slice of a chunk: a run of sorted feature indices in an int column and the matching values in a double column. Chunks can be
+ * allocated on the heap, off-heap (direct buffers) or memory-mapped from a spill file, so that very large training sets do not need one Int2DoubleOpenHashMap per Token and Segment. Stored vectors are read-only.
+ */
+public class FeatureStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(FeatureStore.class);
+
+	public static final int DEFAULT_CHUNK_ENTRIES = 1 << 20;
+	private static final int INDEX_BYTES = 4;
+	private static final int VALUE_BYTES = 8;
+
+	public enum Storage {
+		HEAP, DIRECT, MAPPED
+	}
+
+	private Storage storage;
+	private int chunkEntries;
+	private File spillFile;
+	private RandomAccessFile spillRandomAccessFile;
+	private FileChannel spillChannel;
+
+	// Replaced, not modified, when a chunk is added under the lock, so vectors read them without locking
+	private volatile IntBuffer[] indexChunks;
+	private volatile DoubleBuffer[] valueChunks;
+	private int currentChunkSize;
+	private long entryCount;
+	private long sliceCount;
+
+	// Scratch space, reused between calls to add()
+	private int[] scratchIndices;
+	private double[] scratchValues;
+	private long[] scratchSort;
+
+	public FeatureStore(Storage storage) {
+		this(storage, null, DEFAULT_CHUNK_ENTRIES);
+	}
+
+	public FeatureStore(Storage storage, File spillDirectory, int chunkEntries) {
+		if (storage == null) {
+			throw new IllegalArgumentException("storage cannot be null");
+		}
+		if (chunkEntries < 1) {
+			throw new IllegalArgumentException("chunkEntries must be at least 1: " + chunkEntries);
+		}
+		if (chunkEntries > Integer.MAX_VALUE / VALUE_BYTES) {
+			throw new IllegalArgumentException("chunkEntries must be at most " + (Integer.MAX_VALUE / VALUE_BYTES) + ": " + chunkEntries);
+		}
+		this.storage = storage;
+		this.chunkEntries = chunkEntries;
+		if (storage == Storage.MAPPED) {
+			try {
+				spillFile = File.createTempFile("features", ".bin", spillDirectory);
+				spillFile.deleteOnExit();
+				spillRandomAccessFile = new RandomAccessFile(spillFile, "rw");
+				spillChannel = spillRandomAccessFile.getChannel();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			logger.info("Feature store spill file is " + spillFile.getAbsolutePath());
+		}
+		indexChunks = new IntBuffer[0];
+		valueChunks = new DoubleBuffer[0];
+		currentChunkSize = chunkEntries; // Forces allocation on first add
+		entryCount = 0;
+		sliceCount = 0;
+		scratchIndices = new int[16];
+		scratchValues = new double[16];
+		scratchSort = new long[16];
+	}
+
+	/*
+	 * Copies the nonzero entries of the vector into the store and returns a read-only view of them.
+	 */
+	public synchronized <E> FeatureSliceVector<E> add(Vector<E> vector) {
+		Dictionary<E> dictionary = vector.getDictionary();
+		// Gather nonzero entries
+		int size = 0;
+		VectorIterator iterator = vector.getIterator();
+		while (iterator.next()) {
+			double value = iterator.getValue();
+			if (value != 0.0) {
+				ensureScratchCapacity(size + 1);
+				scratchIndices[size] = iterator.getIndex();
+				scratchValues[size] = value;
+				size++;
+			}
+		}
+		if (size == 0) {
+			sliceCount++;
+			return new FeatureSliceVector<E>(dictionary, this, 0, 0, 0);
+		}
+		if (size > chunkEntries) {
+			throw new IllegalArgumentException("Vector has more entries than fit in a chunk: " + size + " > " + chunkEntries);
+		}
+		// Sort by index, keeping each value with its index
+		for (int i = 0; i < size; i++) {
+			scratchSort[i] = (((long) scratchIndices[i]) << 32) | i;
+		}
+		Arrays.sort(scratchSort, 0, size);
+		// Write the slice
+		if (currentChunkSize + size > chunkEntries) {
+			allocateChunk();
+		}
+		int chunk = indexChunks.length - 1;
+		IntBuffer indexChunk = indexChunks[chunk];
+		DoubleBuffer valueChunk = valueChunks[chunk];
+		int offset = currentChunkSize;
+		for (int i = 0; i < size; i++) {
+			int position = (int) scratchSort[i];
+			indexChunk.put(offset + i, scratchIndices[position]);
+			valueChunk.put(offset + i, scratchValues[position]);
+		}
+		currentChunkSize += size;
+		entryCount += size;
+		sliceCount++;
+		return new FeatureSliceVector<E>(dictionary, this, chunk, offset, size);
+	}
+
+	private void ensureScratchCapacity(int capacity) {
+		if (capacity > scratchIndices.length) {
+			int newLength = Math.max(capacity, 2 * scratchIndices.length);
+			scratchIndices = Arrays.copyOf(scratchIndices, newLength);
+			scratchValues = Arrays.copyOf(scratchValues, newLength);
+			scratchSort = new long[newLength];
+		}
+	}
+
+	private void allocateChunk() {
+		ByteBuffer indexBytes;
+		ByteBuffer valueBytes;
+		if (storage == Storage.HEAP) {
+			indexBytes = ByteBuffer.allocate(chunkEntries * INDEX_BYTES);
+			valueBytes = ByteBuffer.allocate(chunkEntries * VALUE_BYTES);
+		} else if (storage == Storage.DIRECT) {
+			indexBytes = ByteBuffer.allocateDirect(chunkEntries * INDEX_BYTES);
+			valueBytes = ByteBuffer.allocateDirect(chunkEntries * VALUE_BYTES);
+		} else {
+			long chunkBytes = ((long) chunkEntries) * (INDEX_BYTES + VALUE_BYTES);
+			long position = indexChunks.length * chunkBytes;
+			try {
+				indexBytes = spillChannel.map(FileChannel.MapMode.READ_WRITE, position, ((long) chunkEntries) * INDEX_BYTES);
+				valueBytes = spillChannel.map(FileChannel.MapMode.READ_WRITE, position + ((long) chunkEntries) * INDEX_BYTES, ((long) chunkEntries) * VALUE_BYTES);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		int chunks = indexChunks.length;
+		IntBuffer[] newIndexChunks = Arrays.copyOf(indexChunks, chunks + 1);
+		newIndexChunks[chunks] = indexBytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+		DoubleBuffer[] newValueChunks = Arrays.copyOf(valueChunks, chunks + 1);
+		newValueChunks[chunks] = valueBytes.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		indexChunks = newIndexChunks;
+		valueChunks = newValueChunks;
+		currentChunkSize = 0;
+		logger.debug("Allocated feature store chunk " + newIndexChunks.length + " (" + storage + ")");
+	}
+
+	IntBuffer getIndexChunk(int chunk) {
+		return indexChunks[chunk];
+	}
+
+	DoubleBuffer getValueChunk(int chunk) {
+		return valueChunks[chunk];
+	}
+
+	public Storage getStorage() {
+		return storage;
+	}
+
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	public long getSliceCount() {
+		return sliceCount;
+	}
+
+	public int getChunkCount() {
+		return indexChunks.length;
+	}
+
+	public long getAllocatedBytes() {
+		return ((long) indexChunks.length) * chunkEntries * (INDEX_BYTES + VALUE_BYTES);
+	}
+
+	/*
+	 * Releases the spill file, if any. Vectors returned by this store must not be used afterwards.
+	 */
+	public synchronized void close() {
+		indexChunks = new IntBuffer[0];
+		valueChunks = new DoubleBuffer[0];
+		currentChunkSize = chunkEntries;
+		if (spillChannel != null) {
+			try {
+				spillChannel.close();
+				spillRandomAccessFile.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			if (!spillFile.delete()) {
+				logger.warn("Could not delete feature store spill file " + spillFile.getAbsolutePath());
+			}
+			spillChannel = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FeatureStore [storage=" + storage + ", slices=" + sliceCount + ", entries=" + entryCount + ", chunks=" + indexChunks.length + ", allocatedBytes=" + getAllocatedBytes() + "]";
+	}
+}
@@ -0,0 +1,307 @@
+package ncbi.taggerOne.util.vector;
+
+import java.util.Arrays;
+
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
+
+/*
+ * An immutable sparse Vector held as a pair of arrays sorted by index, for vectors that do not change once created, such as mention and name vectors. Lookups use binary search, dot products with other frozen vectors are
+ * merge joins, and the length and hash code are computed once. Equal to a SparseVector with the same entries, and has the same hash code, so the two can be used interchangeably as keys.
+ */
+public class FrozenSparseVector<E> extends Vector<E> implements MemoryAccountable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int[] indices;
+	private double[] values;
+	private double length;
+	private int hashCode;
+	private long fingerprint;
+
+	private FrozenSparseVector(Dictionary<E> dictionary, int[] indices, double[] values) {
+		super(dictionary);
+		this.indices = indices;
+		this.values = values;
+		// Summed in index order, as SparseVector.length() does, so equal vectors have exactly equal lengths
+		double sum = 0.0;
+		for (int i = 0; i < values.length; i++) {
+			sum += values[i] * values[i];
+		}
+		length = Math.sqrt(sum);
+		// Same calculation as SparseVector.hashCode()
+		final int prime = 31;
+		int result = super.hashCode();
+		for (int i = 0; i < indices.length; i++) {
+			result = prime * result + indices[i];
+			long v = Double.doubleToLongBits(values[i]);
+			result = prime * result + (int) (v ^ (v >>> 32));
+		}
+		hashCode = result;
+		long fingerprintResult = dictionary.size();
+		for (int i = 0; i < indices.length; i++) {
+			fingerprintResult = mix(fingerprintResult + indices[i]);
+			// Adding 0.0 turns -0.0 into 0.0, since equals() does not distinguish them
+			fingerprintResult = mix(fingerprintResult ^ Double.doubleToLongBits(values[i] + 0.0));
+		}
+		fingerprint = fingerprintResult;
+	}
+
+	/*
+	 * The 64-bit finalizer from MurmurHash3
+	 */
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb93e53ca1a85L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	/*
+	 * Returns an immutable copy of the vector, or the vector itself if it is already frozen. Any entries explicitly set to 0.0 are kept, so the result is equal to the original.
+	 */
+	public static <E> FrozenSparseVector<E> freeze(Vector<E> vector) {
+		if (vector instanceof FrozenSparseVector) {
+			return (FrozenSparseVector<E>) vector;
+		}
+		if (vector instanceof SparseVector) {
+			SparseVector<E> sparseVector = (SparseVector<E>) vector;
+			int[] indices = sparseVector.values.keySet().toIntArray();
+			Arrays.sort(indices);
+			double[] values = new double[indices.length];
+			for (int i = 0; i < indices.length; i++) {
+				values[i] = sparseVector.values.get(indices[i]);
+			}
+			return new FrozenSparseVector<E>(vector.getDictionary(), indices, values);
+		}
+		int[] indices = new int[vector.cardinality()];
+		int size = 0;
+		boolean sorted = true;
+		VectorIterator iterator = vector.getIterator();
+		while (iterator.next()) {
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, 2 * size + 1);
+			}
+			indices[size] = iterator.getIndex();
+			sorted &= size == 0 || indices[size - 1] < indices[size];
+			size++;
+		}
+		indices = Arrays.copyOf(indices, size);
+		if (!sorted) {
+			Arrays.sort(indices);
+		}
+		double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = vector.get(indices[i]);
+		}
+		return new FrozenSparseVector<E>(vector.getDictionary(), indices, values);
+	}
+
+	/*
+	 * Returns a 64-bit hash of the entries and dimensions, which does not depend on the JVM and so is stable across runs. Equal vectors have equal fingerprints; vectors with different fingerprints are never equal.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public int cardinality() {
+		return indices.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return indices.length == 0;
+	}
+
+	@Override
+	public long getEstimatedBytes() {
+		return MemoryAccounting.object(3, 20) + MemoryAccounting.array(indices.length, 4) + MemoryAccounting.array(values.length, 8);
+	}
+
+	@Override
+	public double get(int index) {
+		checkIndex(index);
+		int position = Arrays.binarySearch(indices, index);
+		if (position < 0) {
+			return 0.0;
+		}
+		return values[position];
+	}
+
+	@Override
+	public void set(int index, double value) {
+		throw new UnsupportedOperationException("FrozenSparseVector is read-only");
+	}
+
+	@Override
+	public void increment(int index, double value) {
+		throw new UnsupportedOperationException("FrozenSparseVector is read-only");
+	}
+
+	@Override
+	public void increment(double factor, Vector<E> vector) {
+		throw new UnsupportedOperationException("FrozenSparseVector is read-only");
+	}
+
+	@Override
+	public void increment(Vector<E> vector) {
+		throw new UnsupportedOperationException("FrozenSparseVector is read-only");
+	}
+
+	@Override
+	public double length() {
+		return length;
+	}
+
+	@Override
+	public void normalize() {
+		throw new UnsupportedOperationException("FrozenSparseVector is read-only");
+	}
+
+	@Override
+	public void pack() {
+		// Empty
+	}
+
+	@Override
+	public double dotProduct(Vector<E> vector) {
+		checkDictionary(vector);
+		double sum = 0.0;
+		if (vector instanceof FrozenSparseVector) {
+			FrozenSparseVector<E> other = (FrozenSparseVector<E>) vector;
+			int position = 0;
+			int otherPosition = 0;
+			while (position < indices.length && otherPosition < other.indices.length) {
+				int index = indices[position];
+				int otherIndex = other.indices[otherPosition];
+				if (index == otherIndex) {
+					sum += values[position] * other.values[otherPosition];
+					position++;
+					otherPosition++;
+				} else if (index < otherIndex) {
+					position++;
+				} else {
+					otherPosition++;
+				}
+			}
+		} else if (vector instanceof DenseVector) {
+			sum = DenseKernels.gatherDot(((DenseVector<E>) vector).values, indices, values, indices.length);
+		} else {
+			for (int i = 0; i < indices.length; i++) {
+				sum += values[i] * vector.get(indices[i]);
+			}
+		}
+		return sum;
+	}
+
+	/*
+	 * Returns a mutable copy
+	 */
+	@Override
+	public Vector<E> copy() {
+		SparseVector<E> copy = new SparseVector<E>(dictionary);
+		for (int i = 0; i < indices.length; i++) {
+			copy.values.put(indices[i], values[i]);
+		}
+		return copy;
+	}
+
+	@Override
+	public String visualize() {
+		StringBuilder str = new StringBuilder("[");
+		for (int i = 0; i < indices.length; i++) {
+			if (i > 0) {
+				str.append(", ");
+			}
+			int index = indices[i];
+			str.append(index);
+			str.append(":");
+			str.append(dictionary.getElement(index));
+			str.append("=");
+			str.append(values[i]);
+		}
+		str.append("]");
+		return str.toString();
+	}
+
+	@Override
+	public VectorIterator getIterator() {
+		return new FrozenSparseVectorIterator();
+	}
+
+	private class FrozenSparseVectorIterator implements VectorIterator {
+
+		private int currentPosition;
+
+		public FrozenSparseVectorIterator() {
+			currentPosition = -1;
+		}
+
+		@Override
+		public boolean next() {
+			currentPosition++;
+			return currentPosition < indices.length;
+		}
+
+		@Override
+		public int getIndex() {
+			return indices[currentPosition];
+		}
+
+		@Override
+		public double getValue() {
+			return values[currentPosition];
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj instanceof SparseVector)
+			return equalsSparse((SparseVector<?>) obj);
+		if (!(obj instanceof FrozenSparseVector))
+			return false;
+		FrozenSparseVector<?> other = (FrozenSparseVector<?>) obj;
+		// Compare the fingerprints first, so unequal vectors are almost always rejected without comparing entries
+		if (fingerprint != other.fingerprint || indices.length != other.indices.length)
+			return false;
+		if (!super.equals(obj))
+			return false;
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] != other.indices[i] || values[i] != other.values[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Compares with a SparseVector as SparseVector.equals() compares two SparseVectors
+	 */
+	boolean equalsSparse(SparseVector<?> other) {
+		if (!dictionary.equals(other.dictionary) || indices.length != other.values.size()) {
+			return false;
+		}
+		for (int i = 0; i < indices.length; i++) {
+			if (!other.values.containsKey(indices[i]) || values[i] != other.values.get(indices[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "FrozenSparseVector " + visualize();
+	}
+}
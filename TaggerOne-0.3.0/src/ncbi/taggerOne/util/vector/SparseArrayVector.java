@@ -8,6 +8,15 @@ import ncbi.util.Profiler;
 public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe packProbe = Profiler.probe("SparseArrayVector.pack()");
+	private static final Profiler.Probe getProbe = Profiler.probe("SparseArrayVector.get()");
+	private static final Profiler.Probe setProbe = Profiler.probe("SparseArrayVector.set()");
+	private static final Profiler.Probe internalIncrementProbe = Profiler.probe("SparseArrayVector.internalIncrement()");
+	private static final Profiler.Probe incrementIndexProbe = Profiler.probe("SparseArrayVector.increment()1");
+	private static final Profiler.Probe incrementScaledProbe = Profiler.probe("SparseArrayVector.increment()2");
+	private static final Profiler.Probe incrementVectorProbe = Profiler.probe("SparseArrayVector.increment()3");
+	private static final Profiler.Probe lengthProbe = Profiler.probe("SparseArrayVector.length()");
+	private static final Profiler.Probe dotProductProbe = Profiler.probe("SparseArrayVector.dotProduct()");
 
 	private static final int BUFFER = 3;
 
@@ -44,38 +53,36 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 	}
 
 	public void pack() {
-		Profiler.start("SparseArrayVector.pack()");
-		// Remove zero values
+		packProbe.start();
+		// Remove zero values in a single pass, keeping the remaining entries in order
+		int newSize = 0;
 		for (int i = 0; i < size; i++) {
-			if (values[i] == 0.0) {
-				for (int j = i + 1; j < size; j++) {
-					indices[j - 1] = indices[j];
-					values[j - 1] = values[j];
-				}
-				size--;
+			if (values[i] != 0.0) {
+				indices[newSize] = indices[i];
+				values[newSize] = values[i];
+				newSize++;
 			}
 		}
+		size = newSize;
 		int[] newIndices = new int[size];
 		System.arraycopy(indices, 0, newIndices, 0, size);
 		indices = newIndices;
 		double[] newValues = new double[size];
 		System.arraycopy(values, 0, newValues, 0, size);
 		values = newValues;
-		Profiler.stop("SparseArrayVector.pack()");
+		packProbe.stop();
 	}
 
 	/*
 	 * This implementation would be even faster if we used linear search for very small spans and interpolation search for very large ones
 	 */
 	private int findPosition(int index) {
-		Profiler.start("SparseArrayVector.findPosition()");
 		int low = 0;
 		int high = size - 1;
 		while (high >= low) {
 			int middle = low + (high - low) / 2;
 			int indexAtMiddle = indices[middle];
 			if (indexAtMiddle == index) {
-				Profiler.stop("SparseArrayVector.findPosition()");
 				return middle;
 			}
 			if (indexAtMiddle < index) {
@@ -85,7 +92,6 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 				high = middle - 1;
 			}
 		}
-		Profiler.stop("SparseArrayVector.findPosition()");
 		return Integer.MIN_VALUE;
 	}
 
@@ -101,16 +107,16 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 
 	@Override
 	public double get(int index) {
-		Profiler.start("SparseArrayVector.get()");
+		getProbe.start();
 		checkIndex(index);
 		// Note 0.0 is the no entry value
 		int position = findPosition(index);
 		if (position < 0) {
-			Profiler.stop("SparseArrayVector.get()");
+			getProbe.stop();
 			return 0.0;
 		}
 		double value = values[position];
-		Profiler.stop("SparseArrayVector.get()");
+		getProbe.stop();
 		return value;
 	}
 
@@ -143,7 +149,7 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 
 	@Override
 	public void set(int index, double value) {
-		Profiler.start("SparseArrayVector.set()");
+		setProbe.start();
 		checkIndex(index);
 		int position = findPosition(index);
 		if (position < 0) {
@@ -151,31 +157,31 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 		} else {
 			values[position] = value;
 		}
-		Profiler.stop("SparseArrayVector.set()");
+		setProbe.stop();
 	}
 
 	private void internalIncrement(int index, double value) {
-		Profiler.start("SparseArrayVector.internalIncrement()");
+		internalIncrementProbe.start();
 		int position = findPosition(index);
 		if (position < 0) {
 			internalAdd(index, value);
 		} else {
 			values[position] += value;
 		}
-		Profiler.stop("SparseArrayVector.internalIncrement()");
+		internalIncrementProbe.stop();
 	}
 
 	@Override
 	public void increment(int index, double value) {
-		Profiler.start("SparseArrayVector.increment()1");
+		incrementIndexProbe.start();
 		checkIndex(index);
 		internalIncrement(index, value);
-		Profiler.stop("SparseArrayVector.increment()1");
+		incrementIndexProbe.stop();
 	}
 
 	@Override
 	public void increment(double factor, Vector<E> vector) {
-		Profiler.start("SparseArrayVector.increment()2");
+		incrementScaledProbe.start();
 		checkDictionary(vector);
 		VectorIterator iterator = vector.getIterator();
 		while (iterator.next()) {
@@ -183,12 +189,12 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 			double value = iterator.getValue();
 			internalIncrement(index, factor * value);
 		}
-		Profiler.stop("SparseArrayVector.increment()2");
+		incrementScaledProbe.stop();
 	}
 
 	@Override
 	public void increment(Vector<E> vector) {
-		Profiler.start("SparseArrayVector.increment()3");
+		incrementVectorProbe.start();
 		checkDictionary(vector);
 		VectorIterator iterator = vector.getIterator();
 		while (iterator.next()) {
@@ -196,18 +202,18 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 			double value = iterator.getValue();
 			internalIncrement(index, value);
 		}
-		Profiler.stop("SparseArrayVector.increment()3");
+		incrementVectorProbe.stop();
 	}
 
 	@Override
 	public double length() {
-		Profiler.start("SparseArrayVector.length()");
+		lengthProbe.start();
 		double length = 0.0;
 		for (int i = 0; i < size; i++) {
 			length += values[i] * values[i];
 		}
 		length = Math.sqrt(length);
-		Profiler.stop("SparseArrayVector.length()");
+		lengthProbe.stop();
 		return length;
 	}
 
@@ -221,13 +227,17 @@ public class SparseArrayVector<E extends Serializable> extends Vector<E> {
 
 	@Override
 	public double dotProduct(Vector<E> vector) {
-		Profiler.start("SparseArrayVector.dotProduct()");
+		dotProductProbe.start();
 		checkDictionary(vector);
 		double sum = 0.0;
-		for (int i = 0; i < size; i++) {
-			sum += values[i] * vector.get(indices[i]);
+		if (vector instanceof DenseVector) {
+			sum = DenseKernels.gatherDot(((DenseVector<E>) vector).values, indices, values, size);
+		} else {
+			for (int i = 0; i < size; i++) {
+				sum += values[i] * vector.get(indices[i]);
+			}
 		}
-		Profiler.stop("SparseArrayVector.dotProduct()");
+		dotProductProbe.stop();
 		return sum;
 	}
 
@@ -12,12 +12,15 @@ import org.slf4j.LoggerFactory;
 
 import ncbi.taggerOne.T1Constants;
 import ncbi.taggerOne.util.Dictionary;
+import ncbi.util.MemoryAccountable;
+import ncbi.util.MemoryAccounting;
 import ncbi.util.Profiler;
 
-public class SparseVector<E> extends Vector<E> {
+public class SparseVector<E> extends Vector<E> implements MemoryAccountable {
 
 	private static final Logger logger = LoggerFactory.getLogger(SparseVector.class);
 	private static final long serialVersionUID = 1L;
+	private static final Profiler.Probe lengthProbe = Profiler.probe("SparseVector.length()");
 
 	public static final VectorFactory factory = new VectorFactory() {
 
@@ -50,6 +53,15 @@ public class SparseVector<E> extends Vector<E> {
 		return values.size();
 	}
 
+	/*
+	 * Counts the open hash map with its key and value arrays, which start at 32 slots and double to stay within the default load factor
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		int slots = MemoryAccounting.hashTableLength(values.size(), 0.75f, 32) + 1;
+		return MemoryAccounting.object(2, 4) + MemoryAccounting.object(5, 33) + MemoryAccounting.array(slots, 4) + MemoryAccounting.array(slots, 8);
+	}
+
 	@Override
 	public boolean isEmpty() {
 		return values.isEmpty();
@@ -126,7 +138,7 @@ public class SparseVector<E> extends Vector<E> {
 
 	@Override
 	public double length() {
-		Profiler.start("SparseVector.length()");
+		lengthProbe.start();
 		// TODO PERFORMANCE Cache this result
 		// Considering the indices in sorted order ensures that the length for equal vectors are exactly equal
 		// When considered in arbitrary order, they frequently differ in the last digit because of rounding
@@ -140,7 +152,7 @@ public class SparseVector<E> extends Vector<E> {
 			length += value * value;
 		}
 		length = Math.sqrt(length);
-		Profiler.stop("SparseVector.length()");
+		lengthProbe.stop();
 		return length;
 	}
 
@@ -163,6 +175,9 @@ public class SparseVector<E> extends Vector<E> {
 
 	@Override
 	public double dotProduct(Vector<E> vector) {
+		if (vector instanceof FrozenSparseVector) {
+			return vector.dotProduct(this);
+		}
 		checkDictionary(vector);
 		double sum = 0.0;
 		ObjectIterator<Entry> iterator = values.int2DoubleEntrySet().fastIterator();
@@ -236,6 +251,13 @@ public class SparseVector<E> extends Vector<E> {
 		return new SparseVector<E>(dictionary, new Int2DoubleOpenHashMap(values));
 	}
 
+	/*
+	 * Returns an immutable copy, for vectors that will not be modified further
+	 */
+	public FrozenSparseVector<E> freeze() {
+		return FrozenSparseVector.freeze(this);
+	}
+
 	@Override
 	public int hashCode() {
 		if (hashCode == Integer.MIN_VALUE) {
@@ -257,6 +279,8 @@ public class SparseVector<E> extends Vector<E> {
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
+		if (obj instanceof FrozenSparseVector)
+			return ((FrozenSparseVector<?>) obj).equalsSparse(this);
 		if (!super.equals(obj))
 			return false;
 		SparseVector<?> other = (SparseVector<?>) obj;
@@ -0,0 +1,135 @@
+package ncbi.taggerOne.util.vector;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ncbi.util.metrics.Counter;
+import ncbi.util.metrics.Gauge;
+import ncbi.util.metrics.MetricFamily;
+import ncbi.util.metrics.Metrics;
+
+/*
+ * A global table of canonical sparse vectors, so that equal vectors are usually the same instance and hash map lookups keyed by vectors succeed on the reference comparison. Vectors that cannot be equal are rejected by
+ * comparing their fingerprints, so entries are only compared for vectors which are equal but not the same instance.
+ *
+ * Name vectors are added to the table by intern() when the lexicon is indexed. Mention vectors are only canonicalized against the table, since the number of distinct mentions is unbounded: a mention vector equal to a
+ * name vector becomes that instance, and any other mention vector is returned frozen but is not added. The table holds the vectors weakly, so entries are removed once no index uses
+ * them, and the table does not keep models or their dictionaries alive.
+ */
+public final class VectorInterner {
+
+	private static final ConcurrentHashMap<WeakKey, WeakKey> table = new ConcurrentHashMap<WeakKey, WeakKey>();
+	private static final ReferenceQueue<FrozenSparseVector<?>> collected = new ReferenceQueue<FrozenSparseVector<?>>();
+
+	private static final MetricFamily<Counter> LOOKUPS = Metrics.counterFamily("taggerone_vector_intern_lookups_total", "Mention vectors canonicalized against the intern table, by result", "result");
+	private static final Counter hits = LOOKUPS.get("hit");
+	private static final Counter misses = LOOKUPS.get("miss");
+
+	static {
+		Metrics.gauge("taggerone_interned_vectors", "Number of vectors in the intern table", new Gauge() {
+			@Override
+			public double getValue() {
+				return size();
+			}
+		});
+	}
+
+	private VectorInterner() {
+		// Not instantiable
+	}
+
+	/*
+	 * Returns the canonical instance of the vector, adding it to the table if there is none. Vectors that are not sparse are returned unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Vector<E> intern(Vector<E> vector) {
+		if (!isSparse(vector)) {
+			return vector;
+		}
+		FrozenSparseVector<E> frozen = FrozenSparseVector.freeze(vector);
+		expungeCollected();
+		WeakKey key = new WeakKey(frozen, collected);
+		while (true) {
+			WeakKey existingKey = table.putIfAbsent(key, key);
+			if (existingKey == null) {
+				return frozen;
+			}
+			FrozenSparseVector<?> existing = existingKey.get();
+			if (existing != null) {
+				return (FrozenSparseVector<E>) existing;
+			}
+			// Collected but not yet expunged
+			table.remove(existingKey, existingKey);
+		}
+	}
+
+	/*
+	 * Returns the canonical instance of the vector if there is one, otherwise the vector frozen, without adding it to the table. Vectors that are not sparse are returned unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Vector<E> canonicalize(Vector<E> vector) {
+		if (!isSparse(vector)) {
+			return vector;
+		}
+		FrozenSparseVector<E> frozen = FrozenSparseVector.freeze(vector);
+		WeakKey existingKey = table.get(new WeakKey(frozen, null));
+		FrozenSparseVector<?> existing = existingKey == null ? null : existingKey.get();
+		if (existing == null) {
+			misses.increment();
+			return frozen;
+		}
+		hits.increment();
+		return (FrozenSparseVector<E>) existing;
+	}
+
+	private static boolean isSparse(Vector<?> vector) {
+		return vector instanceof SparseVector || vector instanceof FrozenSparseVector;
+	}
+
+	public static int size() {
+		expungeCollected();
+		return table.size();
+	}
+
+	public static void clear() {
+		table.clear();
+	}
+
+	private static void expungeCollected() {
+		Object key = collected.poll();
+		while (key != null) {
+			// A collected key only equals itself
+			table.remove(key);
+			key = collected.poll();
+		}
+	}
+
+	/*
+	 * A weak reference to an interned vector, equal to another key for an equal vector, with the hash code kept so the entry can be found and removed once the vector is collected
+	 */
+	private static final class WeakKey extends WeakReference<FrozenSparseVector<?>> {
+
+		private final int hashCode;
+
+		public WeakKey(FrozenSparseVector<?> vector, ReferenceQueue<FrozenSparseVector<?>> queue) {
+			super(vector, queue);
+			hashCode = vector.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof WeakKey))
+				return false;
+			FrozenSparseVector<?> vector = get();
+			return vector != null && vector.equals(((WeakKey) obj).get());
+		}
+	}
+}
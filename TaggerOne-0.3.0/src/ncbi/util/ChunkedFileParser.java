@@ -0,0 +1,259 @@
+package ncbi.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Reads UTF-8 text files once, splits them into chunks of whole lines and parses the chunks in parallel. Uncompressed files are memory-mapped; gzipped files (ending in .gz) are streamed. A list of files is treated as a single
+ * stream, so a line split across the end of one file and the start of the next is parsed as one line. Results are returned in file order.
+ */
+public class ChunkedFileParser {
+
+	public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+	private static final long MAX_MAPPED_BYTES = 1L << 30;
+
+	public interface ChunkHandler<R> {
+		public R parse(List<String> lines);
+	}
+
+	private ExecutorService executor;
+	private int chunkBytes;
+	private int maxPendingChunks;
+
+	public ChunkedFileParser() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES, 2 * ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	public ChunkedFileParser(ExecutorService executor, int chunkBytes, int maxPendingChunks) {
+		if (chunkBytes < 1) {
+			throw new IllegalArgumentException("chunkBytes must be at least 1: " + chunkBytes);
+		}
+		if (maxPendingChunks < 1) {
+			throw new IllegalArgumentException("maxPendingChunks must be at least 1: " + maxPendingChunks);
+		}
+		this.executor = executor;
+		this.chunkBytes = chunkBytes;
+		this.maxPendingChunks = maxPendingChunks;
+	}
+
+	public <R> List<R> parse(File file, ChunkHandler<R> handler) {
+		return parse(Collections.singletonList(file), handler);
+	}
+
+	public <R> List<R> parse(List<File> files, ChunkHandler<R> handler) {
+		ParseState<R> state = new ParseState<R>(handler);
+		try {
+			for (File file : files) {
+				if (file.getName().endsWith(".gz")) {
+					InputStream input = new GZIPInputStream(new FileInputStream(file), 1 << 16);
+					try {
+						readStream(input, state);
+					} finally {
+						input.close();
+					}
+				} else {
+					readMapped(file, state);
+				}
+			}
+			if (state.carry.length > 0) {
+				state.submit(ByteBuffer.wrap(state.carry));
+				state.carry = new byte[0];
+			}
+			while (!state.pending.isEmpty()) {
+				state.results.add(getResult(state.pending.removeFirst()));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return state.results;
+	}
+
+	private <R> void readMapped(File file, ParseState<R> state) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long regionSize = Math.min(MAX_MAPPED_BYTES, size - position);
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+				int start = 0;
+				int limit = (int) regionSize;
+				if (state.carry.length > 0) {
+					// Complete the line left over from the previous file
+					int newline = indexOf(region, 0, limit);
+					if (newline < 0) {
+						if (position + regionSize < size) {
+							throw new IOException("Line longer than " + MAX_MAPPED_BYTES + " bytes in " + file.getAbsolutePath());
+						}
+						state.carry = concat(state.carry, region, 0, limit);
+						break;
+					}
+					state.submit(ByteBuffer.wrap(concat(state.carry, region, 0, newline + 1)));
+					state.carry = new byte[0];
+					start = newline + 1;
+				}
+				while (start < limit) {
+					int newline = indexOf(region, Math.min(start + chunkBytes, limit) - 1, limit);
+					if (newline < 0) {
+						break;
+					}
+					state.submit(slice(region, start, newline + 1));
+					start = newline + 1;
+				}
+				if (position + regionSize >= size) {
+					// Keep the partial last line for the next file
+					state.carry = concat(state.carry, region, start, limit);
+					break;
+				}
+				if (start == 0) {
+					throw new IOException("Line longer than " + MAX_MAPPED_BYTES + " bytes in " + file.getAbsolutePath());
+				}
+				position += start;
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private <R> void readStream(InputStream input, ParseState<R> state) throws IOException {
+		byte[] buffer = Arrays.copyOf(state.carry, Math.max(chunkBytes, state.carry.length));
+		int filled = state.carry.length;
+		state.carry = new byte[0];
+		boolean eof = false;
+		while (!eof) {
+			while (filled < buffer.length) {
+				int read = input.read(buffer, filled, buffer.length - filled);
+				if (read < 0) {
+					eof = true;
+					break;
+				}
+				filled += read;
+			}
+			int lastNewline = filled - 1;
+			while (lastNewline >= 0 && buffer[lastNewline] != '\n') {
+				lastNewline--;
+			}
+			if (lastNewline < 0) {
+				if (!eof) {
+					// No complete line yet
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+				}
+				continue;
+			}
+			state.submit(ByteBuffer.wrap(Arrays.copyOf(buffer, lastNewline + 1)));
+			int remaining = filled - lastNewline - 1;
+			byte[] newBuffer = new byte[Math.max(chunkBytes, remaining)];
+			System.arraycopy(buffer, lastNewline + 1, newBuffer, 0, remaining);
+			buffer = newBuffer;
+			filled = remaining;
+		}
+		state.carry = Arrays.copyOf(buffer, filled);
+	}
+
+	private static int indexOf(ByteBuffer buffer, int from, int limit) {
+		for (int i = from; i < limit; i++) {
+			if (buffer.get(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(end);
+		slice.position(start);
+		return slice.slice();
+	}
+
+	private static byte[] concat(byte[] prefix, ByteBuffer buffer, int start, int end) {
+		byte[] bytes = Arrays.copyOf(prefix, prefix.length + end - start);
+		ByteBuffer slice = slice(buffer, start, end);
+		slice.get(bytes, prefix.length, end - start);
+		return bytes;
+	}
+
+	private static <R> R getResult(Future<R> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/*
+	 * Splits text into lines as BufferedReader.readLine() would for "\n" and "\r\n" line endings
+	 */
+	public static List<String> getLines(String text) {
+		List<String> lines = new ArrayList<String>();
+		int start = 0;
+		int length = text.length();
+		while (start < length) {
+			int newline = text.indexOf('\n', start);
+			int end = newline < 0 ? length : newline;
+			int lineEnd = end;
+			if (lineEnd > start && text.charAt(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			lines.add(text.substring(start, lineEnd));
+			start = end + 1;
+		}
+		return lines;
+	}
+
+	private class ParseState<R> {
+
+		ChunkHandler<R> handler;
+		List<R> results;
+		Deque<Future<R>> pending;
+		byte[] carry;
+
+		public ParseState(ChunkHandler<R> handler) {
+			this.handler = handler;
+			results = new ArrayList<R>();
+			pending = new ArrayDeque<Future<R>>();
+			carry = new byte[0];
+		}
+
+		public void submit(final ByteBuffer chunk) {
+			// Bound the number of chunks held in memory
+			while (pending.size() >= maxPendingChunks) {
+				results.add(getResult(pending.removeFirst()));
+			}
+			pending.addLast(executor.submit(new Callable<R>() {
+				@Override
+				public R call() {
+					String text = StandardCharsets.UTF_8.decode(chunk).toString();
+					return handler.parse(getLines(text));
+				}
+			}));
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package ncbi.util;
+
+/*
+ * A structure that can estimate the memory it retains from its array lengths and entry counts, without walking the object graph reflectively or forcing a garbage collection. Structures passed in from elsewhere, such
+ * as shared dictionaries and lexicon entities, are not counted.
+ */
+public interface MemoryAccountable {
+
+	public long getEstimatedBytes();
+
+}
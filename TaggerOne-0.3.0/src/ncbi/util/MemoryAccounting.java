@@ -0,0 +1,174 @@
+package ncbi.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ncbi.util.metrics.Gauge;
+import ncbi.util.metrics.Metrics;
+
+/*
+ * Estimates of the memory used by the major structures of a loaded model, published as the gauge taggerone_memory_estimated_bytes and logged by logReport(). The size methods assume a 64-bit HotSpot JVM, with
+ * compressed references if the maximum heap is under 32 GB, and the Java 8 String layout; they are estimates, but are cheap enough to compute on every metrics export.
+ */
+public final class MemoryAccounting {
+
+	private static final Logger logger = LoggerFactory.getLogger(MemoryAccounting.class);
+
+	private static final boolean COMPRESSED_REFERENCES = Runtime.getRuntime().maxMemory() < (32L << 30);
+	public static final int REFERENCE_BYTES = COMPRESSED_REFERENCES ? 4 : 8;
+	private static final int OBJECT_HEADER_BYTES = COMPRESSED_REFERENCES ? 12 : 16;
+	private static final int ARRAY_HEADER_BYTES = COMPRESSED_REFERENCES ? 16 : 24;
+	private static final float HASH_MAP_LOAD_FACTOR = 0.75f;
+	private static final int HASH_MAP_MINIMUM_TABLE = 16;
+
+	private static final Map<String, MemoryAccountable> structures = new LinkedHashMap<String, MemoryAccountable>();
+
+	private MemoryAccounting() {
+		// Not instantiable
+	}
+
+	/*
+	 * Registers the structure under the name, unless the same structure is already registered, so it is reported by logReport() and exported as a gauge
+	 */
+	public static synchronized void register(String name, final MemoryAccountable structure) {
+		if (structure == null) {
+			return;
+		}
+		for (Map.Entry<String, MemoryAccountable> entry : structures.entrySet()) {
+			if (entry.getValue() == structure && !entry.getKey().equals(name)) {
+				logger.debug("Structure " + name + " is already registered as " + entry.getKey());
+				return;
+			}
+		}
+		structures.put(name, structure);
+		Metrics.gauge("taggerone_memory_estimated_bytes", "Estimated memory retained by each major structure, from array lengths and entry counts", "structure", name, new Gauge() {
+			@Override
+			public double getValue() {
+				return structure.getEstimatedBytes();
+			}
+		});
+	}
+
+	/*
+	 * Logs the estimated size of each registered structure, largest first, with its proportion of the heap currently used
+	 */
+	public static synchronized void logReport() {
+		Runtime runtime = Runtime.getRuntime();
+		long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		final Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+		long total = 0;
+		for (Map.Entry<String, MemoryAccountable> entry : structures.entrySet()) {
+			long size = entry.getValue().getEstimatedBytes();
+			sizes.put(entry.getKey(), size);
+			total += size;
+		}
+		List<String> names = new ArrayList<String>(sizes.keySet());
+		Collections.sort(names, new Comparator<String>() {
+			@Override
+			public int compare(String name1, String name2) {
+				return Long.compare(sizes.get(name2), sizes.get(name1));
+			}
+		});
+		logger.info("Estimated memory for " + names.size() + " structures = " + formatBytes(total) + " of " + formatBytes(heapUsed) + " heap used");
+		for (String name : names) {
+			long size = sizes.get(name);
+			logger.info("\t" + name + " = " + formatBytes(size) + String.format(" (%.1f%% of heap used)", 100.0 * size / Math.max(heapUsed, 1)));
+		}
+	}
+
+	private static String formatBytes(long bytes) {
+		if (bytes < 1024L * 1024L) {
+			return String.format("%.1f KB", bytes / 1024.0);
+		}
+		return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+
+	public static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/*
+	 * Returns the size of an object with the given number of reference fields and bytes of primitive fields
+	 */
+	public static long object(int references, int primitiveBytes) {
+		return align(OBJECT_HEADER_BYTES + references * REFERENCE_BYTES + primitiveBytes);
+	}
+
+	public static long array(int length, int elementBytes) {
+		return align(ARRAY_HEADER_BYTES + (long) length * elementBytes);
+	}
+
+	public static long referenceArray(int length) {
+		return array(length, REFERENCE_BYTES);
+	}
+
+	public static long string(String value) {
+		return object(1, 4) + array(value.length(), 2);
+	}
+
+	/*
+	 * Returns the size of the object if it is a String or estimates its own size, and otherwise 0, as only the reference to it is counted
+	 */
+	public static long sizeOf(Object value) {
+		if (value instanceof String) {
+			return string((String) value);
+		}
+		if (value instanceof MemoryAccountable) {
+			return ((MemoryAccountable) value).getEstimatedBytes();
+		}
+		return 0;
+	}
+
+	/*
+	 * Returns the length of a power of two hash table resized to stay within the load factor
+	 */
+	public static int hashTableLength(int size, float loadFactor, int minimumLength) {
+		int length = minimumLength;
+		while (size > length * loadFactor) {
+			length <<= 1;
+		}
+		return length;
+	}
+
+	/*
+	 * Returns the size of a java.util.HashMap or HashSet with default settings, not including the keys and values
+	 */
+	public static long hashMap(int size) {
+		long bytes = object(4, 16);
+		if (size > 0) {
+			bytes += referenceArray(hashTableLength(size, HASH_MAP_LOAD_FACTOR, HASH_MAP_MINIMUM_TABLE));
+			bytes += size * object(3, 4);
+		}
+		return bytes;
+	}
+
+	/*
+	 * Returns the size of a java.util.LinkedHashMap, not including the keys and values
+	 */
+	public static long linkedHashMap(int size, float loadFactor) {
+		long bytes = object(6, 20);
+		if (size > 0) {
+			bytes += referenceArray(hashTableLength(size, loadFactor, HASH_MAP_MINIMUM_TABLE));
+			bytes += size * object(5, 4);
+		}
+		return bytes;
+	}
+
+	/*
+	 * Returns the size of a map with the keys and values, counting each key and value with sizeOf()
+	 */
+	public static long hashMapWithContents(Map<?, ?> map) {
+		long bytes = hashMap(map.size());
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			bytes += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+		}
+		return bytes;
+	}
+}
@@ -44,9 +44,7 @@ public class MemoryProfiler {
 		if (!logger.isDebugEnabled()) {
 			return;
 		}
-		System.gc();
-		System.gc();
-		System.gc();
+		// Reports the heap as it is rather than forcing collections; MemoryAccounting estimates the registered structures
 		logger.debug("Memory used = " + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()));
 
 		MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
@@ -62,6 +60,7 @@ public class MemoryProfiler {
 		logger.debug("\tused = " + usage.getUsed());
 		logger.debug("\tcommitted = " + usage.getCommitted());
 		logger.debug("\tmax = " + usage.getMax());
+		MemoryAccounting.logReport();
 	}
 
 	public static void summarizeMemoryUsed(String context, Object obj) {
@@ -1,73 +1,192 @@
 package ncbi.util;
 
-import it.unimi.dsi.fastutil.objects.Object2LongMap;
-import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/*
+ * Counts calls and accumulates elapsed time for named probes. Profiling is enabled when the logger is at debug level when this class is loaded, or by setting the system property ncbi.util.Profiler.enabled; when disabled,
+ * start() and stop() return immediately. Frequently called code should hold a Probe from probe() rather than passing the name to start() and stop(), which must look the probe up. Counters are striped, so threads do not
+ * contend when updating the same probe.
+ */
 public final class Profiler {
 
 	private static final Logger logger = LoggerFactory.getLogger(Profiler.class);
 
-	// TODO CONCURRENCY PERFORMANCE Use a read/write lock
-	protected static Object2LongMap<String> elapsedTimes; // protected for performance
-	private static Object2LongMap<String> counters;
-	private static ProfilerComparator comp;
+	public static final String ENABLED_PROPERTY = "ncbi.util.Profiler.enabled";
+
+	private static final boolean enabled;
+	private static final ConcurrentMap<String, Probe> probes;
 
 	static {
-		elapsedTimes = new Object2LongOpenHashMap<String>();
-		elapsedTimes.defaultReturnValue(0);
-		counters = new Object2LongOpenHashMap<String>();
-		counters.defaultReturnValue(0);
-		comp = new ProfilerComparator();
+		String enabledProperty = System.getProperty(ENABLED_PROPERTY);
+		enabled = enabledProperty == null ? logger.isDebugEnabled() : Boolean.parseBoolean(enabledProperty);
+		probes = new ConcurrentHashMap<String, Probe>();
 	}
 
 	private Profiler() {
 		// Not instantiable
 	}
 
-	// TODO Add functionality for tracking the number of calls with low elapsed time (especially 0)
+	public static boolean isEnabled() {
+		return enabled;
+	}
 
-	// TODO Add functionality for only tracking the number of calls
+	/*
+	 * Returns the probe with the given name, creating it if necessary
+	 */
+	public static Probe probe(String name) {
+		Probe probe = probes.get(name);
+		if (probe == null) {
+			probe = new Probe(name);
+			Probe existing = probes.putIfAbsent(name, probe);
+			if (existing != null) {
+				probe = existing;
+			}
+		}
+		return probe;
+	}
 
-	public synchronized static void start(String name) {
-		if (!logger.isDebugEnabled()) {
+	public static void start(String name) {
+		if (!enabled) {
 			return;
 		}
-		long currentCount = counters.getLong(name);
-		counters.put(name, currentCount + 1);
-		long currentElapsed = elapsedTimes.getLong(name);
-		elapsedTimes.put(name, currentElapsed - System.currentTimeMillis());
+		probe(name).start();
 	}
 
-	public synchronized static void stop(String name) {
-		if (!logger.isDebugEnabled()) {
+	public static void stop(String name) {
+		if (!enabled) {
 			return;
 		}
-		long currentElapsed = elapsedTimes.getLong(name);
-		elapsedTimes.put(name, currentElapsed + System.currentTimeMillis());
+		probe(name).stop();
 	}
 
-	public synchronized static void print(String prefix) {
-		if (!logger.isDebugEnabled()) {
+	public static void print(String prefix) {
+		if (!enabled) {
 			return;
 		}
-		List<String> names = new ArrayList<String>(elapsedTimes.keySet());
-		Collections.sort(names, comp);
-		for (String name : names) {
-			long count = counters.getLong(name);
-			long elapsed = elapsedTimes.getLong(name);
-			double average = ((double) elapsed) / count;
-			logger.debug("PERFORMANCE " + prefix + name + " called " + count + " times, elapsed time = " + elapsed + "ms, average time = " + average + "ms");
+		// Copy the totals first, since other threads may still be updating them
+		List<ProbeTotals> called = new ArrayList<ProbeTotals>();
+		for (Probe probe : probes.values()) {
+			long count = probe.getCount();
+			if (count > 0) {
+				called.add(new ProbeTotals(probe.getName(), count, probe.getElapsedNanos()));
+			}
+		}
+		Collections.sort(called, new ProfilerComparator());
+		for (ProbeTotals totals : called) {
+			double elapsed = totals.elapsedNanos / 1000000.0;
+			double average = elapsed / totals.count;
+			logger.debug("PERFORMANCE " + prefix + totals.name + " called " + totals.count + " times, elapsed time = " + Math.round(elapsed) + "ms, average time = " + average + "ms");
+		}
+	}
+
+	public static final class Probe {
+
+		private final String name;
+		private final LongAdder count;
+		// Start times are subtracted and stop times added, so this is the total elapsed once each start has been stopped
+		private final LongAdder elapsedNanos;
+		private final ConcurrentMap<String, Probe> children;
+		private volatile Probe[] indexedChildren;
+
+		private Probe(String name) {
+			this.name = name;
+			count = new LongAdder();
+			elapsedNanos = new LongAdder();
+			children = new ConcurrentHashMap<String, Probe>();
+			indexedChildren = new Probe[0];
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos.sum();
+		}
+
+		public void start() {
+			if (!enabled) {
+				return;
+			}
+			count.increment();
+			elapsedNanos.add(-System.nanoTime());
+		}
+
+		public void stop() {
+			if (!enabled) {
+				return;
+			}
+			elapsedNanos.add(System.nanoTime());
+		}
+
+		/*
+		 * Returns the probe named by this probe's name, "@" and the suffix; this probe when profiling is disabled
+		 */
+		public Probe child(String suffix) {
+			if (!enabled) {
+				return this;
+			}
+			Probe child = children.get(suffix);
+			if (child == null) {
+				child = probe(name + "@" + suffix);
+				children.putIfAbsent(suffix, child);
+			}
+			return child;
+		}
+
+		/*
+		 * Returns the probe named by this probe's name, "@" and the index; this probe when profiling is disabled
+		 */
+		public Probe child(int index) {
+			if (!enabled) {
+				return this;
+			}
+			Probe[] current = indexedChildren;
+			if (index < current.length) {
+				return current[index];
+			}
+			synchronized (this) {
+				current = indexedChildren;
+				if (index >= current.length) {
+					Probe[] expanded = Arrays.copyOf(current, Math.max(index + 1, 2 * current.length));
+					for (int i = current.length; i < expanded.length; i++) {
+						expanded[i] = probe(name + "@" + Integer.toString(i));
+					}
+					indexedChildren = expanded;
+					current = expanded;
+				}
+			}
+			return current[index];
+		}
+	}
+
+	private static class ProbeTotals {
+
+		private final String name;
+		private final long count;
+		private final long elapsedNanos;
+
+		public ProbeTotals(String name, long count, long elapsedNanos) {
+			this.name = name;
+			this.count = count;
+			this.elapsedNanos = elapsedNanos;
 		}
 	}
 
-	private static class ProfilerComparator extends SimpleComparator<String> {
+	private static class ProfilerComparator extends SimpleComparator<ProbeTotals> {
 
 		private static final long serialVersionUID = 1L;
 
@@ -76,10 +195,8 @@ public final class Profiler {
 		}
 
 		@Override
-		public int compare(String name1, String name2) {
-			long elapsed1 = elapsedTimes.getLong(name1);
-			long elapsed2 = elapsedTimes.getLong(name2);
-			return Long.compare(elapsed2, elapsed1);
+		public int compare(ProbeTotals totals1, ProbeTotals totals2) {
+			return Long.compare(totals2.elapsedNanos, totals1.elapsedNanos);
 		}
 
 	}
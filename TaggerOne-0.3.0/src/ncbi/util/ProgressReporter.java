@@ -1,55 +1,211 @@
 package ncbi.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/*
+ * Reports the progress of a batch of jobs. Completions may be reported from any number of threads, and only increment a counter; the progress is logged on a fixed wall-clock interval from a single background thread,
+ * with the rate smoothed by an exponentially-weighted moving average so the estimated time remaining follows recent throughput rather than the average since the start. The logging task is scheduled once for the lifetime
+ * of the reporter and does nothing between batches, since some callers run a batch per document.
+ */
 public class ProgressReporter implements Serializable {
 
-	// TODO Integrate this with the logging facility so that it logs to a particular logger
-
-	// TODO CONCURRENCY PERFORMANCE Use a read/write lock
-	// TODO Implement reporting by number of elapsed seconds, not reporting batch size
-	// TODO Implement averaging for time remaining: moving window, linear decay, ?
 	// TODO Is there a way to integrate this with Profiler?
 
 	private static final Logger logger = LoggerFactory.getLogger(ProgressReporter.class);
 	private static final long serialVersionUID = 1L;
 
+	public static final String DEFAULT_UNITS = "jobs";
+	public static final long DEFAULT_REPORTING_INTERVAL = 10000L;
+	// Time constant of the moving average, so older intervals count for less after about a minute
+	public static final double RATE_WINDOW_SECONDS = 60.0;
+
+	private static ScheduledThreadPoolExecutor scheduler;
+
 	private String name;
 	private int reportingIncrement;
+	private String units;
+	private long reportingInterval;
 
-	private int totalJobs;
-	private long startTime;
+	private transient AtomicLong completed;
+	private transient long totalJobs;
+	private transient long startTime;
+	private transient long lastReportTime;
+	private transient long lastReportCompleted;
+	private transient double rate;
+	private transient boolean batchRunning;
+	private transient ReportingTask reportingTask;
 
 	public ProgressReporter(String name, int reportingIncrement) {
+		this(name, DEFAULT_UNITS, reportingIncrement, DEFAULT_REPORTING_INTERVAL);
+	}
+
+	/*
+	 * Creates a reporter that logs every reportingInterval milliseconds while a batch is running, provided at least reportingIncrement jobs have completed since the last report
+	 */
+	public ProgressReporter(String name, String units, int reportingIncrement, long reportingInterval) {
+		if (reportingIncrement < 1) {
+			throw new IllegalArgumentException("reportingIncrement must be at least 1: " + reportingIncrement);
+		}
+		if (reportingInterval < 1) {
+			throw new IllegalArgumentException("reportingInterval must be at least 1: " + reportingInterval);
+		}
 		this.name = name;
+		this.units = units;
 		this.reportingIncrement = reportingIncrement;
+		this.reportingInterval = reportingInterval;
+		completed = new AtomicLong();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// Reporters serialized before reporting was time-based have neither field
+		if (units == null) {
+			units = DEFAULT_UNITS;
+		}
+		if (reportingInterval < 1) {
+			reportingInterval = DEFAULT_REPORTING_INTERVAL;
+		}
+		completed = new AtomicLong();
+	}
+
+	static synchronized ScheduledThreadPoolExecutor getScheduler() {
+		if (scheduler == null) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ProgressReporter");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			// Tasks of reporters that are no longer used cancel themselves, and should not stay in the queue
+			scheduler.setRemoveOnCancelPolicy(true);
+		}
+		return scheduler;
+	}
+
+	/*
+	 * Starts a batch; totalJobs may be 0 if the number of jobs is not known, in which case no time remaining is estimated
+	 */
+	public synchronized void startBatch(long totalJobs) {
+		startBatch(totalJobs, System.nanoTime());
+		if (reportingTask == null) {
+			reportingTask = new ReportingTask(this);
+			reportingTask.future = getScheduler().scheduleAtFixedRate(reportingTask, reportingInterval, reportingInterval, TimeUnit.MILLISECONDS);
+		}
 	}
 
-	public void startBatch(int totalJobs) {
+	synchronized void startBatch(long totalJobs, long now) {
+		batchRunning = true;
 		this.totalJobs = totalJobs;
-		this.startTime = System.currentTimeMillis();
+		completed.set(0);
+		startTime = now;
+		lastReportTime = now;
+		lastReportCompleted = 0;
+		rate = Double.NaN;
+	}
+
+	public void reportCompletion() {
+		completed.incrementAndGet();
+	}
+
+	public void reportCompletions(int count) {
+		completed.addAndGet(count);
+	}
+
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	/*
+	 * Returns the smoothed number of jobs completed per second, or NaN before the first report
+	 */
+	public synchronized double getRate() {
+		return rate;
 	}
 
-	// TODO REFACTOR So this class tracks the job index
-	public void reportCompletion(int jobIndex) {
-		if (jobIndex > 0 && (jobIndex % reportingIncrement) == 0) {
-			long elapsed = System.currentTimeMillis() - startTime;
-			double each = ((double) elapsed) / jobIndex;
-			double remaining = (totalJobs - jobIndex) * each;
-			// TODO Smooth this out
-			// Options: moving window, linear decay,
-			logger.info(name + ": " + jobIndex + "/" + totalJobs + ", " + ((long) each) + "ms each, " + ((long) remaining) + "ms remaining");
+	/*
+	 * Returns the estimated time remaining in milliseconds, or -1 if it cannot be estimated
+	 */
+	public synchronized long getEstimatedRemaining() {
+		if (totalJobs <= 0 || Double.isNaN(rate) || rate <= 0.0) {
+			return -1;
 		}
+		return (long) (1000.0 * Math.max(totalJobs - completed.get(), 0) / rate);
 	}
 
-	public void completeBatch() {
+	/*
+	 * Updates the moving average and logs the progress, unless fewer than reportingIncrement jobs have completed since the last report
+	 */
+	synchronized boolean report(long now) {
+		long done = completed.get();
+		double seconds = (now - lastReportTime) / 1.0e9;
+		if (seconds <= 0.0 || done - lastReportCompleted < reportingIncrement) {
+			return false;
+		}
+		double intervalRate = (done - lastReportCompleted) / seconds;
+		if (Double.isNaN(rate)) {
+			rate = intervalRate;
+		} else {
+			double alpha = 1.0 - Math.exp(-seconds / RATE_WINDOW_SECONDS);
+			rate = alpha * intervalRate + (1.0 - alpha) * rate;
+		}
+		lastReportTime = now;
+		lastReportCompleted = done;
 		if (totalJobs > 0) {
-			long elapsed = System.currentTimeMillis() - startTime;
-			long each = elapsed / totalJobs;
-			logger.info(name + " completed: " + each + "ms each, " + elapsed + "ms total");
+			logger.info(name + ": " + done + "/" + totalJobs + " " + units + ", " + String.format("%.1f", rate) + " " + units + "/s, " + getEstimatedRemaining() + "ms remaining");
+		} else {
+			logger.info(name + ": " + done + " " + units + ", " + String.format("%.1f", rate) + " " + units + "/s");
+		}
+		return true;
+	}
+
+	private synchronized void reportIfRunning(long now) {
+		if (batchRunning) {
+			report(now);
+		}
+	}
+
+	public synchronized void completeBatch() {
+		batchRunning = false;
+		long done = completed.get();
+		if (done > 0) {
+			long elapsed = (System.nanoTime() - startTime) / 1000000L;
+			logger.info(name + " completed: " + done + " " + units + ", " + String.format("%.1f", 1000.0 * done / Math.max(elapsed, 1)) + " " + units + "/s, " + (elapsed / done) + "ms each, " + elapsed + "ms total");
+		}
+	}
+
+	/*
+	 * Only weakly references the reporter, so the scheduler does not keep reporters that are no longer used; the task cancels itself once its reporter has been collected
+	 */
+	private static class ReportingTask implements Runnable {
+
+		private WeakReference<ProgressReporter> reporter;
+		private volatile ScheduledFuture<?> future;
+
+		public ReportingTask(ProgressReporter reporter) {
+			this.reporter = new WeakReference<ProgressReporter>(reporter);
+		}
+
+		@Override
+		public void run() {
+			ProgressReporter currentReporter = reporter.get();
+			if (currentReporter != null) {
+				currentReporter.reportIfRunning(System.nanoTime());
+			} else if (future != null) {
+				future.cancel(false);
+			}
 		}
 	}
 
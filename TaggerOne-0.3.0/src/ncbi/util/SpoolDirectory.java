@@ -0,0 +1,392 @@
+package ncbi.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Consumes the files placed in an input directory, which may be shared by several processes or hosts. New files are found with a WatchService, with a full rescan at a fixed interval and whenever events are lost, and are
+ * passed to a fixed number of workers through a bounded queue. A worker claims a file by atomically renaming it into the claimed directory, so each file is processed by exactly one consumer. Files are deleted once processed,
+ * or moved to the failed directory if processing throws. Hidden files and files ending in ".incomplete" are ignored, so writers should create files under such a name and rename them when complete. Claims left by a
+ * consumer that stopped without finishing its files are returned to the input directory at startup once they are older than the stale claim age, which must therefore be longer than any file takes to process.
+ */
+public class SpoolDirectory {
+
+	private static final Logger logger = LoggerFactory.getLogger(SpoolDirectory.class);
+
+	public static final String INCOMPLETE_SUFFIX = ".incomplete";
+	public static final long DEFAULT_STALE_CLAIM_MILLIS = 24L * 60L * 60L * 1000L;
+	// How long close() waits for the files in progress before interrupting the workers
+	public static final long SHUTDOWN_TIMEOUT_MILLIS = 60000L;
+
+	public interface FileHandler {
+		/*
+		 * Processes a claimed file; name is the name the file had in the input directory
+		 */
+		public void process(File claimedFile, String name) throws Exception;
+	}
+
+	private Path inputDir;
+	private Path claimedDir;
+	private Path failedDir;
+	private long rescanIntervalMillis;
+	private long staleClaimMillis;
+	private String consumerId;
+	private BlockingQueue<String> queue;
+	private Set<String> queued;
+	private volatile boolean running;
+	private volatile boolean interrupting;
+	private WatchService watchService;
+	private ExecutorService executor;
+	private long startTime;
+	private AtomicLong processedFiles;
+	private AtomicLong processedBytes;
+	private AtomicLong failedFiles;
+
+	public SpoolDirectory(File inputDir, File claimedDir, File failedDir, int queueSize, long rescanIntervalMillis) {
+		this(inputDir, claimedDir, failedDir, queueSize, rescanIntervalMillis, DEFAULT_STALE_CLAIM_MILLIS);
+	}
+
+	public SpoolDirectory(File inputDir, File claimedDir, File failedDir, int queueSize, long rescanIntervalMillis, long staleClaimMillis) {
+		if (!inputDir.isDirectory()) {
+			throw new IllegalArgumentException("Input must be a directory: " + inputDir.getPath());
+		}
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queueSize must be at least 1: " + queueSize);
+		}
+		if (rescanIntervalMillis < 1) {
+			throw new IllegalArgumentException("rescanIntervalMillis must be at least 1: " + rescanIntervalMillis);
+		}
+		if (staleClaimMillis < 1) {
+			throw new IllegalArgumentException("staleClaimMillis must be at least 1: " + staleClaimMillis);
+		}
+		this.inputDir = inputDir.toPath();
+		this.claimedDir = claimedDir.toPath();
+		this.failedDir = failedDir.toPath();
+		this.rescanIntervalMillis = rescanIntervalMillis;
+		this.staleClaimMillis = staleClaimMillis;
+		try {
+			Files.createDirectories(this.claimedDir);
+			Files.createDirectories(this.failedDir);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		// Unique across processes and hosts sharing the directory; contains no '.', so the original name of a claimed file follows the first '.'
+		consumerId = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9@-]", "_");
+		queue = new ArrayBlockingQueue<String>(queueSize);
+		queued = ConcurrentHashMap.newKeySet();
+		processedFiles = new AtomicLong();
+		processedBytes = new AtomicLong();
+		failedFiles = new AtomicLong();
+	}
+
+	/*
+	 * Processes files with the given number of workers until close() is called or the calling thread is interrupted
+	 */
+	public void run(int workers, final FileHandler handler) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("workers must be at least 1: " + workers);
+		}
+		synchronized (this) {
+			if (running) {
+				throw new IllegalStateException("SpoolDirectory is already running");
+			}
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+				inputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+				private AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "SpoolDirectory-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			running = true;
+			interrupting = false;
+		}
+		startTime = System.currentTimeMillis();
+		releaseStaleClaims();
+		for (int i = 0; i < workers; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					processFiles(handler);
+				}
+			});
+		}
+		logger.info("Watching " + inputDir + " with " + workers + " workers as consumer " + consumerId);
+		try {
+			scan();
+			while (running) {
+				WatchKey key = watchService.poll(rescanIntervalMillis, TimeUnit.MILLISECONDS);
+				if (key == null) {
+					// Also finds files released by other consumers or written where events are not delivered, such as network filesystems
+					scan();
+				} else {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							scan();
+						} else {
+							enqueue(((Path) event.context()).getFileName().toString());
+						}
+					}
+					key.reset();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// Closed by close()
+		} finally {
+			close();
+		}
+	}
+
+	public void close() {
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+		}
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		// Workers finish the file in progress, and are only interrupted if that takes too long; files still queued remain in the input directory
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				logger.warn("Interrupting workers still processing files after " + SHUTDOWN_TIMEOUT_MILLIS + "ms");
+				interrupting = true;
+				executor.shutdownNow();
+				executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			interrupting = true;
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		logger.info("Stopped watching " + inputDir + ": processed " + processedFiles.get() + " files, failed " + failedFiles.get());
+	}
+
+	public long getProcessedFiles() {
+		return processedFiles.get();
+	}
+
+	public long getFailedFiles() {
+		return failedFiles.get();
+	}
+
+	private void scan() throws InterruptedException {
+		File[] files = inputDir.toFile().listFiles();
+		if (files == null) {
+			logger.warn("Unable to list input directory " + inputDir);
+			return;
+		}
+		for (File file : files) {
+			enqueue(file.getName());
+		}
+	}
+
+	private void enqueue(String name) throws InterruptedException {
+		if (name.startsWith(".") || name.endsWith(INCOMPLETE_SUFFIX) || !Files.isRegularFile(inputDir.resolve(name))) {
+			return;
+		}
+		if (queued.add(name)) {
+			// Waits while the workers are busy, which is the backpressure on the watcher
+			while (!queue.offer(name, rescanIntervalMillis, TimeUnit.MILLISECONDS)) {
+				if (!running) {
+					return;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns claims older than the stale claim age to the input directory, or moves them to the failed directory if a file with the same name has since been added
+	 */
+	private void releaseStaleClaims() {
+		File[] claimedFiles = claimedDir.toFile().listFiles();
+		if (claimedFiles == null) {
+			logger.warn("Unable to list claimed directory " + claimedDir);
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (File claimedFile : claimedFiles) {
+			String claimedName = claimedFile.getName();
+			int separator = claimedName.indexOf('.');
+			if (!claimedFile.isFile() || separator < 0 || now - claimedFile.lastModified() < staleClaimMillis) {
+				continue;
+			}
+			String name = claimedName.substring(separator + 1);
+			try {
+				release(claimedFile, name);
+				logger.warn("Returned stale claim " + claimedName + " to " + inputDir);
+			} catch (NoSuchFileException e) {
+				// Released by another consumer
+			} catch (FileAlreadyExistsException e) {
+				logger.warn("Stale claim " + claimedName + " has the same name as a file in " + inputDir);
+				moveToFailed(claimedFile, name);
+			} catch (IOException e) {
+				logger.error("Unable to return stale claim " + claimedName + " to " + inputDir, e);
+			}
+		}
+	}
+
+	private void processFiles(FileHandler handler) {
+		try {
+			while (running) {
+				// Polls rather than blocking, so the workers stop after close() without being interrupted
+				String name = queue.poll(rescanIntervalMillis, TimeUnit.MILLISECONDS);
+				if (name == null) {
+					continue;
+				}
+				queued.remove(name);
+				File claimedFile = null;
+				try {
+					claimedFile = claim(name);
+					if (claimedFile != null) {
+						process(claimedFile, name, handler);
+					}
+				} catch (RuntimeException e) {
+					// Processing failures are handled by process(); this is anything else that goes wrong with one file, which should not stop the worker
+					failedFiles.incrementAndGet();
+					logger.error("Encountered exception while handling file " + name, e);
+					if (claimedFile != null && claimedFile.exists()) {
+						moveToFailed(claimedFile, name);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// Shutting down
+		}
+	}
+
+	/*
+	 * Returns the claimed file, or null if the file was claimed by another consumer
+	 */
+	private File claim(String name) {
+		Path claimedPath = claimedDir.resolve(consumerId + "." + name);
+		try {
+			Files.move(inputDir.resolve(name), claimedPath, StandardCopyOption.ATOMIC_MOVE);
+			File claimedFile = claimedPath.toFile();
+			// The age of a claim is measured from when it was claimed, not when the file was written
+			if (!claimedFile.setLastModified(System.currentTimeMillis())) {
+				logger.warn("Unable to set the claim time of " + claimedPath);
+			}
+			return claimedFile;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (AtomicMoveNotSupportedException e) {
+			throw new IllegalStateException("Claimed directory " + claimedDir + " must be on the same filesystem as the input directory " + inputDir, e);
+		} catch (IOException e) {
+			logger.warn("Unable to claim file " + name + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void process(File claimedFile, String name, FileHandler handler) {
+		long start = System.currentTimeMillis();
+		long bytes = claimedFile.length();
+		try {
+			handler.process(claimedFile, name);
+			long elapsed = System.currentTimeMillis() - start;
+			long files = processedFiles.incrementAndGet();
+			long totalBytes = processedBytes.addAndGet(bytes);
+			double seconds = Math.max(System.currentTimeMillis() - startTime, 1) / 1000.0;
+			logger.info("Processed file " + name + " (" + bytes + " bytes) in " + elapsed + "ms; throughput " + String.format("%.3f", files / seconds) + " files/s, " + String.format("%.1f", totalBytes / seconds) + " bytes/s");
+			if (!claimedFile.delete()) {
+				logger.warn("Unable to delete processed file " + claimedFile.getPath());
+			}
+		} catch (Exception e) {
+			if (interrupting) {
+				// Interrupted by close(), so the file has not failed; another consumer or the next run will process it
+				returnToInput(claimedFile, name);
+				return;
+			}
+			failedFiles.incrementAndGet();
+			logger.error("Encountered exception while processing file " + name + " after " + (System.currentTimeMillis() - start) + "ms", e);
+			moveToFailed(claimedFile, name);
+		}
+	}
+
+	private void returnToInput(File claimedFile, String name) {
+		try {
+			release(claimedFile, name);
+			logger.info("Returned unfinished file " + name + " to " + inputDir);
+		} catch (FileAlreadyExistsException e) {
+			logger.warn("Unfinished file " + name + " has the same name as a file in " + inputDir);
+			moveToFailed(claimedFile, name);
+		} catch (IOException e) {
+			logger.error("Unable to return unfinished file " + claimedFile.getPath() + " to " + inputDir, e);
+		}
+	}
+
+	/*
+	 * Returns a claimed file to the input directory without replacing a file of the same name added since it was claimed, throwing FileAlreadyExistsException instead. A rename would silently replace the newer file, so
+	 * the claimed file is linked into the input directory, which fails if the name exists, and then unlinked.
+	 */
+	private void release(File claimedFile, String name) throws IOException {
+		Path claimedPath = claimedFile.toPath();
+		Path inputPath = inputDir.resolve(name);
+		try {
+			Files.createLink(inputPath, claimedPath);
+		} catch (FileAlreadyExistsException e) {
+			// Already linked by another consumer releasing the same claim
+			if (!Files.isSameFile(inputPath, claimedPath)) {
+				throw e;
+			}
+		} catch (UnsupportedOperationException e) {
+			// No hard links on this file system; checks for the name separately, so only nearly atomic
+			Files.move(claimedPath, inputPath);
+			return;
+		}
+		Files.deleteIfExists(claimedPath);
+	}
+
+	private void moveToFailed(File claimedFile, String name) {
+		Path failedPath = failedDir.resolve(name);
+		if (Files.exists(failedPath)) {
+			failedPath = failedDir.resolve(name + "." + System.currentTimeMillis());
+		}
+		try {
+			Files.move(claimedFile.toPath(), failedPath);
+			logger.info("Moved failed file " + name + " to " + failedPath);
+		} catch (IOException e) {
+			logger.error("Unable to move failed file " + claimedFile.getPath() + " to " + failedPath, e);
+		}
+	}
+}
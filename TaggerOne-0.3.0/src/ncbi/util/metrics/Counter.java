@@ -0,0 +1,30 @@
+package ncbi.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A count that only increases, such as the number of documents processed.
+ */
+public class Counter {
+
+	private final LongAdder count;
+
+	Counter() {
+		count = new LongAdder();
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long amount) {
+		if (amount < 0) {
+			throw new IllegalArgumentException("Counter cannot be decreased: " + amount);
+		}
+		count.add(amount);
+	}
+
+	public long get() {
+		return count.sum();
+	}
+}
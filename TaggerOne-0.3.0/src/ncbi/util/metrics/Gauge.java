@@ -0,0 +1,10 @@
+package ncbi.util.metrics;
+
+/*
+ * A value read when the metrics are exported, such as the size of a cache.
+ */
+public interface Gauge {
+
+	public double getValue();
+
+}
@@ -0,0 +1,121 @@
+package ncbi.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Records the distribution of non-negative values, such as latencies in nanoseconds, in log-linear buckets like an HDR histogram: each power of two is split into 32 buckets, so percentiles are accurate to about 3% at any
+ * scale while using a fixed amount of memory. Recording does not lock.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final LongAdder sum;
+	private final AtomicLong max;
+
+	Histogram() {
+		counts = new AtomicLongArray(BUCKETS);
+		sum = new LongAdder();
+		max = new AtomicLong();
+	}
+
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Histogram values cannot be negative: " + value);
+		}
+		counts.incrementAndGet(getBucket(value));
+		sum.add(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/*
+	 * Records the time since the start, as returned by System.nanoTime()
+	 */
+	public void recordSince(long startNanos) {
+		record(Math.max(0, System.nanoTime() - startNanos));
+	}
+
+	public Snapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKETS];
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			snapshotCounts[bucket] = counts.get(bucket);
+			count += snapshotCounts[bucket];
+		}
+		return new Snapshot(snapshotCounts, count, sum.sum(), max.get());
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long getBucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lower = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	/*
+	 * The values recorded up to a point in time
+	 */
+	public static class Snapshot {
+
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/*
+		 * Returns the largest value that percentile percent of the recorded values are at or below, to within the bucket resolution; 0 if no values were recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+			long seen = 0;
+			for (int bucket = 0; bucket < counts.length; bucket++) {
+				seen += counts[bucket];
+				if (seen >= rank) {
+					return Math.min(getBucketUpperBound(bucket), max);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package ncbi.util.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * A named metric and its help text, with one child per value of its label; a metric without a label has a single child for the empty label value.
+ */
+public class MetricFamily<M> {
+
+	public enum Type {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private final String name;
+	private final String help;
+	private final Type type;
+	private final String labelName;
+	private final ConcurrentMap<String, M> children;
+
+	MetricFamily(String name, String help, Type type, String labelName) {
+		this.name = name;
+		this.help = help;
+		this.type = type;
+		this.labelName = labelName;
+		children = new ConcurrentHashMap<String, M>();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHelp() {
+		return help;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getLabelName() {
+		return labelName;
+	}
+
+	/*
+	 * Returns the child for the label value, creating it if necessary; callers on a hot path should keep the child rather than looking it up each time
+	 */
+	@SuppressWarnings("unchecked")
+	public M get(String labelValue) {
+		M child = children.get(labelValue);
+		if (child == null) {
+			M newChild;
+			if (type == Type.COUNTER) {
+				newChild = (M) new Counter();
+			} else if (type == Type.HISTOGRAM) {
+				newChild = (M) new Histogram();
+			} else {
+				throw new IllegalStateException("Gauges must be registered with Metrics.gauge(): " + name);
+			}
+			child = children.putIfAbsent(labelValue, newChild);
+			if (child == null) {
+				child = newChild;
+			}
+		}
+		return child;
+	}
+
+	void put(String labelValue, M child) {
+		children.put(labelValue, child);
+	}
+
+	/*
+	 * Returns the label values of the children, sorted
+	 */
+	public List<String> getLabelValues() {
+		List<String> labelValues = new ArrayList<String>(children.keySet());
+		Collections.sort(labelValues);
+		return labelValues;
+	}
+}
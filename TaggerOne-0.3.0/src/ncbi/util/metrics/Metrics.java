@@ -0,0 +1,143 @@
+package ncbi.util.metrics;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * The registry of metrics for the process. Metrics are identified by name and are created the first time they are requested, so code can get the metrics it updates in static fields. Names and label names should follow the
+ * Prometheus conventions, such as taggerone_documents_total; histograms of latencies record nanoseconds and are exported in seconds when the name ends with _seconds.
+ */
+public final class Metrics {
+
+	private static final ConcurrentMap<String, MetricFamily<?>> families = new ConcurrentHashMap<String, MetricFamily<?>>();
+
+	private Metrics() {
+		// Not instantiable
+	}
+
+	public static Counter counter(String name, String help) {
+		return counterFamily(name, help, null).get("");
+	}
+
+	public static MetricFamily<Counter> counterFamily(String name, String help, String labelName) {
+		return family(name, help, MetricFamily.Type.COUNTER, labelName);
+	}
+
+	public static Histogram histogram(String name, String help) {
+		return histogramFamily(name, help, null).get("");
+	}
+
+	public static MetricFamily<Histogram> histogramFamily(String name, String help, String labelName) {
+		return family(name, help, MetricFamily.Type.HISTOGRAM, labelName);
+	}
+
+	/*
+	 * Registers the gauge, replacing any gauge previously registered with the name
+	 */
+	public static void gauge(String name, String help, Gauge gauge) {
+		gauge(name, help, null, "", gauge);
+	}
+
+	public static void gauge(String name, String help, String labelName, String labelValue, Gauge gauge) {
+		MetricFamily<Gauge> family = family(name, help, MetricFamily.Type.GAUGE, labelName);
+		family.put(labelValue, gauge);
+	}
+
+	/*
+	 * Registers gauges for the heap memory used, the maximum heap size, the total time spent in garbage collection and, on Linux, the peak resident set size
+	 */
+	public static void registerJVMGauges() {
+		gauge("jvm_memory_heap_used_bytes", "Heap memory used", new Gauge() {
+			@Override
+			public double getValue() {
+				Runtime runtime = Runtime.getRuntime();
+				return runtime.totalMemory() - runtime.freeMemory();
+			}
+		});
+		gauge("jvm_memory_heap_max_bytes", "Maximum heap size", new Gauge() {
+			@Override
+			public double getValue() {
+				return Runtime.getRuntime().maxMemory();
+			}
+		});
+		gauge("jvm_gc_collection_seconds_total", "Total time spent in garbage collection", new Gauge() {
+			@Override
+			public double getValue() {
+				long millis = 0;
+				for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+					millis += Math.max(collector.getCollectionTime(), 0);
+				}
+				return millis / 1000.0;
+			}
+		});
+		if (!Double.isNaN(getPeakResidentBytes())) {
+			gauge("process_resident_memory_peak_bytes", "Peak resident set size", new Gauge() {
+				@Override
+				public double getValue() {
+					return getPeakResidentBytes();
+				}
+			});
+		}
+	}
+
+	/*
+	 * Returns the peak resident set size (VmHWM) from /proc/self/status, or NaN if it cannot be read
+	 */
+	static double getPeakResidentBytes() {
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"));
+			try {
+				String line = reader.readLine();
+				while (line != null) {
+					if (line.startsWith("VmHWM:")) {
+						String[] fields = line.substring(6).trim().split("\\s+");
+						return Long.parseLong(fields[0]) * 1024.0;
+					}
+					line = reader.readLine();
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// Not available on this platform
+		}
+		return Double.NaN;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <M> MetricFamily<M> family(String name, String help, MetricFamily.Type type, String labelName) {
+		MetricFamily<?> family = families.get(name);
+		if (family == null) {
+			MetricFamily<M> newFamily = new MetricFamily<M>(name, help, type, labelName);
+			family = families.putIfAbsent(name, newFamily);
+			if (family == null) {
+				family = newFamily;
+			}
+		}
+		if (family.getType() != type || (labelName == null ? family.getLabelName() != null : !labelName.equals(family.getLabelName()))) {
+			throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.getType() + " with label " + family.getLabelName());
+		}
+		return (MetricFamily<M>) family;
+	}
+
+	/*
+	 * Returns the registered metrics, sorted by name
+	 */
+	public static List<MetricFamily<?>> getFamilies() {
+		List<String> names = new ArrayList<String>(families.keySet());
+		Collections.sort(names);
+		List<MetricFamily<?>> sorted = new ArrayList<MetricFamily<?>>();
+		for (String name : names) {
+			sorted.add(families.get(name));
+		}
+		return sorted;
+	}
+}
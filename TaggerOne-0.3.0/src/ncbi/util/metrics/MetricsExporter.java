@@ -0,0 +1,305 @@
+package ncbi.util.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Exports the registered metrics in the Prometheus text format or as JSON, either by rewriting a file periodically or by serving /metrics and /metrics.json on a port. Histograms are exported as summaries with the 50th,
+ * 90th, 99th and 99.9th percentiles.
+ */
+public class MetricsExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+	public static final String PROMETHEUS_FORMAT = "prometheus";
+	public static final String JSON_FORMAT = "json";
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	private ScheduledExecutorService scheduler;
+	private HttpServer server;
+	private File file;
+	private String format;
+
+	public MetricsExporter() {
+		// Empty
+	}
+
+	public static boolean isJSONFormat(String format) {
+		String lowerCase = format.toLowerCase(Locale.US);
+		if (lowerCase.equals(JSON_FORMAT)) {
+			return true;
+		}
+		if (lowerCase.equals(PROMETHEUS_FORMAT)) {
+			return false;
+		}
+		throw new IllegalArgumentException("Metrics format must be " + PROMETHEUS_FORMAT + " or " + JSON_FORMAT + ": " + format);
+	}
+
+	/*
+	 * Rewrites the file with the current metrics every interval, and once more when closed
+	 */
+	public synchronized void startFile(File file, String format, long intervalSeconds) {
+		if (scheduler != null) {
+			throw new IllegalStateException("Metrics file export already started");
+		}
+		if (intervalSeconds < 1) {
+			throw new IllegalArgumentException("Metrics interval must be at least 1 second: " + intervalSeconds);
+		}
+		isJSONFormat(format);
+		this.file = file;
+		this.format = format;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "MetricsExporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeFile();
+				} catch (IOException e) {
+					logger.warn("Unable to write metrics to " + MetricsExporter.this.file.getPath(), e);
+				}
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		logger.info("Writing metrics to " + file.getPath() + " every " + intervalSeconds + " seconds");
+	}
+
+	/*
+	 * Serves the current metrics on the port of the loopback address only
+	 */
+	public void startServer(int port) throws IOException {
+		startServer(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/*
+	 * Serves the current metrics on the port of the bind address, in the Prometheus format at /metrics and as JSON at /metrics.json. The metrics are not authenticated, so bind to an address other than loopback only where
+	 * the network is trusted.
+	 */
+	public synchronized void startServer(InetAddress bindAddress, int port) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Metrics server already started");
+		}
+		server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+		server.createContext("/metrics", new MetricsHandler(false));
+		server.createContext("/metrics.json", new MetricsHandler(true));
+		server.setExecutor(Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "MetricsServer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}));
+		server.start();
+		logger.info("Serving metrics on " + bindAddress.getHostAddress() + " port " + server.getAddress().getPort());
+	}
+
+	public synchronized int getPort() {
+		if (server == null) {
+			throw new IllegalStateException("Metrics server not started");
+		}
+		return server.getAddress().getPort();
+	}
+
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			try {
+				writeFile();
+			} catch (IOException e) {
+				logger.warn("Unable to write metrics to " + file.getPath(), e);
+			}
+			scheduler = null;
+		}
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+	}
+
+	private void writeFile() throws IOException {
+		StringWriter writer = new StringWriter();
+		write(writer, isJSONFormat(format));
+		// Replace the file in one step so readers never see a partial dump
+		File temp = new File(file.getPath() + ".tmp");
+		Files.write(temp.toPath(), writer.toString().getBytes(StandardCharsets.UTF_8));
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public static void write(Writer writer, boolean json) throws IOException {
+		if (json) {
+			writeJSON(writer);
+		} else {
+			writePrometheus(writer);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public static void writePrometheus(Writer writer) throws IOException {
+		for (MetricFamily<?> family : Metrics.getFamilies()) {
+			String name = family.getName();
+			writer.write("# HELP " + name + " " + family.getHelp().replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+			if (family.getType() == MetricFamily.Type.HISTOGRAM) {
+				writer.write("# TYPE " + name + " summary\n");
+			} else {
+				writer.write("# TYPE " + name + " " + family.getType().name().toLowerCase(Locale.US) + "\n");
+			}
+			for (String labelValue : family.getLabelValues()) {
+				String labels = family.getLabelName() == null ? "" : family.getLabelName() + "=\"" + escapeLabel(labelValue) + "\"";
+				if (family.getType() == MetricFamily.Type.COUNTER) {
+					Counter counter = ((MetricFamily<Counter>) family).get(labelValue);
+					writer.write(name + braces(labels) + " " + counter.get() + "\n");
+				} else if (family.getType() == MetricFamily.Type.GAUGE) {
+					Gauge gauge = ((MetricFamily<Gauge>) family).get(labelValue);
+					writer.write(name + braces(labels) + " " + formatDouble(gauge.getValue()) + "\n");
+				} else {
+					Histogram.Snapshot snapshot = ((MetricFamily<Histogram>) family).get(labelValue).snapshot();
+					double scale = getScale(name);
+					String separator = labels.length() == 0 ? "" : labels + ",";
+					for (double quantile : QUANTILES) {
+						writer.write(name + "{" + separator + "quantile=\"" + quantile + "\"} " + formatDouble(snapshot.getValueAtPercentile(100.0 * quantile) * scale) + "\n");
+					}
+					writer.write(name + "_sum" + braces(labels) + " " + formatDouble(snapshot.getSum() * scale) + "\n");
+					writer.write(name + "_count" + braces(labels) + " " + snapshot.getCount() + "\n");
+				}
+			}
+		}
+		writer.flush();
+	}
+
+	@SuppressWarnings("unchecked")
+	public static void writeJSON(Writer writer) throws IOException {
+		writer.write("{\"timestamp\":" + System.currentTimeMillis() + ",\"metrics\":[");
+		boolean firstFamily = true;
+		for (MetricFamily<?> family : Metrics.getFamilies()) {
+			if (!firstFamily) {
+				writer.write(",");
+			}
+			firstFamily = false;
+			writer.write("{\"name\":" + quote(family.getName()) + ",\"type\":" + quote(family.getType().name().toLowerCase(Locale.US)) + ",\"help\":" + quote(family.getHelp()));
+			if (family.getLabelName() != null) {
+				writer.write(",\"label\":" + quote(family.getLabelName()));
+			}
+			writer.write(",\"values\":[");
+			boolean firstValue = true;
+			for (String labelValue : family.getLabelValues()) {
+				if (!firstValue) {
+					writer.write(",");
+				}
+				firstValue = false;
+				writer.write("{");
+				if (family.getLabelName() != null) {
+					writer.write("\"labelValue\":" + quote(labelValue) + ",");
+				}
+				if (family.getType() == MetricFamily.Type.COUNTER) {
+					writer.write("\"value\":" + ((MetricFamily<Counter>) family).get(labelValue).get());
+				} else if (family.getType() == MetricFamily.Type.GAUGE) {
+					writer.write("\"value\":" + formatDouble(((MetricFamily<Gauge>) family).get(labelValue).getValue()));
+				} else {
+					Histogram.Snapshot snapshot = ((MetricFamily<Histogram>) family).get(labelValue).snapshot();
+					double scale = getScale(family.getName());
+					writer.write("\"count\":" + snapshot.getCount() + ",\"sum\":" + formatDouble(snapshot.getSum() * scale) + ",\"max\":" + formatDouble(snapshot.getMax() * scale));
+					for (double quantile : QUANTILES) {
+						writer.write(",\"p" + formatDouble(100.0 * quantile).replace(".", "_") + "\":" + formatDouble(snapshot.getValueAtPercentile(100.0 * quantile) * scale));
+					}
+				}
+				writer.write("}");
+			}
+			writer.write("]}");
+		}
+		writer.write("]}\n");
+		writer.flush();
+	}
+
+	private static double getScale(String name) {
+		// Latencies are recorded in nanoseconds
+		return name.endsWith("_seconds") ? 1.0e-9 : 1.0;
+	}
+
+	private static String braces(String labels) {
+		return labels.length() == 0 ? "" : "{" + labels + "}";
+	}
+
+	private static String formatDouble(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1.0e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	private static String escapeLabel(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				quoted.append('\\').append(ch);
+			} else if (ch < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) ch));
+			} else {
+				quoted.append(ch);
+			}
+		}
+		quoted.append('"');
+		return quoted.toString();
+	}
+
+	private static class MetricsHandler implements HttpHandler {
+
+		private final boolean json;
+
+		public MetricsHandler(boolean json) {
+			this.json = json;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			StringWriter writer = new StringWriter();
+			write(writer, json);
+			byte[] response = writer.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", json ? "application/json; charset=utf-8" : "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, response.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(response);
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package ncbi.taggerOne;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class MentionContainerTest {
+
+	private static File createTempFile() throws IOException {
+		File file = File.createTempFile("mentions", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static MentionBlock createBlock(int block) {
+		MentionBlock mentions = new MentionBlock(true);
+		for (int i = 0; i < 100; i++) {
+			String identifier = i % 3 == 0 ? "" : "MESH:D00" + (i % 7);
+			mentions.add("PMID" + (block * 10 + i / 10), "mention \u00e9 " + i, i % 2 == 0 ? "Disease" : "Chemical", identifier, identifier.length() == 0 ? "" : "name " + (i % 7));
+		}
+		return mentions;
+	}
+
+	private static void assertBlock(int block, MentionBlock mentions) {
+		MentionBlock expected = createBlock(block);
+		assertEquals(expected.size(), mentions.size());
+		assertTrue(mentions.isNormalized());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getDocumentId(i), mentions.getDocumentId(i));
+			assertEquals(expected.getMentionText(i), mentions.getMentionText(i));
+			assertEquals(expected.getType(i), mentions.getType(i));
+			assertEquals(expected.getIdentifier(i), mentions.getIdentifier(i));
+			assertEquals(expected.getName(i), mentions.getName(i));
+		}
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		File file = createTempFile();
+		MentionContainer.Writer writer = new MentionContainer.Writer(file);
+		for (int block = 0; block < 3; block++) {
+			writer.writeBlock(createBlock(block));
+		}
+		writer.close();
+
+		MentionContainer.Reader reader = new MentionContainer.Reader(file);
+		assertEquals(3, reader.getBlockCount());
+		assertEquals(100, reader.getBlockSize(1));
+		for (int block = 0; block < 3; block++) {
+			assertBlock(block, reader.readBlock());
+		}
+		assertNull(reader.readBlock());
+		reader.seekBlock(2);
+		assertBlock(2, reader.readBlock());
+		reader.close();
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		File file = createTempFile();
+		MentionContainer.Writer writer = new MentionContainer.Writer(file);
+		writer.writeBlock(createBlock(0));
+		writer.writeBlock(createBlock(1));
+		// Simulate a failure while writing the second block: not closed, and the last block is cut short
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 5);
+		raf.close();
+
+		writer = new MentionContainer.Writer(file, true);
+		assertEquals(1, writer.getBlockCount());
+		writer.writeBlock(createBlock(1));
+		writer.writeBlock(createBlock(2));
+		writer.close();
+
+		// Resuming a closed file keeps all of its blocks
+		writer = new MentionContainer.Writer(file, true);
+		assertEquals(3, writer.getBlockCount());
+		writer.close();
+
+		MentionContainer.Reader reader = new MentionContainer.Reader(file);
+		assertEquals(3, reader.getBlockCount());
+		for (int block = 0; block < 3; block++) {
+			assertBlock(block, reader.readBlock());
+		}
+		reader.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotClosed() throws IOException {
+		File file = createTempFile();
+		MentionContainer.Writer writer = new MentionContainer.Writer(file);
+		writer.writeBlock(createBlock(0));
+		new MentionContainer.Reader(file);
+	}
+}
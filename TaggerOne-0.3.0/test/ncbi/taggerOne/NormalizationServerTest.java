@@ -0,0 +1,104 @@
+package ncbi.taggerOne;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.util.AbbreviationResolver;
+
+public class NormalizationServerTest {
+
+	private NormalizationServer server;
+	private Socket socket;
+	private BufferedReader reader;
+	private Writer writer;
+
+	@Before
+	public void setUp() throws IOException {
+		final AbbreviationResolver abbreviationResolver = new AbbreviationResolver();
+		// Returns the expanded mention text as the identifier for Disease mentions
+		MentionNormalizer normalizer = new MentionNormalizer(Collections.<String, NormalizationModelPredictor> emptyMap(), null, abbreviationResolver, 10) {
+			@Override
+			public List<String> getIdentifiers(List<String> documentIds, List<String> mentionTexts, List<String> types) {
+				List<String> identifiers = new ArrayList<String>();
+				for (int i = 0; i < documentIds.size(); i++) {
+					identifiers.add(types.get(i).equals("Disease") ? abbreviationResolver.expandAbbreviations(documentIds.get(i), mentionTexts.get(i)) : null);
+				}
+				return identifiers;
+			}
+		};
+		server = new NormalizationServer(normalizer, abbreviationResolver, 2, 1, 3, 10000);
+		server.start(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+		socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), T1Constants.UTF8_FORMAT));
+		writer = new OutputStreamWriter(socket.getOutputStream(), T1Constants.UTF8_FORMAT);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		socket.close();
+		server.close();
+	}
+
+	private List<String> request(String... lines) throws IOException {
+		for (String line : lines) {
+			writer.write(line + "\n");
+		}
+		writer.write("\n");
+		writer.flush();
+		List<String> response = new ArrayList<String>();
+		String line = reader.readLine();
+		while (line.length() > 0) {
+			response.add(line);
+			line = reader.readLine();
+		}
+		return response;
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		assertEquals(Arrays.asList("1\tcancer\tDisease\tcancer", "1\taspirin\tChemical\t"), request("1\tcancer\tDisease", "1\taspirin\tChemical"));
+		assertEquals(Arrays.asList("2\tasthma\tDisease\tasthma"), request("2\tasthma\tDisease"));
+	}
+
+	@Test
+	public void testAbbreviations() throws IOException {
+		File abbreviationFile = File.createTempFile("abbreviations", ".txt");
+		abbreviationFile.deleteOnExit();
+		Writer fileWriter = new OutputStreamWriter(new FileOutputStream(abbreviationFile), T1Constants.UTF8_FORMAT);
+		fileWriter.write("1\tBC\tbreast cancer\n");
+		fileWriter.close();
+		assertEquals(Arrays.asList("1\tBC\tDisease\tBC"), request("1\tBC\tDisease"));
+		assertEquals(Arrays.asList("1\tBC\tDisease\tbreast cancer"), request(NormalizationServer.ABBREVIATIONS_COMMAND + "\t" + abbreviationFile.getPath(), "1\tBC\tDisease"));
+	}
+
+	@Test
+	public void testErrors() throws IOException {
+		List<String> response = request("1\tcancer");
+		assertEquals(1, response.size());
+		assertTrue(response.get(0).startsWith(NormalizationServer.ERROR_RESPONSE + "\t"));
+		response = request("1\ta\tDisease", "1\tb\tDisease", "1\tc\tDisease", "1\td\tDisease");
+		assertEquals(1, response.size());
+		assertTrue(response.get(0).startsWith(NormalizationServer.ERROR_RESPONSE + "\t"));
+		// The connection remains usable
+		assertEquals(Arrays.asList("1\tcancer\tDisease\tcancer"), request("1\tcancer\tDisease"));
+	}
+}
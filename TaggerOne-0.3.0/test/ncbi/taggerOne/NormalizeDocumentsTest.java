@@ -0,0 +1,110 @@
+package ncbi.taggerOne;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import bioc.BioCAnnotation;
+import bioc.BioCDocument;
+import bioc.io.woodstox.ConnectorWoodstox;
+import ncbi.taggerOne.model.normalization.NormalizationModelPredictor;
+import ncbi.taggerOne.util.AbbreviationResolver;
+
+public class NormalizeDocumentsTest {
+
+	@Test
+	public void testLines() throws IOException {
+		// Same as Python: "a\r\nb\rc\u2028d\n\ne".splitlines()
+		NormalizeDocuments.PythonLineReader reader = new NormalizeDocuments.PythonLineReader(new BufferedReader(new StringReader("a\r\nb\rc\u2028d\n\ne\n")));
+		List<String> lines = new ArrayList<String>();
+		String line = reader.readLine();
+		while (line != null) {
+			lines.add(line);
+			line = reader.readLine();
+		}
+		assertEquals(Arrays.asList("a", "b", "c", "d", "", "e"), lines);
+	}
+
+	/*
+	 * As insert_normalized.py does, unknown entities are written without an identifier infon, removing any identifier in the input
+	 */
+	@Test
+	public void testBioCIdentifiers() throws IOException, XMLStreamException {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><collection><source>test</source><date>20240101</date><key>test.key</key>");
+		xml.append("<document><id>1</id><passage><offset>0</offset><text>breast cancer, foo and aspirin</text>");
+		xml.append("<annotation id=\"0\"><infon key=\"type\">Disease</infon><location offset=\"0\" length=\"13\"/><text>breast cancer</text></annotation>");
+		xml.append("<annotation id=\"1\"><infon key=\"type\">Disease</infon><infon key=\"identifier\">D2</infon><location offset=\"15\" length=\"3\"/><text>foo</text></annotation>");
+		xml.append("<annotation id=\"2\"><infon key=\"type\">Chemical</infon><location offset=\"23\" length=\"7\"/><text>aspirin</text></annotation>");
+		xml.append("</passage></document></collection>");
+		File inputFile = File.createTempFile("NormalizeDocumentsTest", ".xml");
+		File outputFile = File.createTempFile("NormalizeDocumentsTest", ".xml");
+		try {
+			Files.write(inputFile.toPath(), xml.toString().getBytes(StandardCharsets.UTF_8));
+			MentionNormalizer normalizer = new MentionNormalizer(Collections.<String, NormalizationModelPredictor> emptyMap(), null, new AbbreviationResolver(), 10) {
+				@Override
+				public List<String> getIdentifiers(List<String> documentIds, List<String> mentionTexts, List<String> types) {
+					List<String> identifiers = new ArrayList<String>();
+					for (int i = 0; i < mentionTexts.size(); i++) {
+						if (!types.get(i).equals("Disease")) {
+							identifiers.add(null);
+						} else if (mentionTexts.get(i).equals("breast cancer")) {
+							identifiers.add("D1");
+						} else {
+							identifiers.add("");
+						}
+					}
+					return identifiers;
+				}
+			};
+			NormalizeDocuments.processBioC(inputFile, outputFile, normalizer);
+
+			ConnectorWoodstox connector = new ConnectorWoodstox();
+			InputStreamReader reader = new InputStreamReader(new FileInputStream(outputFile), StandardCharsets.UTF_8);
+			connector.startRead(reader);
+			assertTrue(connector.hasNext());
+			BioCDocument document = connector.next();
+			List<BioCAnnotation> annotations = document.getPassages().get(0).getAnnotations();
+			assertEquals(2, annotations.size());
+			assertEquals("D1", annotations.get(0).getInfon("identifier"));
+			assertFalse(annotations.get(1).getInfons().containsKey("identifier"));
+			assertFalse(connector.hasNext());
+			reader.close();
+		} finally {
+			inputFile.delete();
+			outputFile.delete();
+		}
+	}
+
+	@Test
+	public void testStrip() {
+		assertEquals("a b", NormalizeDocuments.strip("\u00A0\t a b\u3000\u0085"));
+		assertEquals("\u200Ba", NormalizeDocuments.strip("\u200Ba "));
+		assertEquals("", NormalizeDocuments.strip(" \t "));
+	}
+
+	@Test
+	public void testSanitized() {
+		assertTrue(NormalizeDocuments.isSanitized("breast cancer"));
+		assertTrue(NormalizeDocuments.isSanitized(""));
+		assertFalse(NormalizeDocuments.isSanitized("breast\tcancer"));
+		assertFalse(NormalizeDocuments.isSanitized("breast cancer "));
+		assertFalse(NormalizeDocuments.isSanitized("breast\u00A0cancer"));
+		assertFalse(NormalizeDocuments.isSanitized(null));
+	}
+}
@@ -0,0 +1,88 @@
+package ncbi.taggerOne;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import bioc.BioCAnnotation;
+import bioc.BioCDocument;
+import bioc.BioCPassage;
+import bioc.io.woodstox.ConnectorWoodstox;
+
+public class PipelinedBioCProcessorTest {
+
+	private static final int DOCUMENTS = 50;
+
+	private static String createCollection() {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><collection><source>test</source><date>20240101</date><key>test.key</key>");
+		for (int i = 0; i < DOCUMENTS; i++) {
+			xml.append("<document><id>" + i + "</id><passage><offset>0</offset><text>text " + i + "</text></passage></document>");
+		}
+		xml.append("</collection>");
+		return xml.toString();
+	}
+
+	@Test
+	public void testOrder() throws XMLStreamException, IOException {
+		final AtomicInteger maxInProgress = new AtomicInteger();
+		final AtomicInteger inProgress = new AtomicInteger();
+		StringWriter output = new StringWriter();
+		new PipelinedBioCProcessor(4, 3).process(new StringReader(createCollection()), output, new PipelinedBioCProcessor.DocumentProcessor() {
+			@Override
+			public void process(BioCDocument document) {
+				int current = inProgress.incrementAndGet();
+				synchronized (maxInProgress) {
+					maxInProgress.set(Math.max(maxInProgress.get(), current));
+				}
+				try {
+					// Finish out of order
+					Thread.sleep((Integer.parseInt(document.getID()) * 7) % 5);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				BioCPassage passage = document.getPassages().get(0);
+				BioCAnnotation annotation = new BioCAnnotation();
+				annotation.setID("0");
+				annotation.putInfon("type", "Test");
+				annotation.setLocation(0, 4);
+				annotation.setText(passage.getText().substring(0, 4));
+				passage.addAnnotation(annotation);
+				inProgress.decrementAndGet();
+			}
+		});
+
+		ConnectorWoodstox connector = new ConnectorWoodstox();
+		connector.startRead(new StringReader(output.toString()));
+		int count = 0;
+		while (connector.hasNext()) {
+			BioCDocument document = connector.next();
+			assertEquals(Integer.toString(count), document.getID());
+			BioCAnnotation annotation = document.getPassages().get(0).getAnnotations().get(0);
+			assertEquals("text", annotation.getText());
+			assertEquals("Test", annotation.getInfon("type"));
+			count++;
+		}
+		assertEquals(DOCUMENTS, count);
+		assertTrue(maxInProgress.get() <= 4);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testError() throws XMLStreamException, IOException {
+		new PipelinedBioCProcessor(2, 2).process(new StringReader(createCollection()), new StringWriter(), new PipelinedBioCProcessor.DocumentProcessor() {
+			@Override
+			public void process(BioCDocument document) {
+				if (document.getID().equals("10")) {
+					throw new IllegalStateException("Failed");
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,99 @@
+package ncbi.taggerOne.abbreviation;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ncbi.taggerOne.types.TextInstance;
+
+public class Ab3PAbbreviationSourceTest {
+
+	// Stands in for Ab3P: echoes each line followed by its abbreviations, and counts the number of times it is run
+	private static final String SCRIPT = "echo run >> runs.txt\n" //
+			+ "while IFS= read -r line || [ -n \"$line\" ]; do\n" //
+			+ "  echo \"$line\"\n" //
+			+ "  case \"$line\" in *\"(HD)\"*) echo \"  HD|Huntington disease|0.999\";; esac\n" //
+			+ "  case \"$line\" in *\"(PD)\"*) echo \"  PD|Parkinson disease|0.999\";; esac\n" //
+			+ "done < \"$1\"\n";
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		assumeTrue(new File("/bin/sh").exists());
+		dir = Files.createTempDirectory("ab3p").toFile();
+		dir.deleteOnExit();
+		Files.write(new File(dir, "ab3p.sh").toPath(), SCRIPT.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Ab3PAbbreviationSource createSource(String processes) {
+		Ab3PAbbreviationSource source = new Ab3PAbbreviationSource();
+		source.setArgs(Ab3PAbbreviationSource.class.getName(), "/bin/sh " + new File(dir, "ab3p.sh").getAbsolutePath(), dir.getAbsolutePath(), dir.getAbsolutePath(), "10000", processes);
+		return source;
+	}
+
+	private int getRuns() throws IOException {
+		File runs = new File(dir, "runs.txt");
+		if (!runs.exists()) {
+			return 0;
+		}
+		return Files.readAllLines(runs.toPath(), StandardCharsets.UTF_8).size();
+	}
+
+	private static List<TextInstance> createInstances() {
+		String[] texts = { "Huntington disease (HD) is inherited.", "No abbreviations here.", "Parkinson disease (PD) and HD.", "Both (HD) and (PD).", "Huntington disease (HD) is inherited.",
+				"A parenthesis (without abbreviations)." };
+		List<TextInstance> instances = new ArrayList<TextInstance>();
+		for (int i = 0; i < texts.length; i++) {
+			instances.add(new TextInstance(null, "" + i, "" + i, texts[i], 0));
+		}
+		return instances;
+	}
+
+	@Test
+	public void testPrefetch() throws IOException {
+		List<TextInstance> instances = createInstances();
+		Ab3PAbbreviationSource single = createSource("1");
+		List<Map<String, String>> expected = new ArrayList<Map<String, String>>();
+		for (TextInstance instance : instances) {
+			expected.add(single.getAbbreviations(instance.getSourceId(), instance.getText()));
+		}
+		// Runs for each distinct text with a parenthesis
+		assertEquals(4, getRuns());
+		assertEquals("Huntington disease", expected.get(0).get("HD"));
+		assertEquals(2, expected.get(3).size());
+		assertTrue(expected.get(5).isEmpty());
+
+		Ab3PAbbreviationSource batch = createSource("2");
+		batch.prefetchAbbreviations(instances);
+		assertEquals(6, getRuns());
+		for (int i = 0; i < instances.size(); i++) {
+			assertEquals(expected.get(i), batch.getAbbreviations(instances.get(i).getSourceId(), instances.get(i).getText()));
+		}
+		// Everything was cached by the prefetch
+		batch.prefetchAbbreviations(instances);
+		assertEquals(6, getRuns());
+	}
+
+	@Test
+	public void testLineBreaks() throws IOException {
+		// Texts with line breaks are not batched, but still found individually
+		Ab3PAbbreviationSource source = createSource("1");
+		List<TextInstance> instances = new ArrayList<TextInstance>();
+		instances.add(new TextInstance(null, "0", "0", "Huntington disease (HD)\nis inherited.", 0));
+		source.prefetchAbbreviations(instances);
+		assertEquals(0, getRuns());
+		assertEquals("Huntington disease", source.getAbbreviations("0", instances.get(0).getText()).get("HD"));
+		assertEquals(1, getRuns());
+	}
+}
@@ -0,0 +1,98 @@
+package ncbi.taggerOne.abbreviation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.util.AbbreviationResolver;
+
+public class AbbreviationIndexTest {
+
+	private static final String ABBREVIATIONS = "1\tHD\tHuntington disease\r\n1\tPD\tParkinson disease\n\n2\tAD\tAlzheimer disease\n1\tHD\tHeart disease\n 3\tCF\tcystic fibrosis";
+
+	private static File write(String text) throws IOException {
+		File file = File.createTempFile("abbreviations", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testGetAbbreviations() throws IOException {
+		File file = write(ABBREVIATIONS);
+		AbbreviationIndex index = new AbbreviationIndex();
+		index.add(file.getPath());
+		assertEquals(3, index.size());
+
+		// Matches the abbreviations loaded by FileAbbreviationSource
+		FileAbbreviationSource source = new FileAbbreviationSource();
+		source.loadAbbreviations(file.getPath());
+		for (String id : new String[] { "1", "2", "3", "4" }) {
+			assertEquals(source.getAbbreviations(id, null), index.getAbbreviations(id, null));
+		}
+		Map<String, String> abbreviations = index.getAbbreviations("1", null);
+		assertEquals("Huntington disease", abbreviations.get("HD"));
+		assertEquals(2, abbreviations.size());
+	}
+
+	/*
+	 * As when loading each file into an AbbreviationResolver, a short form defined in more than one file has the definition from the last file
+	 */
+	@Test
+	public void testConflictingFiles() throws IOException {
+		File dir = Files.createTempDirectory("abbreviations").toFile();
+		dir.deleteOnExit();
+		File first = new File(dir, "a.txt");
+		File second = new File(dir, "b.txt");
+		Files.write(first.toPath(), "1\tHD\tHuntington disease\n1\tAD\tAlzheimer disease\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(second.toPath(), "1\tHD\tHeart disease\n1\tHD\tHodgkin disease\n2\tHD\tHeart disease\n".getBytes(StandardCharsets.UTF_8));
+		first.deleteOnExit();
+		second.deleteOnExit();
+		AbbreviationIndex index = new AbbreviationIndex();
+		index.add(dir.getPath());
+
+		AbbreviationResolver resolver = new AbbreviationResolver();
+		for (File file : new File[] { first, second }) {
+			FileAbbreviationSource source = new FileAbbreviationSource();
+			source.loadAbbreviations(file.getPath());
+			Map<String, Map<String, String>> abbreviations = source.getAllAbbreviations();
+			for (String documentId : abbreviations.keySet()) {
+				resolver.addAbbreviations(documentId, abbreviations.get(documentId));
+			}
+		}
+		AbbreviationResolver lazyResolver = new AbbreviationResolver();
+		lazyResolver.setAbbreviationSource(index, 1);
+
+		Map<String, String> abbreviations = index.getAbbreviations("1", null);
+		assertEquals("Heart disease", abbreviations.get("HD"));
+		assertEquals("Alzheimer disease", abbreviations.get("AD"));
+		String[][] mentions = { { "1", "HD" }, { "1", "AD" }, { "2", "HD" } };
+		for (String[] mention : mentions) {
+			assertEquals(resolver.expandAbbreviations(mention[0], mention[1]), lazyResolver.expandAbbreviations(mention[0], mention[1]));
+		}
+	}
+
+	@Test
+	public void testResolver() throws IOException {
+		AbbreviationIndex index = new AbbreviationIndex();
+		index.add(write(ABBREVIATIONS).getPath());
+		AbbreviationResolver lazyResolver = new AbbreviationResolver();
+		lazyResolver.setAbbreviationSource(index, 1);
+		AbbreviationResolver resolver = new AbbreviationResolver();
+		resolver.addAbbreviations("1", index.getAbbreviations("1", null));
+		resolver.addAbbreviations("2", index.getAbbreviations("2", null));
+
+		String[][] mentions = { { "1", "HD" }, { "1", "early-onset PD" }, { "2", "AD" }, { "1", "Huntington disease (HD)" }, { "2", "HD" }, { "4", "AD" } };
+		for (String[] mention : mentions) {
+			assertEquals(resolver.expandAbbreviations(mention[0], mention[1]), lazyResolver.expandAbbreviations(mention[0], mention[1]));
+		}
+		assertEquals("Huntington disease", lazyResolver.expandAbbreviations("1", "Huntington disease (HD)"));
+		assertEquals("Alzheimer disease", lazyResolver.expandAbbreviations("2", "AD"));
+	}
+}
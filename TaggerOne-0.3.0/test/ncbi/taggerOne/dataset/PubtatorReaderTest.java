@@ -0,0 +1,107 @@
+package ncbi.taggerOne.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class PubtatorReaderTest {
+
+	private static File write(String text) throws IOException {
+		File file = File.createTempFile("pubtator", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testAnnotations() throws IOException {
+		String text = "1|t|Title \u00e9\r\n1|a|Abstract | text\r\n1\t0\t5\tTitle\tDisease\t D001 \r\n1\t8\t16\tAbstract\tChemical\r\n\r\n\r\n  2|t|Second\n2\t0\t6\tSecond\tDisease\tD002\t\n";
+		PubtatorReader reader = new PubtatorReader(write(text), true);
+
+		PubtatorReader.Document document = reader.next();
+		assertEquals("1", document.getId());
+		assertEquals("Title \u00e9", document.getTitle());
+		assertEquals("Abstract | text", document.getAbstractText());
+		assertEquals(2, document.getAnnotations().size());
+		PubtatorReader.Annotation annotation = document.getAnnotations().get(0);
+		assertEquals(0, annotation.getStart());
+		assertEquals(5, annotation.getEnd());
+		assertEquals("Title", annotation.getText());
+		assertEquals("Disease", annotation.getType());
+		assertEquals("D001", annotation.getIdentifier());
+		assertNull(document.getAnnotations().get(1).getIdentifier());
+
+		document = reader.next();
+		assertEquals("2", document.getId());
+		assertEquals("Second", document.getTitle());
+		assertNull(document.getAbstractText());
+		assertEquals("D002", document.getAnnotations().get(0).getIdentifier());
+
+		assertNull(reader.next());
+		reader.close();
+	}
+
+	@Test
+	public void testSkipAnnotations() throws IOException {
+		String text = "1|t|Title\n1|a|\n1\t0\t5\tTitle\tDisease\nnot an annotation\n2|a|Abstract only";
+		PubtatorReader reader = new PubtatorReader(write(text), false);
+
+		PubtatorReader.Document document = reader.next();
+		assertEquals("Title", document.getTitle());
+		assertEquals("", document.getAbstractText());
+		assertTrue(document.getAnnotations().isEmpty());
+
+		document = reader.next();
+		assertEquals("2", document.getId());
+		assertNull(document.getTitle());
+		assertEquals("Abstract only", document.getAbstractText());
+
+		assertNull(reader.next());
+		reader.close();
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		File file = write("1|t|Title\n1|a|Abstract\n\n2|t|Second\n");
+		PubtatorReader reader = new PubtatorReader(file, true);
+		PubtatorReader.Document document = reader.next();
+		reader.close();
+		// Documents read before closing do not refer to the released mapping
+		assertEquals("Title", document.getTitle());
+		assertEquals("Abstract", document.getAbstractText());
+		try {
+			reader.next();
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		// Closing again has no effect
+		reader.close();
+		assertTrue(file.delete());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongDocument() throws IOException {
+		PubtatorReader reader = new PubtatorReader(write("1|t|Title\n2\t0\t5\tTitle\tDisease\n"), true);
+		try {
+			reader.next();
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFieldCount() throws IOException {
+		PubtatorReader reader = new PubtatorReader(write("1|t|Title\n1\t0\t5\tTitle\n"), true);
+		try {
+			reader.next();
+		} finally {
+			reader.close();
+		}
+	}
+}
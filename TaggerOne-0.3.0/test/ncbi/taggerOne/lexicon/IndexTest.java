@@ -0,0 +1,121 @@
+package ncbi.taggerOne.lexicon;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.vector.FrozenSparseVector;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.VectorInterner;
+
+public class IndexTest {
+
+	private static final String TYPE = "Disease";
+	private static final String[] ELEMENTS = { "unk", "breast", "ovarian", "cancer", "tumor" };
+
+	@After
+	public void tearDown() {
+		VectorInterner.clear();
+	}
+
+	/*
+	 * Models saved before name vectors were interned hold SparseVectors; once read, the index, its entities and the intern table must all hold the same canonical instances
+	 */
+	@Test
+	public void testInternedAfterDeserialization() throws IOException, ClassNotFoundException {
+		Dictionary<String> vectorSpace = new Dictionary<String>();
+		for (String element : ELEMENTS) {
+			vectorSpace.addElement(element);
+		}
+		vectorSpace.freeze();
+		Set<Entity> entities = new HashSet<Entity>();
+		entities.add(getEntity(vectorSpace, "D1", "breast cancer", "breast tumor"));
+		entities.add(getEntity(vectorSpace, "D2", "ovarian cancer", "breast tumor"));
+		Entity unknownEntity = getEntity(vectorSpace, T1Constants.UNKNOWN_ENTITY_ID_PREFIX + TYPE, "unk");
+		Index index = new Index(vectorSpace, vectorSpace, entities, unknownEntity, false);
+
+		// Replace the interned name vectors with mutable copies, as an older model would hold
+		Dictionary<Vector<String>> nameVectors = index.getNameVectorDictionary();
+		for (int nameVectorIndex = 0; nameVectorIndex < nameVectors.size(); nameVectorIndex++) {
+			nameVectors.replaceElement(nameVectorIndex, nameVectors.getElement(nameVectorIndex).copy());
+		}
+		for (Entity entity : entities) {
+			for (MentionName name : entity.getNames()) {
+				name.setVector(nameVectors.getElement(nameVectors.getIndex(name.getVector())));
+				assertTrue(name.getVector() instanceof SparseVector);
+			}
+		}
+		VectorInterner.clear();
+
+		Index copy = copy(index);
+		Dictionary<Vector<String>> copyNameVectors = copy.getNameVectorDictionary();
+		assertEquals(nameVectors.size(), copyNameVectors.size());
+		for (int nameVectorIndex = 0; nameVectorIndex < copyNameVectors.size(); nameVectorIndex++) {
+			Vector<String> nameVector = copyNameVectors.getElement(nameVectorIndex);
+			assertTrue(nameVector instanceof FrozenSparseVector);
+			assertEquals(nameVectorIndex, copyNameVectors.getIndex(nameVector));
+			assertSame(nameVector, VectorInterner.canonicalize(nameVectors.getElement(nameVectorIndex)));
+		}
+		Dictionary<Entity> entityDictionary = copy.getEntityDictionary();
+		for (int entityIndex = 0; entityIndex < entityDictionary.size(); entityIndex++) {
+			for (MentionName name : entityDictionary.getElement(entityIndex).getNames()) {
+				assertSame(copyNameVectors.getElement(copyNameVectors.getIndex(name.getVector())), name.getVector());
+			}
+		}
+		assertEquals(copyNameVectors.size(), VectorInterner.size());
+
+		// Mention vectors are canonicalized to the instance the index holds
+		Vector<String> mentionVector = VectorInterner.canonicalize(getVector(vectorSpace, "breast tumor"));
+		assertSame(copyNameVectors.getElement(copyNameVectors.getIndex(mentionVector)), mentionVector);
+		assertEquals(2, copy.getEntities(mentionVector).size());
+	}
+
+	private static Index copy(Index index) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(index);
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		Index copy = (Index) ois.readObject();
+		ois.close();
+		return copy;
+	}
+
+	private static Entity getEntity(Dictionary<String> vectorSpace, String identifier, String... names) {
+		Entity entity = new Entity(TYPE, identifier, getName(vectorSpace, names[0]));
+		Set<MentionName> otherNames = new HashSet<MentionName>();
+		for (int i = 1; i < names.length; i++) {
+			otherNames.add(getName(vectorSpace, names[i]));
+		}
+		entity.addNames(otherNames);
+		return entity;
+	}
+
+	private static MentionName getName(Dictionary<String> vectorSpace, String name) {
+		MentionName mentionName = new MentionName(name);
+		mentionName.setVector(getVector(vectorSpace, name));
+		return mentionName;
+	}
+
+	private static Vector<String> getVector(Dictionary<String> vectorSpace, String text) {
+		Vector<String> vector = new SparseVector<String>(vectorSpace);
+		for (String token : text.split(" ")) {
+			vector.increment(vectorSpace.getIndex(token), 1.0);
+		}
+		return vector;
+	}
+}
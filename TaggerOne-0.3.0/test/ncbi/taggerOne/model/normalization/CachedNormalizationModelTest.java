@@ -0,0 +1,130 @@
+package ncbi.taggerOne.model.normalization;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.lexicon.Index;
+import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+
+public class CachedNormalizationModelTest {
+
+	private static final String TYPE = "Disease";
+	private static final String[] ELEMENTS = { "unk", "breast", "ovarian", "cancer", "tumor", "lung", "colon" };
+	private static final String[] MENTIONS = { "breast cancer", "lung tumor", "cancer", "colon", "ovarian ovarian cancer", "tumor", "lung", "breast" };
+
+	/*
+	 * Models are loaded by deserialization and then shared between request threads, so the cache must still be synchronized after it is read
+	 */
+	@Test(timeout = 60000)
+	public void testConcurrentAfterDeserialization() throws Exception {
+		Dictionary<String> vectorSpace = new Dictionary<String>();
+		for (String element : ELEMENTS) {
+			vectorSpace.addElement(element);
+		}
+		vectorSpace.freeze();
+		Set<Entity> entities = new HashSet<Entity>();
+		entities.add(getEntity(vectorSpace, "D1", "breast cancer", "breast tumor"));
+		entities.add(getEntity(vectorSpace, "D2", "ovarian cancer"));
+		entities.add(getEntity(vectorSpace, "D3", "lung cancer", "lung tumor lung"));
+		entities.add(getEntity(vectorSpace, "D4", "colon cancer"));
+		Entity unknownEntity = getEntity(vectorSpace, T1Constants.UNKNOWN_ENTITY_ID_PREFIX + TYPE, "unk");
+		Index index = new Index(vectorSpace, vectorSpace, entities, unknownEntity, false);
+		NormalizationModel model = new NormalizationModel(index, vectorSpace, vectorSpace, new TrainingProgressTracker());
+		// Smaller than the number of distinct mentions, so entries are evicted while other threads read
+		final CachedNormalizationModel cached = copy(new CachedNormalizationModel(model.compile(), 3));
+
+		final List<Vector<String>> mentionVectors = new ArrayList<Vector<String>>();
+		final List<String> expected = new ArrayList<String>();
+		for (String mention : MENTIONS) {
+			Vector<String> mentionVector = getVector(vectorSpace, mention);
+			mentionVectors.add(mentionVector);
+			RankedList<Entity> bestEntities = new RankedList<Entity>(1);
+			cached.getWrappedPredictor().findBest(mentionVector, bestEntities);
+			expected.add(bestEntities.getObject(0).getPrimaryIdentifier());
+		}
+		cached.clearCache();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int thread = 0; thread < 8; thread++) {
+			final int offset = thread;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = 0; i < 5000; i++) {
+						int mentionIndex = (i + offset) % mentionVectors.size();
+						RankedList<Entity> bestEntities = new RankedList<Entity>(1);
+						cached.findBest(mentionVectors.get(mentionIndex), bestEntities);
+						assertEquals(expected.get(mentionIndex), bestEntities.getObject(0).getPrimaryIdentifier());
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			// Rethrows any assertion failure or ConcurrentModificationException from the worker
+			future.get();
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertTrue(cached.getEstimatedBytes() > 0);
+	}
+
+	private static CachedNormalizationModel copy(CachedNormalizationModel model) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(model);
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		CachedNormalizationModel copy = (CachedNormalizationModel) ois.readObject();
+		ois.close();
+		return copy;
+	}
+
+	private static Entity getEntity(Dictionary<String> vectorSpace, String identifier, String... names) {
+		Entity entity = new Entity(TYPE, identifier, getName(vectorSpace, names[0]));
+		Set<MentionName> otherNames = new HashSet<MentionName>();
+		for (int i = 1; i < names.length; i++) {
+			otherNames.add(getName(vectorSpace, names[i]));
+		}
+		entity.addNames(otherNames);
+		return entity;
+	}
+
+	private static MentionName getName(Dictionary<String> vectorSpace, String name) {
+		MentionName mentionName = new MentionName(name);
+		mentionName.setVector(getVector(vectorSpace, name));
+		return mentionName;
+	}
+
+	private static Vector<String> getVector(Dictionary<String> vectorSpace, String text) {
+		Vector<String> vector = new SparseVector<String>(vectorSpace);
+		for (String token : text.split(" ")) {
+			vector.increment(vectorSpace.getIndex(token), 1.0);
+		}
+		return vector;
+	}
+}
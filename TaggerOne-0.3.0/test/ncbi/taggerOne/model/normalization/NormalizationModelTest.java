@@ -0,0 +1,148 @@
+package ncbi.taggerOne.model.normalization;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.lexicon.Index;
+import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+
+public class NormalizationModelTest {
+
+	private static final String TYPE = "Disease";
+	private static final String[] ELEMENTS = { "unk", "breast", "ovarian", "cancer", "tumor", "lung", "colon" };
+	private static final String[] MENTIONS = { "breast cancer", "lung tumor", "cancer", "colon", "ovarian ovarian cancer", "tumor", "lung", "breast", "breast breast tumor lung" };
+	private static final double TOLERANCE = 1.0e-9;
+
+	/*
+	 * The dense vector loops sum in a different order than simple loops, so scores may differ in the last digits; the rankings must not change. Compares findBest, uncompiled and compiled, with scores computed by
+	 * simple loops over the weights, in index order. findBest ranks each name vector, so an entity with several names may appear at several ranks.
+	 */
+	@Test
+	public void testRankingsMatchSimpleLoops() {
+		Dictionary<String> vectorSpace = new Dictionary<String>();
+		for (String element : ELEMENTS) {
+			vectorSpace.addElement(element);
+		}
+		vectorSpace.freeze();
+		Set<Entity> entities = new HashSet<Entity>();
+		entities.add(getEntity(vectorSpace, "D1", "breast cancer", "breast tumor"));
+		entities.add(getEntity(vectorSpace, "D2", "ovarian cancer"));
+		entities.add(getEntity(vectorSpace, "D3", "lung cancer", "lung tumor lung"));
+		entities.add(getEntity(vectorSpace, "D4", "colon cancer"));
+		entities.add(getEntity(vectorSpace, "D5", "cancer"));
+		entities.add(getEntity(vectorSpace, "D6", "tumor tumor"));
+		entities.add(getEntity(vectorSpace, "D7", "tumor tumor"));
+		Entity unknownEntity = getEntity(vectorSpace, T1Constants.UNKNOWN_ENTITY_ID_PREFIX + TYPE, "unk");
+		Index index = new Index(vectorSpace, vectorSpace, entities, unknownEntity, false);
+		NormalizationModel model = new NormalizationModel(index, vectorSpace, vectorSpace, new TrainingProgressTracker());
+		Random random = new Random(1);
+		double[][] weights = new double[ELEMENTS.length][ELEMENTS.length];
+		DenseBySparseMatrix<String, String> weightUpdates = new DenseBySparseMatrix<String, String>(vectorSpace, vectorSpace);
+		for (int mentionIndex = 0; mentionIndex < ELEMENTS.length; mentionIndex++) {
+			for (int nameIndex = 0; nameIndex < ELEMENTS.length; nameIndex++) {
+				weights[mentionIndex][nameIndex] = random.nextDouble() / 3.0;
+				weightUpdates.set(mentionIndex, nameIndex, weights[mentionIndex][nameIndex]);
+			}
+			// The cosine similarity weight, 1.0 initially
+			weights[mentionIndex][mentionIndex] += 1.0;
+		}
+		model.update(0.0, weightUpdates);
+		NormalizationModelPredictor compiled = model.compile();
+
+		List<Entity> allEntities = new ArrayList<Entity>(entities);
+		allEntities.add(unknownEntity);
+		for (String mention : MENTIONS) {
+			Vector<String> mentionVector = getVector(vectorSpace, mention);
+			final List<Entity> expectedEntities = new ArrayList<Entity>();
+			final List<Double> expectedScores = new ArrayList<Double>();
+			for (Entity entity : allEntities) {
+				for (MentionName name : entity.getNames()) {
+					expectedEntities.add(entity);
+					expectedScores.add(score(weights, mentionVector, name.getVector()));
+				}
+			}
+			List<Integer> order = new ArrayList<Integer>();
+			for (int i = 0; i < expectedEntities.size(); i++) {
+				order.add(i);
+			}
+			Collections.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer i1, Integer i2) {
+					return Double.compare(expectedScores.get(i2), expectedScores.get(i1));
+				}
+			});
+
+			for (NormalizationModelPredictor predictor : new NormalizationModelPredictor[] { model, compiled }) {
+				RankedList<Entity> bestEntities = new RankedList<Entity>(3);
+				predictor.findBest(mentionVector, bestEntities);
+				assertEquals(mention, 3, bestEntities.size());
+				for (int rank = 0; rank < bestEntities.size(); rank++) {
+					double expectedScore = expectedScores.get(order.get(rank));
+					assertEquals(mention, expectedScore, bestEntities.getValue(rank), TOLERANCE);
+					boolean tied = (rank > 0 && expectedScores.get(order.get(rank - 1)) - expectedScore < TOLERANCE) || expectedScore - expectedScores.get(order.get(rank + 1)) < TOLERANCE;
+					if (!tied) {
+						// Entities sharing a name vector tie, and may be ordered either way
+						assertEquals(mention + " rank " + rank, expectedEntities.get(order.get(rank)), bestEntities.getObject(rank));
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * The bilinear score mentionVector * weights * nameVector, summed by simple loops in index order
+	 */
+	private static double score(double[][] weights, Vector<String> mentionVector, Vector<String> nameVector) {
+		double score = 0.0;
+		VectorIterator mentionIterator = mentionVector.getIterator();
+		while (mentionIterator.next()) {
+			VectorIterator nameIterator = nameVector.getIterator();
+			while (nameIterator.next()) {
+				score += mentionIterator.getValue() * weights[mentionIterator.getIndex()][nameIterator.getIndex()] * nameIterator.getValue();
+			}
+		}
+		return score;
+	}
+
+	private static Entity getEntity(Dictionary<String> vectorSpace, String identifier, String... names) {
+		Entity entity = new Entity(TYPE, identifier, getName(vectorSpace, names[0]));
+		Set<MentionName> otherNames = new HashSet<MentionName>();
+		for (int i = 1; i < names.length; i++) {
+			otherNames.add(getName(vectorSpace, names[i]));
+		}
+		entity.addNames(otherNames);
+		return entity;
+	}
+
+	private static MentionName getName(Dictionary<String> vectorSpace, String name) {
+		MentionName mentionName = new MentionName(name);
+		mentionName.setVector(getVector(vectorSpace, name));
+		return mentionName;
+	}
+
+	private static Vector<String> getVector(Dictionary<String> vectorSpace, String text) {
+		Vector<String> vector = new SparseVector<String>(vectorSpace);
+		for (String token : text.split(" ")) {
+			vector.increment(vectorSpace.getIndex(token), 1.0);
+		}
+		return vector;
+	}
+}
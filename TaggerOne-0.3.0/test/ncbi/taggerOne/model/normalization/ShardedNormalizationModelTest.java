@@ -0,0 +1,226 @@
+package ncbi.taggerOne.model.normalization;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.lexicon.Index;
+import ncbi.taggerOne.processing.TrainingProgressTracker;
+import ncbi.taggerOne.types.Entity;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.RankedList;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.taggerOne.util.vector.Vector;
+
+public class ShardedNormalizationModelTest {
+
+	private static final String TYPE = "Disease";
+	private static final String[] ELEMENTS = { "unk", "breast", "ovarian", "cancer", "tumor", "lung", "colon" };
+
+	@Test
+	public void testSameAsCompiled() throws IOException {
+		Dictionary<String> vectorSpace = getVectorSpace();
+		NormalizationModel model = getModel(vectorSpace);
+		NormalizationModelPredictor compiled = model.compile();
+
+		List<NormalizationShardServer> servers = startServers(model);
+		List<NormalizationShardClient> clients = connect(servers);
+		// Connect in a different order than the shard indices
+		Collections.reverse(clients);
+		ShardedNormalizationModel sharded = new ShardedNormalizationModel(model, clients);
+
+		String[] mentions = { "breast cancer", "lung tumor", "cancer", "colon", "ovarian ovarian cancer", "unk" };
+		List<Vector<String>> mentionVectors = new ArrayList<Vector<String>>();
+		List<RankedList<Entity>> shardedResults = new ArrayList<RankedList<Entity>>();
+		for (String mention : mentions) {
+			mentionVectors.add(getVector(vectorSpace, mention));
+			shardedResults.add(new RankedList<Entity>(3));
+		}
+		sharded.findBest(mentionVectors, shardedResults);
+		for (int mentionIndex = 0; mentionIndex < mentions.length; mentionIndex++) {
+			Vector<String> mentionVector = mentionVectors.get(mentionIndex);
+			assertEquals(compiled.getScoreBound(mentionVector), sharded.getScoreBound(mentionVector), T1Constants.EPSILON);
+			RankedList<Entity> expected = new RankedList<Entity>(3);
+			compiled.findBest(mentionVector, expected);
+			RankedList<Entity> actual = shardedResults.get(mentionIndex);
+			assertEquals(expected.size(), actual.size());
+			for (int rank = 0; rank < expected.size(); rank++) {
+				assertEquals(expected.getValue(rank), actual.getValue(rank), T1Constants.EPSILON);
+			}
+			if (expected.size() == 1 || expected.getValue(0) > expected.getValue(1)) {
+				// Ties may be ordered differently
+				assertEquals(expected.getObject(0), actual.getObject(0));
+			}
+		}
+
+		sharded.close();
+		for (NormalizationShardServer server : servers) {
+			server.close();
+		}
+	}
+
+	/*
+	 * Requests from multiple threads use separate connections to each shard; single-token mentions use only the first entity of the best name vector, as the fast path of the compiled model does
+	 */
+	@Test(timeout = 60000)
+	public void testConcurrentSameAsCompiled() throws Exception {
+		final Dictionary<String> vectorSpace = getVectorSpace();
+		NormalizationModel model = getModel(vectorSpace);
+		final NormalizationModelPredictor compiled = model.compile();
+		List<NormalizationShardServer> servers = startServers(model);
+		final ShardedNormalizationModel sharded = new ShardedNormalizationModel(model, connect(servers));
+
+		final String[] mentions = { "breast cancer", "lung tumor", "colon", "tumor", "lung", "ovarian" };
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int thread = 0; thread < 4; thread++) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = 0; i < 50; i++) {
+						for (String mention : mentions) {
+							Vector<String> mentionVector = getVector(vectorSpace, mention);
+							RankedList<Entity> expected = new RankedList<Entity>(1);
+							compiled.findBest(mentionVector, expected);
+							RankedList<Entity> actual = new RankedList<Entity>(1);
+							sharded.findBest(mentionVector, actual);
+							assertEquals(mention, expected.getValue(0), actual.getValue(0), T1Constants.EPSILON);
+							assertEquals(mention, expected.getObject(0), actual.getObject(0));
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		sharded.close();
+		for (NormalizationShardServer server : servers) {
+			server.close();
+		}
+	}
+
+	/*
+	 * An error in the shard is returned in place of the response, and the client can continue with a new request
+	 */
+	@Test(timeout = 60000)
+	public void testShardError() throws IOException {
+		Dictionary<String> vectorSpace = getVectorSpace();
+		NormalizationModel model = getModel(vectorSpace);
+		NormalizationShard shard = new NormalizationShard(model, 0, 1) {
+			@Override
+			public void findBest(int[] mentionIndices, double[] mentionValues, RankedList<Integer> bestNameVectors) {
+				if (mentionIndices.length == 1) {
+					throw new IllegalArgumentException("Single-token mention");
+				}
+				super.findBest(mentionIndices, mentionValues, bestNameVectors);
+			}
+		};
+		NormalizationShardServer server = new NormalizationShardServer(Collections.singletonMap(TYPE, shard));
+		server.start(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+		NormalizationShardClient client = connect(Collections.singletonList(server)).get(0);
+
+		List<Vector<String>> mentionVectors = new ArrayList<Vector<String>>();
+		mentionVectors.add(getVector(vectorSpace, "breast cancer"));
+		mentionVectors.add(getVector(vectorSpace, "tumor"));
+		try {
+			client.findBest(TYPE, 1, mentionVectors);
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Single-token mention"));
+		}
+		List<RankedList<Integer>> results = client.findBest(TYPE, 1, mentionVectors.subList(0, 1));
+		RankedList<Integer> expected = new RankedList<Integer>(1);
+		shard.findBest(new int[] { 1, 3 }, new double[] { 1.0, 1.0 }, expected);
+		assertEquals(1, results.size());
+		assertEquals(expected.getObject(0), results.get(0).getObject(0));
+
+		client.close();
+		server.close();
+	}
+
+	private static Dictionary<String> getVectorSpace() {
+		Dictionary<String> vectorSpace = new Dictionary<String>();
+		for (String element : ELEMENTS) {
+			vectorSpace.addElement(element);
+		}
+		vectorSpace.freeze();
+		return vectorSpace;
+	}
+
+	private static NormalizationModel getModel(Dictionary<String> vectorSpace) {
+		Set<Entity> entities = new HashSet<Entity>();
+		entities.add(getEntity(vectorSpace, "D1", "breast cancer", "breast tumor"));
+		entities.add(getEntity(vectorSpace, "D2", "ovarian cancer"));
+		entities.add(getEntity(vectorSpace, "D3", "lung cancer", "lung tumor lung"));
+		entities.add(getEntity(vectorSpace, "D4", "colon cancer"));
+		entities.add(getEntity(vectorSpace, "D5", "cancer"));
+		// Entities sharing a name vector, which is the best match for "tumor"
+		entities.add(getEntity(vectorSpace, "D6", "tumor tumor"));
+		entities.add(getEntity(vectorSpace, "D7", "tumor tumor"));
+		entities.add(getEntity(vectorSpace, "D8", "tumor tumor"));
+		Entity unknownEntity = getEntity(vectorSpace, T1Constants.UNKNOWN_ENTITY_ID_PREFIX + TYPE, "unk");
+		Index index = new Index(vectorSpace, vectorSpace, entities, unknownEntity, false);
+		return new NormalizationModel(index, vectorSpace, vectorSpace, new TrainingProgressTracker());
+	}
+
+	private static List<NormalizationShardServer> startServers(NormalizationModel model) throws IOException {
+		List<NormalizationShardServer> servers = new ArrayList<NormalizationShardServer>();
+		for (int shardIndex = 0; shardIndex < 3; shardIndex++) {
+			NormalizationShardServer server = new NormalizationShardServer(Collections.singletonMap(TYPE, new NormalizationShard(model, shardIndex, 3)));
+			server.start(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+			servers.add(server);
+		}
+		return servers;
+	}
+
+	private static List<NormalizationShardClient> connect(List<NormalizationShardServer> servers) {
+		List<NormalizationShardClient> clients = new ArrayList<NormalizationShardClient>();
+		for (NormalizationShardServer server : servers) {
+			clients.add(new NormalizationShardClient(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort()));
+		}
+		return clients;
+	}
+
+	private static Entity getEntity(Dictionary<String> vectorSpace, String identifier, String... names) {
+		Entity entity = new Entity(TYPE, identifier, getName(vectorSpace, names[0]));
+		Set<MentionName> otherNames = new HashSet<MentionName>();
+		for (int i = 1; i < names.length; i++) {
+			otherNames.add(getName(vectorSpace, names[i]));
+		}
+		entity.addNames(otherNames);
+		return entity;
+	}
+
+	private static MentionName getName(Dictionary<String> vectorSpace, String name) {
+		MentionName mentionName = new MentionName(name);
+		mentionName.setVector(getVector(vectorSpace, name));
+		return mentionName;
+	}
+
+	private static Vector<String> getVector(Dictionary<String> vectorSpace, String text) {
+		Vector<String> vector = new SparseVector<String>(vectorSpace);
+		for (String token : text.split(" ")) {
+			vector.increment(vectorSpace.getIndex(token), 1.0);
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,84 @@
+package ncbi.taggerOne.processing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessingPipeline;
+import ncbi.taggerOne.processing.textInstance.TextInstanceProcessor;
+import ncbi.taggerOne.types.TextInstance;
+
+public class DocumentTraceTest {
+
+	@After
+	public void tearDown() {
+		DocumentTrace.disable();
+	}
+
+	@Test
+	public void testDisabled() {
+		assertFalse(DocumentTrace.isEnabled());
+		assertNull(DocumentTrace.start("1"));
+		assertNull(DocumentTrace.current());
+	}
+
+	@Test
+	public void testSlowLog() throws IOException {
+		File slowLog = File.createTempFile("DocumentTraceTest", ".log");
+		slowLog.deleteOnExit();
+		DocumentTrace.enable(0, slowLog.getPath());
+		TextInstanceProcessingPipeline pipeline = new TextInstanceProcessingPipeline(new SleepingProcessor());
+
+		DocumentTrace trace = DocumentTrace.start("12345");
+		assertSame(trace, DocumentTrace.current());
+		pipeline.process(new TextInstance(null, "12345", "12345", "First sentence.", 0));
+		trace.countFindBest();
+		trace.countFindBest();
+		trace.countCacheHit();
+		pipeline.process(new TextInstance(null, "12345", "12345", "Second sentence.", 16));
+		trace.recordDocumentStage("postprocess", 1000000L);
+		trace.finish();
+		assertNull(DocumentTrace.current());
+		DocumentTrace.disable();
+
+		String report = new String(Files.readAllBytes(slowLog.toPath()), StandardCharsets.UTF_8);
+		assertTrue(report, report.startsWith("Slow document ID=12345 "));
+		assertTrue(report, report.contains(" sentences=2 "));
+		assertTrue(report, report.contains(" findBest=2 cacheHits=1"));
+		assertTrue(report, report.contains(" SleepingProcessor="));
+		assertTrue(report, report.contains(" postprocess=1.0ms"));
+		assertTrue(report, report.contains("\tsentence offset=0 chars=15 "));
+		assertTrue(report, report.contains("\tsentence offset=16 chars=16 "));
+	}
+
+	@Test
+	public void testThreshold() {
+		DocumentTrace.enable(60000, null);
+		DocumentTrace trace = DocumentTrace.start("1");
+		trace.startInstance(new TextInstance(null, "1", "1", "Text", 0));
+		trace.recordStage("decode", 1000L);
+		// Below the threshold, so nothing is logged
+		trace.finish();
+		assertNull(DocumentTrace.current());
+	}
+
+	private static class SleepingProcessor extends TextInstanceProcessor {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void process(TextInstance input) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
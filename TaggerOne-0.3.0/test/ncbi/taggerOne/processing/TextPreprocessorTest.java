@@ -0,0 +1,77 @@
+package ncbi.taggerOne.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.processing.textInstance.TextInstanceTokenizer;
+import ncbi.taggerOne.types.TextInstance;
+import ncbi.taggerOne.types.Token;
+import ncbi.taggerOne.util.tokenization.FinerTokenizer;
+
+public class TextPreprocessorTest {
+
+	private static final String[] SENTENCES = { "The adenomatous polyposis coli (APC) protein controls Wnt by forming a kinase 3beta (GSK-3beta), axin/conductin and betacatenin. ",
+			"Testing (A. B. C. E.) also. ", "In carcinomas, loss of APC leads to accumulation (reviewed in [1] [2]). ", "Unbalanced (parentheses. Are kept together. ", "Extra) closing. ",
+			"Here, we report the identification of APC homologues." };
+
+	private static List<TextInstance> createDocuments() {
+		List<TextInstance> documents = new ArrayList<TextInstance>();
+		for (int i = 0; i < 50; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int j = 0; j < i % 10 + 1; j++) {
+				text.append(SENTENCES[(i + j) % SENTENCES.length]);
+			}
+			String id = Integer.toString(i);
+			documents.add(new TextInstance(null, id, id, text.toString(), i % 3));
+		}
+		return documents;
+	}
+
+	@Test
+	public void testSameAsSequential() {
+		FinerTokenizer finerTokenizer = new FinerTokenizer();
+		SentenceBreaker sentenceBreaker = new SentenceBreaker();
+		List<TextInstance> documents = createDocuments();
+		TextPreprocessor preprocessor = new TextPreprocessor(new SentenceBreaker(), new TextInstanceTokenizer(new FinerTokenizer()), 4);
+		List<List<TextInstance>> results = preprocessor.process(documents);
+		preprocessor.close();
+		assertEquals(documents.size(), results.size());
+		for (int i = 0; i < documents.size(); i++) {
+			List<TextInstance> expected = sentenceBreaker.breakSentences(documents.get(i));
+			List<TextInstance> actual = results.get(i);
+			assertEquals(expected.size(), actual.size());
+			for (int j = 0; j < expected.size(); j++) {
+				assertEquals(expected.get(j).getInstanceId(), actual.get(j).getInstanceId());
+				assertEquals(expected.get(j).getOffset(), actual.get(j).getOffset());
+				assertEquals(expected.get(j).getText(), actual.get(j).getText());
+				List<Token> tokens = actual.get(j).getTokens();
+				finerTokenizer.reset(expected.get(j).getText());
+				for (Token token : tokens) {
+					assertTrue(finerTokenizer.nextToken());
+					assertEquals(finerTokenizer.startChar(), token.getStartChar());
+					assertEquals(finerTokenizer.endChar(), token.getEndChar());
+				}
+				assertFalse(finerTokenizer.nextToken());
+			}
+		}
+	}
+
+	@Test
+	public void testParenthesisDepth() {
+		String text0 = "Unbalanced (parentheses. Are kept together. ";
+		String text1 = "Extra) closing. ";
+		String text2 = "Next.";
+		List<TextInstance> documents = new ArrayList<TextInstance>();
+		documents.add(new TextInstance(null, "1", "1", text0 + text1 + text2, 0));
+		TextPreprocessor preprocessor = new TextPreprocessor(new SentenceBreaker(), null, 1);
+		List<TextInstance> instances = preprocessor.process(documents).get(0);
+		assertEquals(2, instances.size());
+		assertEquals(text0 + text1, instances.get(0).getText());
+		assertEquals(text2, instances.get(1).getText());
+		assertEquals(text0.length() + text1.length(), instances.get(1).getOffset());
+	}
+}
@@ -0,0 +1,91 @@
+package ncbi.taggerOne.processing.checkpoint;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.matrix.DenseByDenseMatrix;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+
+import org.junit.Test;
+
+public class ParameterSnapshotTest {
+
+	@Test
+	public void testFullAndDelta() throws IOException {
+		Dictionary<String> rows = getDictionary("r", 3);
+		Dictionary<String> columns = getDictionary("c", 5);
+		DenseByDenseMatrix<String, String> dense = new DenseByDenseMatrix<String, String>(rows, columns);
+		DenseBySparseMatrix<String, String> sparse = new DenseBySparseMatrix<String, String>(rows, columns);
+		dense.set(0, 1, 1.5);
+		dense.set(2, 4, -2.0);
+		sparse.set(1, 3, 0.5);
+		sparse.set(1, 0, 0.25);
+		sparse.set(2, 2, 4.0);
+
+		ParameterSnapshot snapshot1 = capture(dense, sparse);
+		byte[] full = write(snapshot1, null);
+
+		dense.set(0, 1, 3.0);
+		sparse.set(1, 3, 0.0); // Removed
+		sparse.set(0, 4, 7.0); // Added
+		ParameterSnapshot snapshot2 = capture(dense, sparse);
+		byte[] delta = write(snapshot2, snapshot1);
+		assertTrue(delta.length < full.length);
+
+		DenseByDenseMatrix<String, String> dense2 = new DenseByDenseMatrix<String, String>(rows, columns);
+		DenseBySparseMatrix<String, String> sparse2 = new DenseBySparseMatrix<String, String>(rows, columns);
+		ParameterSnapshot restored = ParameterSnapshot.read(new DataInputStream(new ByteArrayInputStream(full)), null);
+		restored = ParameterSnapshot.read(new DataInputStream(new ByteArrayInputStream(delta)), restored);
+		restored.restore("dense", dense2);
+		restored.restore("sparse", sparse2);
+		for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+			for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
+				assertEquals(dense.get(rowIndex, columnIndex), dense2.get(rowIndex, columnIndex), T1Constants.EPSILON);
+				assertEquals(sparse.get(rowIndex, columnIndex), sparse2.get(rowIndex, columnIndex), T1Constants.EPSILON);
+			}
+		}
+		assertEquals(3.0, restored.getDense("scalar")[0], T1Constants.EPSILON);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDeltaWithoutBase() throws IOException {
+		Dictionary<String> rows = getDictionary("r", 2);
+		DenseByDenseMatrix<String, String> dense = new DenseByDenseMatrix<String, String>(rows, rows);
+		DenseBySparseMatrix<String, String> sparse = new DenseBySparseMatrix<String, String>(rows, rows);
+		ParameterSnapshot snapshot1 = capture(dense, sparse);
+		byte[] delta = write(capture(dense, sparse), snapshot1);
+		ParameterSnapshot.read(new DataInputStream(new ByteArrayInputStream(delta)), null);
+	}
+
+	private static ParameterSnapshot capture(DenseByDenseMatrix<String, String> dense, DenseBySparseMatrix<String, String> sparse) {
+		ParameterSnapshot snapshot = new ParameterSnapshot();
+		snapshot.capture("dense", dense);
+		snapshot.capture("sparse", sparse);
+		snapshot.putDense("scalar", new double[] { dense.get(0, 1) });
+		return snapshot;
+	}
+
+	private static byte[] write(ParameterSnapshot snapshot, ParameterSnapshot previous) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		snapshot.write(output, previous);
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private static Dictionary<String> getDictionary(String prefix, int size) {
+		Dictionary<String> dict = new Dictionary<String>();
+		for (int i = 0; i < size; i++) {
+			dict.addElement(prefix + i);
+		}
+		dict.freeze();
+		return dict;
+	}
+}
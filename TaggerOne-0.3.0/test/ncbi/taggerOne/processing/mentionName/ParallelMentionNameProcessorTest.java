@@ -0,0 +1,84 @@
+package ncbi.taggerOne.processing.mentionName;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.processing.string.AcronymPreservingLowerCaseStringProcessor;
+import ncbi.taggerOne.processing.string.LowerCaseStringProcessor;
+import ncbi.taggerOne.processing.string.PatternProcessor;
+import ncbi.taggerOne.processing.string.PorterStemmer;
+import ncbi.taggerOne.processing.string.StopWordRemover;
+import ncbi.taggerOne.processing.string.Trimmer;
+import ncbi.taggerOne.types.MentionName;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.tokenization.FinerTokenizer;
+import ncbi.taggerOne.util.vector.SparseVector;
+
+public class ParallelMentionNameProcessorTest {
+
+	@Test
+	public void testSameAsSequential() {
+		StringProcessNameApplicator nameApplicator = new StringProcessNameApplicator(new PatternProcessor(PatternProcessor.PUNCTUATION_PATTERNS, PatternProcessor.SPACE_REPLACEMENT), new Trimmer());
+		EntityNameTokenizer entityNameTokenizer = new EntityNameTokenizer(new FinerTokenizer());
+		StringProcessTokenApplicator tokenApplicator = new StringProcessTokenApplicator(new AcronymPreservingLowerCaseStringProcessor(4), new StopWordRemover(new LowerCaseStringProcessor(), StopWordRemover.DEFAULT_STOP_WORDS),
+				new PorterStemmer());
+		MentionNameProcessor pipeline = new MentionNameProcessingPipeline(nameApplicator, entityNameTokenizer, tokenApplicator);
+
+		List<MentionName> sequentialNames = new ArrayList<MentionName>();
+		List<MentionName> parallelNames = new ArrayList<MentionName>();
+		for (int i = 0; i < 5000; i++) {
+			String name = "Hereditary breast-ovarian cancers, type " + i + " (HBOC" + (i % 7) + ") in relatives";
+			sequentialNames.add(new MentionName(name));
+			parallelNames.add(new MentionName(name));
+		}
+		for (MentionName name : sequentialNames) {
+			pipeline.process(name);
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		new ParallelMentionNameProcessor(pool, pipeline, false).processAll(parallelNames);
+		pool.shutdown();
+		for (int i = 0; i < sequentialNames.size(); i++) {
+			assertEquals(sequentialNames.get(i).getTokens(), parallelNames.get(i).getTokens());
+		}
+	}
+
+	@Test
+	public void testWorkerCopiesShareDictionary() throws Exception {
+		final Dictionary<String> vectorSpace = new Dictionary<String>();
+		vectorSpace.addElement("breast");
+		vectorSpace.addElement("cancer");
+		vectorSpace.freeze();
+		MentionNameProcessor pipeline = new MentionNameProcessingPipeline(new EntityNameTokenizer(new FinerTokenizer()), new TokenListToVectorConverter(SparseVector.factory, vectorSpace, false));
+		final ParallelMentionNameProcessor processor = new ParallelMentionNameProcessor(pipeline, false);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int thread = 0; thread < 4; thread++) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = 0; i < 1000; i++) {
+						MentionName name = new MentionName("breast cancer " + i);
+						processor.process(name);
+						assertSame(vectorSpace, name.getVector().getDictionary());
+						assertEquals(1.0, name.getVector().get(vectorSpace.getIndex("cancer")), 0.0);
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,78 @@
+package ncbi.taggerOne.processing.postProcessing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.types.AnnotatedSegment;
+import ncbi.taggerOne.types.Segment;
+import ncbi.taggerOne.types.TextInstance;
+
+public class AnnotatedSegmentIndexTest {
+
+	private static final int TEXT_LENGTH = 200;
+
+	private static AnnotatedSegment find(Segment segment, List<AnnotatedSegment> annotations) {
+		for (AnnotatedSegment s : annotations) {
+			if (s.getStartChar() == segment.getStartChar() && s.getEndChar() == segment.getEndChar()) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	private static AnnotatedSegment overlap(Segment segment, List<AnnotatedSegment> annotations) {
+		for (AnnotatedSegment s : annotations) {
+			if (s.overlaps(segment) && (segment.getStartChar() != s.getStartChar() || segment.getEndChar() != s.getEndChar())) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testSameAsLinearScan() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < TEXT_LENGTH; i++) {
+			text.append((char) ('a' + i % 26));
+		}
+		TextInstance instance = new TextInstance(null, "1", "1", text.toString(), 0);
+		Random random = new Random(1);
+		// Unsorted, with duplicate spans
+		List<AnnotatedSegment> annotations = new ArrayList<AnnotatedSegment>();
+		for (int i = 0; i < 60; i++) {
+			int start = random.nextInt(TEXT_LENGTH - 20);
+			annotations.add(new AnnotatedSegment(instance, start, start + 1 + random.nextInt(20), null, i % 2 == 0 ? "Disease" : "Chemical"));
+		}
+		annotations.add(annotations.get(5).getAnnotatedCopy("Chemical"));
+		List<AnnotatedSegment> remaining = new ArrayList<AnnotatedSegment>(annotations);
+		AnnotatedSegmentIndex index = new AnnotatedSegmentIndex(annotations);
+		for (int round = 0; round < 4; round++) {
+			for (int start = 0; start < TEXT_LENGTH; start++) {
+				for (int end = start + 1; end <= Math.min(TEXT_LENGTH, start + 25); end++) {
+					Segment segment = new Segment(instance, start, end, null);
+					assertSame(find(segment, remaining), index.find(segment));
+					assertSame(overlap(segment, remaining), index.overlap(segment));
+				}
+			}
+			for (int i = 0; i < 10; i++) {
+				AnnotatedSegment removed = remaining.remove(random.nextInt(remaining.size()));
+				index.remove(removed);
+			}
+			assertEquals(remaining, index.getAnnotations());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveMissing() {
+		TextInstance instance = new TextInstance(null, "1", "1", "some text", 0);
+		List<AnnotatedSegment> annotations = new ArrayList<AnnotatedSegment>();
+		annotations.add(new AnnotatedSegment(instance, 0, 4, null, "Disease"));
+		AnnotatedSegmentIndex index = new AnnotatedSegmentIndex(annotations);
+		index.remove(new AnnotatedSegment(instance, 0, 4, null, "Disease"));
+	}
+}
@@ -6,6 +6,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -188,4 +190,70 @@ public class LRUCacheTest {
 		assertEquals(1, copy.size());
 		assertEquals("v0", copy.get("k0"));
 	}
+
+	@Test
+	public void testEstimatedBytes() {
+		LRUCache<String, String> cache = new LRUCache<String, String>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, 2);
+		LRUCache<String, String> expected = new LRUCache<String, String>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, 2);
+		long emptyBytes = cache.getEstimatedBytes();
+
+		cache.put("k0", "v0");
+		cache.put("k1", "a longer value");
+		cache.put("k1", "v1");
+		// Evicts k0
+		cache.put("key2", "v2");
+		expected.put("k1", "v1");
+		expected.put("key2", "v2");
+		assertEquals(expected.getEstimatedBytes(), cache.getEstimatedBytes());
+
+		cache.remove("k1");
+		expected.remove("k1");
+		assertEquals(expected.getEstimatedBytes(), cache.getEstimatedBytes());
+
+		cache.clear();
+		assertEquals(emptyBytes, cache.getEstimatedBytes());
+	}
+
+	@Test(timeout = 60000)
+	@SuppressWarnings("unchecked")
+	public void testConcurrentAfterSerialization() throws Exception {
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(sink);
+		oos.writeObject(new LRUCache<String, String>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, 16));
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(sink.toByteArray()));
+		final LRUCache<String, String> copy = (LRUCache<String, String>) ois.readObject();
+		ois.close();
+
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			final int offset = i;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 200000; j++) {
+							String key = "k" + ((j * 7 + offset) % 64);
+							if (copy.get(key) == null) {
+								copy.put(key, "v");
+							}
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertTrue(copy.size() <= 16);
+	}
 }
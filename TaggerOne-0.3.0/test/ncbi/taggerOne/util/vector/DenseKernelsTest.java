@@ -0,0 +1,74 @@
+package ncbi.taggerOne.util.vector;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DenseKernelsTest {
+
+	private static final double TOLERANCE = 1.0e-9;
+
+	@Test
+	public void testDot() {
+		Random random = new Random(1);
+		// Lengths either side of multiples of the unrolling, to check the remainder loop
+		for (int length = 0; length < 40; length++) {
+			double[] x = getArray(random, length + 3);
+			double[] y = getArray(random, length + 3);
+			double expected = 0.0;
+			for (int i = 0; i < length; i++) {
+				expected += x[i] * y[i];
+			}
+			assertEquals(expected, DenseKernels.dot(x, y, length), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testAxpy() {
+		Random random = new Random(2);
+		for (int length = 0; length < 40; length++) {
+			double[] x = getArray(random, length + 3);
+			double[] y = getArray(random, length + 3);
+			double[] expected = y.clone();
+			for (int i = 0; i < length; i++) {
+				expected[i] += -0.5 * x[i];
+			}
+			DenseKernels.axpy(-0.5, x, y, length);
+			// Values past the length are unchanged
+			assertArrayEquals(expected, y, 0.0);
+			DenseKernels.add(x, y, length);
+			for (int i = 0; i < length; i++) {
+				expected[i] += x[i];
+			}
+			assertArrayEquals(expected, y, 0.0);
+		}
+	}
+
+	@Test
+	public void testGatherDot() {
+		Random random = new Random(3);
+		double[] dense = getArray(random, 100);
+		for (int length = 0; length < 40; length++) {
+			int[] indices = new int[length + 3];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = random.nextInt(dense.length);
+			}
+			double[] values = getArray(random, length + 3);
+			double expected = 0.0;
+			for (int i = 0; i < length; i++) {
+				expected += values[i] * dense[indices[i]];
+			}
+			assertEquals(expected, DenseKernels.gatherDot(dense, indices, values, length), TOLERANCE);
+		}
+	}
+
+	private static double[] getArray(Random random, int length) {
+		double[] array = new double[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = random.nextGaussian();
+		}
+		return array;
+	}
+}
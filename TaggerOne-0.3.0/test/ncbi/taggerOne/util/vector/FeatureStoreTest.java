@@ -0,0 +1,111 @@
+package ncbi.taggerOne.util.vector;
+
+import static org.junit.Assert.*;
+
+import ncbi.taggerOne.T1Constants;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.vector.Vector.VectorIterator;
+
+import org.junit.Test;
+
+public class FeatureStoreTest {
+
+	@Test
+	public void testHeap() {
+		testStore(new FeatureStore(FeatureStore.Storage.HEAP, null, 8));
+	}
+
+	@Test
+	public void testDirect() {
+		testStore(new FeatureStore(FeatureStore.Storage.DIRECT, null, 8));
+	}
+
+	@Test
+	public void testMapped() {
+		testStore(new FeatureStore(FeatureStore.Storage.MAPPED, null, 8));
+	}
+
+	/*
+	 * Chunk sizes are in entries of 8 bytes, so larger chunks would overflow the buffer size
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testChunkEntriesTooLarge() {
+		new FeatureStore(FeatureStore.Storage.HEAP, null, Integer.MAX_VALUE / 8 + 1);
+	}
+
+	private static void testStore(FeatureStore store) {
+		Dictionary<String> d = getDictionary(20);
+		Vector<String> v1 = SparseVector.factory.create(d);
+		v1.set(17, 2.0);
+		v1.set(3, 1.0);
+		v1.set(9, -0.5);
+		Vector<String> v2 = SparseVector.factory.create(d);
+		for (int i = 0; i < 7; i++) {
+			v2.set(i * 2, i + 1.0);
+		}
+		Vector<String> empty = SparseVector.factory.create(d);
+
+		Vector<String> s1 = store.add(v1);
+		Vector<String> s2 = store.add(v2); // Does not fit in the first chunk
+		Vector<String> s3 = store.add(empty);
+		assertEquals(2, store.getChunkCount());
+		assertEquals(10, store.getEntryCount());
+		assertEquals(3, store.getSliceCount());
+
+		checkSame(v1, s1);
+		checkSame(v2, s2);
+		checkSame(empty, s3);
+		assertEquals("[3:e3=1.0, 9:e9=-0.5, 17:e17=2.0]", s1.visualize());
+		assertTrue(s3.isEmpty());
+
+		Vector<String> weights = DenseVector.factory.create(d);
+		for (int i = 0; i < 20; i++) {
+			weights.set(i, 0.25 * i);
+		}
+		assertEquals(v1.dotProduct(weights), s1.dotProduct(weights), T1Constants.EPSILON);
+		assertEquals(v2.dotProduct(weights), s2.dotProduct(weights), T1Constants.EPSILON);
+		assertEquals(v1.dotProduct(v2), s1.dotProduct(v2), T1Constants.EPSILON);
+		assertEquals(0.0, s3.dotProduct(weights), T1Constants.EPSILON);
+
+		Vector<String> increment = DenseVector.factory.create(d);
+		increment.increment(2.0, s1);
+		assertEquals(4.0, increment.get(17), T1Constants.EPSILON);
+		assertEquals(-1.0, increment.get(9), T1Constants.EPSILON);
+		assertEquals(v1, s1.copy());
+
+		try {
+			s1.increment(0, 1.0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		store.close();
+	}
+
+	private static void checkSame(Vector<String> expected, Vector<String> actual) {
+		assertEquals(expected.cardinality(), actual.cardinality());
+		for (int i = 0; i < expected.dimensions(); i++) {
+			assertEquals(expected.get(i), actual.get(i), T1Constants.EPSILON);
+		}
+		assertEquals(expected.length(), actual.length(), T1Constants.EPSILON);
+		int count = 0;
+		int previousIndex = -1;
+		VectorIterator iterator = actual.getIterator();
+		while (iterator.next()) {
+			assertTrue(iterator.getIndex() > previousIndex);
+			previousIndex = iterator.getIndex();
+			assertEquals(expected.get(iterator.getIndex()), iterator.getValue(), T1Constants.EPSILON);
+			count++;
+		}
+		assertEquals(expected.cardinality(), count);
+	}
+
+	private static Dictionary<String> getDictionary(int size) {
+		Dictionary<String> dict = new Dictionary<String>();
+		for (int i = 0; i < size; i++) {
+			dict.addElement("e" + i);
+		}
+		dict.freeze();
+		return dict;
+	}
+}
@@ -0,0 +1,88 @@
+package ncbi.taggerOne.util.vector;
+
+import static org.junit.Assert.*;
+
+import ncbi.taggerOne.util.Dictionary;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class VectorInternerTest {
+
+	@After
+	public void tearDown() {
+		VectorInterner.clear();
+	}
+
+	@Test
+	public void testIntern() {
+		Dictionary<String> d = getDictionary(10);
+		Vector<String> v1 = createVector(d, 2, 7);
+		Vector<String> v2 = createVector(d, 2, 7);
+		Vector<String> v3 = createVector(d, 2, 8);
+
+		Vector<String> i1 = VectorInterner.intern(v1);
+		assertTrue(i1 instanceof FrozenSparseVector);
+		assertEquals(v1, i1);
+		assertSame(i1, VectorInterner.intern(v2));
+		assertSame(i1, VectorInterner.intern(i1));
+		// Held, as the table only holds vectors weakly
+		Vector<String> i3 = VectorInterner.intern(v3);
+		assertNotSame(i1, i3);
+		assertEquals(2, VectorInterner.size());
+
+		// Canonicalizing finds the interned instance, but does not add new vectors
+		assertSame(i1, VectorInterner.canonicalize(createVector(d, 2, 7)));
+		Vector<String> c4 = VectorInterner.canonicalize(createVector(d, 3, 4));
+		assertTrue(c4 instanceof FrozenSparseVector);
+		assertEquals(2, VectorInterner.size());
+
+		// Dense vectors are not interned
+		Vector<String> dense = DenseVector.factory.create(d);
+		assertSame(dense, VectorInterner.intern(dense));
+		assertEquals(2, VectorInterner.size());
+		assertNotNull(i3);
+	}
+
+	@Test(timeout = 60000)
+	public void testCollected() throws InterruptedException {
+		Dictionary<String> d = getDictionary(10);
+		Vector<String> held = VectorInterner.intern(createVector(d, 1, 2));
+		VectorInterner.intern(createVector(d, 3, 4));
+		// Vectors no longer used elsewhere are removed from the table
+		while (VectorInterner.size() > 1) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertSame(held, VectorInterner.canonicalize(createVector(d, 1, 2)));
+		VectorInterner.canonicalize(createVector(d, 3, 4));
+		assertEquals(1, VectorInterner.size());
+	}
+
+	@Test
+	public void testFingerprint() {
+		Dictionary<String> d = getDictionary(10);
+		FrozenSparseVector<String> f1 = FrozenSparseVector.freeze(createVector(d, 2, 7));
+		FrozenSparseVector<String> f2 = FrozenSparseVector.freeze(createVector(d, 2, 7));
+		FrozenSparseVector<String> f3 = FrozenSparseVector.freeze(createVector(d, 7, 2));
+		assertEquals(f1.getFingerprint(), f2.getFingerprint());
+		assertFalse(f1.getFingerprint() == f3.getFingerprint());
+		assertFalse(f1.equals(f3));
+	}
+
+	private static Vector<String> createVector(Dictionary<String> d, int index1, int index2) {
+		Vector<String> vector = SparseVector.factory.create(d);
+		vector.set(index1, 1.0);
+		vector.set(index2, 0.5);
+		return vector;
+	}
+
+	private static Dictionary<String> getDictionary(int size) {
+		Dictionary<String> dict = new Dictionary<String>();
+		for (int i = 0; i < size; i++) {
+			dict.addElement("e" + i);
+		}
+		dict.freeze();
+		return dict;
+	}
+}
@@ -80,6 +80,97 @@ public class VectorTest {
 		testHashCode(factory);
 	}
 
+	@Test
+	public void testFrozen() {
+		Dictionary<String> d = getDictionary(20);
+		Vector<String> sv = SparseVector.factory.create(d);
+		sv.set(17, 2.0);
+		sv.set(3, 1.0);
+		sv.set(9, -0.5);
+		sv.increment(11, 1.0);
+		sv.increment(11, -1.0); // Stored zero
+		FrozenSparseVector<String> fv = FrozenSparseVector.freeze(sv);
+		assertSame(fv, FrozenSparseVector.freeze(fv));
+		assertEquals(4, fv.cardinality());
+		assertEquals("[3:e3=1.0, 9:e9=-0.5, 11:e11=0.0, 17:e17=2.0]", fv.visualize());
+		assertEquals(-0.5, fv.get(9), T1Constants.EPSILON);
+		assertEquals(0.0, fv.get(10), T1Constants.EPSILON);
+		assertEquals(sv.length(), fv.length(), 0.0);
+
+		// Interchangeable with the original as a key
+		assertTrue(fv.equals(sv));
+		assertTrue(sv.equals(fv));
+		assertEquals(sv.hashCode(), fv.hashCode());
+		assertEquals(fv, FrozenSparseVector.freeze(sv.copy()));
+		Map<Vector<String>, String> map = new HashMap<Vector<String>, String>();
+		map.put(sv, "value");
+		assertEquals("value", map.get(fv));
+		Vector<String> sv2 = sv.copy();
+		sv2.set(9, -0.25);
+		assertFalse(fv.equals(sv2));
+		assertFalse(sv2.equals(fv));
+
+		// Dot products with each kind of vector
+		Vector<String> dv = DenseVector.factory.create(d);
+		for (int i = 0; i < 20; i++) {
+			dv.set(i, 0.25 * i);
+		}
+		FrozenSparseVector<String> fv2 = FrozenSparseVector.freeze(sv2);
+		assertEquals(sv.dotProduct(dv), fv.dotProduct(dv), T1Constants.EPSILON);
+		assertEquals(sv.dotProduct(sv2), fv.dotProduct(fv2), T1Constants.EPSILON);
+		assertEquals(sv.dotProduct(sv2), fv.dotProduct(sv2), T1Constants.EPSILON);
+		assertEquals(sv.dotProduct(sv2), sv.dotProduct(fv2), T1Constants.EPSILON);
+		Vector<String> sav = SparseArrayVector.factory.create(d);
+		sav.set(9, 4.0);
+		assertEquals(-2.0, fv.dotProduct(sav), T1Constants.EPSILON);
+		FrozenSparseVector<String> fromArray = FrozenSparseVector.freeze(sav);
+		assertEquals(1, fromArray.cardinality());
+		assertEquals(-2.0, fromArray.dotProduct(fv), T1Constants.EPSILON);
+		dv.increment(fv);
+		assertEquals(6.25, dv.get(17), T1Constants.EPSILON);
+
+		// Read-only, but copies are mutable
+		try {
+			fv.set(1, 1.0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		try {
+			fv.normalize();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		Vector<String> copy = fv.copy();
+		copy.set(1, 1.0);
+		assertEquals(5, copy.cardinality());
+		assertEquals(4, fv.cardinality());
+		Map<Integer, Double> values = new HashMap<Integer, Double>();
+		values.put(3, 1.0);
+		values.put(9, -0.5);
+		values.put(11, 0.0);
+		values.put(17, 2.0);
+		checkIterator(fv, values);
+	}
+
+	@Test
+	public void testSparseArrayPack() {
+		Dictionary<String> d = getDictionary(20);
+		Vector<String> sav = SparseArrayVector.factory.create(d);
+		for (int i = 0; i < 10; i++) {
+			sav.set(i, i + 1.0);
+		}
+		// Consecutive zeros, including the first and last entries
+		sav.increment(0, -1.0);
+		sav.increment(4, -5.0);
+		sav.increment(5, -6.0);
+		sav.increment(9, -10.0);
+		sav.pack();
+		assertEquals(6, sav.cardinality());
+		assertEquals("[1:e1=2.0, 2:e2=3.0, 3:e3=4.0, 6:e6=7.0, 7:e7=8.0, 8:e8=9.0]", sav.visualize());
+	}
+
 	@Test
 	public void testCardinality() {
 		Dictionary<String> d = getDictionary(1000);
@@ -0,0 +1,92 @@
+package ncbi.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkedFileParserTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testSmallChunks() throws IOException {
+		StringBuilder text = new StringBuilder();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			String line = "line " + i + " éß";
+			expected.add(line);
+			text.append(line).append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+		File file = write("lines.txt", text.toString(), false);
+		assertEquals(expected, parse(new ChunkedFileParser(executor, 16, 2), Arrays.asList(file)));
+	}
+
+	@Test
+	public void testLinesSpanningFiles() throws IOException {
+		File file1 = write("MRCONSO.RRF.aa", "a|1\nb|", false);
+		File file2 = write("MRCONSO.RRF.ab.gz", "2\nc|3\nd", true);
+		File file3 = write("MRCONSO.RRF.ac", "|4\n", false);
+		List<String> lines = parse(new ChunkedFileParser(executor, 4, 1), Arrays.asList(file1, file2, file3));
+		assertEquals(Arrays.asList("a|1", "b|2", "c|3", "d|4"), lines);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File file = write("empty.txt", "", false);
+		assertTrue(parse(new ChunkedFileParser(), Arrays.asList(file)).isEmpty());
+	}
+
+	private File write(String filename, String text, boolean compress) throws IOException {
+		File file = folder.newFile(filename);
+		OutputStream output = new FileOutputStream(file);
+		if (compress) {
+			output = new GZIPOutputStream(output);
+		}
+		output.write(text.getBytes(StandardCharsets.UTF_8));
+		output.close();
+		return file;
+	}
+
+	private static List<String> parse(ChunkedFileParser parser, List<File> files) {
+		List<List<String>> chunks = parser.parse(files, new ChunkedFileParser.ChunkHandler<List<String>>() {
+			@Override
+			public List<String> parse(List<String> lines) {
+				return lines;
+			}
+		});
+		List<String> lines = new ArrayList<String>();
+		for (List<String> chunk : chunks) {
+			lines.addAll(chunk);
+		}
+		return lines;
+	}
+}
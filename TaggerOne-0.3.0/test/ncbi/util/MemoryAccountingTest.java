@@ -0,0 +1,103 @@
+package ncbi.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ncbi.taggerOne.util.AbbreviationResolver;
+import ncbi.taggerOne.util.Dictionary;
+import ncbi.taggerOne.util.LRUCache;
+import ncbi.taggerOne.util.Trie;
+import ncbi.taggerOne.util.matrix.DenseBySparseMatrix;
+import ncbi.taggerOne.util.vector.SparseVector;
+import ncbi.util.metrics.MetricsExporter;
+
+public class MemoryAccountingTest {
+
+	@Test
+	public void testSizes() {
+		assertEquals(0, MemoryAccounting.align(0));
+		assertEquals(8, MemoryAccounting.align(1));
+		assertEquals(16, MemoryAccounting.align(16));
+		assertTrue(MemoryAccounting.array(10, 8) >= 80);
+		assertTrue(MemoryAccounting.string("abcdef") > MemoryAccounting.string("a"));
+		assertEquals(16, MemoryAccounting.hashTableLength(12, 0.75f, 16));
+		assertEquals(32, MemoryAccounting.hashTableLength(13, 0.75f, 16));
+		assertTrue(MemoryAccounting.hashMap(100) > MemoryAccounting.hashMap(10));
+		assertEquals(0, MemoryAccounting.sizeOf(Integer.valueOf(1)));
+	}
+
+	@Test
+	public void testGrowth() {
+		Dictionary<String> dictionary = new Dictionary<String>();
+		long empty = dictionary.getEstimatedBytes();
+		for (int i = 0; i < 1000; i++) {
+			dictionary.addElement("F" + i);
+		}
+		dictionary.freeze();
+		assertTrue(dictionary.getEstimatedBytes() > empty + 1000 * MemoryAccounting.string("F0"));
+
+		SparseVector<String> vector = new SparseVector<String>(dictionary);
+		long emptyVector = vector.getEstimatedBytes();
+		for (int i = 0; i < 100; i++) {
+			vector.increment(i, 1.0);
+		}
+		assertTrue(vector.getEstimatedBytes() > emptyVector + 100 * 12);
+
+		DenseBySparseMatrix<String, String> matrix = new DenseBySparseMatrix<String, String>(dictionary, dictionary);
+		long emptyMatrix = matrix.getEstimatedBytes();
+		matrix.set(1, 2, 1.0);
+		assertTrue(matrix.getEstimatedBytes() > emptyMatrix);
+
+		Trie<String, String> trie = new Trie<String, String>();
+		long emptyTrie = trie.getEstimatedBytes();
+		trie.add(Arrays.asList("a", "b"), "ab");
+		assertTrue(trie.getEstimatedBytes() > emptyTrie + MemoryAccounting.string("ab"));
+
+		LRUCache<String, String> cache = new LRUCache<String, String>(LRUCache.DEFAULT_CAPACITY, LRUCache.DEFAULT_LOAD_FACTOR, 2);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		long full = cache.getEstimatedBytes();
+		cache.put("c", "3");
+		// The eldest entry is evicted
+		assertEquals(full, cache.getEstimatedBytes());
+	}
+
+	@Test
+	public void testAbbreviationResolver() {
+		AbbreviationResolver resolver = new AbbreviationResolver();
+		long empty = resolver.getEstimatedBytes();
+		Map<String, String> abbreviations = new HashMap<String, String>();
+		abbreviations.put("BC", "breast cancer");
+		resolver.addAbbreviations("1", abbreviations);
+		long added = resolver.getEstimatedBytes();
+		assertTrue(added > empty + MemoryAccounting.string("breast cancer"));
+		// Adding the same abbreviation again does not change the size
+		resolver.addAbbreviations("1", abbreviations);
+		assertEquals(added, resolver.getEstimatedBytes());
+		resolver.clear();
+		assertEquals(empty, resolver.getEstimatedBytes());
+	}
+
+	@Test
+	public void testRegister() throws IOException {
+		Dictionary<String> dictionary = new Dictionary<String>();
+		dictionary.addElement("A");
+		dictionary.freeze();
+		MemoryAccounting.register("memoryaccountingtest", dictionary);
+		// The same structure is not registered twice
+		MemoryAccounting.register("memoryaccountingtest_again", dictionary);
+		MemoryAccounting.logReport();
+		StringWriter writer = new StringWriter();
+		MetricsExporter.writePrometheus(writer);
+		String text = writer.toString();
+		assertTrue(text.contains("taggerone_memory_estimated_bytes{structure=\"memoryaccountingtest\"} " + dictionary.getEstimatedBytes()));
+		assertFalse(text.contains("memoryaccountingtest_again"));
+	}
+}
@@ -0,0 +1,62 @@
+package ncbi.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProfilerTest {
+
+	@Test
+	public void testProbe() {
+		Profiler.Probe probe = Profiler.probe("ProfilerTest.testProbe()");
+		assertSame(probe, Profiler.probe("ProfilerTest.testProbe()"));
+		assertEquals("ProfilerTest.testProbe()", probe.getName());
+		probe.start();
+		probe.stop();
+		Profiler.start("ProfilerTest.testProbe()");
+		Profiler.stop("ProfilerTest.testProbe()");
+		if (Profiler.isEnabled()) {
+			assertEquals(2, probe.getCount());
+			assertTrue(probe.getElapsedNanos() >= 0);
+			assertEquals("ProfilerTest.testProbe()@3", probe.child(3).getName());
+			assertSame(probe.child(3), Profiler.probe("ProfilerTest.testProbe()@3"));
+			assertSame(probe.child("x"), Profiler.probe("ProfilerTest.testProbe()@x"));
+		} else {
+			// Nothing is recorded, and children are not created
+			assertEquals(0, probe.getCount());
+			assertSame(probe, probe.child(3));
+			assertSame(probe, probe.child("x"));
+		}
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException {
+		final Profiler.Probe probe = Profiler.probe("ProfilerTest.testThreads()");
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						probe.start();
+						probe.child(j % 5).start();
+						probe.child(j % 5).stop();
+						probe.stop();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(Profiler.isEnabled() ? 40000 : 0, probe.getCount());
+		assertEquals(Profiler.isEnabled() ? 8000 : 0, Profiler.probe("ProfilerTest.testThreads()@4").getCount());
+		Profiler.print("\t");
+	}
+}
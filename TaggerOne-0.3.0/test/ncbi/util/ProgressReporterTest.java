@@ -0,0 +1,85 @@
+package ncbi.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProgressReporterTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void testRate() {
+		ProgressReporter reporter = new ProgressReporter("ProgressReporterTest", "jobs", 10, 1000L);
+		reporter.startBatch(1000, 0);
+		assertTrue(Double.isNaN(reporter.getRate()));
+		assertEquals(-1, reporter.getEstimatedRemaining());
+		reporter.reportCompletions(5);
+		// Fewer than reportingIncrement jobs since the last report
+		assertFalse(reporter.report(SECOND));
+		reporter.reportCompletions(95);
+		assertTrue(reporter.report(2 * SECOND));
+		assertEquals(50.0, reporter.getRate(), 1.0e-9);
+		assertEquals(18000, reporter.getEstimatedRemaining());
+		// A slower interval moves the average part of the way towards the new rate
+		reporter.reportCompletions(10);
+		assertTrue(reporter.report(3 * SECOND));
+		assertTrue(reporter.getRate() < 50.0);
+		assertTrue(reporter.getRate() > 10.0);
+		reporter.completeBatch();
+		assertEquals(110, reporter.getCompleted());
+	}
+
+	@Test
+	public void testUnknownTotal() {
+		ProgressReporter reporter = new ProgressReporter("ProgressReporterTest", 1);
+		reporter.startBatch(0, 0);
+		reporter.reportCompletion();
+		assertTrue(reporter.report(SECOND));
+		assertEquals(1.0, reporter.getRate(), 1.0e-9);
+		assertEquals(-1, reporter.getEstimatedRemaining());
+		reporter.completeBatch();
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException {
+		final ProgressReporter reporter = new ProgressReporter("ProgressReporterTest", "jobs", 1, 1L);
+		reporter.startBatch(40000);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						reporter.reportCompletion();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		reporter.completeBatch();
+		assertEquals(40000, reporter.getCompleted());
+	}
+
+	@Test
+	public void testOneTaskPerReporter() {
+		ProgressReporter reporter = new ProgressReporter("ProgressReporterTest", "jobs", 1, 60000L);
+		reporter.startBatch(1);
+		int scheduledTasks = ProgressReporter.getScheduler().getQueue().size();
+		// As when a pipeline runs a batch per document
+		for (int i = 0; i < 1000; i++) {
+			reporter.startBatch(1);
+			reporter.reportCompletion();
+			reporter.completeBatch();
+		}
+		assertEquals(scheduledTasks, ProgressReporter.getScheduler().getQueue().size());
+	}
+}
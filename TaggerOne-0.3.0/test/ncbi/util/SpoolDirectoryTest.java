@@ -0,0 +1,162 @@
+package ncbi.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SpoolDirectoryTest {
+
+	private static final int FILES = 20;
+
+	private static File createTempDir() throws IOException {
+		File dir = Files.createTempDirectory("spool").toFile();
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static void write(File file, String text) throws IOException {
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Thread start(final SpoolDirectory spoolDirectory, final SpoolDirectory.FileHandler handler) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				spoolDirectory.run(2, handler);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	@Test
+	public void testConsumers() throws IOException, InterruptedException {
+		File inputDir = createTempDir();
+		File claimedDir = new File(inputDir, ".claimed");
+		File failedDir = new File(inputDir, "failed");
+		final Set<String> processed = ConcurrentHashMap.newKeySet();
+		final AtomicInteger calls = new AtomicInteger();
+		SpoolDirectory.FileHandler handler = new SpoolDirectory.FileHandler() {
+			@Override
+			public void process(File claimedFile, String name) throws IOException {
+				calls.incrementAndGet();
+				String text = new String(Files.readAllBytes(claimedFile.toPath()), StandardCharsets.UTF_8);
+				if (text.equals("fail")) {
+					throw new IOException("Failed " + name);
+				}
+				processed.add(text);
+			}
+		};
+		// Files present before starting are found by the initial scan
+		for (int i = 0; i < FILES / 2; i++) {
+			write(new File(inputDir, "file" + i), "file" + i);
+		}
+		// Two consumers share the directory
+		SpoolDirectory spoolDirectory1 = new SpoolDirectory(inputDir, claimedDir, failedDir, 2, 50);
+		SpoolDirectory spoolDirectory2 = new SpoolDirectory(inputDir, claimedDir, failedDir, 2, 50);
+		Thread thread1 = start(spoolDirectory1, handler);
+		Thread thread2 = start(spoolDirectory2, handler);
+		// Files written later are found by watching, and incomplete files are ignored
+		for (int i = FILES / 2; i < FILES; i++) {
+			File incompleteFile = new File(inputDir, "file" + i + SpoolDirectory.INCOMPLETE_SUFFIX);
+			write(incompleteFile, "file" + i);
+			assertTrue(incompleteFile.renameTo(new File(inputDir, "file" + i)));
+		}
+		write(new File(inputDir, "bad"), "fail");
+		write(new File(inputDir, "partial" + SpoolDirectory.INCOMPLETE_SUFFIX), "partial");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (spoolDirectory1.getProcessedFiles() + spoolDirectory2.getProcessedFiles() + spoolDirectory1.getFailedFiles() + spoolDirectory2.getFailedFiles() < FILES + 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		spoolDirectory1.close();
+		spoolDirectory2.close();
+		thread1.join();
+		thread2.join();
+
+		// Each file was processed exactly once
+		assertEquals(FILES + 1, calls.get());
+		assertEquals(FILES, processed.size());
+		assertEquals(FILES, spoolDirectory1.getProcessedFiles() + spoolDirectory2.getProcessedFiles());
+		assertEquals(1, spoolDirectory1.getFailedFiles() + spoolDirectory2.getFailedFiles());
+		assertEquals(0, claimedDir.list().length);
+		assertEquals(Arrays.asList("bad"), Arrays.asList(failedDir.list()));
+		assertTrue(new File(inputDir, "partial" + SpoolDirectory.INCOMPLETE_SUFFIX).exists());
+	}
+
+	@Test
+	public void testStaleClaims() throws IOException, InterruptedException {
+		File inputDir = createTempDir();
+		File claimedDir = new File(inputDir, ".claimed");
+		File failedDir = new File(inputDir, "failed");
+		assertTrue(claimedDir.mkdir());
+		// Left by consumers that stopped: one long ago, one recently, which may still be processing its file
+		File staleClaim = new File(claimedDir, "123@other-host.stale");
+		write(staleClaim, "stale");
+		assertTrue(staleClaim.setLastModified(System.currentTimeMillis() - 120000));
+		File recentClaim = new File(claimedDir, "456@other-host.recent");
+		write(recentClaim, "recent");
+		final Set<String> processed = ConcurrentHashMap.newKeySet();
+		SpoolDirectory.FileHandler handler = new SpoolDirectory.FileHandler() {
+			@Override
+			public void process(File claimedFile, String name) throws IOException {
+				processed.add(name);
+			}
+		};
+		SpoolDirectory spoolDirectory = new SpoolDirectory(inputDir, claimedDir, failedDir, 2, 50, 60000);
+		Thread thread = start(spoolDirectory, handler);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (spoolDirectory.getProcessedFiles() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		spoolDirectory.close();
+		thread.join();
+
+		assertEquals(Collections.singleton("stale"), processed);
+		assertEquals(Arrays.asList(recentClaim.getName()), Arrays.asList(claimedDir.list()));
+	}
+
+	/*
+	 * A stale claim must not replace a file of the same name added to the input directory after it was claimed
+	 */
+	@Test(timeout = 30000)
+	public void testStaleClaimNameConflict() throws IOException, InterruptedException {
+		File inputDir = createTempDir();
+		File claimedDir = new File(inputDir, ".claimed");
+		File failedDir = new File(inputDir, "failed");
+		assertTrue(claimedDir.mkdir());
+		File staleClaim = new File(claimedDir, "123@other-host.batch");
+		write(staleClaim, "stale");
+		assertTrue(staleClaim.setLastModified(System.currentTimeMillis() - 120000));
+		write(new File(inputDir, "batch"), "new");
+		final Set<String> processed = ConcurrentHashMap.newKeySet();
+		SpoolDirectory.FileHandler handler = new SpoolDirectory.FileHandler() {
+			@Override
+			public void process(File claimedFile, String name) throws IOException {
+				processed.add(new String(Files.readAllBytes(claimedFile.toPath()), StandardCharsets.UTF_8));
+			}
+		};
+		SpoolDirectory spoolDirectory = new SpoolDirectory(inputDir, claimedDir, failedDir, 2, 50, 60000);
+		Thread thread = start(spoolDirectory, handler);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (spoolDirectory.getProcessedFiles() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		spoolDirectory.close();
+		thread.join();
+
+		// The new file is processed, and the stale claim kept in the failed directory rather than lost
+		assertEquals(Collections.singleton("new"), processed);
+		assertEquals(0, claimedDir.list().length);
+		assertEquals("stale", new String(Files.readAllBytes(new File(failedDir, "batch").toPath()), StandardCharsets.UTF_8));
+	}
+}
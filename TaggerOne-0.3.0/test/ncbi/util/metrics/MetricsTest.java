@@ -0,0 +1,148 @@
+package ncbi.util.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@Test
+	public void testHistogramBuckets() {
+		for (long value = 0; value < 100000; value += 7) {
+			int bucket = Histogram.getBucket(value);
+			assertTrue(value <= Histogram.getBucketUpperBound(bucket));
+			if (bucket > 0) {
+				assertTrue(value > Histogram.getBucketUpperBound(bucket - 1));
+			}
+		}
+		int bucket = Histogram.getBucket(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, Histogram.getBucketUpperBound(bucket));
+	}
+
+	@Test
+	public void testHistogramPercentiles() {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.snapshot().getValueAtPercentile(50.0));
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500500000L, snapshot.getSum());
+		assertEquals(1000000, snapshot.getMax());
+		assertEquals(500000, snapshot.getValueAtPercentile(50.0), 500000 * 0.04);
+		assertEquals(990000, snapshot.getValueAtPercentile(99.0), 990000 * 0.04);
+		assertEquals(1000000, snapshot.getValueAtPercentile(100.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHistogramNegative() {
+		new Histogram().record(-1);
+	}
+
+	@Test
+	public void testRegistry() {
+		MetricFamily<Counter> family = Metrics.counterFamily("metricstest_registry_total", "Test", "kind");
+		assertSame(family, Metrics.counterFamily("metricstest_registry_total", "Test", "kind"));
+		assertSame(family.get("a"), family.get("a"));
+		family.get("a").increment();
+		family.get("a").add(2);
+		assertEquals(3, family.get("a").get());
+		assertEquals(0, family.get("b").get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegistryTypeMismatch() {
+		Metrics.counter("metricstest_mismatch", "Test");
+		Metrics.histogram("metricstest_mismatch", "Test");
+	}
+
+	@Test
+	public void testPrometheus() throws IOException {
+		Metrics.counterFamily("metricstest_prometheus_total", "Test \"counter\"", "kind").get("x\"y").add(5);
+		Metrics.histogram("metricstest_prometheus_seconds", "Test histogram").record(2000000000L);
+		Metrics.gauge("metricstest_prometheus_gauge", "Test gauge", new Gauge() {
+			@Override
+			public double getValue() {
+				return 1.5;
+			}
+		});
+		StringWriter writer = new StringWriter();
+		MetricsExporter.writePrometheus(writer);
+		String text = writer.toString();
+		assertTrue(text.contains("# TYPE metricstest_prometheus_total counter\n"));
+		assertTrue(text.contains("metricstest_prometheus_total{kind=\"x\\\"y\"} 5\n"));
+		assertTrue(text.contains("# TYPE metricstest_prometheus_seconds summary\n"));
+		assertTrue(text.contains("metricstest_prometheus_seconds{quantile=\"0.5\"} 2\n"));
+		assertTrue(text.contains("metricstest_prometheus_seconds_count 1\n"));
+		assertTrue(text.contains("metricstest_prometheus_gauge 1.5\n"));
+	}
+
+	@Test
+	public void testJSON() throws IOException {
+		Metrics.counter("metricstest_json_total", "Test").increment();
+		StringWriter writer = new StringWriter();
+		MetricsExporter.writeJSON(writer);
+		String text = writer.toString();
+		assertTrue(text.startsWith("{\"timestamp\":"));
+		assertTrue(text.contains("{\"name\":\"metricstest_json_total\",\"type\":\"counter\",\"help\":\"Test\",\"values\":[{\"value\":1}]}"));
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		Metrics.counter("metricstest_file_total", "Test").increment();
+		File file = File.createTempFile("MetricsTest", ".json");
+		try {
+			MetricsExporter exporter = new MetricsExporter();
+			exporter.startFile(file, MetricsExporter.JSON_FORMAT, 60);
+			exporter.close();
+			String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			assertTrue(text.contains("\"name\":\"metricstest_file_total\""));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testServer() throws IOException {
+		Metrics.counter("metricstest_server_total", "Test").increment();
+		MetricsExporter exporter = new MetricsExporter();
+		// Binds to the loopback address by default
+		exporter.startServer(0);
+		try {
+			String host = InetAddress.getLoopbackAddress().getHostAddress();
+			String text = fetch(new URL("http", host, exporter.getPort(), "/metrics"));
+			assertTrue(text.contains("metricstest_server_total 1\n"));
+			text = fetch(new URL("http", host, exporter.getPort(), "/metrics.json"));
+			assertTrue(text.contains("\"name\":\"metricstest_server_total\""));
+		} finally {
+			exporter.close();
+		}
+	}
+
+	private static String fetch(URL url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		assertEquals(200, connection.getResponseCode());
+		InputStream in = connection.getInputStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read = in.read(buffer);
+		while (read >= 0) {
+			out.write(buffer, 0, read);
+			read = in.read(buffer);
+		}
+		in.close();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+}